@@ -1,6 +1,7 @@
 plugins {
     application
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "ai.openclaw"
@@ -13,10 +14,13 @@ repositories {
 dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.0")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:2.17.0")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:2.17.0")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:2.17.0")
     implementation("info.picocli:picocli:4.7.5")
     implementation("org.java-websocket:Java-WebSocket:1.5.7")
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     implementation("ch.qos.logback:logback-classic:1.5.3")
+    implementation("com.h2database:h2-mvstore:2.2.224")
     
     testImplementation(platform("org.junit:junit-bom:5.10.2"))
     testImplementation("org.junit.jupiter:junit-jupiter")
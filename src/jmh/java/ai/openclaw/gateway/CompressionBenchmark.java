@@ -0,0 +1,89 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.session.Message;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * CPU cost and bytes on the wire of permessage-deflate for a typical
+ * session.history response, compressed the way the extension does it: raw
+ * deflate with a sync flush per message, keeping the window between messages
+ * (context takeover) or resetting it. The compressed size of the last message
+ * is printed at the end of each trial next to the uncompressed size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    private static final String REPLY = "Here is the updated handler. It validates the session id before "
+            + "loading anything, returns early when the page is empty, and logs at debug level:\n\n"
+            + "    if (sessionId == null || sessionId.isBlank()) {\n"
+            + "        throw new IllegalArgumentException(\"sessionId is required\");\n"
+            + "    }\n";
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    @Param({"true", "false"})
+    public boolean contextTakeover;
+
+    private byte[] payload;
+    private byte[] out;
+    private Deflater deflater;
+    private int compressedBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            messages.add(new Message(i % 2 == 0 ? "user" : "assistant", REPLY + i));
+        }
+        ObjectNode page = Json.mapper().createObjectNode().put("sessionId", "bench").put("total", 50);
+        page.set("messages", Json.mapper().valueToTree(messages));
+        RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
+        response.setId("1");
+        response.setResult(page);
+        payload = Json.mapper().writeValueAsBytes(response);
+        out = new byte[payload.length + 1024];
+        deflater = new Deflater(level, true);
+    }
+
+    @Benchmark
+    public int deflate() {
+        if (!contextTakeover) {
+            deflater.reset();
+        }
+        deflater.setInput(payload);
+        int n = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+        compressedBytes = n;
+        return n;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%nlevel=%d contextTakeover=%s: %d -> %d bytes (%.1f%%)%n", level, contextTakeover,
+                payload.length, compressedBytes, 100.0 * compressedBytes / payload.length);
+        deflater.end();
+    }
+}
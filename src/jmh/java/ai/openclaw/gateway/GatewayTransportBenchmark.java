@@ -0,0 +1,158 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two gateway transports side by side: RPC round trips per second from
+ * 16 concurrent clients while {@code idleConnections} other clients stay
+ * connected, and what holding those idle connections costs. The heap and
+ * thread counts after opening them are printed at the end of each trial;
+ * clients run in the same JVM, so the heap figure includes the JDK
+ * client's share, which is the same for both transports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class GatewayTransportBenchmark {
+    private static final String REQUEST = "{\"id\":\"1\",\"method\":\"gateway.health\"}";
+
+    @Param({"java-websocket", "virtual"})
+    public String transport;
+
+    @Param({"100", "2000"})
+    public int idleConnections;
+
+    private GatewayServer server;
+    private HttpClient http;
+    private URI uri;
+    private final List<WebSocket> idle = new ArrayList<>();
+    private long heapPerConnection;
+    private int threadsAdded;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(port);
+        gateway.setTransport(transport);
+        gateway.setMaxConnections(0);
+        gateway.setMaxInFlight(0);
+        config.setGateway(gateway);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        server = new GatewayServer(config, router);
+        server.start();
+        awaitListening(port);
+        uri = URI.create("ws://127.0.0.1:" + port);
+        http = HttpClient.newHttpClient();
+
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (int i = 0; i < idleConnections; i++) {
+            idle.add(http.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() { }).join());
+        }
+        heapPerConnection = (usedHeap() - heapBefore) / idleConnections;
+        threadsAdded = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket probe = new Socket("127.0.0.1", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Gateway did not start", new ConnectException("port " + port));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        System.out.printf("%ntransport=%s idleConnections=%d: ~%d heap bytes and %d platform threads added "
+                + "for the idle connections%n", transport, idleConnections, heapPerConnection, threadsAdded);
+        idle.forEach(WebSocket::abort);
+        server.stop(1000, "done");
+        http.close();
+    }
+
+    /** One connection per benchmark thread, with one request outstanding at a time. */
+    @State(Scope.Thread)
+    public static class Client implements WebSocket.Listener {
+        private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        private final StringBuilder partial = new StringBuilder();
+        private WebSocket ws;
+
+        @Setup(Level.Trial)
+        public void connect(GatewayTransportBenchmark gateway) {
+            ws = gateway.http.newWebSocketBuilder().buildAsync(gateway.uri, this).join();
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                responses.add(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            ws.abort();
+        }
+    }
+
+    @Benchmark
+    public String roundTrip(Client client) throws Exception {
+        client.ws.sendText(REQUEST, true).join();
+        return client.responses.take();
+    }
+}
@@ -0,0 +1,107 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a one-shot local client such as {@code openclaw-java send} pays per
+ * invocation, JVM start aside: connect, one RPC round trip, close; over TCP
+ * and over the gateway's Unix domain socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalConnectBenchmark {
+    private static final String REQUEST = "{\"id\":\"1\",\"method\":\"gateway.health\"}";
+
+    private GatewayServer server;
+    private HttpClient http;
+    private URI uri;
+    private Path dir;
+    private Path socket;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        dir = Files.createTempDirectory("openclaw-bench");
+        socket = dir.resolve("gateway.sock");
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(port);
+        gateway.setTransport("virtual");
+        gateway.setUnixSocket(socket.toString());
+        config.setGateway(gateway);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        server = new GatewayServer(config, router);
+        server.start();
+        uri = URI.create("ws://127.0.0.1:" + port);
+        http = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        server.stop(1000, "done");
+        http.close();
+        Files.deleteIfExists(socket);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public String tcp() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        WebSocket ws = http.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() {
+            @Override
+            public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                text.append(data);
+                if (last) {
+                    response.complete(text.toString());
+                }
+                webSocket.request(1);
+                return null;
+            }
+        }).join();
+        ws.sendText(REQUEST, true).join();
+        String result = response.join();
+        ws.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        return result;
+    }
+
+    @Benchmark
+    public byte[] unixSocket() throws Exception {
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, null, RpcEncoding.JSON)) {
+            client.send(REQUEST.getBytes(StandardCharsets.UTF_8));
+            return client.receive();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.session.Message;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame decode and encode throughput of {@link RpcCodec} against the plain
+ * {@code ObjectMapper} calls it replaced. Requests carry a few KB of params,
+ * which the codec skips for a parameterless method such as gateway.health;
+ * the response is a 20-message session.history page. Run with
+ * {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcCodecBenchmark {
+    @Param({"agent.send", "gateway.health"})
+    public String method;
+
+    private RpcCodec codec;
+    private String request;
+    private RpcProtocol.RpcMessage response;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        codec = new RpcCodec(RpcEncoding.JSON, m -> !Set.of("gateway.health").contains(m));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("Please look at line ").append(i).append(" of the handler and explain it. ");
+        }
+        ObjectNode params = Json.mapper().createObjectNode()
+                .put("sessionId", "bench")
+                .put("message", text.toString())
+                .put("idempotencyKey", "4f1c2a9e-bench");
+        params.putArray("attachments").addObject().put("name", "Handler.java").put("lines", 120);
+        RpcProtocol.RpcMessage message = new RpcProtocol.RpcMessage();
+        message.setId("42");
+        message.setMethod(method);
+        message.setParams(params);
+        request = Json.mapper().writeValueAsString(message);
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(new Message(i % 2 == 0 ? "user" : "assistant", text.substring(0, 200 + i)));
+        }
+        ObjectNode page = Json.mapper().createObjectNode().put("sessionId", "bench").put("total", 20);
+        page.set("messages", Json.mapper().valueToTree(messages));
+        response = new RpcProtocol.RpcMessage();
+        response.setId("42");
+        response.setResult(page);
+        out = new ByteArrayOutputStream(32 * 1024);
+    }
+
+    @Benchmark
+    public RpcProtocol.RpcMessage decodeMapper() throws Exception {
+        return Json.mapper().readValue(request, RpcProtocol.RpcMessage.class);
+    }
+
+    @Benchmark
+    public RpcProtocol.RpcMessage decodeCodec() throws Exception {
+        try (JsonParser parser = codec.parser(request)) {
+            parser.nextToken();
+            return codec.readRequest(parser);
+        }
+    }
+
+    @Benchmark
+    public String encodeMapper() throws Exception {
+        return Json.mapper().writeValueAsString(response);
+    }
+
+    /** Into a reused buffer, as responses are written into the connection's frame buffer. */
+    @Benchmark
+    public int encodeCodec() throws Exception {
+        out.reset();
+        codec.write(response, out);
+        return out.size();
+    }
+}
@@ -0,0 +1,92 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the session backends on the two hot paths: appending a message to
+ * a live session, and loading a session with a few hundred messages from disk.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBackendBenchmark {
+
+    @Param({"jsonl", "mvstore"})
+    public String backendName;
+
+    @Param({"200"})
+    public int historySize;
+
+    private Path dir;
+    private SessionBackend backend;
+    private Session live;
+    private String loadedId;
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("session-bench");
+        OpenClawConfig.SessionConfig config = new OpenClawConfig.SessionConfig();
+        config.setCompactAfterSegments(0);
+        backend = SessionBackendProvider.find(backendName).create(dir, config);
+
+        Session loaded = newSession("loaded");
+        for (int i = 0; i < historySize; i++) {
+            backend.append(loaded, new Message(i % 2 == 0 ? "user" : "assistant",
+                    "message " + i + " with a typical amount of conversational text in it"));
+        }
+        loadedId = loaded.getId();
+        live = newSession("live");
+        message = new Message("user", "a short user turn appended to the live session");
+    }
+
+    private static Session newSession(String id) {
+        Session session = new Session();
+        session.setId(id);
+        session.setChannelType("bench");
+        session.setUserId("bench-user");
+        return session;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        backend.close();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean append() throws IOException {
+        return backend.append(live, message);
+    }
+
+    @Benchmark
+    public Session load() throws IOException {
+        return backend.load(loadedId);
+    }
+}
@@ -0,0 +1,76 @@
+package ai.openclaw.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sizing a request's context: re-estimating every message of the
+ * history (what budgeting would cost without cached counts) against reading
+ * the session's running sums, plus raw estimator throughput on a typical
+ * message. Accuracy against real usage numbers is measured separately by
+ * {@link TokenEstimatorCalibration}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenEstimatorBenchmark {
+    private static final String MESSAGE = "Here is the updated handler. It validates the session id before "
+            + "loading anything, returns early when the page is empty, and logs at debug level:\n\n"
+            + "    if (sessionId == null || sessionId.isBlank()) {\n"
+            + "        throw new IllegalArgumentException(\"sessionId is required\");\n"
+            + "    }\n";
+
+    @Param({"100", "1000"})
+    public int historySize;
+
+    private Session session;
+    private List<Message> history;
+
+    @Setup
+    public void setup() {
+        session = new Session("bench", "bench-user");
+        for (int i = 0; i < historySize; i++) {
+            session.addMessage(new Message(i % 2 == 0 ? "user" : "assistant", MESSAGE + i));
+        }
+        history = session.getMessages();
+    }
+
+    @Benchmark
+    public int estimateMessage() {
+        return TokenEstimator.estimate(MESSAGE);
+    }
+
+    @Benchmark
+    public long reestimateHistory() {
+        long total = 0;
+        for (Message message : history) {
+            total += TokenEstimator.estimate(message);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long cachedHistory() {
+        return session.getTokenCount(0, history.size());
+    }
+
+    @Benchmark
+    public int fitBudget() {
+        return session.fitTokens(history.size(), 20_000);
+    }
+}
@@ -0,0 +1,72 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.Json;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares {@link TokenEstimator} with token counts reported by the API.
+ * Input is a JSONL file with one {@code {"text": ..., "inputTokens": n}}
+ * sample per line, e.g. collected from the messages count_tokens endpoint or
+ * from request logs; counts should be for the text alone, without framing.
+ * Prints the estimator's bias (mean of estimate / actual) and the spread of
+ * its relative error, which is what the context budget's safety margin has
+ * to absorb.
+ * <p>
+ * Run with {@code java -cp <jmh classpath> ai.openclaw.session.TokenEstimatorCalibration samples.jsonl}.
+ */
+public final class TokenEstimatorCalibration {
+
+    private TokenEstimatorCalibration() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: TokenEstimatorCalibration <samples.jsonl>");
+            System.exit(2);
+        }
+        List<Double> ratios = new ArrayList<>();
+        long estimatedTotal = 0;
+        long actualTotal = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode sample = Json.mapper().readTree(line);
+                int actual = sample.path("inputTokens").asInt();
+                if (actual <= 0) {
+                    continue;
+                }
+                int estimated = TokenEstimator.estimate(sample.path("text").asText());
+                ratios.add((double) estimated / actual);
+                estimatedTotal += estimated;
+                actualTotal += actual;
+            }
+        }
+        if (ratios.isEmpty()) {
+            System.err.println("No samples");
+            System.exit(1);
+        }
+        Collections.sort(ratios);
+        double mean = ratios.stream().mapToDouble(Double::doubleValue).average().orElse(1);
+        System.out.printf("samples            %d%n", ratios.size());
+        System.out.printf("total ratio        %.3f (%d estimated / %d actual)%n",
+                (double) estimatedTotal / actualTotal, estimatedTotal, actualTotal);
+        System.out.printf("mean ratio         %.3f%n", mean);
+        System.out.printf("p5 / p50 / p95     %.3f / %.3f / %.3f%n",
+                percentile(ratios, 0.05), percentile(ratios, 0.5), percentile(ratios, 0.95));
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.floor(p * sorted.size())));
+    }
+}
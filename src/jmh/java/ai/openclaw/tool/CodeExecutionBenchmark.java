@@ -0,0 +1,60 @@
+package ai.openclaw.tool;
+
+import ai.openclaw.config.Json;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the short commands agents issue by the dozen, run in a fresh
+ * {@code /bin/sh -c} ({@code shellWorkers=0}) and in a persistent shell
+ * worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeExecutionBenchmark {
+    @Param({"0", "1"})
+    public int shellWorkers;
+
+    @Param({"true", "ls", "echo hello | wc -c"})
+    public String command;
+
+    private CodeExecutionTool tool;
+    private ObjectNode input;
+
+    @Setup(Level.Trial)
+    public void start() {
+        tool = new CodeExecutionTool(30, Paths.get(System.getProperty("java.io.tmpdir")),
+                List.of(), List.of(), shellWorkers);
+        input = Json.mapper().createObjectNode().put("command", command);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        tool.close();
+    }
+
+    @Benchmark
+    public ToolResult execute() {
+        return tool.execute(input);
+    }
+}
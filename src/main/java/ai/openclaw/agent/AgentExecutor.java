@@ -4,8 +4,11 @@ import ai.openclaw.config.Json;
 import ai.openclaw.config.OpenClawConfig;
 import ai.openclaw.session.Message;
 import ai.openclaw.session.Session;
+import ai.openclaw.session.SessionEvent;
 import ai.openclaw.session.SessionStore;
+import ai.openclaw.session.TokenEstimator;
 import ai.openclaw.tool.Tool;
+import ai.openclaw.tool.ToolProgress;
 import ai.openclaw.tool.ToolResult;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -13,14 +16,26 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class AgentExecutor {
     private static final Logger logger = LoggerFactory.getLogger(AgentExecutor.class);
     private static final int MAX_TOOL_ITERATIONS = 10;
+    static final String SUMMARY_REQUEST = "Summarize the conversation above for your own later reference: "
+            + "the user's goals, decisions made, facts and file names established, and work still open. "
+            + "Reply with the summary only.";
+    static final String SUMMARY_PREFIX = "[Summary of the earlier conversation]\n";
 
     private final OpenClawConfig config;
     private final SessionStore sessionStore;
@@ -28,6 +43,14 @@ public class AgentExecutor {
     private final SystemPromptBuilder promptBuilder;
     private final List<Tool> tools;
     private final Map<String, Tool> toolMap;
+    // Estimated tokens of the tool definitions sent with every request
+    private final int toolTokens;
+    // Reported / estimated input tokens, smoothed over recent requests; racy
+    // updates only lose a sample
+    private volatile double calibration = 1.0;
+    // Also the monitor drain() waits on for the running turns to finish
+    private final Set<ActiveTurn> activeTurns = ConcurrentHashMap.newKeySet();
+    private volatile boolean draining;
 
     public AgentExecutor(OpenClawConfig config, SessionStore sessionStore, LlmProvider llmProvider) {
         this(config, sessionStore, llmProvider, List.of());
@@ -40,12 +63,76 @@ public class AgentExecutor {
         this.promptBuilder = new SystemPromptBuilder(config);
         this.tools = tools;
         this.toolMap = new HashMap<>();
+        int definitionTokens = 0;
         for (Tool tool : tools) {
             this.toolMap.put(tool.name(), tool);
+            definitionTokens += TokenEstimator.estimate(tool.name()) + TokenEstimator.estimate(tool.description())
+                    + TokenEstimator.estimate(String.valueOf(tool.inputSchema()));
         }
+        this.toolTokens = definitionTokens;
     }
 
     public String execute(String sessionId, String userMessage) {
+        return execute(sessionId, userMessage, TurnProgress.NONE);
+    }
+
+    /**
+     * Runs a turn, passing {@code progress} a sink for each tool call it makes.
+     *
+     * @throws TurnFailedException when the turn ended in an error, which the
+     *         session records as the reply
+     * @throws TurnRefusedException when the executor is draining
+     */
+    public String execute(String sessionId, String userMessage, TurnProgress progress) {
+        ActiveTurn turn = new ActiveTurn(sessionId);
+        activeTurns.add(turn);
+        try {
+            // Registered before the flag is read, so drain() never misses a turn that got past it
+            if (draining) {
+                throw new TurnRefusedException("Shutting down");
+            }
+            return execute(sessionId, userMessage, progress, turn);
+        } finally {
+            activeTurns.remove(turn);
+            if (draining) {
+                synchronized (activeTurns) {
+                    activeTurns.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Refuses new turns, whichever channel starts them, with
+     * {@link TurnRefusedException} and waits up to {@code timeout} for the
+     * running ones to finish.
+     *
+     * @return true if no turn is left running
+     */
+    public boolean drain(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        draining = true;
+        synchronized (activeTurns) {
+            long remaining;
+            while (!activeTurns.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(activeTurns, remaining);
+            }
+            return activeTurns.isEmpty();
+        }
+    }
+
+    /** The turns running right now, longest-running first. */
+    public List<TurnStatus> activeTurns() {
+        long now = System.nanoTime();
+        List<TurnStatus> turns = new ArrayList<>();
+        for (ActiveTurn turn : activeTurns) {
+            turns.add(turn.status(now));
+        }
+        turns.sort(Comparator.comparingLong(TurnStatus::runningMs).reversed());
+        return turns;
+    }
+
+    private String execute(String sessionId, String userMessage, TurnProgress progress, ActiveTurn turn) {
         // 1. Get Session
         Session session = sessionStore.getSession(sessionId);
         if (session == null) {
@@ -57,39 +144,76 @@ public class AgentExecutor {
         sessionStore.appendMessage(sessionId, userMsg);
 
         // 3. Run the agentic loop
+        sessionStore.publish(new SessionEvent(SessionEvent.TURN_STARTED, sessionId));
         String responseText;
+        SessionEvent outcome;
+        Exception failure = null;
         try {
-            responseText = runAgentLoop(sessionId, session);
+            responseText = runAgentLoop(sessionId, progress, turn);
+            outcome = new SessionEvent(SessionEvent.TURN_COMPLETED, sessionId);
         } catch (Exception e) {
             logger.error("Agent loop failed", e);
+            failure = e;
             responseText = "Error: " + e.getMessage();
+            outcome = new SessionEvent(SessionEvent.TURN_FAILED, sessionId);
+            outcome.setError(e.getMessage());
         }
 
         // 4. Append final Assistant Message
         Message assistantMsg = new Message("assistant", responseText);
         sessionStore.appendMessage(sessionId, assistantMsg);
+        sessionStore.publish(outcome);
 
+        if (failure != null) {
+            throw new TurnFailedException(failure.getMessage(), failure);
+        }
         return responseText;
     }
 
-    private String runAgentLoop(String sessionId, Session session) throws Exception {
+    private String runAgentLoop(String sessionId, TurnProgress progress, ActiveTurn turn) throws Exception {
         String model = config.getAgent().getModel();
+        boolean compacted = false;
 
         for (int iteration = 0; iteration < MAX_TOOL_ITERATIONS; iteration++) {
-            // Build context from session history
-            List<Message> context = new ArrayList<>();
-            context.add(new Message("system", promptBuilder.build()));
-            context.addAll(session.getMessages());
+            turn.iteration = iteration + 1;
+            turn.enter(ActiveTurn.CONTEXT, null);
+            // Looked up every iteration: an idle sweep may evict the session during
+            // a long turn, after which appends land on the reloaded instance
+            Session session = sessionStore.getSession(sessionId);
+            if (session == null) {
+                throw new IllegalStateException("Session expired: " + sessionId);
+            }
+
+            // Build context from a point-in-time snapshot of the session history;
+            // the snapshot is immutable, so this neither copies nor races appends
+            Message system = new Message("system", promptBuilder.build());
+            List<Message> history = session.getMessages();
+            int start = contextStart(session, history, system.getTokens());
+            if (start > 0 && !compacted && config.getAgent().isCompactContext()) {
+                // Once a turn: a summary that does not help is not summarized again
+                compacted = true;
+                if (compactContext(sessionId, session, history, start, system, model, turn)) {
+                    history = session.getMessages();
+                    start = contextStart(session, history, system.getTokens());
+                }
+            }
+            List<Message> context = new ContextView(system, history.subList(start, history.size()));
+            long estimatedTokens = system.getTokens() + toolTokens + session.getTokenCount(start, history.size());
 
             // Call LLM with tools
             LlmResponse response;
+            turn.enter(ActiveTurn.LLM, null);
             if (!tools.isEmpty()) {
                 response = llmProvider.completeWithTools(context, model, tools);
+                turn.llmReturned();
             } else {
                 String text = llmProvider.complete(context, model);
+                turn.llmReturned();
                 return text;
             }
 
+            calibrate(estimatedTokens, response.getInputTokens());
+
             if (!response.hasToolUse()) {
                 // No tool use — return the text content
                 return response.getTextContent();
@@ -110,7 +234,10 @@ public class AgentExecutor {
                 ToolResult result;
                 if (tool != null) {
                     logger.info("Executing tool: {} (id: {})", block.getToolName(), block.getToolUseId());
-                    result = tool.execute(block.getToolInput());
+                    turn.enter(ActiveTurn.TOOL, block.getToolName());
+                    try (ToolProgress sink = progress.tool(block.getToolUseId(), block.getToolName())) {
+                        result = tool.execute(block.getToolInput(), sink);
+                    }
                 } else {
                     logger.warn("Unknown tool requested: {}", block.getToolName());
                     result = ToolResult.error("Unknown tool: " + block.getToolName());
@@ -130,6 +257,98 @@ public class AgentExecutor {
         return "I've reached the maximum number of tool use steps. Here's what I have so far — please try rephrasing your request if you need more.";
     }
 
+    /**
+     * First history index to send. Everything is sent while it fits the
+     * context budget; past that, the longest suffix that fits, moved forward to
+     * a user message so that no tool_result loses its tool_use. The turn's own
+     * user message is always sent.
+     */
+    private int contextStart(Session session, List<Message> history, int systemTokens) {
+        long budget = config.getAgent().getContextTokenBudget();
+        if (budget <= 0) {
+            return 0;
+        }
+        long available = (long) (budget / calibration) - systemTokens - toolTokens;
+        int start = session.fitTokens(history.size(), available);
+        if (start == 0) {
+            return 0;
+        }
+        for (int i = start; i < history.size(); i++) {
+            if ("user".equals(history.get(i).getRole())) {
+                logger.debug("Context budget leaves out the first {} of {} messages", i, history.size());
+                return i;
+            }
+        }
+        for (int i = start - 1; i > 0; i--) {
+            if ("user".equals(history.get(i).getRole())) {
+                logger.warn("Current turn alone exceeds the context budget of {} tokens", budget);
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces the history before {@code start}, which the context budget
+     * leaves out, with a summary the model writes of it; the session is
+     * compacted onto the summary, so reloading it no longer reads what was
+     * summarized. Of that history, only the most recent part that fits the
+     * budget is summarized, starting at a user message; a summary from an
+     * earlier compaction is the first message and is folded in while it
+     * fits. A failed summary leaves the history as it was.
+     *
+     * @return whether the history was replaced
+     */
+    private boolean compactContext(String sessionId, Session session, List<Message> history, int start,
+            Message system, String model, ActiveTurn turn) {
+        Message request = new Message("user", SUMMARY_REQUEST);
+        long available = (long) (config.getAgent().getContextTokenBudget() / calibration)
+                - system.getTokens() - toolTokens - request.getTokens();
+        int from = session.fitTokens(start, available);
+        while (from < start && !"user".equals(history.get(from).getRole())) {
+            from++;
+        }
+        if (from == start) {
+            return false;
+        }
+        List<Message> context = new ArrayList<>(start - from + 2);
+        context.add(system);
+        context.addAll(history.subList(from, start));
+        context.add(request);
+
+        String summary;
+        turn.enter(ActiveTurn.LLM, null);
+        try {
+            // Tool blocks in the history are only accepted alongside the tool definitions
+            summary = tools.isEmpty()
+                    ? llmProvider.complete(context, model)
+                    : llmProvider.completeWithTools(context, model, tools).getTextContent();
+        } catch (Exception e) {
+            logger.warn("Failed to summarize the history of session {}, sending what fits", sessionId, e);
+            return false;
+        } finally {
+            turn.llmReturned();
+            turn.enter(ActiveTurn.CONTEXT, null);
+        }
+        if (summary == null || summary.isBlank()) {
+            return false;
+        }
+        logger.info("Summarized {} of {} messages of session {}", start - from, start, sessionId);
+        sessionStore.compactPrefix(sessionId, history.subList(0, start),
+                List.of(new Message("user", SUMMARY_PREFIX + summary)));
+        return true;
+    }
+
+    /** Folds the provider's reported input tokens into the estimate correction. */
+    private void calibrate(long estimated, int reported) {
+        if (reported <= 0 || estimated <= 0) {
+            return;
+        }
+        double ratio = Math.max(0.5, Math.min(2.0, (double) reported / estimated));
+        calibration = calibration * 0.9 + ratio * 0.1;
+        logger.debug("Input tokens estimated {}, reported {}, calibration now {}", estimated, reported, calibration);
+    }
+
     /** Serialize content blocks back to the JSON format Anthropic expects. */
     private ArrayNode serializeContentBlocks(List<LlmResponse.ContentBlock> blocks) {
         ArrayNode array = Json.mapper().createArrayNode();
@@ -147,4 +366,69 @@ public class AgentExecutor {
         }
         return array;
     }
+
+    /**
+     * Where a running turn is, written only by the turn's own thread with
+     * plain volatile stores and read by {@link #activeTurns()}, so keeping
+     * it costs a few writes per model or tool call.
+     */
+    private static final class ActiveTurn {
+        static final String CONTEXT = "context";
+        static final String LLM = "llm";
+        static final String TOOL = "tool";
+
+        /** Replaced as a whole so readers never see one phase's name with another's start. */
+        private record Phase(String name, String tool, long startedNanos) {
+        }
+
+        final String sessionId;
+        final Instant startedAt = Instant.now();
+        final long startedNanos = System.nanoTime();
+        final Thread thread = Thread.currentThread();
+        volatile int iteration;
+        volatile Phase phase = new Phase(CONTEXT, null, startedNanos);
+        volatile int llmCalls;
+        volatile long llmNanos;
+
+        ActiveTurn(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void enter(String name, String tool) {
+            phase = new Phase(name, tool, System.nanoTime());
+        }
+
+        void llmReturned() {
+            llmNanos += System.nanoTime() - phase.startedNanos();
+            llmCalls++;
+        }
+
+        TurnStatus status(long now) {
+            Phase current = phase;
+            return new TurnStatus(sessionId, startedAt, TimeUnit.NANOSECONDS.toMillis(now - startedNanos), iteration,
+                    current.name(), current.tool(), TimeUnit.NANOSECONDS.toMillis(now - current.startedNanos()),
+                    llmCalls, TimeUnit.NANOSECONDS.toMillis(llmNanos), thread.getName(), thread.getState());
+        }
+    }
+
+    /** The system prompt followed by the session history, without copying either. */
+    private static final class ContextView extends AbstractList<Message> implements RandomAccess {
+        private final Message system;
+        private final List<Message> history;
+
+        ContextView(Message system, List<Message> history) {
+            this.system = system;
+            this.history = history;
+        }
+
+        @Override
+        public Message get(int index) {
+            return index == 0 ? system : history.get(index - 1);
+        }
+
+        @Override
+        public int size() {
+            return history.size() + 1;
+        }
+    }
 }
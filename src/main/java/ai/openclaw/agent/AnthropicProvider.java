@@ -148,7 +148,9 @@ public class AnthropicProvider implements LlmProvider {
             }
         }
 
-        return new LlmResponse(stopReason, blocks);
+        JsonNode usage = jsonResponse.path("usage");
+        return new LlmResponse(stopReason, blocks,
+                usage.path("input_tokens").asInt(0), usage.path("output_tokens").asInt(0));
     }
 
     @Override
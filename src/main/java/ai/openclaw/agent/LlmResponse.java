@@ -12,10 +12,18 @@ import java.util.List;
 public class LlmResponse {
     private final String stopReason;
     private final List<ContentBlock> content;
+    private final int inputTokens;
+    private final int outputTokens;
 
     public LlmResponse(String stopReason, List<ContentBlock> content) {
+        this(stopReason, content, 0, 0);
+    }
+
+    public LlmResponse(String stopReason, List<ContentBlock> content, int inputTokens, int outputTokens) {
         this.stopReason = stopReason;
         this.content = content;
+        this.inputTokens = inputTokens;
+        this.outputTokens = outputTokens;
     }
 
     public String getStopReason() {
@@ -26,6 +34,16 @@ public class LlmResponse {
         return content;
     }
 
+    /** Input tokens the provider reported for this request, or 0 if it did not say. */
+    public int getInputTokens() {
+        return inputTokens;
+    }
+
+    /** Output tokens the provider reported, or 0 if it did not say. */
+    public int getOutputTokens() {
+        return outputTokens;
+    }
+
     /** Returns true if the LLM wants to use one or more tools. */
     public boolean hasToolUse() {
         return "tool_use".equals(stopReason);
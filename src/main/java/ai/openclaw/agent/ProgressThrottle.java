@@ -0,0 +1,145 @@
+package ai.openclaw.agent;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.tool.ToolProgress;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Turns tool progress into {@value #METHOD} notification params, at most one
+ * per tool call every {@code intervalMillis}. Output arriving in between is
+ * concatenated, up to {@link #MAX_OUTPUT_CHARS} per notification with the
+ * rest only counted, and only the latest byte count is kept, so a chatty
+ * command costs the client a few notifications a second however much it
+ * prints. Whatever is still pending when the tool returns is sent before
+ * the turn moves on.
+ */
+public class ProgressThrottle implements TurnProgress {
+    /** Notification method clients receive. */
+    public static final String METHOD = "agent.progress";
+    static final int MAX_OUTPUT_CHARS = 16 * 1024;
+
+    private final String sessionId;
+    private final long intervalNanos;
+    private final Consumer<ObjectNode> sink;
+
+    /**
+     * @param intervalMillis minimum spacing of one tool call's notifications; 0 sends every event
+     * @param sink receives each notification's params, on the tool's thread or a timer thread
+     */
+    public ProgressThrottle(String sessionId, long intervalMillis, Consumer<ObjectNode> sink) {
+        this.sessionId = sessionId;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+        this.sink = sink;
+    }
+
+    @Override
+    public ToolProgress tool(String toolUseId, String toolName) {
+        return new Coalescer(toolUseId, toolName);
+    }
+
+    private final class Coalescer implements ToolProgress {
+        private final String toolUseId;
+        private final String toolName;
+        private final StringBuilder output = new StringBuilder();
+        private long skippedChars;
+        private long bytes = -1;
+        private long totalBytes = -1;
+        private boolean pending;
+        private boolean scheduled;
+        private boolean closed;
+        // The first event goes out at once
+        private long lastSent = System.nanoTime() - intervalNanos;
+
+        Coalescer(String toolUseId, String toolName) {
+            this.toolUseId = toolUseId;
+            this.toolName = toolName;
+        }
+
+        @Override
+        public synchronized void output(String text) {
+            if (closed) {
+                return;
+            }
+            int room = Math.max(0, MAX_OUTPUT_CHARS - output.length());
+            if (text.length() <= room) {
+                output.append(text);
+            } else {
+                output.append(text, 0, room);
+                skippedChars += text.length() - room;
+            }
+            changed();
+        }
+
+        @Override
+        public synchronized void transferred(long bytes, long totalBytes) {
+            if (closed) {
+                return;
+            }
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            changed();
+        }
+
+        /** Sends now if the interval has passed, else makes sure a send is scheduled for when it does. */
+        private void changed() {
+            pending = true;
+            long wait = lastSent + intervalNanos - System.nanoTime();
+            if (wait <= 0) {
+                flush();
+            } else if (!scheduled) {
+                scheduled = true;
+                Thread.ofVirtual().name("tool-progress-" + toolUseId).start(() -> {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (this) {
+                        scheduled = false;
+                        if (!closed) {
+                            flush();
+                        }
+                    }
+                });
+            }
+        }
+
+        private void flush() {
+            if (!pending) {
+                return;
+            }
+            ObjectNode params = Json.mapper().createObjectNode()
+                    .put("sessionId", sessionId)
+                    .put("toolUseId", toolUseId)
+                    .put("tool", toolName);
+            if (output.length() > 0) {
+                params.put("output", output.toString());
+                output.setLength(0);
+            }
+            if (skippedChars > 0) {
+                params.put("skippedChars", skippedChars);
+                skippedChars = 0;
+            }
+            if (bytes >= 0) {
+                params.put("bytes", bytes);
+                if (totalBytes >= 0) {
+                    params.put("totalBytes", totalBytes);
+                }
+            }
+            pending = false;
+            lastSent = System.nanoTime();
+            sink.accept(params);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                flush();
+                closed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ai.openclaw.agent;
+
+/**
+ * A turn that ended in an error rather than a reply. By the time it is
+ * thrown the error has been recorded as the assistant's message and
+ * published as {@link ai.openclaw.session.SessionEvent#TURN_FAILED}, so the
+ * caller only has to report it.
+ */
+public class TurnFailedException extends RuntimeException {
+    public TurnFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
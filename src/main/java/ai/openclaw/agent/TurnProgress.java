@@ -0,0 +1,14 @@
+package ai.openclaw.agent;
+
+import ai.openclaw.tool.ToolProgress;
+
+/**
+ * Where the tools of one agent turn report their progress. The executor asks
+ * for a sink before each tool call and closes it once the tool returns.
+ */
+@FunctionalInterface
+public interface TurnProgress {
+    TurnProgress NONE = (toolUseId, toolName) -> ToolProgress.NONE;
+
+    ToolProgress tool(String toolUseId, String toolName);
+}
@@ -0,0 +1,12 @@
+package ai.openclaw.agent;
+
+/**
+ * A turn that was never started because the executor is draining for
+ * shutdown; nothing was recorded in the session, so the caller can retry
+ * it elsewhere or after a restart.
+ */
+public class TurnRefusedException extends RuntimeException {
+    public TurnRefusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package ai.openclaw.agent;
+
+import java.time.Instant;
+
+/**
+ * A running agent turn as seen from outside, for diagnostics; see
+ * {@link AgentExecutor#activeTurns()}. {@code phase} is "context" while the
+ * request is assembled, "llm" while waiting on the model and "tool" while
+ * {@code tool} runs; {@code phaseMs} is how long it has been in it.
+ * {@code llmMs} sums the turn's finished model calls.
+ */
+public record TurnStatus(String sessionId, Instant startedAt, long runningMs, int iteration, String phase,
+        String tool, long phaseMs, int llmCalls, long llmMs, String thread, Thread.State threadState) {
+}
@@ -2,6 +2,8 @@ package ai.openclaw.channel.console;
 
 import ai.openclaw.channel.Channel;
 import ai.openclaw.agent.AgentExecutor;
+import ai.openclaw.agent.TurnFailedException;
+import ai.openclaw.agent.TurnRefusedException;
 import ai.openclaw.session.Session;
 import ai.openclaw.session.SessionStore;
 import org.slf4j.Logger;
@@ -67,6 +69,11 @@ public class ConsoleChannel implements Channel {
                 try {
                     String response = agentExecutor.execute(defaultSession.getId(), input);
                     sendMessage(defaultSession.getId(), response);
+                } catch (TurnFailedException e) {
+                    // Already logged by the executor
+                    System.err.println("Error: " + e.getMessage());
+                } catch (TurnRefusedException e) {
+                    System.err.println("The gateway is shutting down; the message was not sent");
                 } catch (Exception e) {
                     logger.error("Error executing agent", e);
                     System.err.println("Error: " + e.getMessage());
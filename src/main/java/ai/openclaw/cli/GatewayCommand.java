@@ -2,21 +2,39 @@ package ai.openclaw.cli;
 
 import ai.openclaw.agent.AgentExecutor;
 import ai.openclaw.agent.AnthropicProvider;
+import ai.openclaw.agent.ProgressThrottle;
+import ai.openclaw.agent.TurnFailedException;
+import ai.openclaw.agent.TurnRefusedException;
+import ai.openclaw.agent.TurnProgress;
 import ai.openclaw.channel.console.ConsoleChannel;
 import ai.openclaw.config.ConfigLoader;
 import ai.openclaw.config.Json;
 import ai.openclaw.config.OpenClawConfig;
 import ai.openclaw.gateway.GatewayServer;
+import ai.openclaw.gateway.IdempotencyMiddleware;
+import ai.openclaw.gateway.MethodTimings;
+import ai.openclaw.gateway.RpcException;
+import ai.openclaw.gateway.RpcProtocol;
 import ai.openclaw.gateway.RpcRouter;
+import ai.openclaw.gateway.cluster.Cluster;
+import ai.openclaw.session.HistoryPage;
+import ai.openclaw.session.HistoryRequest;
 import ai.openclaw.session.SessionStore;
+import ai.openclaw.session.search.SearchHit;
+import ai.openclaw.session.search.SearchQuery;
 import ai.openclaw.tool.CodeExecutionTool;
 import ai.openclaw.tool.FileReadTool;
 import ai.openclaw.tool.FileWriteTool;
 import ai.openclaw.tool.Tool;
 import ai.openclaw.tool.WebSearchTool;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import picocli.CommandLine.Command;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
 @Command(name = "gateway", description = "Starts the Gateway WebSocket server")
@@ -30,12 +48,15 @@ public class GatewayCommand implements Runnable {
             OpenClawConfig config = ConfigLoader.load();
 
             // 2. Initialize Components
-            SessionStore sessionStore = new SessionStore();
+            // Cluster nodes share the sessions directory, each with an index and blobs of its own
+            String nodeId = config.getGateway().getCluster().isEnabled() ? Cluster.nodeId(config.getGateway()) : null;
+            SessionStore sessionStore = new SessionStore(config.getSessions(), nodeId);
             AnthropicProvider llmProvider = new AnthropicProvider(config.getAgent().getApiKey());
 
             // Register tools
+            CodeExecutionTool codeExecution = new CodeExecutionTool(config.getAgent().getShellWorkers());
             List<Tool> tools = List.of(
-                    new CodeExecutionTool(),
+                    codeExecution,
                     new FileReadTool(),
                     new FileWriteTool(),
                     new WebSearchTool());
@@ -43,21 +64,79 @@ public class GatewayCommand implements Runnable {
             AgentExecutor agentExecutor = new AgentExecutor(config, sessionStore, llmProvider, tools);
 
             // 3. Setup RPC Router
-            RpcRouter router = new RpcRouter();
-            router.register("gateway.health", params -> {
+            MethodTimings timings = new MethodTimings();
+            RpcRouter router = new RpcRouter(timings);
+            // Retried agent.send calls carrying an idempotencyKey replay the first turn instead of running
+            // another, whether or not the retry asks for progress
+            router.use(new IdempotencyMiddleware(config.getGateway(), Set.of("agent.send"), Set.of("progress")));
+            router.register("gateway.health", () -> {
                 // simple health check
                 return Json.mapper().createObjectNode().put("status", "ok");
             });
-            router.register("agent.send", params -> {
+            router.register("agent.send", (params, context) -> {
                 // handle remote send
                 String sessionId = params.get("sessionId").asText();
                 String message = params.get("message").asText();
-                String response = agentExecutor.execute(sessionId, message);
+                // Clients that ask for it get the tools' output and download progress while the turn runs
+                TurnProgress progress = params.path("progress").asBoolean(false)
+                        ? new ProgressThrottle(sessionId, config.getGateway().getProgressIntervalMs(),
+                                update -> context.notify(ProgressThrottle.METHOD, update))
+                        : TurnProgress.NONE;
+                String response;
+                try {
+                    response = agentExecutor.execute(sessionId, message, progress);
+                } catch (TurnFailedException e) {
+                    // An error response, so the idempotency cache forgets the call and a retry runs again
+                    throw new RpcException(RpcProtocol.TURN_FAILED, "Turn failed: " + e.getMessage());
+                } catch (TurnRefusedException e) {
+                    throw GatewayServer.drainingError(config.getGateway().getRetryAfterMs());
+                }
                 return Json.mapper().createObjectNode().put("response", response);
             });
 
+            router.register("session.search", params -> {
+                SearchQuery query = Json.mapper().convertValue(params, SearchQuery.class);
+                if (query.getQuery() == null || query.getQuery().isBlank()) {
+                    throw new IllegalArgumentException("query is required");
+                }
+                long start = System.nanoTime();
+                List<SearchHit> hits = sessionStore.search(query);
+                ObjectNode result = Json.mapper().createObjectNode();
+                result.set("hits", Json.mapper().valueToTree(hits));
+                result.put("tookMs", (System.nanoTime() - start) / 1_000_000.0);
+                return result;
+            });
+
+            router.register("session.history", params -> {
+                HistoryRequest request = Json.mapper().convertValue(params, HistoryRequest.class);
+                if (request.getSessionId() == null) {
+                    throw new IllegalArgumentException("sessionId is required");
+                }
+                HistoryPage page;
+                try {
+                    page = sessionStore.history(request);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (page == null) {
+                    throw new IllegalArgumentException("Unknown session: " + request.getSessionId());
+                }
+                // Serialized straight from the page when the response is written, not via a tree copy
+                return Json.mapper().getNodeFactory().pojoNode(page);
+            });
+
             // 4. Start Gateway Server
-            GatewayServer server = new GatewayServer(config, router);
+            GatewayServer server = new GatewayServer(config, router, sessionStore);
+            router.register("gateway.metrics", () -> {
+                ObjectNode metrics = Json.mapper().valueToTree(server.getMetrics());
+                metrics.set("methods", Json.mapper().valueToTree(timings.snapshot()));
+                return metrics;
+            });
+            router.register(GatewayServer.DEBUG, () -> {
+                ObjectNode debug = server.debug();
+                debug.set("turns", Json.mapper().valueToTree(agentExecutor.activeTurns()));
+                return debug;
+            });
             server.start();
             System.out.println("Gateway listening on port " + config.getGateway().getPort());
 
@@ -65,8 +144,20 @@ public class GatewayCommand implements Runnable {
             ConsoleChannel console = new ConsoleChannel(agentExecutor, sessionStore);
             console.start();
 
-            // Keep alive
-            new CountDownLatch(1).await();
+            // On SIGTERM/SIGINT, let running turns finish and flush sessions before the JVM exits
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.drain(Duration.ofSeconds(config.getGateway().getDrainTimeoutSeconds()), agentExecutor);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    codeExecution.close();
+                    sessionStore.close();
+                    stopped.countDown();
+                }
+            }, "gateway-drain"));
+            stopped.await();
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
@@ -1,17 +1,26 @@
 package ai.openclaw.cli;
 
+import ai.openclaw.agent.ProgressThrottle;
 import ai.openclaw.config.ConfigLoader;
 import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.RpcEncoding;
 import ai.openclaw.gateway.RpcProtocol;
-import ai.openclaw.config.Json;
+import ai.openclaw.gateway.UnixSocketClient;
+import ai.openclaw.gateway.WebSocketDrafts;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
 import org.java_websocket.handshake.ServerHandshake;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -22,28 +31,52 @@ public class SendCommand implements Runnable {
     @Option(names = { "-m", "--message" }, description = "Message text to send", required = true)
     private String message;
 
+    @Option(names = { "-e", "--encoding" }, description = "Wire encoding: ${COMPLETION-CANDIDATES} (default: JSON)")
+    private RpcEncoding encoding = RpcEncoding.JSON;
+
+    @Option(names = { "-p", "--progress" }, description = "Print tool output to stderr while the agent works")
+    private boolean progress;
+
     @Override
     public void run() {
         try {
             OpenClawConfig config = ConfigLoader.load();
+            ObjectMapper mapper = encoding.mapper();
+            RpcProtocol.RpcMessage request = new RpcProtocol.RpcMessage();
+            request.setId(UUID.randomUUID().toString());
+            request.setMethod("agent.send");
+            ObjectNode params = mapper.createObjectNode();
+            params.put("sessionId", "cli-session");
+            params.put("message", message);
+            if (progress) {
+                params.put("progress", true);
+            }
+            request.setParams(params);
+
+            UnixSocketClient local = connectUnixSocket(config.getGateway());
+            if (local != null) {
+                try (local) {
+                    local.send(mapper.writeValueAsBytes(request));
+                    while (!handle(mapper.readValue(local.receive(), RpcProtocol.RpcMessage.class))) {
+                        // notifications ahead of the response
+                    }
+                }
+                return;
+            }
+
             String uri = "ws://127.0.0.1:" + config.getGateway().getPort();
             CountDownLatch latch = new CountDownLatch(1);
-            ObjectMapper mapper = Json.mapper();
+            Draft draft = WebSocketDrafts.client(config.getGateway(), encoding);
 
-            WebSocketClient client = new WebSocketClient(new URI(uri)) {
+            WebSocketClient client = new WebSocketClient(new URI(uri), draft) {
                 @Override
                 public void onOpen(ServerHandshake handshakedata) {
                     try {
-                        RpcProtocol.RpcMessage request = new RpcProtocol.RpcMessage();
-                        request.setId(UUID.randomUUID().toString());
-                        request.setMethod("agent.send");
-
-                        ObjectNode params = mapper.createObjectNode();
-                        params.put("sessionId", "cli-session");
-                        params.put("message", message);
-                        request.setParams(params);
-
-                        send(mapper.writeValueAsString(request));
+                        if (encoding.isBinary()) {
+                            send(mapper.writeValueAsBytes(request));
+                        } else {
+                            send(mapper.writeValueAsString(request));
+                        }
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -52,18 +85,28 @@ public class SendCommand implements Runnable {
                 @Override
                 public void onMessage(String message) {
                     try {
-                        RpcProtocol.RpcMessage response = mapper.readValue(message, RpcProtocol.RpcMessage.class);
-                        if (response.getResult() != null) {
-                            System.out.println("🤖 Assistant: " + response.getResult().get("response").asText());
-                        } else if (response.getError() != null) {
-                            System.err.println("Error: " + response.getError().getMessage());
+                        if (!handle(mapper.readValue(message, RpcProtocol.RpcMessage.class))) {
+                            return;
                         }
                     } catch (Exception e) {
                         e.printStackTrace();
-                    } finally {
-                        latch.countDown();
-                        close();
                     }
+                    latch.countDown();
+                    close();
+                }
+
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    try {
+                        if (!handle(mapper.readValue(new ByteBufferBackedInputStream(message),
+                                RpcProtocol.RpcMessage.class))) {
+                            return;
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    latch.countDown();
+                    close();
                 }
 
                 @Override
@@ -85,4 +128,41 @@ public class SendCommand implements Runnable {
             e.printStackTrace();
         }
     }
+
+    /**
+     * The gateway's Unix domain socket, when it has one and it accepts
+     * connections; otherwise null and the message goes over TCP. Nothing has
+     * been sent at this point, so falling back cannot run the turn twice.
+     */
+    private UnixSocketClient connectUnixSocket(OpenClawConfig.GatewayConfig gateway) {
+        String socket = gateway.getUnixSocket();
+        if (socket == null || socket.isBlank() || !Files.exists(Path.of(socket))) {
+            return null;
+        }
+        try {
+            return UnixSocketClient.connect(Path.of(socket), gateway.getAuthToken(), encoding);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Prints a message from the gateway; returns false for a notification, true for the response. */
+    private static boolean handle(RpcProtocol.RpcMessage message) {
+        if (message.getId() != null) {
+            print(message);
+            return true;
+        }
+        if (ProgressThrottle.METHOD.equals(message.getMethod()) && message.getParams().has("output")) {
+            System.err.print(message.getParams().get("output").asText());
+        }
+        return false;
+    }
+
+    private static void print(RpcProtocol.RpcMessage response) {
+        if (response.getResult() != null) {
+            System.out.println("🤖 Assistant: " + response.getResult().get("response").asText());
+        } else if (response.getError() != null) {
+            System.err.println("Error: " + response.getError().getMessage());
+        }
+    }
 }
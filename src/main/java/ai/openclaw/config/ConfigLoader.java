@@ -4,9 +4,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 public class ConfigLoader {
     private static final Path CONFIG_PATH = Paths.get(System.getProperty("user.home"), ".openclaw-java", "config.json");
+    private static final Path UNIX_SOCKET_PATH = Paths.get(System.getProperty("user.home"), ".openclaw-java", "gateway.sock");
 
     public static OpenClawConfig load() throws IOException {
         File configFile = CONFIG_PATH.toFile();
@@ -52,6 +54,40 @@ public class ConfigLoader {
             config.getGateway().setAuthToken(envToken);
         }
 
+        // Lets several nodes run from one config on one machine, e.g. for testing a cluster
+        String envNodeId = System.getenv("GATEWAY_NODE_ID");
+        if (envNodeId != null && !envNodeId.isEmpty()) {
+            if (config.getGateway() == null)
+                config.setGateway(new OpenClawConfig.GatewayConfig());
+            config.getGateway().getCluster().setNodeId(envNodeId);
+        }
+
+        String envSeeds = System.getenv("GATEWAY_CLUSTER_SEEDS");
+        if (envSeeds != null && !envSeeds.isEmpty()) {
+            if (config.getGateway() == null)
+                config.setGateway(new OpenClawConfig.GatewayConfig());
+            config.getGateway().getCluster().setEnabled(true);
+            config.getGateway().getCluster().setSeeds(List.of(envSeeds.split(",")));
+        }
+
+        String envClusterSecret = System.getenv("GATEWAY_CLUSTER_SECRET");
+        if (envClusterSecret != null && !envClusterSecret.isEmpty()) {
+            if (config.getGateway() == null)
+                config.setGateway(new OpenClawConfig.GatewayConfig());
+            config.getGateway().getCluster().setSecret(envClusterSecret);
+        }
+
+        // An empty value turns the socket off
+        String envSocket = System.getenv("GATEWAY_UNIX_SOCKET");
+        if (envSocket != null) {
+            if (config.getGateway() == null)
+                config.setGateway(new OpenClawConfig.GatewayConfig());
+            config.getGateway().setUnixSocket(envSocket);
+        }
+        if (config.getGateway() != null && config.getGateway().getUnixSocket() == null) {
+            config.getGateway().setUnixSocket(UNIX_SOCKET_PATH.toString());
+        }
+
         return config;
     }
 }
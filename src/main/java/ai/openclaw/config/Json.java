@@ -1,5 +1,6 @@
 package ai.openclaw.config;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -21,7 +22,12 @@ public final class Json {
 
     /** Creates a new, independently configured ObjectMapper. */
     public static ObjectMapper createMapper() {
-        return new ObjectMapper()
+        return createMapper(new JsonFactory());
+    }
+
+    /** Creates a new ObjectMapper for another data format, such as Smile or CBOR. */
+    public static ObjectMapper createMapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
                 .registerModule(new JavaTimeModule());
     }
 }
@@ -2,10 +2,16 @@ package ai.openclaw.config;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OpenClawConfig {
     private GatewayConfig gateway;
     private AgentConfig agent;
+    private SessionConfig sessions = new SessionConfig();
 
     public GatewayConfig getGateway() {
         return gateway;
@@ -23,10 +29,39 @@ public class OpenClawConfig {
         this.agent = agent;
     }
 
+    public SessionConfig getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(SessionConfig sessions) {
+        this.sessions = sessions;
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class GatewayConfig {
         private int port = 18789;
         private String authToken;
+        private int frameFragmentBytes = 64 * 1024;
+        private String rpcExecutor = "virtual";
+        private int rpcThreads = 64;
+        private int maxConnections = 1024;
+        private int maxInFlight = 256;
+        private int maxInFlightPerConnection = 16;
+        private int maxPending = 1024;
+        private long retryAfterMs = 1000;
+        private boolean batchStreaming;
+        private CompressionConfig compression = new CompressionConfig();
+        private int subscriberBufferFrames = 256;
+        private String slowConsumerPolicy = "drop";
+        private Map<String, ClientToken> tokens = new HashMap<>();
+        private long idempotencyTtlSeconds = 600;
+        private int idempotencyMaxEntries = 10_000;
+        private ClusterConfig cluster = new ClusterConfig();
+        private long drainTimeoutSeconds = 30;
+        private String transport = "java-websocket";
+        private boolean reusePort;
+        private String unixSocket;
+        private long progressIntervalMs = 250;
 
         public int getPort() {
             return port;
@@ -43,6 +78,447 @@ public class OpenClawConfig {
         public void setAuthToken(String authToken) {
             this.authToken = authToken;
         }
+
+        /**
+         * Responses are streamed as WebSocket continuation frames of at most this
+         * many bytes, so large results are never built into one String (0 sends
+         * every response as a single frame).
+         */
+        public int getFrameFragmentBytes() {
+            return frameFragmentBytes;
+        }
+
+        public void setFrameFragmentBytes(int frameFragmentBytes) {
+            this.frameFragmentBytes = frameFragmentBytes;
+        }
+
+        /**
+         * Where RPC handlers run: "virtual" (a virtual thread per request, the
+         * default) or "fixed" (a pool of {@code rpcThreads} platform threads).
+         */
+        public String getRpcExecutor() {
+            return rpcExecutor;
+        }
+
+        public void setRpcExecutor(String rpcExecutor) {
+            this.rpcExecutor = rpcExecutor;
+        }
+
+        public int getRpcThreads() {
+            return rpcThreads;
+        }
+
+        public void setRpcThreads(int rpcThreads) {
+            this.rpcThreads = rpcThreads;
+        }
+
+        /** Connections beyond this are closed with 1013 (try again later); 0 means unlimited. */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        /** Requests executing at once across all connections; 0 means unlimited. */
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        /** Requests one connection may have queued or running; 0 means unlimited. */
+        public int getMaxInFlightPerConnection() {
+            return maxInFlightPerConnection;
+        }
+
+        public void setMaxInFlightPerConnection(int maxInFlightPerConnection) {
+            this.maxInFlightPerConnection = maxInFlightPerConnection;
+        }
+
+        /** Admitted requests allowed to wait for a slot once {@code maxInFlight} are running. */
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        /** Base back-off suggested to clients whose requests are rejected for overload. */
+        public long getRetryAfterMs() {
+            return retryAfterMs;
+        }
+
+        public void setRetryAfterMs(long retryAfterMs) {
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        /**
+         * Send the responses to a JSON-RPC batch one by one as they complete
+         * instead of as a single array once the whole batch is done.
+         */
+        public boolean isBatchStreaming() {
+            return batchStreaming;
+        }
+
+        public void setBatchStreaming(boolean batchStreaming) {
+            this.batchStreaming = batchStreaming;
+        }
+
+        public CompressionConfig getCompression() {
+            return compression;
+        }
+
+        public void setCompression(CompressionConfig compression) {
+            this.compression = compression;
+        }
+
+        /**
+         * Frames a connection may have waiting to be written before session
+         * events pushed to it are subject to {@code slowConsumerPolicy}.
+         */
+        public int getSubscriberBufferFrames() {
+            return subscriberBufferFrames;
+        }
+
+        public void setSubscriberBufferFrames(int subscriberBufferFrames) {
+            this.subscriberBufferFrames = subscriberBufferFrames;
+        }
+
+        /** "drop" skips events for a slow subscriber (it is told how many it missed); "disconnect" closes it. */
+        public String getSlowConsumerPolicy() {
+            return slowConsumerPolicy;
+        }
+
+        public void setSlowConsumerPolicy(String slowConsumerPolicy) {
+            this.slowConsumerPolicy = slowConsumerPolicy;
+        }
+
+        /**
+         * Named client tokens, each with its own limits, accepted alongside
+         * {@code authToken} (which stays unlimited).
+         */
+        public Map<String, ClientToken> getTokens() {
+            return tokens;
+        }
+
+        public void setTokens(Map<String, ClientToken> tokens) {
+            this.tokens = tokens;
+        }
+
+        /** How long the outcome of a call with an idempotency key is kept for replay. */
+        public long getIdempotencyTtlSeconds() {
+            return idempotencyTtlSeconds;
+        }
+
+        public void setIdempotencyTtlSeconds(long idempotencyTtlSeconds) {
+            this.idempotencyTtlSeconds = idempotencyTtlSeconds;
+        }
+
+        public int getIdempotencyMaxEntries() {
+            return idempotencyMaxEntries;
+        }
+
+        public void setIdempotencyMaxEntries(int idempotencyMaxEntries) {
+            this.idempotencyMaxEntries = idempotencyMaxEntries;
+        }
+
+        public ClusterConfig getCluster() {
+            return cluster;
+        }
+
+        public void setCluster(ClusterConfig cluster) {
+            this.cluster = cluster;
+        }
+
+        /** On shutdown, how long in-flight agent turns may keep running before connections are closed. */
+        public long getDrainTimeoutSeconds() {
+            return drainTimeoutSeconds;
+        }
+
+        public void setDrainTimeoutSeconds(long drainTimeoutSeconds) {
+            this.drainTimeoutSeconds = drainTimeoutSeconds;
+        }
+
+        /**
+         * "java-websocket" (selector and decoder threads of the Java-WebSocket
+         * library) or "virtual" (JDK NIO with a virtual thread per connection).
+         */
+        public String getTransport() {
+            return transport;
+        }
+
+        public void setTransport(String transport) {
+            this.transport = transport;
+        }
+
+        /**
+         * Binds the port with SO_REUSEPORT, so that a new gateway process can
+         * start listening while the old one drains; the old one closes its
+         * listening socket when it starts draining and every new connection
+         * reaches the new one. Needs the "virtual" transport, since
+         * Java-WebSocket binds its own socket, and an OS that supports the
+         * option (Linux, macOS).
+         */
+        public boolean isReusePort() {
+            return reusePort;
+        }
+
+        public void setReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+        }
+
+        /**
+         * Path of a Unix domain socket the gateway also listens on, for the
+         * CLI and other clients on the same machine; null or empty for none.
+         * {@link ConfigLoader} defaults it to ~/.openclaw-java/gateway.sock.
+         */
+        public String getUnixSocket() {
+            return unixSocket;
+        }
+
+        public void setUnixSocket(String unixSocket) {
+            this.unixSocket = unixSocket;
+        }
+
+        /**
+         * Minimum spacing of the agent.progress notifications sent for one
+         * tool call to a client that asked for progress; output in between
+         * is coalesced. 0 sends every event.
+         */
+        public long getProgressIntervalMs() {
+            return progressIntervalMs;
+        }
+
+        public void setProgressIntervalMs(long progressIntervalMs) {
+            this.progressIntervalMs = progressIntervalMs;
+        }
+    }
+
+    /**
+     * Cluster mode: gateway nodes find each other through {@code seeds},
+     * check each other every {@code heartbeatMillis} and drop a node not
+     * heard from for {@code failureTimeoutMillis}. Sessions are assigned to
+     * nodes by consistent hashing and requests for another node's sessions
+     * are forwarded to it. Nodes must share the session directory (with the
+     * jsonl backend) so a session's history follows it when ownership moves.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ClusterConfig {
+        private boolean enabled = false;
+        private String nodeId;
+        private String advertiseUrl;
+        private List<String> seeds = new ArrayList<>();
+        private String secret;
+        private int virtualNodes = 128;
+        private long heartbeatMillis = 1000;
+        private long failureTimeoutMillis = 5000;
+        private long forwardTimeoutSeconds = 600;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /** Unique id of this node; defaults to "node-" plus the gateway port. */
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        /** URL peers connect to; defaults to ws://127.0.0.1 on the gateway port. */
+        public String getAdvertiseUrl() {
+            return advertiseUrl;
+        }
+
+        public void setAdvertiseUrl(String advertiseUrl) {
+            this.advertiseUrl = advertiseUrl;
+        }
+
+        /** URLs of nodes to join through at startup; the rest is learned from them. */
+        public List<String> getSeeds() {
+            return seeds;
+        }
+
+        public void setSeeds(List<String> seeds) {
+            this.seeds = seeds;
+        }
+
+        /**
+         * Token nodes present to each other; required when clustering is
+         * enabled. Keep it apart from the client tokens, since a peer may
+         * act on behalf of any client.
+         */
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public long getHeartbeatMillis() {
+            return heartbeatMillis;
+        }
+
+        public void setHeartbeatMillis(long heartbeatMillis) {
+            this.heartbeatMillis = heartbeatMillis;
+        }
+
+        public long getFailureTimeoutMillis() {
+            return failureTimeoutMillis;
+        }
+
+        public void setFailureTimeoutMillis(long failureTimeoutMillis) {
+            this.failureTimeoutMillis = failureTimeoutMillis;
+        }
+
+        /** Upper bound on a forwarded request, long enough for an agent turn. */
+        public long getForwardTimeoutSeconds() {
+            return forwardTimeoutSeconds;
+        }
+
+        public void setForwardTimeoutSeconds(long forwardTimeoutSeconds) {
+            this.forwardTimeoutSeconds = forwardTimeoutSeconds;
+        }
+    }
+
+    /**
+     * A named gateway credential and the limits shared by every connection
+     * that presents it. RPCs are metered by a token bucket refilling at
+     * {@code rpcPerSecond} and holding up to {@code rpcBurst} calls; agent
+     * turns in progress are capped at {@code maxConcurrentTurns}. 0 disables
+     * a limit.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ClientToken {
+        private String token;
+        private double rpcPerSecond = 0;
+        private int rpcBurst = 0;
+        private int maxConcurrentTurns = 0;
+        private boolean debug;
+
+        public String getToken() {
+            return token;
+        }
+
+        public void setToken(String token) {
+            this.token = token;
+        }
+
+        public double getRpcPerSecond() {
+            return rpcPerSecond;
+        }
+
+        public void setRpcPerSecond(double rpcPerSecond) {
+            this.rpcPerSecond = rpcPerSecond;
+        }
+
+        /** Calls that may be made at once after a quiet period; 0 means one second's worth. */
+        public int getRpcBurst() {
+            return rpcBurst;
+        }
+
+        public void setRpcBurst(int rpcBurst) {
+            this.rpcBurst = rpcBurst;
+        }
+
+        public int getMaxConcurrentTurns() {
+            return maxConcurrentTurns;
+        }
+
+        public void setMaxConcurrentTurns(int maxConcurrentTurns) {
+            this.maxConcurrentTurns = maxConcurrentTurns;
+        }
+
+        /**
+         * Whether this token may call gateway.debug, which shows every
+         * client's sessions and connections. Only such tokens may: not the
+         * shared authToken, and not anyone when no token is configured.
+         */
+        public boolean isDebug() {
+            return debug;
+        }
+
+        public void setDebug(boolean debug) {
+            this.debug = debug;
+        }
+    }
+
+    /**
+     * permessage-deflate (RFC 7692) settings, used when the peer offers the
+     * extension. Messages smaller than {@code thresholdBytes} are sent
+     * uncompressed; a message fragmented by {@code frameFragmentBytes} is
+     * always compressed, its last fragment included. Without context takeover each message is compressed on
+     * its own, which costs ratio on small, similar messages but frees the
+     * 32KB window per connection between messages.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class CompressionConfig {
+        private boolean enabled = true;
+        private int level = 6;
+        private int thresholdBytes = 1024;
+        private boolean serverNoContextTakeover = false;
+        private boolean clientNoContextTakeover = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /** Deflate level, 1 (fastest) to 9 (smallest). */
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public int getThresholdBytes() {
+            return thresholdBytes;
+        }
+
+        public void setThresholdBytes(int thresholdBytes) {
+            this.thresholdBytes = thresholdBytes;
+        }
+
+        public boolean isServerNoContextTakeover() {
+            return serverNoContextTakeover;
+        }
+
+        public void setServerNoContextTakeover(boolean serverNoContextTakeover) {
+            this.serverNoContextTakeover = serverNoContextTakeover;
+        }
+
+        public boolean isClientNoContextTakeover() {
+            return clientNoContextTakeover;
+        }
+
+        public void setClientNoContextTakeover(boolean clientNoContextTakeover) {
+            this.clientNoContextTakeover = clientNoContextTakeover;
+        }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -51,6 +527,9 @@ public class OpenClawConfig {
         private String apiKey;
         private String model = "claude-sonnet-4-20250514";
         private String systemPrompt;
+        private long contextTokenBudget = 150_000;
+        private boolean compactContext = false;
+        private int shellWorkers = 0;
 
         public String getProvider() {
             return provider;
@@ -83,5 +562,225 @@ public class OpenClawConfig {
         public void setSystemPrompt(String systemPrompt) {
             this.systemPrompt = systemPrompt;
         }
+
+        /**
+         * Estimated input tokens a request may use; older history is left out of
+         * the context to stay under it (0 sends the whole history).
+         */
+        public long getContextTokenBudget() {
+            return contextTokenBudget;
+        }
+
+        public void setContextTokenBudget(long contextTokenBudget) {
+            this.contextTokenBudget = contextTokenBudget;
+        }
+
+        /**
+         * When the context budget starts leaving older history out, have the
+         * model summarize it and keep the summary in its place, in the context
+         * and in the stored session alike. The summarized messages go the way
+         * of compacted segments: archived or deleted.
+         */
+        public boolean isCompactContext() {
+            return compactContext;
+        }
+
+        public void setCompactContext(boolean compactContext) {
+            this.compactContext = compactContext;
+        }
+
+        /**
+         * Persistent shells kept ready in the workspace for code_execution, so
+         * short commands skip spawning a process (0 spawns one per command).
+         * When all are busy a command spawns its own.
+         */
+        public int getShellWorkers() {
+            return shellWorkers;
+        }
+
+        public void setShellWorkers(int shellWorkers) {
+            this.shellWorkers = shellWorkers;
+        }
+    }
+
+    /**
+     * Session log layout and compaction settings. A session's log is split into
+     * segments that rotate on size or age; once enough sealed segments pile up
+     * they are folded into a snapshot and archived or deleted.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SessionConfig {
+        private String backend = "jsonl";
+        private String directory;
+        private long segmentMaxBytes = 4L * 1024 * 1024;
+        private long segmentMaxAgeMinutes = 24 * 60;
+        private int compactAfterSegments = 4;
+        private boolean archiveSegments = false;
+        private boolean searchEnabled = true;
+        private int searchFlushThreshold = 50_000;
+        private int blobThresholdChars = 2048;
+        private Map<String, TtlPolicy> ttl = new HashMap<>();
+        private long sweepIntervalSeconds = 300;
+        private int sweepBatchSize = 100;
+        private int sweepSessionsPerSecond = 50;
+
+        /** Persistence backend name: "jsonl" (default) or "mvstore". */
+        public String getBackend() {
+            return backend;
+        }
+
+        public void setBackend(String backend) {
+            this.backend = backend;
+        }
+
+        /** Sessions directory; null means ~/.openclaw-java/sessions. */
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getSegmentMaxBytes() {
+            return segmentMaxBytes;
+        }
+
+        public void setSegmentMaxBytes(long segmentMaxBytes) {
+            this.segmentMaxBytes = segmentMaxBytes;
+        }
+
+        public long getSegmentMaxAgeMinutes() {
+            return segmentMaxAgeMinutes;
+        }
+
+        public void setSegmentMaxAgeMinutes(long segmentMaxAgeMinutes) {
+            this.segmentMaxAgeMinutes = segmentMaxAgeMinutes;
+        }
+
+        /** Number of sealed segments that triggers a background compaction (0 disables). */
+        public int getCompactAfterSegments() {
+            return compactAfterSegments;
+        }
+
+        public void setCompactAfterSegments(int compactAfterSegments) {
+            this.compactAfterSegments = compactAfterSegments;
+        }
+
+        /** When true, compacted segments are moved to an archive/ subdirectory instead of deleted. */
+        public boolean isArchiveSegments() {
+            return archiveSegments;
+        }
+
+        public void setArchiveSegments(boolean archiveSegments) {
+            this.archiveSegments = archiveSegments;
+        }
+
+        /** Whether appended messages are added to the full-text index behind session.search. */
+        public boolean isSearchEnabled() {
+            return searchEnabled;
+        }
+
+        public void setSearchEnabled(boolean searchEnabled) {
+            this.searchEnabled = searchEnabled;
+        }
+
+        /** Number of messages buffered in memory before an index segment is written. */
+        public int getSearchFlushThreshold() {
+            return searchFlushThreshold;
+        }
+
+        public void setSearchFlushThreshold(int searchFlushThreshold) {
+            this.searchFlushThreshold = searchFlushThreshold;
+        }
+
+        /**
+         * Message content at least this long is stored once by hash and shared
+         * between messages and sessions (0 disables deduplication).
+         */
+        public int getBlobThresholdChars() {
+            return blobThresholdChars;
+        }
+
+        public void setBlobThresholdChars(int blobThresholdChars) {
+            this.blobThresholdChars = blobThresholdChars;
+        }
+
+        /**
+         * Retention per channel type. The "default" entry applies to channel types
+         * without their own; with no entries at all, sessions are evicted from
+         * memory after an hour idle and kept on disk forever.
+         */
+        public Map<String, TtlPolicy> getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Map<String, TtlPolicy> ttl) {
+            this.ttl = ttl;
+        }
+
+        /** How often the background sweeper applies the TTL policies (0 disables it). */
+        public long getSweepIntervalSeconds() {
+            return sweepIntervalSeconds;
+        }
+
+        public void setSweepIntervalSeconds(long sweepIntervalSeconds) {
+            this.sweepIntervalSeconds = sweepIntervalSeconds;
+        }
+
+        /** Number of stored sessions examined per sweep batch. */
+        public int getSweepBatchSize() {
+            return sweepBatchSize;
+        }
+
+        public void setSweepBatchSize(int sweepBatchSize) {
+            this.sweepBatchSize = sweepBatchSize;
+        }
+
+        /** Upper bound on stored sessions examined or removed per second (0 means unthrottled). */
+        public int getSweepSessionsPerSecond() {
+            return sweepSessionsPerSecond;
+        }
+
+        public void setSweepSessionsPerSecond(int sweepSessionsPerSecond) {
+            this.sweepSessionsPerSecond = sweepSessionsPerSecond;
+        }
+    }
+
+    /**
+     * How long a session lives, measured from its last activity. Eviction only
+     * drops the in-memory copy (it is reloaded on next use); expiry removes the
+     * session's files, moving them to the archive instead when {@code archive}
+     * is set. 0 disables either step.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class TtlPolicy {
+        private long evictAfterMinutes = 60;
+        private long expireAfterMinutes = 0;
+        private boolean archive = false;
+
+        public long getEvictAfterMinutes() {
+            return evictAfterMinutes;
+        }
+
+        public void setEvictAfterMinutes(long evictAfterMinutes) {
+            this.evictAfterMinutes = evictAfterMinutes;
+        }
+
+        public long getExpireAfterMinutes() {
+            return expireAfterMinutes;
+        }
+
+        public void setExpireAfterMinutes(long expireAfterMinutes) {
+            this.expireAfterMinutes = expireAfterMinutes;
+        }
+
+        public boolean isArchive() {
+            return archive;
+        }
+
+        public void setArchive(boolean archive) {
+            this.archive = archive;
+        }
     }
 }
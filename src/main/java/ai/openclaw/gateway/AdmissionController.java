@@ -0,0 +1,180 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Connection and request limits for the gateway. A request is admitted when
+ * its connection has fewer than {@code maxInFlightPerConnection} requests
+ * queued or running and the gateway as a whole has fewer than
+ * {@code maxInFlight + maxPending}; at most {@code maxInFlight} admitted
+ * requests run at once and the rest wait, oldest first, for a slot.
+ * <p>
+ * Admission is a couple of atomic counter updates, so overload is turned
+ * away on the WebSocket thread before any work is queued. A waiting request
+ * holds no thread: a finishing request hands its slot to the oldest one and
+ * starts it on that request's executor.
+ */
+class AdmissionController {
+    static final String REASON_CONNECTION = "connection";
+    static final String REASON_GLOBAL = "global";
+    private static final long MAX_RETRY_AFTER_MS = 30_000;
+
+    private final OpenClawConfig.GatewayConfig config;
+    private final Semaphore running;
+    // Admitted requests waiting for a slot, each of which starts itself on its executor
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder rejectedPerConnection = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+
+    AdmissionController(OpenClawConfig.GatewayConfig config) {
+        this.config = config;
+        this.running = config.getMaxInFlight() > 0 ? new Semaphore(config.getMaxInFlight()) : null;
+    }
+
+    boolean admitConnection(int open) {
+        if (config.getMaxConnections() > 0 && open >= config.getMaxConnections()) {
+            rejectedConnections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** Admits a request, or returns the reason it was rejected. */
+    String admit(GatewayConnection connection) {
+        int perConnection = connection.isPeer() ? 0 : config.getMaxInFlightPerConnection();
+        if (connection.inFlight().incrementAndGet() > perConnection && perConnection > 0) {
+            connection.inFlight().decrementAndGet();
+            rejectedPerConnection.increment();
+            return REASON_CONNECTION;
+        }
+        int capacity = capacity();
+        if (admitted.incrementAndGet() > capacity && capacity > 0) {
+            admitted.decrementAndGet();
+            connection.inFlight().decrementAndGet();
+            rejectedGlobal.increment();
+            return REASON_GLOBAL;
+        }
+        return null;
+    }
+
+    /**
+     * Starts an admitted request on {@code executor} once a global slot is
+     * free, without blocking the caller: a request that finds none waits in
+     * the pending queue. The slot and the admission are held until the
+     * request's future completes, so an async request counts against the
+     * limits for as long as it is outstanding.
+     */
+    <T> CompletableFuture<T> run(GatewayConnection connection, Executor executor,
+            Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> started;
+            try {
+                started = request.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, failure) -> {
+                finish(connection);
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        Runnable dispatch = () -> {
+            try {
+                executor.execute(start);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the request never starts
+                finish(connection);
+                result.completeExceptionally(e);
+            }
+        };
+        // Behind requests already waiting, unless a slot frees up meanwhile
+        if (running == null || (pending.isEmpty() && running.tryAcquire())) {
+            dispatch.run();
+        } else {
+            pending.add(dispatch);
+            dispatchPending();
+        }
+        return result;
+    }
+
+    private void finish(GatewayConnection connection) {
+        if (running != null) {
+            running.release();
+            dispatchPending();
+        }
+        connection.inFlight().decrementAndGet();
+        admitted.decrementAndGet();
+        completed.increment();
+    }
+
+    /**
+     * Starts waiting requests while there are free slots. Called after every
+     * enqueue and every release, so whichever of the two happens last sees
+     * the other and no request is left waiting beside a free slot.
+     */
+    private void dispatchPending() {
+        while (!pending.isEmpty() && running.tryAcquire()) {
+            Runnable next = pending.poll();
+            if (next == null) {
+                running.release();
+            } else {
+                next.run();
+            }
+        }
+    }
+
+    /**
+     * Suggested client back-off: the configured base, scaled up with the
+     * number of requests already waiting per running slot.
+     */
+    long retryAfterMs() {
+        int slots = Math.max(1, config.getMaxInFlight());
+        long scaled = config.getRetryAfterMs() * (1 + (long) queued() / slots);
+        return Math.min(scaled, MAX_RETRY_AFTER_MS);
+    }
+
+    private int capacity() {
+        if (config.getMaxInFlight() <= 0) {
+            return 0;
+        }
+        return config.getMaxInFlight() + Math.max(0, config.getMaxPending());
+    }
+
+    private int runningCount() {
+        return running != null ? config.getMaxInFlight() - running.availablePermits() : 0;
+    }
+
+    private int queued() {
+        return Math.max(0, admitted.get() - runningCount());
+    }
+
+    GatewayMetrics metrics(int connections) {
+        GatewayMetrics metrics = new GatewayMetrics();
+        metrics.setConnections(connections);
+        metrics.setRunning(runningCount());
+        metrics.setQueued(queued());
+        metrics.setCompleted(completed.sum());
+        metrics.setRejectedConnections(rejectedConnections.sum());
+        metrics.setRejectedPerConnection(rejectedPerConnection.sum());
+        metrics.setRejectedGlobal(rejectedGlobal.sum());
+        return metrics;
+    }
+}
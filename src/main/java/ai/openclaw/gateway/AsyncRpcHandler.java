@@ -0,0 +1,15 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An RPC method that completes later. The gateway thread that calls it is
+ * released as soon as it returns, and the request counts against the
+ * admission limits until the future completes.
+ */
+@FunctionalInterface
+public interface AsyncRpcHandler {
+    CompletableFuture<JsonNode> handle(JsonNode params);
+}
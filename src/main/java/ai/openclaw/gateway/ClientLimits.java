@@ -0,0 +1,105 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits shared by all connections authenticated with one named token.
+ * <p>
+ * The RPC rate is a token bucket kept as a single timestamp (the generic cell
+ * rate algorithm): {@code tat} is when the bucket will next be full. A call at
+ * {@code now} is allowed if {@code tat - now} is within the burst tolerance
+ * and moves {@code tat} one emission interval on. One CAS per call, no lock,
+ * no refill thread.
+ */
+class ClientLimits {
+    private final String name;
+    private final String token;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxTurns;
+    private final boolean debug;
+    private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger turns = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    ClientLimits(String name, OpenClawConfig.ClientToken token) {
+        this.name = name;
+        this.token = token.getToken();
+        if (token.getRpcPerSecond() > 0) {
+            this.intervalNanos = (long) (1_000_000_000L / token.getRpcPerSecond());
+            int burst = token.getRpcBurst() > 0
+                    ? token.getRpcBurst()
+                    : (int) Math.max(1, Math.ceil(token.getRpcPerSecond()));
+            this.toleranceNanos = (burst - 1) * intervalNanos;
+        } else {
+            this.intervalNanos = 0;
+            this.toleranceNanos = 0;
+        }
+        this.maxTurns = token.getMaxConcurrentTurns();
+        this.debug = token.isDebug();
+    }
+
+    String name() {
+        return name;
+    }
+
+    String token() {
+        return token;
+    }
+
+    boolean mayDebug() {
+        return debug;
+    }
+
+    /**
+     * Takes one call from the bucket.
+     *
+     * @return 0 if the call may proceed, otherwise nanoseconds until it would
+     */
+    long acquireRpc(long nowNanos) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        while (true) {
+            long current = tat.get();
+            long start = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+            long wait = start - nowNanos - toleranceNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (tat.compareAndSet(current, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean startTurn() {
+        if (maxTurns <= 0) {
+            turns.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = turns.get();
+            if (current >= maxTurns) {
+                rejected.increment();
+                return false;
+            }
+            if (turns.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void endTurn() {
+        turns.decrementAndGet();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,97 @@
+package ai.openclaw.gateway;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.enums.Opcode;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes one message to a WebSocket as a run of fragments of at most
+ * {@code fragmentBytes} each, sending every fragment as soon as it fills up;
+ * {@link #close()} sends the final one. Fragments of a UTF-8 text message are
+ * cut on character boundaries. The caller must keep other sends on the
+ * connection out of the way until the stream is closed.
+ * <p>
+ * Each fragment is sent as an exact-size copy: the permessage-deflate
+ * extension compresses the whole backing array of a frame's payload, so a
+ * slice of a shared buffer cannot be handed over.
+ */
+class FrameOutputStream extends OutputStream {
+    static final int INITIAL_BUFFER_BYTES = 4096;
+
+    private final WebSocket conn;
+    private final Opcode opcode;
+    private final int fragmentBytes;
+    private byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    FrameOutputStream(WebSocket conn, Opcode opcode, int fragmentBytes) {
+        this(conn, opcode, fragmentBytes, new byte[Math.min(Math.max(fragmentBytes, 16), INITIAL_BUFFER_BYTES)]);
+    }
+
+    /**
+     * Starts in a caller's buffer, which can be reused once the stream is
+     * closed; a message that outgrows it continues in a larger private one.
+     */
+    FrameOutputStream(WebSocket conn, Opcode opcode, int fragmentBytes, byte[] buffer) {
+        this.conn = conn;
+        this.opcode = opcode;
+        this.fragmentBytes = Math.max(fragmentBytes, 16);
+        this.buffer = buffer.length <= this.fragmentBytes ? buffer : new byte[this.fragmentBytes];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRoom();
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            ensureRoom();
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void ensureRoom() {
+        if (count < buffer.length) {
+            return;
+        }
+        if (buffer.length < fragmentBytes) {
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, fragmentBytes));
+            return;
+        }
+        int cut = opcode == Opcode.TEXT ? completeCharacters() : count;
+        conn.sendFragmentedFrame(opcode, ByteBuffer.wrap(Arrays.copyOf(buffer, cut)), false);
+        System.arraycopy(buffer, cut, buffer, 0, count - cut);
+        count -= cut;
+    }
+
+    /** Length of the longest prefix of the buffer that does not end inside a UTF-8 sequence. */
+    private int completeCharacters() {
+        int i = count - 1;
+        while (i > 0 && count - i < 4 && (buffer[i] & 0xC0) == 0x80) {
+            i--;
+        }
+        int lead = buffer[i] & 0xFF;
+        int needed = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return count - i >= needed ? count : i;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        conn.sendFragmentedFrame(opcode, ByteBuffer.wrap(Arrays.copyOf(buffer, count)), true);
+    }
+}
@@ -0,0 +1,99 @@
+package ai.openclaw.gateway;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection state of an authenticated client. Requests from one
+ * connection are dispatched through its own {@link SerialExecutor}, so they
+ * are handled in arrival order while other connections proceed in parallel.
+ */
+class GatewayConnection {
+    private final WebSocket socket;
+    private final SerialExecutor dispatcher;
+    private final RpcEncoding encoding;
+    private final ClientLimits limits;
+    private final boolean peer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private byte[] frameBuffer;
+
+    GatewayConnection(WebSocket socket, Executor executor, RpcEncoding encoding) {
+        this(socket, executor, encoding, null, false);
+    }
+
+    GatewayConnection(WebSocket socket, Executor executor, RpcEncoding encoding, ClientLimits limits, boolean peer) {
+        this.socket = socket;
+        this.dispatcher = new SerialExecutor(executor);
+        this.encoding = encoding;
+        this.limits = limits;
+        this.peer = peer;
+    }
+
+    WebSocket socket() {
+        return socket;
+    }
+
+    RpcEncoding encoding() {
+        return encoding;
+    }
+
+    /** Limits of the named token the client authenticated with, or null if unlimited. */
+    ClientLimits limits() {
+        return limits;
+    }
+
+    /**
+     * Whether this is another cluster node's link. Peers multiplex many
+     * clients' requests, so theirs run concurrently and are not held to the
+     * per-connection limit.
+     */
+    boolean isPeer() {
+        return peer;
+    }
+
+    SerialExecutor dispatcher() {
+        return dispatcher;
+    }
+
+    /** Admitted requests of this connection that are queued or running. */
+    AtomicInteger inFlight() {
+        return inFlight;
+    }
+
+    /** Ids of the sessions this connection is subscribed to. */
+    Set<String> subscriptions() {
+        return subscriptions;
+    }
+
+    /** Events not pushed to this connection because it was falling behind, since the last one that was. */
+    AtomicLong droppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Buffer the connection's responses are framed in, allocated on first
+     * use; only used while holding the socket's monitor.
+     */
+    byte[] frameBuffer() {
+        if (frameBuffer == null) {
+            frameBuffer = new byte[FrameOutputStream.INITIAL_BUFFER_BYTES];
+        }
+        return frameBuffer;
+    }
+
+    /** Frames queued on the socket but not yet written. */
+    int backlog() {
+        if (socket instanceof WebSocketImpl impl) {
+            return impl.outQueue.size();
+        }
+        return socket instanceof VirtualThreadSocket own ? own.queued() : 0;
+    }
+}
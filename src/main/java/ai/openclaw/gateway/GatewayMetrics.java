@@ -0,0 +1,111 @@
+package ai.openclaw.gateway;
+
+/**
+ * Point-in-time load figures for the gateway, as returned by
+ * {@link GatewayServer#getMetrics()}. Counters are cumulative since start.
+ */
+public class GatewayMetrics {
+    private int connections;
+    private int running;
+    private int queued;
+    private long completed;
+    private long rejectedConnections;
+    private long rejectedPerConnection;
+    private long rejectedGlobal;
+    private long rateLimited;
+    private int subscriptions;
+    private long droppedEvents;
+    private long slowConsumerDisconnects;
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /** Requests currently executing. */
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    /** Admitted requests waiting for a free slot or for earlier requests on their connection. */
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections;
+    }
+
+    public void setRejectedConnections(long rejectedConnections) {
+        this.rejectedConnections = rejectedConnections;
+    }
+
+    public long getRejectedPerConnection() {
+        return rejectedPerConnection;
+    }
+
+    public void setRejectedPerConnection(long rejectedPerConnection) {
+        this.rejectedPerConnection = rejectedPerConnection;
+    }
+
+    public long getRejectedGlobal() {
+        return rejectedGlobal;
+    }
+
+    public void setRejectedGlobal(long rejectedGlobal) {
+        this.rejectedGlobal = rejectedGlobal;
+    }
+
+    /** Requests refused because a named token was over its rate or turn limit. */
+    public long getRateLimited() {
+        return rateLimited;
+    }
+
+    public void setRateLimited(long rateLimited) {
+        this.rateLimited = rateLimited;
+    }
+
+    public int getSubscriptions() {
+        return subscriptions;
+    }
+
+    public void setSubscriptions(int subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    /** Session events not pushed to slow subscribers. */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public void setDroppedEvents(long droppedEvents) {
+        this.droppedEvents = droppedEvents;
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects;
+    }
+
+    public void setSlowConsumerDisconnects(long slowConsumerDisconnects) {
+        this.slowConsumerDisconnects = slowConsumerDisconnects;
+    }
+}
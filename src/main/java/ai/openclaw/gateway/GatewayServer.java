@@ -1,30 +1,178 @@
 package ai.openclaw.gateway;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ai.openclaw.agent.AgentExecutor;
 import ai.openclaw.config.Json;
+import ai.openclaw.gateway.cluster.Cluster;
+import ai.openclaw.gateway.cluster.ClusterNode;
+import ai.openclaw.session.SessionNotOwnedException;
+import ai.openclaw.session.SessionStore;
+import ai.openclaw.session.SessionUsage;
 import org.java_websocket.WebSocket;
+import org.java_websocket.enums.Opcode;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.IProtocol;
 import org.java_websocket.server.WebSocketServer;
 import ai.openclaw.config.OpenClawConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * WebSocket JSON-RPC endpoint. Requests are parsed on the WebSocket thread,
+ * passed through {@link AdmissionController}, and handled on the configured
+ * RPC executor, one at a time per connection; responses are written back from
+ * the handler's thread. Requests over the limits are answered at once with
+ * {@link RpcProtocol#SERVER_OVERLOADED} and a {@code retryAfterMs} hint.
+ * <p>
+ * In cluster mode, a request whose {@code sessionId} another node owns is
+ * forwarded to that node and its response relayed back; see {@link Cluster}.
+ * <p>
+ * Connections are accepted by Java-WebSocket, or with
+ * {@code transport = "virtual"} by {@link VirtualThreadTransport}; both
+ * deliver them to the same callbacks below. With {@code unixSocket} set,
+ * local clients can also connect over a Unix domain socket.
+ */
 public class GatewayServer extends WebSocketServer {
     private static final Logger logger = LoggerFactory.getLogger(GatewayServer.class);
     private final OpenClawConfig config;
+    private static final String REASON_DRAINING = "draining";
+    private static final Map<String, String> REASON_MESSAGES = Map.of(
+            AdmissionController.REASON_CONNECTION, "Too many requests in flight on this connection",
+            AdmissionController.REASON_GLOBAL, "Gateway overloaded",
+            REASON_DRAINING, "Gateway is shutting down");
+    /** Notification sent to every client when the gateway starts draining. */
+    public static final String DRAINING = "gateway.draining";
+    /**
+     * Diagnostics method; only clients of a named token with {@code debug}
+     * set may call it, never the shared token, an open gateway or a peer.
+     */
+    public static final String DEBUG = "gateway.debug";
+    /** Connections and sessions listed by {@link #debug()}, largest first. */
+    private static final int DEBUG_TOP = 20;
+    private static final Set<String> SUBSCRIPTION_METHODS = Set.of("session.subscribe", "session.unsubscribe");
+    /** Methods that run an agent turn, counted against a token's maxConcurrentTurns. */
+    private static final Set<String> TURN_METHODS = Set.of("agent.send");
     private final ObjectMapper mapper = Json.mapper();
-    private final Set<WebSocket> authenticatedClients = java.util.Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<WebSocket, GatewayConnection> connections = new ConcurrentHashMap<>();
     private final RpcRouter router;
+    private final Map<RpcEncoding, RpcCodec> codecs = new EnumMap<>(RpcEncoding.class);
+    private final ExecutorService rpcExecutor;
+    private final AdmissionController admission;
+    private final Map<String, ClientLimits> clientLimits = new HashMap<>();
+    private final SessionStore sessionStore;
+    private final SessionSubscriptions subscriptions;
+    private final Cluster cluster;
+    private volatile boolean draining;
+    // Requests and batches whose response is not sent yet; drain() lets them go out before closing connections
+    private final AtomicInteger unanswered = new AtomicInteger();
+    private final VirtualThreadTransport transport;
+    private final VirtualThreadTransport unixTransport;
 
     public GatewayServer(OpenClawConfig config, RpcRouter router) {
-        super(new InetSocketAddress("0.0.0.0", config.getGateway().getPort()));
+        this(config, router, null);
+    }
+
+    /**
+     * With a session store, the gateway also serves session.subscribe and
+     * session.unsubscribe and pushes the store's events to subscribers.
+     */
+    public GatewayServer(OpenClawConfig config, RpcRouter router, SessionStore sessionStore) {
+        super(new InetSocketAddress("0.0.0.0", config.getGateway().getPort()),
+                List.of(WebSocketDrafts.server(config.getGateway())));
         this.config = config;
         this.router = router;
+        this.transport = "virtual".equalsIgnoreCase(config.getGateway().getTransport())
+                ? new VirtualThreadTransport(this, new InetSocketAddress("0.0.0.0", config.getGateway().getPort()),
+                        config.getGateway())
+                : null;
+        if (transport == null && config.getGateway().isReusePort()) {
+            logger.warn("gateway.reusePort needs transport = \"virtual\"; Java-WebSocket binds without SO_REUSEPORT");
+        }
+        String unixSocket = config.getGateway().getUnixSocket();
+        this.unixTransport = unixSocket != null && !unixSocket.isBlank()
+                ? new VirtualThreadTransport(this, UnixDomainSocketAddress.of(unixSocket), config.getGateway())
+                : null;
+        for (RpcEncoding encoding : RpcEncoding.values()) {
+            codecs.put(encoding, new RpcCodec(encoding, router::usesParams));
+        }
+        this.rpcExecutor = createRpcExecutor(config.getGateway());
+        this.admission = new AdmissionController(config.getGateway());
+        if (config.getGateway().getTokens() != null) {
+            config.getGateway().getTokens().forEach((name, token) ->
+                    clientLimits.put(name, new ClientLimits(name, token)));
+        }
+        this.sessionStore = sessionStore;
+        if (sessionStore != null) {
+            this.subscriptions = new SessionSubscriptions(config.getGateway(), this::push);
+            sessionStore.addListener(subscriptions);
+        } else {
+            this.subscriptions = null;
+        }
+        if (config.getGateway().getCluster().isEnabled()) {
+            this.cluster = new Cluster(config.getGateway());
+            if (sessionStore != null) {
+                // TTL sweeps leave the sessions other nodes serve alone
+                sessionStore.setOwnership(cluster::isLocal);
+                // Sessions that moved away are reloaded from the shared directory by their new owner
+                cluster.addListener(() -> {
+                    int evicted = sessionStore.evict(id -> !cluster.isLocal(id));
+                    if (evicted > 0) {
+                        logger.info("Released {} sessions now owned by other nodes", evicted);
+                    }
+                });
+            }
+        } else {
+            this.cluster = null;
+        }
+    }
+
+    /** This node's cluster membership, or null when clustering is off. */
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    private static ExecutorService createRpcExecutor(OpenClawConfig.GatewayConfig gateway) {
+        if ("fixed".equalsIgnoreCase(gateway.getRpcExecutor())) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "gateway-rpc-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return Executors.newFixedThreadPool(Math.max(1, gateway.getRpcThreads()), factory);
+        }
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gateway-rpc-", 0).factory());
     }
 
     @Override
@@ -32,23 +180,70 @@ public class GatewayServer extends WebSocketServer {
         String remoteAddress = conn.getRemoteSocketAddress().toString();
         logger.info("New connection from {}", remoteAddress);
 
-        String expectedToken = config.getGateway() != null ? config.getGateway().getAuthToken() : null;
-        if (expectedToken == null || expectedToken.isEmpty()) {
+        if (draining) {
+            // 1012 (service restart) tells the client to reconnect, reaching the replacement or another node
+            conn.close(1012, "Server restarting");
+            return;
+        }
+
+        // Without clustering the node header means nothing, and the connection authenticates as a client
+        String peerId = cluster != null ? handshake.getFieldValue(Cluster.NODE_HEADER) : null;
+        if (peerId != null && !peerId.isEmpty()) {
+            String providedToken = extractToken(handshake);
+            if (providedToken == null || !constantTimeEquals(cluster.secret(), providedToken)) {
+                logger.warn("Unauthorized peer {} from {}", peerId, remoteAddress);
+                conn.close(1008, "Unauthorized");
+                return;
+            }
+            logger.info("Peer link from node {} at {}", peerId, remoteAddress);
+            connections.put(conn, new GatewayConnection(conn, rpcExecutor, negotiatedEncoding(conn), null, true));
+            return;
+        }
+
+        if (!admission.admitConnection(connections.size())) {
+            logger.warn("Connection limit reached, refusing {}", remoteAddress);
+            conn.close(1013, "Try again later");
+            return;
+        }
+
+        OpenClawConfig.GatewayConfig gateway = config.getGateway();
+        String expectedToken = gateway.getAuthToken();
+        boolean sharedToken = expectedToken != null && !expectedToken.isEmpty();
+        if (!sharedToken && clientLimits.isEmpty()) {
             logger.warn("No auth token configured! Accepting connection from {}", remoteAddress);
-            authenticatedClients.add(conn);
+            connections.put(conn, new GatewayConnection(conn, rpcExecutor, negotiatedEncoding(conn)));
             return;
         }
 
+        // Every configured token is compared, so timing does not reveal which one matched
         String providedToken = extractToken(handshake);
-        if (providedToken == null || !constantTimeEquals(expectedToken, providedToken)) {
+        boolean authorized = false;
+        ClientLimits limits = null;
+        if (providedToken != null) {
+            authorized = sharedToken && constantTimeEquals(expectedToken, providedToken);
+            for (ClientLimits named : clientLimits.values()) {
+                String token = named.token();
+                if (token != null && !token.isEmpty() && constantTimeEquals(token, providedToken)) {
+                    authorized = true;
+                    limits = named;
+                }
+            }
+        }
+        if (!authorized) {
             logger.warn("Unauthorized connection attempt from {}", remoteAddress);
             // Close with policy violation code (1008) or normal code (1000) with reason
             conn.close(1008, "Unauthorized");
             return;
         }
 
-        logger.info("Authenticated connection from {}", remoteAddress);
-        authenticatedClients.add(conn);
+        logger.info("Authenticated connection from {}{}", remoteAddress,
+                limits != null ? " as " + limits.name() : "");
+        connections.put(conn, new GatewayConnection(conn, rpcExecutor, negotiatedEncoding(conn), limits, false));
+    }
+
+    private static RpcEncoding negotiatedEncoding(WebSocket conn) {
+        IProtocol protocol = conn.getProtocol();
+        return RpcEncoding.forSubprotocol(protocol != null ? protocol.getProvidedProtocol() : null);
     }
 
     private String extractToken(ClientHandshake handshake) {
@@ -75,7 +270,7 @@ public class GatewayServer extends WebSocketServer {
     }
 
     /** Constant-time string comparison to prevent timing attacks. */
-    private boolean constantTimeEquals(String a, String b) {
+    private static boolean constantTimeEquals(String a, String b) {
         return java.security.MessageDigest.isEqual(
                 a.getBytes(java.nio.charset.StandardCharsets.UTF_8),
                 b.getBytes(java.nio.charset.StandardCharsets.UTF_8));
@@ -85,52 +280,619 @@ public class GatewayServer extends WebSocketServer {
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
         String remoteAddress = conn.getRemoteSocketAddress().toString();
         logger.info("Closed connection: {}", remoteAddress);
-        authenticatedClients.remove(conn);
+        GatewayConnection connection = connections.remove(conn);
+        if (connection != null && subscriptions != null) {
+            subscriptions.unsubscribeAll(connection);
+        }
     }
 
     @Override
     public void onMessage(WebSocket conn, String message) {
-        if (!authenticatedClients.contains(conn)) {
+        GatewayConnection connection = connections.get(conn);
+        if (connection == null) {
             logger.warn("Message from unauthenticated connection, ignoring");
             return;
         }
+        if (connection.encoding().isBinary()) {
+            logger.warn("Text frame on a {} connection, ignoring", connection.encoding());
+            return;
+        }
+        try {
+            receive(connection, codecs.get(RpcEncoding.JSON).parser(message));
+        } catch (Exception e) {
+            logger.error("Error parsing message", e);
+        }
+    }
 
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        GatewayConnection connection = connections.get(conn);
+        if (connection == null) {
+            logger.warn("Message from unauthenticated connection, ignoring");
+            return;
+        }
+        if (!connection.encoding().isBinary()) {
+            logger.warn("Binary frame on a JSON connection, ignoring");
+            return;
+        }
         try {
-            RpcProtocol.RpcMessage request = mapper.readValue(message, RpcProtocol.RpcMessage.class);
-
-            if (request.getMethod() != null) {
-                // It's a request
-                try {
-                    JsonNode result = router.route(request.getMethod(), request.getParams());
-                    if (result == null) {
-                        sendError(conn, request.getId(), -32601, "Method not found: " + request.getMethod());
-                        return;
-                    }
-                    RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
-                    response.setId(request.getId());
-                    response.setResult(result);
-                    conn.send(mapper.writeValueAsString(response));
-                } catch (Exception e) {
-                    logger.error("Error processing request", e);
-                    sendError(conn, request.getId(), -32603, "Internal error: " + e.getMessage());
-                }
-            }
+            receive(connection, codecs.get(connection.encoding()).parser(message));
         } catch (Exception e) {
             logger.error("Error parsing message", e);
         }
     }
 
-    private void sendError(WebSocket conn, String id, int code, String message) {
+    /** Reads one request or batch from the frame, peeking at the first token to tell which. */
+    private void receive(GatewayConnection connection, JsonParser parser) throws IOException {
+        RpcCodec codec = codecs.get(connection.encoding());
+        try (parser) {
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                handleBatch(connection, codec.readBatch(parser));
+                return;
+            }
+            RpcProtocol.RpcMessage request = codec.readRequest(parser);
+            if (request.getMethod() == null) {
+                return;
+            }
+            Executor executor = connection.isPeer() ? rpcExecutor : connection.dispatcher();
+            unanswered.incrementAndGet();
+            dispatch(connection, request, executor).thenAccept(response -> reply(connection, response))
+                    .whenComplete((ignored, failure) -> answered());
+        }
+    }
+
+    private void answered() {
+        if (unanswered.decrementAndGet() == 0 && draining) {
+            synchronized (unanswered) {
+                unanswered.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Handles a JSON-RPC batch. Entries are admitted one by one and run
+     * concurrently on the RPC executor, in no particular order with respect to
+     * each other or to other requests on the connection. The responses go back
+     * as one array once every entry has finished, or one by one as they
+     * complete when {@code batchStreaming} is set. Entries without an id are
+     * notifications and get no response.
+     */
+    private void handleBatch(GatewayConnection connection, List<RpcProtocol.RpcMessage> batch) {
+        if (batch.isEmpty()) {
+            reply(connection, error(null, -32600, "Invalid Request: empty batch"));
+            return;
+        }
+        boolean streaming = config.getGateway().isBatchStreaming();
+        List<CompletableFuture<RpcProtocol.RpcMessage>> responses = new ArrayList<>(batch.size());
+        List<CompletableFuture<?>> replies = new ArrayList<>();
+        unanswered.incrementAndGet();
+        for (RpcProtocol.RpcMessage request : batch) {
+            CompletableFuture<RpcProtocol.RpcMessage> response;
+            if (request.getMethod() == null) {
+                response = CompletableFuture.completedFuture(error(request.getId(), -32600, "Invalid Request"));
+            } else {
+                response = dispatch(connection, request, rpcExecutor);
+                if (request.getId() == null) {
+                    continue;
+                }
+            }
+            if (streaming) {
+                replies.add(response.thenAccept(r -> reply(connection, r)));
+            } else {
+                responses.add(response);
+            }
+        }
+        if (!responses.isEmpty()) {
+            replies.add(CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                    .thenRun(() -> reply(connection, responses.stream().map(CompletableFuture::join).toList())));
+        }
+        CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new)).whenComplete((ignored, failure) -> answered());
+    }
+
+    /**
+     * Starts a request. Once draining, new turns are refused with a retry
+     * hint before they take a slot; one that slips past the flag is refused
+     * by the {@link AgentExecutor}, which counts the turns {@link #drain}
+     * waits for.
+     */
+    private CompletableFuture<RpcProtocol.RpcMessage> dispatch(GatewayConnection connection,
+            RpcProtocol.RpcMessage request, Executor executor) {
+        if (draining && TURN_METHODS.contains(request.getMethod())) {
+            return CompletableFuture.completedFuture(overloaded(request.getId(), REASON_DRAINING));
+        }
+        return limit(connection, request, executor);
+    }
+
+    /**
+     * Applies the client's token limits, then admits the request and starts
+     * it on {@code executor}. Every RPC takes one call from the token's
+     * bucket; agent turns also hold one of its turn slots until they
+     * complete.
+     */
+    private CompletableFuture<RpcProtocol.RpcMessage> limit(GatewayConnection connection,
+            RpcProtocol.RpcMessage request, Executor executor) {
+        ClientLimits limits = connection.limits();
+        if (limits == null) {
+            return admit(connection, request, executor);
+        }
+        long waitNanos = limits.acquireRpc(System.nanoTime());
+        if (waitNanos > 0) {
+            return CompletableFuture.completedFuture(rateLimited(request.getId(), limits, "rate",
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos))));
+        }
+        if (!TURN_METHODS.contains(request.getMethod())) {
+            return admit(connection, request, executor);
+        }
+        if (!limits.startTurn()) {
+            return CompletableFuture.completedFuture(rateLimited(request.getId(), limits, "turns",
+                    config.getGateway().getRetryAfterMs()));
+        }
+        return admit(connection, request, executor).whenComplete((response, failure) -> limits.endTurn());
+    }
+
+    /**
+     * Admits a request and starts it on {@code executor}. A rejected request
+     * completes at once with an overload error; gateway.* calls (health,
+     * metrics) skip admission so they stay answerable under load. A request
+     * waiting for a slot holds no thread, and the executor thread is free
+     * again as soon as the handler returns its future.
+     */
+    private CompletableFuture<RpcProtocol.RpcMessage> admit(GatewayConnection connection,
+            RpcProtocol.RpcMessage request, Executor executor) {
+        if (request.getMethod().startsWith("gateway.") || request.getMethod().startsWith("cluster.")) {
+            return CompletableFuture.supplyAsync(() -> process(connection, request), executor)
+                    .thenCompose(response -> response);
+        }
+        String rejection = admission.admit(connection);
+        if (rejection != null) {
+            return CompletableFuture.completedFuture(overloaded(request.getId(), rejection));
+        }
+        return admission.run(connection, executor, () -> process(connection, request))
+                .handle((message, failure) -> message);
+    }
+
+    private CompletableFuture<RpcProtocol.RpcMessage> process(GatewayConnection connection,
+            RpcProtocol.RpcMessage request) {
+        if (DEBUG.equals(request.getMethod()) && !mayDebug(connection)) {
+            return CompletableFuture.completedFuture(error(request.getId(), RpcProtocol.FORBIDDEN,
+                    connection.limits() != null
+                            ? "Token " + connection.limits().name() + " may not call " + DEBUG
+                            : DEBUG + " needs a token with debug enabled"));
+        }
+        ClusterNode owner = remoteOwner(connection, request);
+        if (owner != null) {
+            request.setClient(client(connection, request));
+            return forward(owner, request);
+        }
+        CompletableFuture<JsonNode> result;
+        if (cluster != null && request.getMethod().startsWith("cluster.")) {
+            try {
+                result = CompletableFuture.completedFuture(
+                        cluster.handle(request.getMethod(), request.getParams(), connection.isPeer()));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+        } else if (subscriptions != null && SUBSCRIPTION_METHODS.contains(request.getMethod())) {
+            try {
+                result = CompletableFuture.completedFuture(subscription(connection, request));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+        } else {
+            result = router.call(request.getMethod(), request.getParams(), context(connection, request));
+        }
+        return result.handle((value, failure) -> {
+            if (failure == null) {
+                RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
+                response.setId(request.getId());
+                response.setResult(value != null ? value : mapper.nullNode());
+                return response;
+            }
+            Throwable cause = RpcRouter.unwrap(failure);
+            if (cause instanceof RpcException rpc) {
+                RpcProtocol.RpcMessage response = error(request.getId(), rpc.getCode(), rpc.getMessage());
+                response.getError().setData(rpc.getData());
+                return response;
+            }
+            if (cause instanceof SessionNotOwnedException) {
+                // The previous owner has not let go of the session yet; a retry lands once it has
+                return error(request.getId(), RpcProtocol.NOT_OWNER, cause.getMessage());
+            }
+            logger.error("Error processing request", cause);
+            return error(request.getId(), -32603, "Internal error: " + cause.getMessage());
+        });
+    }
+
+    private static boolean mayDebug(GatewayConnection connection) {
+        return !connection.isPeer() && connection.limits() != null && connection.limits().mayDebug();
+    }
+
+    /**
+     * The caller of a request, for the router: who it authenticated as, and
+     * notifications for the connection it came in on. A peer link gets none:
+     * the relaying node only waits for the response, so progress is not
+     * relayed across nodes.
+     */
+    private RpcContext context(GatewayConnection connection, RpcProtocol.RpcMessage request) {
+        String client = client(connection, request);
+        if (connection.isPeer()) {
+            return new RpcContext() {
+                @Override
+                public void notify(String method, JsonNode params) {
+                }
+
+                @Override
+                public String client() {
+                    return client;
+                }
+            };
+        }
+        return new RpcContext() {
+            @Override
+            public void notify(String method, JsonNode params) {
+                if (!connection.socket().isOpen()) {
+                    return;
+                }
+                RpcProtocol.RpcMessage notification = new RpcProtocol.RpcMessage();
+                notification.setMethod(method);
+                notification.setParams(params);
+                reply(connection, notification);
+            }
+
+            @Override
+            public String client() {
+                return client;
+            }
+        };
+    }
+
+    /**
+     * The token a request was made with: the connection's, or for a request
+     * relayed by a peer, the one the relaying node vouches for.
+     */
+    private static String client(GatewayConnection connection, RpcProtocol.RpcMessage request) {
+        if (connection.isPeer()) {
+            return request.getClient();
+        }
+        return connection.limits() != null ? connection.limits().name() : null;
+    }
+
+    /**
+     * The node a client's request must go to, or null to handle it here.
+     * Requests arriving over a peer link were routed by the sending node and
+     * are always handled locally, so a request is forwarded at most once
+     * even while two nodes briefly disagree about membership.
+     */
+    private ClusterNode remoteOwner(GatewayConnection connection, RpcProtocol.RpcMessage request) {
+        if (cluster == null || connection.isPeer() || request.getParams() == null) {
+            return null;
+        }
+        String sessionId = request.getParams().path("sessionId").asText(null);
+        if (sessionId == null) {
+            return null;
+        }
+        ClusterNode owner = cluster.ownerOf(sessionId);
+        return owner == null || owner.equals(cluster.self()) ? null : owner;
+    }
+
+    /**
+     * Relays a request to the session's owner. Subscriptions cannot be
+     * relayed, since events are pushed by the node running the turns; the
+     * client is told where to connect instead.
+     */
+    private CompletableFuture<RpcProtocol.RpcMessage> forward(ClusterNode owner, RpcProtocol.RpcMessage request) {
+        if (SUBSCRIPTION_METHODS.contains(request.getMethod())) {
+            RpcProtocol.RpcMessage response = error(request.getId(), RpcProtocol.NOT_OWNER,
+                    "Session is owned by node " + owner.id());
+            response.getError().setData(mapper.createObjectNode()
+                    .put("nodeId", owner.id())
+                    .put("url", owner.url()));
+            return CompletableFuture.completedFuture(response);
+        }
+        return cluster.forward(owner, request).handle((response, failure) -> {
+            if (failure != null) {
+                logger.warn("Forwarding {} to node {} failed", request.getMethod(), owner.id(), failure);
+                return error(request.getId(), -32603,
+                        "Owner node " + owner.id() + " unreachable: " + RpcRouter.unwrap(failure).getMessage());
+            }
+            response.setId(request.getId());
+            return response;
+        });
+    }
+
+    /**
+     * session.subscribe and session.unsubscribe act on the calling connection,
+     * so they are served here rather than through the router.
+     */
+    private JsonNode subscription(GatewayConnection connection, RpcProtocol.RpcMessage request) {
+        JsonNode params = request.getParams();
+        String sessionId = params != null ? params.path("sessionId").asText(null) : null;
+        if (sessionId == null) {
+            throw new IllegalArgumentException("sessionId is required");
+        }
+        if (request.getMethod().equals("session.subscribe")) {
+            if (sessionStore.getSession(sessionId) == null) {
+                throw new IllegalArgumentException("Unknown session: " + sessionId);
+            }
+            subscriptions.subscribe(connection, sessionId);
+            return mapper.createObjectNode().put("sessionId", sessionId).put("subscribed", true);
+        }
+        boolean removed = subscriptions.unsubscribe(connection, sessionId);
+        return mapper.createObjectNode().put("sessionId", sessionId).put("unsubscribed", removed);
+    }
+
+    private static RpcProtocol.RpcMessage error(String id, int code, String message) {
+        RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
+        response.setId(id);
+        response.setError(new RpcProtocol.RpcError(code, message));
+        return response;
+    }
+
+    private RpcProtocol.RpcMessage rateLimited(String id, ClientLimits limits, String limit, long retryAfterMs) {
+        String message = limit.equals("turns") ? "Too many concurrent agent turns" : "Rate limit exceeded";
+        RpcProtocol.RpcMessage response = error(id, RpcProtocol.RATE_LIMITED, message);
+        response.getError().setData(mapper.createObjectNode()
+                .put("token", limits.name())
+                .put("limit", limit)
+                .put("retryAfterMs", retryAfterMs));
+        return response;
+    }
+
+    /**
+     * The error for a turn the {@link AgentExecutor} refused while draining,
+     * for handlers to throw: the same one {@link #dispatch} answers with.
+     */
+    public static RpcException drainingError(long retryAfterMs) {
+        return new RpcException(RpcProtocol.SERVER_OVERLOADED, REASON_MESSAGES.get(REASON_DRAINING),
+                Json.mapper().createObjectNode().put("reason", REASON_DRAINING).put("retryAfterMs", retryAfterMs));
+    }
+
+    private RpcProtocol.RpcMessage overloaded(String id, String reason) {
+        RpcProtocol.RpcMessage response = error(id, RpcProtocol.SERVER_OVERLOADED, REASON_MESSAGES.get(reason));
+        response.getError().setData(mapper.createObjectNode()
+                .put("reason", reason)
+                .put("retryAfterMs", admission.retryAfterMs()));
+        return response;
+    }
+
+    private void reply(GatewayConnection connection, Object payload) {
         try {
-            RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
-            response.setId(id);
-            response.setError(new RpcProtocol.RpcError(code, message));
-            conn.send(mapper.writeValueAsString(response));
+            send(connection, payload);
         } catch (Exception e) {
-            logger.error("Failed to send error response", e);
+            logger.error("Failed to send response", e);
+        }
+    }
+
+    /** Current connection count, queue depths and rejection counters. */
+    public GatewayMetrics getMetrics() {
+        GatewayMetrics metrics = admission.metrics(connections.size());
+        metrics.setRateLimited(clientLimits.values().stream().mapToLong(ClientLimits::rejected).sum());
+        if (subscriptions != null) {
+            metrics.setSubscriptions(subscriptions.count());
+            metrics.setDroppedEvents(subscriptions.droppedEvents());
+            metrics.setSlowConsumerDisconnects(subscriptions.disconnects());
+        }
+        return metrics;
+    }
+
+    /**
+     * Diagnostics for {@value #DEBUG}, read from counters the gateway keeps
+     * anyway: admission and executor queue depths, the connections with the
+     * longest outgoing backlog, session memory estimates and open files, and
+     * JVM heap and thread states. Thread states cover platform threads only;
+     * agent turns on virtual threads report their own state.
+     */
+    public ObjectNode debug() {
+        ObjectNode debug = mapper.createObjectNode();
+        debug.set("metrics", mapper.valueToTree(getMetrics()));
+
+        ObjectNode executor = debug.putObject("executor");
+        executor.put("draining", draining);
+        if (rpcExecutor instanceof ThreadPoolExecutor pool) {
+            executor.put("type", "fixed");
+            executor.put("active", pool.getActiveCount());
+            executor.put("queued", pool.getQueue().size());
+        } else {
+            executor.put("type", "virtual");
+        }
+
+        List<Map.Entry<GatewayConnection, Integer>> backlogs = new ArrayList<>(connections.size());
+        for (GatewayConnection connection : connections.values()) {
+            backlogs.add(Map.entry(connection, connection.backlog()));
+        }
+        backlogs.sort(Map.Entry.<GatewayConnection, Integer>comparingByValue().reversed());
+        ArrayNode busiest = debug.putArray("connections");
+        for (Map.Entry<GatewayConnection, Integer> entry : backlogs.subList(0, Math.min(DEBUG_TOP, backlogs.size()))) {
+            GatewayConnection connection = entry.getKey();
+            ObjectNode node = busiest.addObject();
+            node.put("remote", String.valueOf(connection.socket().getRemoteSocketAddress()));
+            node.put("token", connection.limits() != null ? connection.limits().name() : null);
+            node.put("peer", connection.isPeer());
+            node.put("encoding", connection.encoding().name());
+            node.put("inFlight", connection.inFlight().get());
+            node.put("backlog", entry.getValue());
+            node.put("subscriptions", connection.subscriptions().size());
+        }
+
+        if (sessionStore != null) {
+            List<SessionUsage> usage = sessionStore.usage();
+            ObjectNode sessions = debug.putObject("sessions");
+            sessions.put("inMemory", usage.size());
+            sessions.put("estimatedBytes", usage.stream().mapToLong(SessionUsage::estimatedBytes).sum());
+            sessions.put("openFiles", sessionStore.openFiles());
+            sessions.set("largest", mapper.valueToTree(usage.subList(0, Math.min(DEBUG_TOP, usage.size()))));
+        }
+
+        ObjectNode jvm = debug.putObject("jvm");
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        jvm.putObject("heap")
+                .put("used", heap.getUsed())
+                .put("committed", heap.getCommitted())
+                .put("max", heap.getMax());
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Map<Thread.State, Integer> states = new EnumMap<>(Thread.State.class);
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+            if (info != null) {
+                states.merge(info.getThreadState(), 1, Integer::sum);
+            }
+        }
+        ObjectNode threads = jvm.putObject("threads");
+        threads.put("live", threadBean.getThreadCount());
+        threads.put("daemon", threadBean.getDaemonThreadCount());
+        threads.put("peak", threadBean.getPeakThreadCount());
+        threads.set("states", mapper.valueToTree(states));
+        return debug;
+    }
+
+    /**
+     * Serializes a response straight into the connection in its negotiated
+     * encoding, split into continuation frames when it outgrows
+     * {@code frameFragmentBytes}. Sends on one connection are serialized so
+     * fragments of two responses never interleave, which also lets them
+     * share the connection's frame buffer. Text is written as UTF-8 bytes
+     * either way, never as an intermediate String.
+     */
+    private void send(GatewayConnection connection, Object response) throws IOException {
+        WebSocket conn = connection.socket();
+        RpcCodec codec = codecs.get(connection.encoding());
+        Opcode opcode = connection.encoding().isBinary() ? Opcode.BINARY : Opcode.TEXT;
+        int fragmentBytes = config.getGateway().getFrameFragmentBytes();
+        synchronized (conn) {
+            if (fragmentBytes <= 0) {
+                conn.sendFragmentedFrame(opcode, ByteBuffer.wrap(codec.encode(response)), true);
+                return;
+            }
+            try (FrameOutputStream out = new FrameOutputStream(conn, opcode, fragmentBytes, connection.frameBuffer())) {
+                codec.write(response, out);
+            }
+        }
+    }
+
+    /**
+     * Writes a message encoded once for many connections, fragmented like
+     * {@link #send}. Text frames are sent from their UTF-8 bytes as they are,
+     * so no connection decodes or re-encodes the shared payload. Nothing is
+     * written to a closed connection.
+     */
+    private void push(GatewayConnection connection, byte[] message) {
+        WebSocket conn = connection.socket();
+        Opcode opcode = connection.encoding().isBinary() ? Opcode.BINARY : Opcode.TEXT;
+        int fragmentBytes = config.getGateway().getFrameFragmentBytes();
+        synchronized (conn) {
+            if (!conn.isOpen()) {
+                return;
+            }
+            if (fragmentBytes <= 0 || message.length <= fragmentBytes) {
+                conn.sendFragmentedFrame(opcode, ByteBuffer.wrap(message), true);
+                return;
+            }
+            try (FrameOutputStream out = new FrameOutputStream(conn, opcode, fragmentBytes)) {
+                out.write(message, 0, message.length);
+            }
+        }
+    }
+
+    /**
+     * Shuts the gateway down without cutting off agent turns. New
+     * connections are refused with 1012 (service restart) and new turns with
+     * {@link RpcProtocol#SERVER_OVERLOADED}, while other calls are still
+     * served; clients are sent a {@value #DRAINING} notification and a
+     * cluster node announces it is leaving so its peers take its sessions
+     * over. {@code agent} refuses turns from any channel, the console's
+     * included, and is waited on until its running turns have finished or
+     * {@code timeout} has passed; then the server stops and closes the
+     * remaining connections.
+     * <p>
+     * With {@code gateway.reusePort} on the virtual transport, the listening
+     * socket is closed first instead: a replacement gateway bound to the same
+     * port then takes every new connection while this one drains.
+     *
+     * @return true if every turn finished within the timeout
+     */
+    public boolean drain(Duration timeout, AgentExecutor agent) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        draining = true;
+        if (transport != null && config.getGateway().isReusePort()) {
+            transport.stopAccepting();
+        }
+        logger.info("Draining: {} agent turns in flight, waiting up to {}s", agent.activeTurns().size(), timeout.toSeconds());
+        if (cluster != null) {
+            cluster.close();
+        }
+        RpcProtocol.RpcMessage notice = new RpcProtocol.RpcMessage();
+        notice.setMethod(DRAINING);
+        notice.setParams(mapper.createObjectNode().put("timeoutMs", timeout.toMillis()));
+        connections.values().forEach(connection -> {
+            if (!connection.isPeer()) {
+                reply(connection, notice);
+            }
+        });
+
+        boolean finished = agent.drain(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        if (!finished) {
+            logger.warn("Drain timed out with {} agent turns still running", agent.activeTurns().size());
+        }
+        // The finished turns' responses may still be on their way out
+        synchronized (unanswered) {
+            long remaining;
+            while (unanswered.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(unanswered, remaining);
+            }
+        }
+        long remainingMillis = Math.max(1000, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        stop((int) Math.min(remainingMillis, Integer.MAX_VALUE), "Server restarting");
+        rpcExecutor.awaitTermination(remainingMillis, TimeUnit.MILLISECONDS);
+        return finished;
+    }
+
+    @Override
+    public void start() {
+        if (transport == null) {
+            super.start();
+        } else {
+            try {
+                transport.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot listen on port " + config.getGateway().getPort(), e);
+            }
+            onStart();
+        }
+        if (unixTransport != null) {
+            // Optional: local clients fall back to TCP without it
+            try {
+                unixTransport.start();
+                logger.info("Gateway listening on {}", config.getGateway().getUnixSocket());
+            } catch (IOException e) {
+                logger.warn("Not listening on {}: {}", config.getGateway().getUnixSocket(), e.getMessage());
+            }
         }
     }
 
+    @Override
+    public int getPort() {
+        return transport != null ? transport.port() : super.getPort();
+    }
+
+    /** Stops accepting connections, then lets in-flight handlers finish on their own. */
+    @Override
+    public void stop(int timeout, String closeMessage) throws InterruptedException {
+        if (subscriptions != null) {
+            sessionStore.removeListener(subscriptions);
+        }
+        if (cluster != null) {
+            cluster.close();
+        }
+        if (unixTransport != null) {
+            unixTransport.stop(timeout, closeMessage);
+        }
+        if (transport != null) {
+            transport.stop(timeout, closeMessage);
+        } else {
+            super.stop(timeout, closeMessage);
+        }
+        rpcExecutor.shutdown();
+    }
+
     @Override
     public void onError(WebSocket conn, Exception ex) {
         logger.error("WebSocket server error", ex);
@@ -139,5 +901,8 @@ public class GatewayServer extends WebSocketServer {
     @Override
     public void onStart() {
         logger.info("Gateway server started on port {}", getPort());
+        if (cluster != null) {
+            cluster.start();
+        }
     }
 }
@@ -0,0 +1,131 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Makes retried calls safe: a call whose params carry an
+ * {@value #KEY_FIELD} runs once per key, calling token and session, and
+ * repeats of it get the same outcome. A repeat that arrives while the first
+ * call is still running waits for that call's result; one that arrives later
+ * is answered from the cache. Reusing a key with different params is
+ * rejected, and a call that fails is forgotten so that its retry runs again.
+ * Params that only shape delivery, such as whether to stream progress, are
+ * left out of that comparison: a retry may ask differently, and is answered
+ * with the first call's result either way.
+ * <p>
+ * Entries live for {@code idempotencyTtlSeconds} and at most
+ * {@code idempotencyMaxEntries} are kept, oldest dropped first. All entries
+ * share the TTL, so insertion order is expiry order and both limits are
+ * enforced from the head of one map.
+ */
+public class IdempotencyMiddleware implements RpcMiddleware {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyMiddleware.class);
+    public static final String KEY_FIELD = "idempotencyKey";
+
+    private final Set<String> methods;
+    private final Set<String> deliveryParams;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private record Entry(JsonNode params, CompletableFuture<JsonNode> result, long expiresAt) {
+    }
+
+    public IdempotencyMiddleware(OpenClawConfig.GatewayConfig config, Set<String> methods) {
+        this(config, methods, Set.of());
+    }
+
+    /** @param deliveryParams params a retry may change without being a different call */
+    public IdempotencyMiddleware(OpenClawConfig.GatewayConfig config, Set<String> methods,
+            Set<String> deliveryParams) {
+        this.methods = methods;
+        this.deliveryParams = deliveryParams;
+        this.ttlNanos = config.getIdempotencyTtlSeconds() * 1_000_000_000L;
+        this.maxEntries = Math.max(1, config.getIdempotencyMaxEntries());
+    }
+
+    @Override
+    public boolean appliesTo(String method) {
+        return methods.contains(method);
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> invoke(String method, JsonNode params, RpcContext context, Next next) {
+        String key = params != null ? params.path(KEY_FIELD).asText(null) : null;
+        if (key == null || key.isEmpty()) {
+            return next.invoke(params);
+        }
+        // Scoped to the token, so one client can neither replay nor block another's call
+        String client = context.client();
+        String scoped = method + '\0' + (client != null ? client : "") + '\0'
+                + params.path("sessionId").asText("") + '\0' + key;
+        JsonNode call = withoutDeliveryParams(params);
+        long now = System.nanoTime();
+        Entry entry = new Entry(call, new CompletableFuture<>(), now + ttlNanos);
+        Entry existing;
+        synchronized (entries) {
+            evict(now);
+            existing = entries.putIfAbsent(scoped, entry);
+        }
+        if (existing != null) {
+            if (!existing.params().equals(call)) {
+                throw new RpcException(RpcException.INVALID_PARAMS,
+                        "Idempotency key " + key + " was already used with different params");
+            }
+            logger.debug("Replaying {} for idempotency key {}", method, key);
+            return existing.result();
+        }
+        next.invoke(params).whenComplete((result, failure) -> {
+            if (failure != null) {
+                synchronized (entries) {
+                    entries.remove(scoped, entry);
+                }
+                entry.result().completeExceptionally(failure);
+            } else {
+                entry.result().complete(result);
+            }
+        });
+        return entry.result();
+    }
+
+    private JsonNode withoutDeliveryParams(JsonNode params) {
+        if (!(params instanceof ObjectNode object) || deliveryParams.isEmpty()) {
+            return params;
+        }
+        ObjectNode call = object.objectNode();
+        object.fields().forEachRemaining(field -> {
+            if (!deliveryParams.contains(field.getKey())) {
+                call.set(field.getKey(), field.getValue());
+            }
+        });
+        return call;
+    }
+
+    /** Drops expired entries and, past the size bound, the oldest ones. Caller holds the lock. */
+    private void evict(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry oldest = it.next();
+            if (oldest.expiresAt() - now > 0 && entries.size() < maxEntries) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ai.openclaw.gateway;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.ContinuousFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+
+/**
+ * permessage-deflate that decides per message, not per frame, whether to
+ * compress. Java-WebSocket's extension applies its threshold to every frame
+ * and sets RSV1 only on the first, while its decoder inflates every
+ * continuation of a compressed message: a fragmented response whose last
+ * fragment fell under the threshold went out partly uncompressed and was
+ * corrupted on arrival.
+ * <p>
+ * Here the threshold is checked on a message's first frame. A message sent
+ * in one frame is compressed when it reaches the threshold; a fragmented
+ * one, whose size is not known up front, always is, every fragment
+ * included. On the receiving side continuations are inflated only when the
+ * message's first frame was compressed.
+ * <p>
+ * Encoding state is per connection and assumes, as {@link GatewayServer}
+ * ensures, that one message's fragments are not interleaved with another's.
+ */
+final class MessageDeflateExtension extends PerMessageDeflateExtension {
+    private final int level;
+    private final int threshold;
+    // Whether the message being sent, or received, is compressed
+    private boolean compressingOutgoing;
+    private boolean compressedIncoming;
+
+    MessageDeflateExtension(int level, int threshold) {
+        super(level);
+        this.level = level;
+        this.threshold = threshold;
+        // Every frame of a message being compressed must be, whatever its size
+        super.setThreshold(0);
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        if (!(frame instanceof ContinuousFrame)) {
+            compressingOutgoing = !frame.isFin() || frame.getPayloadData().remaining() >= threshold;
+        }
+        if (compressingOutgoing) {
+            super.encodeFrame(frame);
+        }
+    }
+
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        if (!(frame instanceof ContinuousFrame)) {
+            compressedIncoming = frame.isRSV1();
+        }
+        if (compressedIncoming) {
+            super.decodeFrame(frame);
+        }
+    }
+
+    /** Java-WebSocket copies the extension for each connection; the copy keeps these settings. */
+    @Override
+    public IExtension copyInstance() {
+        MessageDeflateExtension copy = new MessageDeflateExtension(level, threshold);
+        copy.setServerNoContextTakeover(isServerNoContextTakeover());
+        copy.setClientNoContextTakeover(isClientNoContextTakeover());
+        return copy;
+    }
+}
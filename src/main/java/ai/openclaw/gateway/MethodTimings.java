@@ -0,0 +1,51 @@
+package ai.openclaw.gateway;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-method call counts and latencies, fed by the {@link RpcRouter} it is
+ * given to and reported under {@code gateway.metrics}. Only registered
+ * methods are recorded, so the table stays as small as the router.
+ */
+public class MethodTimings implements RpcRouter.Timer {
+    private final Map<String, Stats> methods = new ConcurrentHashMap<>();
+
+    /** Totals for one method since start; times are in microseconds. */
+    public record MethodTiming(long calls, long failures, long meanMicros, long maxMicros) {
+    }
+
+    private static final class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    @Override
+    public void record(String method, long nanos, Throwable failure) {
+        Stats stats = methods.computeIfAbsent(method, m -> new Stats());
+        stats.calls.increment();
+        if (failure != null) {
+            stats.failures.increment();
+        }
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Every method called so far, by name. */
+    public Map<String, MethodTiming> snapshot() {
+        Map<String, MethodTiming> snapshot = new TreeMap<>();
+        methods.forEach((method, stats) -> {
+            long calls = stats.calls.sum();
+            long mean = calls == 0 ? 0 : stats.totalNanos.sum() / calls;
+            snapshot.put(method, new MethodTiming(calls, stats.failures.sum(),
+                    TimeUnit.NANOSECONDS.toMicros(mean), TimeUnit.NANOSECONDS.toMicros(stats.maxNanos.get())));
+        });
+        return snapshot;
+    }
+}
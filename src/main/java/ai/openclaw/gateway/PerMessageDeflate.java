@@ -0,0 +1,168 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * permessage-deflate (RFC 7692) for one {@link VirtualThreadSocket}
+ * connection, with the same {@code gateway.compression} settings and the
+ * same per-message threshold as {@link MessageDeflateExtension} on
+ * Java-WebSocket: a message sent in one frame is compressed from
+ * {@code thresholdBytes} up, a fragmented one always, every fragment
+ * included.
+ * <p>
+ * Outgoing messages are compressed by the thread holding the socket's send
+ * lock, incoming ones inflated by its reader, so the deflater and inflater
+ * each have a single user at a time.
+ */
+final class PerMessageDeflate {
+    static final String EXTENSION = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    /** Ends every sync-flushed block; left off the end of a message on the wire. */
+    private static final byte[] TAIL = { 0, 0, (byte) 0xFF, (byte) 0xFF };
+
+    private final int threshold;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private boolean compressing;
+
+    private PerMessageDeflate(OpenClawConfig.CompressionConfig config, boolean serverNoContextTakeover) {
+        this.threshold = config.getThresholdBytes();
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = config.isClientNoContextTakeover();
+        this.deflater = new Deflater(config.getLevel(), true);
+    }
+
+    /**
+     * Accepts the first permessage-deflate offer in a client's
+     * {@code Sec-WebSocket-Extensions} header that can be honoured; null when
+     * compression is off or no offer can be. The JDK's deflater always uses
+     * a 32KB window, so offers limiting the server's window are declined.
+     */
+    static PerMessageDeflate negotiate(OpenClawConfig.CompressionConfig config, String offers) {
+        if (config == null || !config.isEnabled() || offers.isEmpty()) {
+            return null;
+        }
+        for (String offer : offers.split(",")) {
+            String[] parts = offer.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(EXTENSION)) {
+                continue;
+            }
+            boolean serverNoContextTakeover = config.isServerNoContextTakeover();
+            boolean acceptable = true;
+            for (int i = 1; i < parts.length && acceptable; i++) {
+                String[] param = parts[i].split("=", 2);
+                String name = param[0].trim().toLowerCase(Locale.ROOT);
+                String value = param.length > 1 ? param[1].trim().replace("\"", "") : null;
+                switch (name) {
+                    case SERVER_NO_CONTEXT_TAKEOVER -> serverNoContextTakeover = true;
+                    case CLIENT_NO_CONTEXT_TAKEOVER, "client_max_window_bits" -> {
+                        // hints about the client's own compressor; the inflater copes with any window
+                    }
+                    case "server_max_window_bits" -> acceptable = "15".equals(value);
+                    default -> acceptable = false;
+                }
+            }
+            if (acceptable) {
+                return new PerMessageDeflate(config, serverNoContextTakeover);
+            }
+        }
+        return null;
+    }
+
+    /** The {@code Sec-WebSocket-Extensions} value answering the accepted offer. */
+    String response() {
+        StringBuilder response = new StringBuilder(EXTENSION);
+        if (serverNoContextTakeover) {
+            response.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        if (clientNoContextTakeover) {
+            response.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        return response.toString();
+    }
+
+    /**
+     * Starts an outgoing message with its first frame; returns whether the
+     * message is compressed, which its first frame announces with RSV1.
+     */
+    boolean startMessage(boolean fin, int length) {
+        compressing = !fin || length >= threshold;
+        return compressing;
+    }
+
+    /** Whether the message being sent is compressed. */
+    boolean compressing() {
+        return compressing;
+    }
+
+    /** Compresses one frame's payload of a compressed message. */
+    ByteBuffer deflate(ByteBuffer payload, boolean fin) {
+        deflater.setInput(payload.duplicate());
+        byte[] out = new byte[Math.max(64, payload.remaining() / 2)];
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(out, length, out.length - length, Deflater.SYNC_FLUSH);
+            if (length < out.length) {
+                break;
+            }
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        if (fin) {
+            if (length >= TAIL.length && Arrays.equals(out, length - TAIL.length, length, TAIL, 0, TAIL.length)) {
+                length -= TAIL.length;
+            }
+            if (serverNoContextTakeover) {
+                deflater.reset();
+            }
+        }
+        return ByteBuffer.wrap(out, 0, length);
+    }
+
+    /**
+     * Inflates a whole compressed message.
+     *
+     * @return the message, or null when it would inflate past {@code limit} bytes
+     * @throws DataFormatException when the message is not valid deflate data
+     */
+    byte[] inflate(byte[] message, int length, int limit) throws DataFormatException {
+        byte[] input = Arrays.copyOf(message, length + TAIL.length);
+        System.arraycopy(TAIL, 0, input, length, TAIL.length);
+        inflater.setInput(input);
+        byte[] out = new byte[Math.max(64, Math.min(limit, length * 4))];
+        int inflated = 0;
+        while (true) {
+            inflated += inflater.inflate(out, inflated, out.length - inflated);
+            if (inflated < out.length) {
+                // Out of input, or at the end of a final block
+                break;
+            }
+            if (out.length >= limit) {
+                return null;
+            }
+            out = Arrays.copyOf(out, (int) Math.min(limit, 2L * out.length));
+        }
+        if (inflater.needsDictionary()) {
+            throw new DataFormatException("Preset dictionary");
+        }
+        if (clientNoContextTakeover || inflater.finished()) {
+            inflater.reset();
+        }
+        return inflated == out.length ? out : Arrays.copyOf(out, inflated);
+    }
+
+    /** Frees the native zlib state once the connection is closed. */
+    void end() {
+        deflater.end();
+        inflater.end();
+    }
+}
@@ -0,0 +1,115 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Reads requests and writes responses in one {@link RpcEncoding}, with the
+ * readers and writers resolved once rather than per message.
+ * <p>
+ * Requests are read with the streaming parser: {@code id} and {@code method}
+ * are taken as scalars and only {@code params} is built into a tree, and not
+ * even that for methods registered without params (health checks, metrics),
+ * whose params are skipped token by token. That shortcut needs
+ * {@code method} to come before {@code params}, as every client of ours
+ * sends it; otherwise params are read in full.
+ */
+final class RpcCodec {
+    private final ObjectMapper mapper;
+    private final ObjectReader treeReader;
+    private final ObjectWriter messageWriter;
+    private final ObjectWriter batchWriter;
+    private final Predicate<String> usesParams;
+
+    RpcCodec(RpcEncoding encoding, Predicate<String> usesParams) {
+        this.mapper = encoding.mapper();
+        this.treeReader = mapper.reader();
+        this.messageWriter = mapper.writerFor(RpcProtocol.RpcMessage.class);
+        this.batchWriter = mapper.writerFor(new TypeReference<List<RpcProtocol.RpcMessage>>() { });
+        this.usesParams = usesParams;
+    }
+
+    JsonParser parser(String frame) throws IOException {
+        return mapper.createParser(frame);
+    }
+
+    /** A parser over the frame's bytes in place; heap buffers are read without a stream wrapper. */
+    JsonParser parser(ByteBuffer frame) throws IOException {
+        if (frame.hasArray()) {
+            return mapper.createParser(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        }
+        return mapper.createParser(new ByteBufferBackedInputStream(frame));
+    }
+
+    /**
+     * Reads the request object the parser is positioned at. Members other
+     * than id, method, params and client are skipped; a request without a
+     * method comes back with a null method.
+     */
+    RpcProtocol.RpcMessage readRequest(JsonParser parser) throws IOException {
+        RpcProtocol.RpcMessage request = new RpcProtocol.RpcMessage();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return request;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> request.setId(value.isScalarValue() && value != JsonToken.VALUE_NULL
+                        ? parser.getText() : skip(parser));
+                case "method" -> request.setMethod(value == JsonToken.VALUE_STRING ? parser.getText() : skip(parser));
+                case "client" -> request.setClient(value == JsonToken.VALUE_STRING ? parser.getText() : skip(parser));
+                case "params" -> {
+                    String method = request.getMethod();
+                    if (method != null && !usesParams.test(method)) {
+                        parser.skipChildren();
+                    } else {
+                        request.setParams(treeReader.readTree(parser));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return request;
+    }
+
+    /** Reads the batch array the parser is positioned at; entries that are not objects come back without a method. */
+    List<RpcProtocol.RpcMessage> readBatch(JsonParser parser) throws IOException {
+        List<RpcProtocol.RpcMessage> batch = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            batch.add(readRequest(parser));
+        }
+        return batch;
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    /** Writes a response, or a batch of them, to {@code out}. */
+    void write(Object response, OutputStream out) throws IOException {
+        writer(response).writeValue(out, response);
+    }
+
+    byte[] encode(Object response) throws IOException {
+        return writer(response).writeValueAsBytes(response);
+    }
+
+    private ObjectWriter writer(Object response) {
+        return response instanceof List<?> ? batchWriter : messageWriter;
+    }
+}
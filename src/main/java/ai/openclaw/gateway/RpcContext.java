@@ -0,0 +1,27 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The client a call came from, as seen by middleware and by handlers
+ * registered with {@link RpcRouter#register(String, java.util.function.BiFunction)}:
+ * who it authenticated as, and a way for a long-running handler to send
+ * notifications, such as progress, ahead of its response.
+ */
+@FunctionalInterface
+public interface RpcContext {
+    /** For calls with no client to notify: direct router calls, or requests relayed by another node. */
+    RpcContext NONE = (method, params) -> {
+    };
+
+    /** Sends a JSON-RPC notification to the caller; dropped once it has disconnected. */
+    void notify(String method, JsonNode params);
+
+    /**
+     * Name of the token the caller authenticated with, or null for the
+     * shared token, an open gateway, or no caller at all.
+     */
+    default String client() {
+        return null;
+    }
+}
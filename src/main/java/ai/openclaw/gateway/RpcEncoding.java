@@ -0,0 +1,52 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Wire encodings of gateway RPC messages. A client picks one by offering its
+ * subprotocol in {@code Sec-WebSocket-Protocol}; a connection that names
+ * none speaks JSON text. The binary encodings carry the same message model
+ * in binary WebSocket frames, which saves the text encoding and decoding of
+ * large payloads such as tool results.
+ */
+public enum RpcEncoding {
+    JSON("openclaw.json", false, Json.mapper()),
+    SMILE("openclaw.smile", true, Json.createMapper(new SmileFactory())),
+    CBOR("openclaw.cbor", true, Json.createMapper(new CBORFactory()));
+
+    private final String subprotocol;
+    private final boolean binary;
+    private final ObjectMapper mapper;
+
+    RpcEncoding(String subprotocol, boolean binary, ObjectMapper mapper) {
+        this.subprotocol = subprotocol;
+        this.binary = binary;
+        this.mapper = mapper;
+    }
+
+    public String subprotocol() {
+        return subprotocol;
+    }
+
+    /** Whether messages travel in binary frames rather than text frames. */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /** The encoding negotiated for a subprotocol; JSON when none was agreed. */
+    public static RpcEncoding forSubprotocol(String subprotocol) {
+        for (RpcEncoding encoding : values()) {
+            if (encoding.subprotocol.equals(subprotocol)) {
+                return encoding;
+            }
+        }
+        return JSON;
+    }
+}
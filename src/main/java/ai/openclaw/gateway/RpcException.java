@@ -0,0 +1,34 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Fails an RPC with a specific JSON-RPC error code, for handlers and
+ * middleware that know better than "internal error". The message and the
+ * optional data are sent to the client.
+ */
+public class RpcException extends RuntimeException {
+    public static final int INVALID_PARAMS = -32602;
+    public static final int METHOD_NOT_FOUND = -32601;
+
+    private final int code;
+    private final JsonNode data;
+
+    public RpcException(int code, String message) {
+        this(code, message, null);
+    }
+
+    public RpcException(int code, String message, JsonNode data) {
+        super(message);
+        this.code = code;
+        this.data = data;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public JsonNode getData() {
+        return data;
+    }
+}
@@ -0,0 +1,30 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A step run around the handlers of the methods it applies to, for concerns
+ * such as auth scopes, rate limits or parameter validation. Middleware runs
+ * in registration order; each step may answer the call itself, change the
+ * params, or pass them on with {@code next}.
+ */
+public interface RpcMiddleware {
+
+    /**
+     * Whether this middleware wraps {@code method}. Asked once per method
+     * when the chain is built, not per call.
+     */
+    default boolean appliesTo(String method) {
+        return true;
+    }
+
+    CompletableFuture<JsonNode> invoke(String method, JsonNode params, RpcContext context, Next next);
+
+    /** The rest of the chain, ending in the method's handler. */
+    @FunctionalInterface
+    interface Next {
+        CompletableFuture<JsonNode> invoke(JsonNode params);
+    }
+}
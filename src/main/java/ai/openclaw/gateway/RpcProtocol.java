@@ -5,6 +5,16 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 public class RpcProtocol {
+    /** Implementation-defined server error: the request was rejected for overload and may be retried. */
+    public static final int SERVER_OVERLOADED = -32001;
+    /** Implementation-defined server error: the client's token is over one of its limits. */
+    public static final int RATE_LIMITED = -32002;
+    /** Implementation-defined server error: another cluster node owns the session; data names it. */
+    public static final int NOT_OWNER = -32003;
+    /** Implementation-defined server error: the client's token does not grant the method. */
+    public static final int FORBIDDEN = -32004;
+    /** Implementation-defined server error: the agent turn failed; the session records the error as its reply. */
+    public static final int TURN_FAILED = -32005;
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -14,6 +24,7 @@ public class RpcProtocol {
         private JsonNode params;
         private JsonNode result;
         private RpcError error;
+        private String client;
 
         public String getId() {
             return id;
@@ -54,11 +65,25 @@ public class RpcProtocol {
         public void setError(RpcError error) {
             this.error = error;
         }
+
+        /**
+         * On a request relayed over a peer link, the token the original
+         * caller authenticated with. Ignored on requests from clients.
+         */
+        public String getClient() {
+            return client;
+        }
+
+        public void setClient(String client) {
+            this.client = client;
+        }
     }
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class RpcError {
         private int code;
         private String message;
+        private JsonNode data;
 
         public RpcError() {
         }
@@ -83,5 +108,13 @@ public class RpcProtocol {
         public void setMessage(String message) {
             this.message = message;
         }
+
+        public JsonNode getData() {
+            return data;
+        }
+
+        public void setData(JsonNode data) {
+            this.data = data;
+        }
     }
 }
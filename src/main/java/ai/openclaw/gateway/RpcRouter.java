@@ -4,29 +4,140 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Maps method names to handlers, synchronous or {@link AsyncRpcHandler async},
+ * behind an ordered {@link RpcMiddleware} chain. Each method's chain is
+ * resolved when the method or a middleware is registered, so a method no
+ * middleware applies to calls its handler directly.
+ */
 public class RpcRouter {
     private static final Logger logger = LoggerFactory.getLogger(RpcRouter.class);
-    private final Map<String, Function<JsonNode, JsonNode>> routes = new HashMap<>();
+    private static final RpcMiddleware[] NO_MIDDLEWARE = new RpcMiddleware[0];
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final List<RpcMiddleware> middleware = new CopyOnWriteArrayList<>();
+    private final Timer timer;
+
+    /** Receives the duration of every call; {@code failure} is null when it succeeded. */
+    @FunctionalInterface
+    public interface Timer {
+        void record(String method, long nanos, Throwable failure);
+    }
+
+    /** A route's handler, given the caller's context whichever way it was registered. */
+    @FunctionalInterface
+    private interface Handler {
+        CompletableFuture<JsonNode> handle(JsonNode params, RpcContext context);
+    }
+
+    private record Route(String method, Handler handler, boolean usesParams, RpcMiddleware[] chain) {
+    }
+
+    /** A router that times nothing. */
+    public RpcRouter() {
+        this(null);
+    }
+
+    /** A router that reports every call's duration to {@code timer}, if not null. */
+    public RpcRouter(Timer timer) {
+        this.timer = timer;
+    }
 
     public void register(String method, Function<JsonNode, JsonNode> handler) {
-        routes.put(method, handler);
+        registerAsync(method, params -> CompletableFuture.completedFuture(handler.apply(params)));
+    }
+
+    /** Registers a method whose handler also gets the calling client's {@link RpcContext}. */
+    public synchronized void register(String method, BiFunction<JsonNode, RpcContext, JsonNode> handler) {
+        Handler contextual = (params, context) -> CompletableFuture.completedFuture(handler.apply(params, context));
+        routes.put(method, new Route(method, contextual, true, chainFor(method)));
+    }
+
+    /**
+     * Registers a method that takes no params. The gateway skips whatever
+     * params a caller sends instead of parsing them, and the handler's
+     * middleware sees them as null.
+     */
+    public synchronized void register(String method, Supplier<JsonNode> handler) {
+        Handler supplier = (params, context) -> CompletableFuture.completedFuture(handler.get());
+        routes.put(method, new Route(method, supplier, false, chainFor(method)));
+    }
+
+    public synchronized void registerAsync(String method, AsyncRpcHandler handler) {
+        routes.put(method, new Route(method, (params, context) -> handler.handle(params), true, chainFor(method)));
+    }
+
+    /** False only for methods registered without params; unknown methods may use them. */
+    public boolean usesParams(String method) {
+        Route route = routes.get(method);
+        return route == null || route.usesParams();
+    }
+
+    /** Appends a middleware to the chain of every method it applies to. */
+    public synchronized void use(RpcMiddleware step) {
+        middleware.add(step);
+        routes.replaceAll((method, route) -> new Route(method, route.handler(), route.usesParams(), chainFor(method)));
+    }
+
+    public CompletableFuture<JsonNode> call(String method, JsonNode params) {
+        return call(method, params, RpcContext.NONE);
     }
 
     /**
-     * Routes a method call to the registered handler.
-     * 
-     * @return the handler result, or null if the method is not registered
+     * Calls a method on behalf of the client {@code context} stands for.
+     * Every failure, including an unknown method or an exception thrown
+     * before the handler's future exists, is reported through the returned
+     * future.
      */
-    public JsonNode route(String method, JsonNode params) {
-        Function<JsonNode, JsonNode> handler = routes.get(method);
-        if (handler != null) {
-            return handler.apply(params);
+    public CompletableFuture<JsonNode> call(String method, JsonNode params, RpcContext context) {
+        Route route = routes.get(method);
+        if (route == null) {
+            logger.warn("Method not found: {}", method);
+            return CompletableFuture.failedFuture(
+                    new RpcException(RpcException.METHOD_NOT_FOUND, "Method not found: " + method));
+        }
+        if (timer == null) {
+            return invoke(route, 0, params, context);
         }
-        logger.warn("Method not found: {}", method);
-        return null;
+        long start = System.nanoTime();
+        return invoke(route, 0, params, context).whenComplete((result, failure) ->
+                timer.record(method, System.nanoTime() - start, unwrap(failure)));
+    }
+
+    private static CompletableFuture<JsonNode> invoke(Route route, int step, JsonNode params, RpcContext context) {
+        try {
+            if (step == route.chain().length) {
+                return route.handler().handle(params, context);
+            }
+            return route.chain()[step].invoke(route.method(), params, context,
+                    p -> invoke(route, step + 1, p, context));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private RpcMiddleware[] chainFor(String method) {
+        List<RpcMiddleware> chain = new ArrayList<>();
+        for (RpcMiddleware step : middleware) {
+            if (step.appliesTo(method)) {
+                chain.add(step);
+            }
+        }
+        return chain.isEmpty() ? NO_MIDDLEWARE : chain.toArray(RpcMiddleware[]::new);
+    }
+
+    static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
     }
 }
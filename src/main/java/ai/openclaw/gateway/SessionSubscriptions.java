@@ -0,0 +1,130 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.SessionEvent;
+import ai.openclaw.session.SessionListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Pushes session events to the connections subscribed to them as
+ * {@value #EVENT} notifications. Each event is serialized at most once per
+ * wire encoding, however many connections receive it.
+ * <p>
+ * A subscriber whose socket has {@code subscriberBufferFrames} or more frames
+ * waiting to be written is a slow consumer. Under the "drop" policy it misses
+ * events until it catches up and is then sent a {@value #OVERFLOW}
+ * notification with the number it missed, so it can re-read the history;
+ * under "disconnect" it is closed.
+ */
+class SessionSubscriptions implements SessionListener {
+    private static final Logger logger = LoggerFactory.getLogger(SessionSubscriptions.class);
+    static final String EVENT = "session.event";
+    static final String OVERFLOW = "session.overflow";
+
+    private final OpenClawConfig.GatewayConfig config;
+    private final BiConsumer<GatewayConnection, byte[]> sender;
+    private final Map<String, Set<GatewayConnection>> subscribers = new ConcurrentHashMap<>();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    /** @param sender writes an already encoded message to a connection */
+    SessionSubscriptions(OpenClawConfig.GatewayConfig config, BiConsumer<GatewayConnection, byte[]> sender) {
+        this.config = config;
+        this.sender = sender;
+    }
+
+    void subscribe(GatewayConnection connection, String sessionId) {
+        subscribers.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(connection);
+        connection.subscriptions().add(sessionId);
+    }
+
+    boolean unsubscribe(GatewayConnection connection, String sessionId) {
+        connection.subscriptions().remove(sessionId);
+        boolean[] removed = new boolean[1];
+        subscribers.computeIfPresent(sessionId, (k, set) -> {
+            removed[0] = set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+        return removed[0];
+    }
+
+    void unsubscribeAll(GatewayConnection connection) {
+        for (String sessionId : connection.subscriptions()) {
+            unsubscribe(connection, sessionId);
+        }
+    }
+
+    @Override
+    public void onEvent(SessionEvent event) {
+        Set<GatewayConnection> targets = subscribers.get(event.getSessionId());
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        byte[][] encoded = new byte[RpcEncoding.values().length][];
+        for (GatewayConnection connection : targets) {
+            if (connection.backlog() >= config.getSubscriberBufferFrames()) {
+                overflow(connection);
+                continue;
+            }
+            RpcEncoding encoding = connection.encoding();
+            long dropped = connection.droppedEvents().getAndSet(0);
+            if (dropped > 0) {
+                JsonNode params = Json.mapper().createObjectNode()
+                        .put("sessionId", event.getSessionId())
+                        .put("dropped", dropped);
+                sender.accept(connection, encode(OVERFLOW, params, encoding));
+            }
+            byte[] message = encoded[encoding.ordinal()];
+            if (message == null) {
+                message = encode(EVENT, Json.mapper().getNodeFactory().pojoNode(event), encoding);
+                encoded[encoding.ordinal()] = message;
+            }
+            sender.accept(connection, message);
+        }
+    }
+
+    private void overflow(GatewayConnection connection) {
+        if ("disconnect".equalsIgnoreCase(config.getSlowConsumerPolicy())) {
+            logger.warn("Closing slow subscriber {}", connection.socket().getRemoteSocketAddress());
+            unsubscribeAll(connection);
+            disconnects.increment();
+            connection.socket().close(1008, "Slow consumer");
+            return;
+        }
+        connection.droppedEvents().incrementAndGet();
+        droppedEvents.increment();
+    }
+
+    private static byte[] encode(String method, JsonNode params, RpcEncoding encoding) {
+        RpcProtocol.RpcMessage notification = new RpcProtocol.RpcMessage();
+        notification.setMethod(method);
+        notification.setParams(params);
+        try {
+            return encoding.mapper().writeValueAsBytes(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode " + method, e);
+        }
+    }
+
+    int count() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    long droppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    long disconnects() {
+        return disconnects.sum();
+    }
+}
@@ -0,0 +1,209 @@
+package ai.openclaw.gateway;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Blocking WebSocket client for the gateway's Unix domain socket
+ * ({@code gateway.unixSocket}), for short-lived local tools such as the
+ * {@code send} command. It skips TCP and the Java-WebSocket client's
+ * threads; the handshake, auth header and {@link RpcEncoding} subprotocols
+ * are the same as over TCP. Not thread-safe.
+ */
+public final class UnixSocketClient implements Closeable {
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final RpcEncoding encoding;
+    private boolean closeSent;
+
+    private UnixSocketClient(SocketChannel channel, InputStream in, RpcEncoding encoding) {
+        this.channel = channel;
+        this.in = new DataInputStream(in);
+        this.encoding = encoding;
+    }
+
+    /**
+     * Connects and completes the opening handshake.
+     *
+     * @param token sent as a bearer token when not null or empty
+     * @throws IOException when nothing listens on {@code socket} or the
+     *         gateway refuses the upgrade
+     */
+    public static UnixSocketClient connect(Path socket, String token, RpcEncoding encoding) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            byte[] nonce = new byte[16];
+            ThreadLocalRandom.current().nextBytes(nonce);
+            String key = Base64.getEncoder().encodeToString(nonce);
+            StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\nHost: localhost\r\n")
+                    .append("Upgrade: websocket\r\nConnection: Upgrade\r\n")
+                    .append("Sec-WebSocket-Key: ").append(key).append("\r\n")
+                    .append("Sec-WebSocket-Version: 13\r\n")
+                    .append("Sec-WebSocket-Protocol: ").append(encoding.subprotocol()).append("\r\n");
+            if (token != null && !token.isEmpty()) {
+                request.append("Authorization: Bearer ").append(token).append("\r\n");
+            }
+            writeFully(channel, ByteBuffer.wrap(request.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1)));
+
+            InputStream in = new BufferedInputStream(VirtualThreadSocket.inputStream(channel));
+            String status = readLine(in);
+            boolean accepted = status.startsWith("HTTP/1.1 101");
+            String expectedAccept = VirtualThreadSocket.acceptKey(key);
+            boolean keyMatched = false;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Accept")) {
+                    keyMatched = line.substring(colon + 1).trim().equals(expectedAccept);
+                }
+            }
+            if (!accepted || !keyMatched) {
+                throw new IOException("Gateway refused the connection: " + status);
+            }
+            return new UnixSocketClient(channel, in, encoding);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new EOFException("Connection closed during handshake");
+            }
+            if (line.length() > 8192) {
+                throw new IOException("Handshake response too large");
+            }
+            line.append((char) c);
+        }
+        int end = line.length() > 0 && line.charAt(line.length() - 1) == '\r' ? line.length() - 1 : line.length();
+        return line.substring(0, end);
+    }
+
+    /** Sends one message: a text frame for JSON, a binary frame for the binary encodings. */
+    public void send(byte[] message) throws IOException {
+        writeFrame(encoding.isBinary() ? OP_BINARY : OP_TEXT, message);
+    }
+
+    /**
+     * Blocks for the next whole message, reassembling fragments and
+     * answering pings on the way.
+     *
+     * @throws IOException once the gateway closes the connection, with its
+     *         close code and reason in the message
+     */
+    public byte[] receive() throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            int b0 = in.readUnsignedByte();
+            int b1 = in.readUnsignedByte();
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            if (length < 0) {
+                throw new IOException("Invalid frame length");
+            }
+            if (length > VirtualThreadSocket.MAX_MESSAGE_BYTES - (long) message.size()) {
+                throw new IOException("Message too big");
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            switch (opcode) {
+                case OP_PING -> writeFrame(OP_PONG, payload);
+                case OP_PONG -> {
+                    // unsolicited; nothing to do
+                }
+                case OP_CLOSE -> {
+                    int code = payload.length >= 2 ? ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF) : 1005;
+                    String reason = payload.length > 2
+                            ? new String(payload, 2, payload.length - 2, StandardCharsets.UTF_8) : "";
+                    sendClose(code == 1005 ? 1000 : code);
+                    throw new EOFException("Gateway closed the connection: " + code + (reason.isEmpty() ? "" : " " + reason));
+                }
+                case OP_TEXT, OP_BINARY, OP_CONTINUATION -> {
+                    message.write(payload, 0, payload.length);
+                    if (fin) {
+                        return message.toByteArray();
+                    }
+                }
+                default -> throw new IOException("Unknown opcode " + opcode);
+            }
+        }
+    }
+
+    /** Sends a normal close and drops the connection without waiting for the answer. */
+    @Override
+    public void close() throws IOException {
+        try {
+            sendClose(1000);
+        } catch (IOException e) {
+            // the gateway is already gone
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void sendClose(int code) throws IOException {
+        if (closeSent) {
+            return;
+        }
+        closeSent = true;
+        writeFrame(OP_CLOSE, new byte[] { (byte) (code >> 8), (byte) code });
+    }
+
+    /** Writes a single masked frame, as RFC 6455 requires of clients. */
+    private void writeFrame(int opcode, byte[] payload) throws IOException {
+        int length = payload.length;
+        int header = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        ByteBuffer frame = ByteBuffer.allocate(header + 4 + length);
+        frame.put((byte) (0x80 | opcode));
+        if (length < 126) {
+            frame.put((byte) (0x80 | length));
+        } else if (length <= 0xFFFF) {
+            frame.put((byte) (0x80 | 126)).putShort((short) length);
+        } else {
+            frame.put((byte) (0x80 | 127)).putLong(length);
+        }
+        byte[] mask = new byte[4];
+        ThreadLocalRandom.current().nextBytes(mask);
+        frame.put(mask);
+        for (int i = 0; i < length; i++) {
+            frame.put((byte) (payload[i] ^ mask[i & 3]));
+        }
+        writeFully(channel, frame.flip());
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
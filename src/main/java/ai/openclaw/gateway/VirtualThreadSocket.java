@@ -0,0 +1,753 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.enums.ReadyState;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.HandshakeImpl1Client;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSession;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+
+/**
+ * One WebSocket connection of {@link VirtualThreadTransport}: an RFC 6455
+ * server endpoint over a blocking {@link SocketChannel}, read by its own
+ * virtual thread and written by another. Frames are queued by any thread
+ * and written in order by the writer, so a slow client holds up only its
+ * own writer, and {@link #queued()} reports the backlog the way
+ * Java-WebSocket's outgoing queue does.
+ * <p>
+ * It implements Java-WebSocket's {@link WebSocket} so that
+ * {@link GatewayServer} serves both transports with the same callbacks.
+ * permessage-deflate is negotiated, under {@code gateway.compression}, by
+ * {@link PerMessageDeflate}; no other extension is.
+ */
+final class VirtualThreadSocket implements WebSocket {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadSocket.class);
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_HANDSHAKE_BYTES = 16 * 1024;
+    /** Messages larger than this are refused with 1009 (message too big). */
+    static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+    /** How long a closing connection waits for the client's close frame. */
+    private static final int CLOSE_TIMEOUT_MILLIS = 2000;
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+    /** Queued after a close frame: the writer stops and half-closes the connection. */
+    private static final ByteBuffer END_OF_OUTPUT = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final GatewayServer server;
+    private final OpenClawConfig.CompressionConfig compression;
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+    private final BlockingQueue<ByteBuffer> outQueue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean closeSent = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile ReadyState state = ReadyState.NOT_YET_CONNECTED;
+    private volatile int closeCode = 1006;
+    private volatile String closeReason = "";
+    private volatile boolean closedByClient = true;
+    private String resourceDescriptor;
+    private IProtocol protocol;
+    // Set by the handshake when the client offered permessage-deflate and compression is on
+    private PerMessageDeflate deflate;
+    private Object attachment;
+    private Thread writer;
+    // Whether the next sendFragmentedFrame continues a message; guarded by the senders' lock on this socket
+    private boolean continuing;
+
+    VirtualThreadSocket(SocketChannel channel, GatewayServer server,
+                        OpenClawConfig.CompressionConfig compression) throws IOException {
+        this.channel = channel;
+        this.server = server;
+        this.compression = compression;
+        this.remoteAddress = inet(channel.getRemoteAddress());
+        this.localAddress = inet(channel.getLocalAddress());
+    }
+
+    /** Unix domain socket peers have no IP address; they are reported as an unresolved "localhost". */
+    private static InetSocketAddress inet(SocketAddress address) {
+        return address instanceof InetSocketAddress inet ? inet : InetSocketAddress.createUnresolved("localhost", 0);
+    }
+
+    /**
+     * Runs the connection on the calling (virtual) thread: the opening
+     * handshake, then frames until either side closes. Writes happen on a
+     * second virtual thread started once the handshake succeeds.
+     */
+    void run() {
+        InputStream in;
+        HandshakeImpl1Client handshake;
+        try {
+            in = new BufferedInputStream(inputStream(channel));
+            handshake = readHandshake(in);
+            if (handshake == null) {
+                channel.close();
+                return;
+            }
+        } catch (IOException e) {
+            logger.debug("Handshake with {} failed", remoteAddress, e);
+            closeChannel();
+            return;
+        }
+        state = ReadyState.OPEN;
+        writer = Thread.ofVirtual().name("gateway-write-" + remoteAddress).start(this::writeLoop);
+        try {
+            server.onOpen(this, handshake);
+            readLoop(new DataInputStream(in));
+        } catch (EOFException e) {
+            logger.debug("Connection from {} ended", remoteAddress);
+        } catch (IOException e) {
+            if (state == ReadyState.OPEN) {
+                logger.debug("Connection from {} failed", remoteAddress, e);
+            }
+        } catch (RuntimeException e) {
+            server.onError(this, e);
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Reads straight from the channel. Unix domain channels have no
+     * {@code socket()}, and {@link java.nio.channels.Channels#newInputStream}
+     * blocks inside a monitor, which pins a virtual thread to its carrier.
+     */
+    static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        };
+    }
+
+    // ---- Opening handshake ----
+
+    /** Reads the upgrade request and answers it; returns null after refusing it. */
+    private HandshakeImpl1Client readHandshake(InputStream in) throws IOException {
+        List<String> lines = readHeaderLines(in);
+        String[] requestLine = lines.isEmpty() ? new String[0] : lines.get(0).split(" ");
+        if (requestLine.length != 3 || !requestLine[0].equals("GET")) {
+            refuse("400 Bad Request");
+            return null;
+        }
+        HandshakeImpl1Client handshake = new HandshakeImpl1Client();
+        handshake.setResourceDescriptor(requestLine[1]);
+        for (String line : lines.subList(1, lines.size())) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                handshake.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        String key = handshake.getFieldValue("Sec-WebSocket-Key");
+        if (!handshake.getFieldValue("Upgrade").equalsIgnoreCase("websocket")
+                || !handshake.getFieldValue("Connection").toLowerCase(Locale.ROOT).contains("upgrade")
+                || key.isEmpty()) {
+            refuse("400 Bad Request");
+            return null;
+        }
+        if (!handshake.getFieldValue("Sec-WebSocket-Version").equals("13")) {
+            refuse("426 Upgrade Required\r\nSec-WebSocket-Version: 13");
+            return null;
+        }
+        resourceDescriptor = requestLine[1];
+        String subprotocol = selectSubprotocol(handshake.getFieldValue("Sec-WebSocket-Protocol"));
+        protocol = new Protocol(subprotocol);
+        StringBuilder response = new StringBuilder("HTTP/1.1 101 Switching Protocols\r\n")
+                .append("Upgrade: websocket\r\nConnection: Upgrade\r\n")
+                .append("Sec-WebSocket-Accept: ").append(acceptKey(key)).append("\r\n");
+        if (!subprotocol.isEmpty()) {
+            response.append("Sec-WebSocket-Protocol: ").append(subprotocol).append("\r\n");
+        }
+        deflate = PerMessageDeflate.negotiate(compression, handshake.getFieldValue("Sec-WebSocket-Extensions"));
+        if (deflate != null) {
+            response.append("Sec-WebSocket-Extensions: ").append(deflate.response()).append("\r\n");
+        }
+        writeFully(ByteBuffer.wrap(response.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1)));
+        return handshake;
+    }
+
+    private static List<String> readHeaderLines(InputStream in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        int total = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (++total > MAX_HANDSHAKE_BYTES) {
+                throw new IOException("Handshake too large");
+            }
+            if (c == '\n') {
+                int end = line.length() > 0 && line.charAt(line.length() - 1) == '\r' ? line.length() - 1 : line.length();
+                if (end == 0) {
+                    return lines;
+                }
+                lines.add(line.substring(0, end));
+                line.setLength(0);
+            } else {
+                line.append((char) c);
+            }
+        }
+        throw new EOFException("Connection closed during handshake");
+    }
+
+    /** The first encoding, in server preference order, that the client offered; "" when none was. */
+    private static String selectSubprotocol(String offered) {
+        if (offered.isEmpty()) {
+            return "";
+        }
+        List<String> names = Arrays.stream(offered.split(",")).map(String::trim).toList();
+        for (RpcEncoding encoding : RpcEncoding.values()) {
+            if (names.contains(encoding.subprotocol())) {
+                return encoding.subprotocol();
+            }
+        }
+        return "";
+    }
+
+    static String acceptKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void refuse(String status) throws IOException {
+        String response = "HTTP/1.1 " + status + "\r\nConnection: close\r\nContent-Length: 0\r\n\r\n";
+        writeFully(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    // ---- Reading ----
+
+    private void readLoop(DataInputStream in) throws IOException {
+        byte[] message = null;
+        int messageLength = 0;
+        int messageOpcode = -1;
+        boolean messageCompressed = false;
+        while (true) {
+            int b0 = in.readUnsignedByte();
+            int b1 = in.readUnsignedByte();
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            // RSV1 marks the first frame of a compressed message, once permessage-deflate is on
+            int reserved = b0 & 0x70;
+            boolean compressed = reserved == 0x40 && deflate != null && (opcode == OP_TEXT || opcode == OP_BINARY);
+            if ((reserved != 0 && !compressed) || (b1 & 0x80) == 0) {
+                failConnection(1002, "Unmasked frame or unexpected reserved bits");
+                return;
+            }
+            boolean control = (opcode & 0x8) != 0;
+            if (control && (!fin || length > 125)) {
+                failConnection(1002, "Fragmented or oversized control frame");
+                return;
+            }
+            // A 64-bit length must have its top bit clear
+            if (length < 0) {
+                failConnection(1002, "Invalid frame length");
+                return;
+            }
+            if (length > MAX_MESSAGE_BYTES - (long) messageLength) {
+                failConnection(1009, "Message too big");
+                return;
+            }
+            byte[] mask = new byte[4];
+            in.readFully(mask);
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+
+            if (control) {
+                if (!onControlFrame(opcode, payload)) {
+                    return;
+                }
+                continue;
+            }
+            if (opcode == OP_CONTINUATION) {
+                if (messageOpcode < 0) {
+                    failConnection(1002, "Continuation without a message");
+                    return;
+                }
+                if (message.length < messageLength + payload.length) {
+                    message = Arrays.copyOf(message, Math.max(message.length * 2, messageLength + payload.length));
+                }
+                System.arraycopy(payload, 0, message, messageLength, payload.length);
+                messageLength += payload.length;
+            } else if (opcode == OP_TEXT || opcode == OP_BINARY) {
+                if (messageOpcode >= 0) {
+                    failConnection(1002, "New message inside a fragmented one");
+                    return;
+                }
+                messageOpcode = opcode;
+                messageCompressed = compressed;
+                message = payload;
+                messageLength = payload.length;
+            } else {
+                failConnection(1002, "Unknown opcode " + opcode);
+                return;
+            }
+            if (!fin) {
+                continue;
+            }
+            if (messageCompressed) {
+                try {
+                    message = deflate.inflate(message, messageLength, MAX_MESSAGE_BYTES);
+                } catch (DataFormatException e) {
+                    failConnection(1007, "Invalid compressed data");
+                    return;
+                }
+                if (message == null) {
+                    failConnection(1009, "Message too big");
+                    return;
+                }
+                messageLength = message.length;
+            }
+            // A closing connection stops taking requests but keeps reading for the close frame
+            if (state == ReadyState.OPEN && !deliver(messageOpcode, message, messageLength)) {
+                return;
+            }
+            message = null;
+            messageLength = 0;
+            messageOpcode = -1;
+            messageCompressed = false;
+        }
+    }
+
+    private boolean deliver(int opcode, byte[] message, int length) {
+        if (opcode == OP_BINARY) {
+            server.onMessage(this, ByteBuffer.wrap(message, 0, length));
+            return true;
+        }
+        String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(message, 0, length))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            failConnection(1007, "Invalid UTF-8");
+            return false;
+        }
+        server.onMessage(this, text);
+        return true;
+    }
+
+    /** Handles a control frame; returns false once the connection is done. */
+    private boolean onControlFrame(int opcode, byte[] payload) {
+        switch (opcode) {
+            case OP_PING -> {
+                if (state == ReadyState.OPEN) {
+                    enqueue(frame(OP_PONG, true, ByteBuffer.wrap(payload)));
+                }
+                return true;
+            }
+            case OP_PONG -> {
+                return true;
+            }
+            case OP_CLOSE -> {
+                int code = payload.length >= 2 ? ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF) : 1005;
+                String reason = payload.length > 2
+                        ? new String(payload, 2, payload.length - 2, StandardCharsets.UTF_8) : "";
+                if (closeSent.get()) {
+                    // The client's answer to our close
+                    return false;
+                }
+                closeCode = code;
+                closeReason = reason;
+                sendClose(code == 1005 ? 1000 : code, "");
+                return false;
+            }
+            default -> {
+                failConnection(1002, "Unknown opcode " + opcode);
+                return false;
+            }
+        }
+    }
+
+    private void failConnection(int code, String reason) {
+        logger.debug("Closing {}: {}", remoteAddress, reason);
+        closedByClient = false;
+        closeCode = code;
+        closeReason = reason;
+        sendClose(code, reason);
+    }
+
+    // ---- Writing ----
+
+    private void writeLoop() {
+        List<ByteBuffer> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(outQueue.take());
+                outQueue.drainTo(batch);
+                int end = batch.indexOf(END_OF_OUTPUT);
+                List<ByteBuffer> frames = end >= 0 ? batch.subList(0, end) : batch;
+                ByteBuffer[] buffers = frames.toArray(ByteBuffer[]::new);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                if (end >= 0) {
+                    channel.shutdownOutput();
+                    return;
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.debug("Write to {} failed", remoteAddress, e);
+            closeChannel();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void enqueue(ByteBuffer frame) {
+        outQueue.add(frame);
+    }
+
+    /** An unmasked server frame holding a copy of {@code payload}'s remaining bytes. */
+    static ByteBuffer frame(int opcode, boolean fin, ByteBuffer payload) {
+        return frame(opcode, fin, false, payload);
+    }
+
+    /** As {@link #frame(int, boolean, ByteBuffer)}, with RSV1 set on the first frame of a compressed message. */
+    static ByteBuffer frame(int opcode, boolean fin, boolean compressed, ByteBuffer payload) {
+        int length = payload.remaining();
+        int header = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        ByteBuffer frame = ByteBuffer.allocate(header + length);
+        frame.put((byte) ((fin ? 0x80 : 0) | (compressed ? 0x40 : 0) | opcode));
+        if (length < 126) {
+            frame.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            frame.put((byte) 126).putShort((short) length);
+        } else {
+            frame.put((byte) 127).putLong(length);
+        }
+        frame.put(payload.duplicate());
+        return frame.flip();
+    }
+
+    /**
+     * Queues a close frame and ends output after it. The reader keeps going
+     * until the client answers; a client that does not within
+     * {@link #CLOSE_TIMEOUT_MILLIS} is cut off.
+     */
+    private void sendClose(int code, String reason) {
+        if (!closeSent.compareAndSet(false, true)) {
+            return;
+        }
+        state = ReadyState.CLOSING;
+        byte[] text = reason.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(2 + Math.min(text.length, 123));
+        payload.putShort((short) code).put(text, 0, payload.remaining()).flip();
+        enqueue(frame(OP_CLOSE, true, payload));
+        enqueue(END_OF_OUTPUT);
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!closed.get()) {
+                logger.debug("No close frame from {} in time", remoteAddress);
+                closeChannel();
+            }
+        });
+    }
+
+    /** Queued frames; grows while the client reads slower than it is sent to. */
+    int queued() {
+        return outQueue.size();
+    }
+
+    // ---- Closing ----
+
+    /** Lets the writer send the close frame, if one is queued, then tears the connection down. */
+    private void finish() {
+        if (writer != null) {
+            if (closeSent.get()) {
+                try {
+                    writer.join(Duration.ofMillis(CLOSE_TIMEOUT_MILLIS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writer.interrupt();
+        }
+        state = ReadyState.CLOSED;
+        closeChannel();
+        if (deflate != null) {
+            synchronized (this) {
+                deflate.end();
+            }
+        }
+        if (closed.compareAndSet(false, true)) {
+            server.onClose(this, closeCode, closeReason, closedByClient);
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Closing {} failed", remoteAddress, e);
+        }
+    }
+
+    // ---- WebSocket ----
+
+    @Override
+    public void close(int code, String message) {
+        if (state != ReadyState.OPEN) {
+            return;
+        }
+        closedByClient = false;
+        closeCode = code;
+        closeReason = message != null ? message : "";
+        sendClose(code, closeReason);
+    }
+
+    @Override
+    public void close(int code) {
+        close(code, "");
+    }
+
+    @Override
+    public void close() {
+        close(1000);
+    }
+
+    @Override
+    public void closeConnection(int code, String message) {
+        closedByClient = false;
+        closeCode = code;
+        closeReason = message != null ? message : "";
+        closeChannel();
+    }
+
+    @Override
+    public void send(String text) {
+        send(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), OP_TEXT);
+    }
+
+    @Override
+    public void send(ByteBuffer bytes) {
+        send(bytes, OP_BINARY);
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+        send(ByteBuffer.wrap(bytes), OP_BINARY);
+    }
+
+    private void send(ByteBuffer payload, int opcode) {
+        sendData(opcode, true, payload);
+    }
+
+    /**
+     * Queues a data frame, compressed when permessage-deflate is on and the
+     * message, decided at its first frame, is to be. Holds the socket's lock
+     * so that the deflater sees one message's frames at a time.
+     */
+    private synchronized void sendData(int opcode, boolean fin, ByteBuffer payload) {
+        if (state != ReadyState.OPEN) {
+            return;
+        }
+        boolean first = opcode != OP_CONTINUATION;
+        boolean compressed = deflate != null && first && deflate.startMessage(fin, payload.remaining());
+        if (deflate != null && deflate.compressing()) {
+            payload = deflate.deflate(payload, fin);
+        }
+        enqueue(frame(opcode, fin, compressed, payload));
+    }
+
+    @Override
+    public void sendFrame(Framedata framedata) {
+        sendFragmentedFrame(framedata.getOpcode(), framedata.getPayloadData(), framedata.isFin());
+    }
+
+    @Override
+    public void sendFrame(Collection<Framedata> frames) {
+        frames.forEach(this::sendFrame);
+    }
+
+    @Override
+    public void sendPing() {
+        if (state == ReadyState.OPEN) {
+            enqueue(frame(OP_PING, true, ByteBuffer.allocate(0)));
+        }
+    }
+
+    /**
+     * Sends one fragment of a message. As with Java-WebSocket, callers pass
+     * the message's opcode with every fragment and the frames after the
+     * first go out as continuations.
+     */
+    @Override
+    public void sendFragmentedFrame(Opcode op, ByteBuffer buffer, boolean fin) {
+        if (state != ReadyState.OPEN) {
+            return;
+        }
+        int opcode = switch (op) {
+            case TEXT -> OP_TEXT;
+            case BINARY -> OP_BINARY;
+            case CONTINUOUS -> OP_CONTINUATION;
+            case PING -> OP_PING;
+            case PONG -> OP_PONG;
+            case CLOSING -> OP_CLOSE;
+        };
+        if (opcode == OP_TEXT || opcode == OP_BINARY) {
+            if (continuing) {
+                opcode = OP_CONTINUATION;
+            }
+            continuing = !fin;
+        }
+        if (opcode == OP_TEXT || opcode == OP_BINARY || opcode == OP_CONTINUATION) {
+            sendData(opcode, fin, buffer);
+        } else {
+            enqueue(frame(opcode, fin, buffer));
+        }
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        return !outQueue.isEmpty();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return state == ReadyState.OPEN;
+    }
+
+    @Override
+    public boolean isClosing() {
+        return state == ReadyState.CLOSING;
+    }
+
+    @Override
+    public boolean isFlushAndClose() {
+        return closeSent.get();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return state == ReadyState.CLOSED;
+    }
+
+    /** There is no Java-WebSocket draft behind this connection. */
+    @Override
+    public Draft getDraft() {
+        return null;
+    }
+
+    @Override
+    public ReadyState getReadyState() {
+        return state;
+    }
+
+    @Override
+    public String getResourceDescriptor() {
+        return resourceDescriptor;
+    }
+
+    @Override
+    public <T> void setAttachment(T attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment() {
+        return (T) attachment;
+    }
+
+    @Override
+    public boolean hasSSLSupport() {
+        return false;
+    }
+
+    @Override
+    public SSLSession getSSLSession() {
+        throw new IllegalArgumentException("This connection does not use TLS");
+    }
+
+    @Override
+    public IProtocol getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadSocket[" + remoteAddress + "]";
+    }
+}
@@ -0,0 +1,212 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway transport on plain JDK NIO: blocking channels with a virtual
+ * thread per connection (plus one per connection for writes) instead of
+ * Java-WebSocket's selector and decoder threads. A connection blocked on a
+ * slow client or waiting between requests costs a parked virtual thread,
+ * not a platform thread, and there is no fixed pool to exhaust.
+ * <p>
+ * Selected with {@code gateway.transport = "virtual"}; {@link GatewayServer}
+ * handles the connections exactly as it does Java-WebSocket's. The same
+ * transport serves {@code gateway.unixSocket}, whatever the TCP transport:
+ * local clients skip TCP setup but speak the same WebSocket protocol.
+ */
+final class VirtualThreadTransport {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadTransport.class);
+
+    private final GatewayServer server;
+    private final SocketAddress address;
+    private final OpenClawConfig.CompressionConfig compression;
+    private final boolean reusePort;
+    private final Map<VirtualThreadSocket, Thread> sockets = new ConcurrentHashMap<>();
+    private ServerSocketChannel listener;
+    private Thread acceptor;
+
+    /**
+     * Listens on an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * Clients that offer permessage-deflate get it under {@code gateway.compression};
+     * a TCP port is bound with SO_REUSEPORT under {@code gateway.reusePort}.
+     */
+    VirtualThreadTransport(GatewayServer server, SocketAddress address, OpenClawConfig.GatewayConfig gateway) {
+        this.server = server;
+        this.address = address;
+        this.compression = gateway.getCompression();
+        this.reusePort = gateway.isReusePort();
+    }
+
+    synchronized void start() throws IOException {
+        ServerSocketChannel channel;
+        if (address instanceof UnixDomainSocketAddress unix) {
+            removeStaleSocket(unix);
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            channel = ServerSocketChannel.open();
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (reusePort && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            } else if (reusePort) {
+                logger.warn("SO_REUSEPORT is not supported here; a replacement cannot bind {} until this gateway stops", address);
+            }
+        }
+        try {
+            channel.bind(address, 1024);
+            if (address instanceof UnixDomainSocketAddress unix) {
+                restrictToOwner(unix.getPath());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        listener = channel;
+        acceptor = Thread.ofVirtual().name("gateway-accept-" + address).start(this::acceptLoop);
+    }
+
+    /**
+     * A socket file left by a gateway that did not stop cleanly would make
+     * bind fail; one that still accepts connections belongs to a running
+     * gateway and is left alone.
+     */
+    private static void removeStaleSocket(UnixDomainSocketAddress unix) throws IOException {
+        Path path = unix.getPath();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!Files.exists(path)) {
+            return;
+        }
+        boolean live;
+        try (SocketChannel probe = SocketChannel.open(unix)) {
+            live = true;
+        } catch (IOException e) {
+            live = false;
+        }
+        if (live) {
+            throw new IOException("Another gateway is listening on " + path);
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /** The socket file, like the config holding the token, is for the owner only. */
+    private static void restrictToOwner(Path path) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            logger.debug("No POSIX permissions for {}", path);
+        }
+    }
+
+    /** The bound port, or the configured one before {@link #start()}; -1 on a Unix domain socket. */
+    synchronized int port() {
+        try {
+            if (listener != null && listener.getLocalAddress() instanceof InetSocketAddress bound) {
+                return bound.getPort();
+            }
+        } catch (IOException e) {
+            logger.debug("Listener address unavailable", e);
+        }
+        return address instanceof InetSocketAddress inet ? inet.getPort() : -1;
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = listener.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.error("Accept failed", e);
+                continue;
+            }
+            try {
+                if (!(address instanceof UnixDomainSocketAddress)) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                VirtualThreadSocket socket = new VirtualThreadSocket(channel, server, compression);
+                Thread thread = Thread.ofVirtual().name("gateway-conn-" + channel.getRemoteAddress()).unstarted(() -> {
+                    try {
+                        socket.run();
+                    } finally {
+                        sockets.remove(socket);
+                    }
+                });
+                sockets.put(socket, thread);
+                thread.start();
+            } catch (IOException e) {
+                logger.debug("Connection setup failed", e);
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the listening socket, leaving open connections be. A Unix
+     * domain socket's file is removed.
+     */
+    synchronized void stopAccepting() {
+        if (listener == null || !listener.isOpen()) {
+            return;
+        }
+        try {
+            listener.close();
+        } catch (IOException e) {
+            logger.debug("Closing listener failed", e);
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            try {
+                Files.deleteIfExists(unix.getPath());
+            } catch (IOException e) {
+                logger.debug("Removing {} failed", unix.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting, closes every connection with 1001 (going away) and
+     * waits up to {@code timeoutMillis} for the closing handshakes before
+     * cutting off the rest.
+     */
+    void stop(int timeoutMillis, String reason) throws InterruptedException {
+        synchronized (this) {
+            if (listener == null) {
+                return;
+            }
+            stopAccepting();
+        }
+        acceptor.join();
+        sockets.keySet().forEach(socket -> socket.close(1001, reason));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        for (Map.Entry<VirtualThreadSocket, Thread> entry : sockets.entrySet()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !entry.getValue().join(Duration.ofNanos(remaining))) {
+                entry.getKey().closeConnection(1006, "Server stopped");
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handshake settings shared by the gateway and its clients: the
+ * {@link RpcEncoding} subprotocols and, when enabled, permessage-deflate.
+ * A peer that offers neither still connects with plain JSON text.
+ */
+public final class WebSocketDrafts {
+
+    private WebSocketDrafts() {
+    }
+
+    /**
+     * Offers each {@link RpcEncoding} as a subprotocol, in declaration order;
+     * the empty protocol last accepts clients that ask for none.
+     */
+    public static Draft server(OpenClawConfig.GatewayConfig config) {
+        List<IProtocol> protocols = new ArrayList<>();
+        for (RpcEncoding encoding : RpcEncoding.values()) {
+            protocols.add(new Protocol(encoding.subprotocol()));
+        }
+        protocols.add(new Protocol(""));
+        return new Draft_6455(extensions(config), protocols);
+    }
+
+    /** Asks for {@code encoding} and, when enabled, permessage-deflate. */
+    public static Draft client(OpenClawConfig.GatewayConfig config, RpcEncoding encoding) {
+        return new Draft_6455(extensions(config), List.of(new Protocol(encoding.subprotocol())));
+    }
+
+    private static List<IExtension> extensions(OpenClawConfig.GatewayConfig config) {
+        OpenClawConfig.CompressionConfig compression = config.getCompression();
+        if (compression == null || !compression.isEnabled()) {
+            return List.of();
+        }
+        MessageDeflateExtension deflate = new MessageDeflateExtension(compression.getLevel(), compression.getThresholdBytes());
+        deflate.setServerNoContextTakeover(compression.isServerNoContextTakeover());
+        deflate.setClientNoContextTakeover(compression.isClientNoContextTakeover());
+        return List.of(deflate);
+    }
+}
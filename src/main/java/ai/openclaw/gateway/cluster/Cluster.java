@@ -0,0 +1,304 @@
+package ai.openclaw.gateway.cluster;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.RpcException;
+import ai.openclaw.gateway.RpcProtocol;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cluster membership and session placement for one gateway node.
+ * <p>
+ * Nodes find each other through the configured seed URLs: a starting node
+ * sends {@code cluster.join} to each seed and learns the member list from
+ * the answers. Every heartbeat it pings each known peer with its own member
+ * list and merges the one that comes back, so news of a node spreads
+ * through the cluster within a few heartbeats; a peer not heard from for
+ * {@code failureTimeoutMillis} is dropped, and a stopping node announces
+ * {@code cluster.leave}. Every node builds the same {@link HashRing} from
+ * the same members, so all of them agree on which node owns a session once
+ * membership settles.
+ * <p>
+ * Peers talk over ordinary gateway WebSocket connections that identify
+ * themselves with the {@code X-OpenClaw-Node} header and the cluster secret,
+ * which must be configured: a node refuses to start clustering without one.
+ * <p>
+ * Nodes share the sessions directory, so a session's new owner reloads it
+ * from disk. Each node keeps its own search index and blobs there and
+ * writes a session only under its owner lock; see
+ * {@link ai.openclaw.session.SessionStore}.
+ */
+public final class Cluster implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(Cluster.class);
+    public static final String JOIN = "cluster.join";
+    public static final String PING = "cluster.ping";
+    public static final String LEAVE = "cluster.leave";
+    public static final String OWNER = "cluster.owner";
+    public static final String MEMBERS = "cluster.members";
+    /** Methods only other nodes may call. */
+    public static final Set<String> PEER_METHODS = Set.of(JOIN, PING, LEAVE);
+    public static final String NODE_HEADER = PeerLink.NODE_HEADER;
+
+    private final OpenClawConfig.GatewayConfig gateway;
+    private final OpenClawConfig.ClusterConfig config;
+    private final ClusterNode self;
+    private final String secret;
+    private final Membership membership;
+    private final ObjectMapper mapper = Json.mapper();
+    private final Map<String, PeerLink> links = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cluster-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService calls = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("cluster-call-", 0).factory());
+
+    public Cluster(OpenClawConfig.GatewayConfig gateway) {
+        this.gateway = gateway;
+        this.config = gateway.getCluster();
+        this.self = new ClusterNode(nodeId(gateway), advertiseUrl(gateway));
+        // Peers are trusted with other clients' requests, so a node never admits one without a secret
+        String clusterSecret = config.getSecret();
+        if (clusterSecret == null || clusterSecret.isEmpty()) {
+            throw new IllegalStateException("gateway.cluster.secret must be set to enable clustering");
+        }
+        this.secret = clusterSecret;
+        this.membership = new Membership(self, Math.max(1, config.getVirtualNodes()),
+                TimeUnit.MILLISECONDS.toNanos(config.getFailureTimeoutMillis()));
+    }
+
+    /**
+     * This node's id: the configured one, or else the host and port of its
+     * advertised URL. Known before the cluster starts, so the session store
+     * can be scoped to the node.
+     */
+    public static String nodeId(OpenClawConfig.GatewayConfig gateway) {
+        String id = gateway.getCluster().getNodeId();
+        return id != null && !id.isEmpty() ? id : URI.create(advertiseUrl(gateway)).getAuthority();
+    }
+
+    private static String advertiseUrl(OpenClawConfig.GatewayConfig gateway) {
+        String url = gateway.getCluster().getAdvertiseUrl();
+        return url != null && !url.isEmpty() ? url : "ws://" + localHost() + ":" + gateway.getPort();
+    }
+
+    private static String localHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    public ClusterNode self() {
+        return self;
+    }
+
+    /** Secret a peer must present; never empty. */
+    public String secret() {
+        return secret;
+    }
+
+    public ClusterNode ownerOf(String sessionId) {
+        return membership.owner(sessionId);
+    }
+
+    public boolean isLocal(String sessionId) {
+        return self.equals(ownerOf(sessionId));
+    }
+
+    public List<ClusterNode> members() {
+        return membership.nodes();
+    }
+
+    /** Called on the heartbeat thread after every membership change. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /** Joins through the seeds and starts the heartbeat. */
+    public void start() {
+        logger.info("Cluster node {} at {}", self.id(), self.url());
+        long period = Math.max(1, config.getHeartbeatMillis());
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * One heartbeat: joins through any seed that is not a member yet (so
+     * nodes may start in any order), pings every peer, then drops the peers
+     * that stayed silent too long.
+     */
+    private void beat() {
+        try {
+            List<CompletableFuture<Boolean>> rounds = new ArrayList<>();
+            Set<String> memberUrls = ConcurrentHashMap.newKeySet();
+            membership.nodes().forEach(node -> memberUrls.add(node.url()));
+            for (String seed : config.getSeeds()) {
+                if (!memberUrls.contains(seed)) {
+                    rounds.add(exchange(seed, JOIN));
+                }
+            }
+            for (ClusterNode peer : membership.peers()) {
+                rounds.add(exchange(peer.url(), PING));
+            }
+            boolean changed = false;
+            for (CompletableFuture<Boolean> round : rounds) {
+                changed |= round.join();
+            }
+            changed |= membership.expire(System.nanoTime());
+            if (changed) {
+                logger.info("Cluster members: {}", membership.nodes().stream().map(ClusterNode::id).toList());
+                listeners.forEach(Runnable::run);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Cluster heartbeat failed", e);
+        }
+    }
+
+    /** Sends our member list to {@code url} and merges the one it answers with. */
+    private CompletableFuture<Boolean> exchange(String url, String method) {
+        RpcProtocol.RpcMessage request = new RpcProtocol.RpcMessage();
+        request.setMethod(method);
+        request.setParams(gossip());
+        return CompletableFuture.supplyAsync(() -> link(url), calls)
+                .thenCompose(link -> link.call(request, Math.max(1, config.getHeartbeatMillis())))
+                .thenApply(response -> {
+                    if (response.getError() != null) {
+                        logger.warn("Peer {} refused {}: {}", url, method, response.getError().getMessage());
+                        return false;
+                    }
+                    return receive(response.getResult());
+                })
+                .exceptionally(failure -> {
+                    logger.debug("Peer {} unreachable: {}", url, failure.getMessage());
+                    return false;
+                });
+    }
+
+    /**
+     * Sends {@code request} to {@code owner} and completes with its response,
+     * which carries a link-local id rather than the request's.
+     */
+    public CompletableFuture<RpcProtocol.RpcMessage> forward(ClusterNode owner, RpcProtocol.RpcMessage request) {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(config.getForwardTimeoutSeconds());
+        return CompletableFuture.supplyAsync(() -> link(owner.url()), calls)
+                .thenCompose(link -> link.call(request, timeoutMillis));
+    }
+
+    private PeerLink link(String url) {
+        return links.computeIfAbsent(url, u -> new PeerLink(URI.create(u), self.id(), secret, gateway));
+    }
+
+    /** Serves the cluster.* methods; the peer-only ones only when {@code peer} is set. */
+    public JsonNode handle(String method, JsonNode params, boolean peer) {
+        if (PEER_METHODS.contains(method) && !peer) {
+            throw new RpcException(RpcException.METHOD_NOT_FOUND, "Method not found: " + method);
+        }
+        switch (method) {
+            case JOIN, PING -> {
+                if (receive(params)) {
+                    listeners.forEach(Runnable::run);
+                }
+                return gossip();
+            }
+            case LEAVE -> {
+                ClusterNode node = node(params);
+                if (membership.remove(node.id(), System.nanoTime())) {
+                    logger.info("Node {} left the cluster", node.id());
+                    listeners.forEach(Runnable::run);
+                }
+                return mapper.createObjectNode().put("ok", true);
+            }
+            case OWNER -> {
+                String sessionId = params != null ? params.path("sessionId").asText(null) : null;
+                if (sessionId == null) {
+                    throw new RpcException(RpcException.INVALID_PARAMS, "sessionId is required");
+                }
+                ObjectNode result = mapper.createObjectNode().put("sessionId", sessionId);
+                result.set("owner", mapper.valueToTree(ownerOf(sessionId)));
+                return result;
+            }
+            case MEMBERS -> {
+                return gossip();
+            }
+            default -> throw new RpcException(RpcException.METHOD_NOT_FOUND, "Method not found: " + method);
+        }
+    }
+
+    /** {@code {node, members}}: who is speaking and who it believes is alive. */
+    private ObjectNode gossip() {
+        ObjectNode body = mapper.createObjectNode();
+        body.set("node", mapper.valueToTree(self));
+        body.set("members", mapper.valueToTree(membership.nodes()));
+        return body;
+    }
+
+    private boolean receive(JsonNode body) {
+        long now = System.nanoTime();
+        ClusterNode sender = node(body);
+        boolean changed = membership.seen(sender, now);
+        List<ClusterNode> members = new ArrayList<>();
+        for (JsonNode member : body.path("members")) {
+            members.add(mapper.convertValue(member, ClusterNode.class));
+        }
+        changed |= membership.merge(members, now);
+        return changed;
+    }
+
+    private ClusterNode node(JsonNode params) {
+        JsonNode node = params != null ? params.get("node") : null;
+        if (node == null || !node.hasNonNull("id") || !node.hasNonNull("url")) {
+            throw new RpcException(RpcException.INVALID_PARAMS, "node is required");
+        }
+        return mapper.convertValue(node, ClusterNode.class);
+    }
+
+    /** Announces the departure to every peer and closes the links; later calls do nothing. */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        heartbeat.shutdownNow();
+        RpcProtocol.RpcMessage leave = new RpcProtocol.RpcMessage();
+        leave.setMethod(LEAVE);
+        leave.setParams(mapper.createObjectNode().set("node", mapper.valueToTree(self)));
+        List<CompletableFuture<RpcProtocol.RpcMessage>> sent = new ArrayList<>();
+        for (ClusterNode peer : membership.peers()) {
+            sent.add(CompletableFuture.supplyAsync(() -> link(peer.url()), calls)
+                    .thenCompose(link -> link.call(leave, Math.max(1, config.getHeartbeatMillis()))));
+        }
+        for (CompletableFuture<RpcProtocol.RpcMessage> future : sent) {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                logger.debug("Leave not delivered", e);
+            }
+        }
+        links.values().forEach(PeerLink::close);
+        calls.shutdown();
+    }
+}
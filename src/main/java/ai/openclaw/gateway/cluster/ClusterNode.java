@@ -0,0 +1,8 @@
+package ai.openclaw.gateway.cluster;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/** A gateway node: its cluster-wide id and the WebSocket URL peers reach it on. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ClusterNode(String id, String url) {
+}
@@ -0,0 +1,50 @@
+package ai.openclaw.gateway.cluster;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping session ids to nodes. Each node is placed at
+ * {@code virtualNodes} points; a key belongs to the first point at or after
+ * its hash, wrapping around. Adding or removing a node only moves the keys
+ * between its points and their predecessors, about 1/n of all keys.
+ * <p>
+ * Immutable: membership changes build a new ring. The hash is computed from
+ * the string's characters alone, so every node places every key identically.
+ */
+final class HashRing {
+    private final TreeMap<Long, ClusterNode> points = new TreeMap<>();
+
+    HashRing(Collection<ClusterNode> nodes, int virtualNodes) {
+        for (ClusterNode node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(node.id() + '#' + i), node);
+            }
+        }
+    }
+
+    /** The node owning {@code key}, or null if the ring is empty. */
+    ClusterNode owner(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, ClusterNode> entry = points.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 code units, finished with MurmurHash3's fmix64 for avalanche. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
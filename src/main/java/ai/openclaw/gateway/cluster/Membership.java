@@ -0,0 +1,118 @@
+package ai.openclaw.gateway.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes this node believes are alive, and the hash ring built from them.
+ * A node is alive while it has been heard from (directly, or through another
+ * node's member list) within the failure timeout. A node that left is
+ * remembered for one timeout so stale member lists cannot bring it back.
+ * <p>
+ * Times are {@link System#nanoTime()} values passed in by the caller.
+ */
+final class Membership {
+    private final ClusterNode self;
+    private final int virtualNodes;
+    private final long failureTimeoutNanos;
+    private final Map<String, Member> members = new HashMap<>();
+    private final Map<String, Long> departed = new HashMap<>();
+    private volatile HashRing ring;
+    private volatile List<ClusterNode> nodes;
+
+    private record Member(ClusterNode node, long lastSeen) {
+    }
+
+    Membership(ClusterNode self, int virtualNodes, long failureTimeoutNanos) {
+        this.self = self;
+        this.virtualNodes = virtualNodes;
+        this.failureTimeoutNanos = failureTimeoutNanos;
+        rebuild();
+    }
+
+    /**
+     * Records that {@code node} was heard from at {@code now}: it contacted
+     * this node or answered a ping, or another node listed it.
+     *
+     * @return true if the member set changed
+     */
+    synchronized boolean seen(ClusterNode node, long now) {
+        if (node.id().equals(self.id())) {
+            return false;
+        }
+        Long left = departed.get(node.id());
+        if (left != null && now - left < failureTimeoutNanos) {
+            return false;
+        }
+        departed.remove(node.id());
+        Member previous = members.put(node.id(), new Member(node, now));
+        if (previous != null && previous.node().equals(node)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /** Records a member list received from another node. */
+    synchronized boolean merge(Collection<ClusterNode> list, long now) {
+        boolean changed = false;
+        for (ClusterNode node : list) {
+            Member known = members.get(node.id());
+            if (known == null || !known.node().equals(node)) {
+                changed |= seen(node, now);
+            }
+        }
+        return changed;
+    }
+
+    /** Removes a node that announced it is leaving. */
+    synchronized boolean remove(String id, long now) {
+        departed.put(id, now);
+        if (members.remove(id) == null) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /** Drops the members not heard from within the failure timeout. */
+    synchronized boolean expire(long now) {
+        departed.values().removeIf(left -> now - left >= failureTimeoutNanos);
+        boolean changed = false;
+        for (Iterator<Member> it = members.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastSeen() >= failureTimeoutNanos) {
+                it.remove();
+                changed = true;
+            }
+        }
+        if (changed) {
+            rebuild();
+        }
+        return changed;
+    }
+
+    /** Every live node, this one included. */
+    List<ClusterNode> nodes() {
+        return nodes;
+    }
+
+    synchronized List<ClusterNode> peers() {
+        return members.values().stream().map(Member::node).toList();
+    }
+
+    ClusterNode owner(String key) {
+        return ring.owner(key);
+    }
+
+    private void rebuild() {
+        List<ClusterNode> all = new ArrayList<>(members.size() + 1);
+        all.add(self);
+        members.values().forEach(member -> all.add(member.node()));
+        nodes = List.copyOf(all);
+        ring = new HashRing(all, virtualNodes);
+    }
+}
@@ -0,0 +1,145 @@
+package ai.openclaw.gateway.cluster;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.RpcEncoding;
+import ai.openclaw.gateway.RpcProtocol;
+import ai.openclaw.gateway.WebSocketDrafts;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The internal link to one peer: a WebSocket client connection, opened on
+ * first use and reopened after it drops, over which any number of requests
+ * are in flight at once, matched to their responses by id.
+ */
+final class PeerLink implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PeerLink.class);
+    /** Handshake header that marks a connection as coming from another node. */
+    static final String NODE_HEADER = "X-OpenClaw-Node";
+    private static final long CONNECT_TIMEOUT_MILLIS = 2000;
+
+    private final URI uri;
+    private final String selfId;
+    private final String secret;
+    private final OpenClawConfig.GatewayConfig gateway;
+    private final ObjectMapper mapper = Json.mapper();
+    private final Map<String, CompletableFuture<RpcProtocol.RpcMessage>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Client client;
+
+    PeerLink(URI uri, String selfId, String secret, OpenClawConfig.GatewayConfig gateway) {
+        this.uri = uri;
+        this.selfId = selfId;
+        this.secret = secret;
+        this.gateway = gateway;
+    }
+
+    /**
+     * Sends a copy of {@code request} under a link-local id. The response
+     * carries that id, not the caller's.
+     */
+    CompletableFuture<RpcProtocol.RpcMessage> call(RpcProtocol.RpcMessage request, long timeoutMillis) {
+        String id = selfId + "-" + ids.incrementAndGet();
+        RpcProtocol.RpcMessage copy = new RpcProtocol.RpcMessage();
+        copy.setId(id);
+        copy.setMethod(request.getMethod());
+        copy.setParams(request.getParams());
+        copy.setClient(request.getClient());
+        CompletableFuture<RpcProtocol.RpcMessage> response = new CompletableFuture<>();
+        pending.put(id, response);
+        try {
+            connection().send(mapper.writeValueAsString(copy));
+        } catch (Exception e) {
+            response.completeExceptionally(e);
+        }
+        return response.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((message, failure) -> pending.remove(id));
+    }
+
+    /**
+     * The open connection, connecting first if there is none. Guarded by a
+     * lock rather than the monitor: callers are virtual threads, and one
+     * blocked in the handshake inside {@code synchronized} would pin its
+     * carrier, which on a small machine is the one the peer's answer, or
+     * this gateway's own connections, need.
+     */
+    private Client connection() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (client != null && client.isOpen()) {
+                return client;
+            }
+            client = new Client();
+            client.addHeader("Authorization", "Bearer " + secret);
+            client.addHeader(NODE_HEADER, selfId);
+            if (!client.connectBlocking(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Cannot reach peer " + uri);
+            }
+            return client;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (client != null) {
+                client.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Client extends WebSocketClient {
+        Client() {
+            super(uri, WebSocketDrafts.client(gateway, RpcEncoding.JSON));
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            logger.debug("Link to {} open", uri);
+        }
+
+        @Override
+        public void onMessage(String message) {
+            try {
+                RpcProtocol.RpcMessage response = mapper.readValue(message, RpcProtocol.RpcMessage.class);
+                CompletableFuture<RpcProtocol.RpcMessage> waiting =
+                        response.getId() != null ? pending.get(response.getId()) : null;
+                if (waiting != null) {
+                    waiting.complete(response);
+                }
+            } catch (IOException e) {
+                logger.warn("Unreadable message from peer {}", uri, e);
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            IOException closed = new IOException("Link to " + uri + " closed: " + reason);
+            pending.values().forEach(waiting -> waiting.completeExceptionally(closed));
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            logger.debug("Link to {} failed", uri, ex);
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.Json;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for large message content.
+ * <p>
+ * Content at or above the configured size is stored once under
+ * {@code .blobs/<aa>/<sha256>} and referenced from messages by hash. The same
+ * hash always maps to one canonical in-memory instance, so a file read by
+ * twenty sessions occupies the heap once rather than twenty times. Strings
+ * are shared as they are; a JSON tree is not, since anyone holding it could
+ * change it for every session, so each message gets a copy of the containers
+ * over the shared values.
+ * <p>
+ * Reference counts track how many persisted records (log lines, snapshot
+ * entries, archived segments) point at each blob; a blob is deleted by
+ * {@link #sweep()} once its count drops to zero. Counts are saved to
+ * {@code refcounts.json} on {@link #close()}; that file is removed while the
+ * store is open, so after an unclean shutdown the counts are rebuilt from the
+ * session logs on the next start.
+ * <p>
+ * Cluster nodes sharing the sessions directory each keep their blobs under
+ * {@code .nodes/<node>/blobs} and reference them as {@code <node>/<sha256>}.
+ * A node counts and deletes only its own blobs; content it persists under
+ * another node's reference is stored again as its own, so no node adds
+ * references to another's blobs. Other nodes may drop records that point at
+ * this node's blobs without telling it, which only leaves counts too high,
+ * so a node rebuilds them on every start rather than saving them.
+ */
+class BlobStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+    private static final String REFCOUNTS_FILE = "refcounts.json";
+    static final String FILTER_ID = "blobRefs";
+
+    private static final Pattern REF = Pattern.compile("(?:[A-Za-z0-9_-]+/)?[0-9a-f]{64}");
+
+    private final Path sessionsDir;
+    // This node's name in a shared directory, or null
+    private final String node;
+    private final Path dir;
+    private final int thresholdChars;
+    private final Map<String, Integer> refCounts = new HashMap<>();
+    private final Map<String, CanonicalRef> canonical = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> cleared = new ReferenceQueue<>();
+
+    /** The blob store of cluster node {@code node}, or of a gateway on its own when it is null. */
+    BlobStore(Path sessionsDir, String node, int thresholdChars) {
+        this.sessionsDir = sessionsDir;
+        this.node = node;
+        this.dir = blobDir(sessionsDir, node);
+        this.thresholdChars = thresholdChars;
+        try {
+            Files.createDirectories(dir);
+            Path countsFile = dir.resolve(REFCOUNTS_FILE);
+            if (node == null && Files.exists(countsFile)) {
+                refCounts.putAll(Json.mapper().readValue(countsFile.toFile(),
+                        new TypeReference<Map<String, Integer>>() {
+                        }));
+                Files.delete(countsFile);
+            } else {
+                recount();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to initialize blob store at " + dir, e);
+        }
+    }
+
+    /**
+     * Mapper for persisting messages: identical to {@link Json#mapper()} except
+     * that the storage-only fields (blob references and the token estimate)
+     * are written and read, and content and content blocks are omitted when a
+     * blob reference is set.
+     */
+    static ObjectMapper persistenceMapper() {
+        ObjectMapper mapper = Json.createMapper();
+        mapper.addMixIn(Message.class, PersistedMessage.class);
+        mapper.setFilterProvider(new SimpleFilterProvider().addFilter(FILTER_ID, new RefFilter()));
+        return mapper;
+    }
+
+    /**
+     * Adds one reference from a persisted record (log line or snapshot entry) to
+     * each blob the message points at. Content at or above the threshold that
+     * is not yet externalized is stored first, and the message's content is
+     * swapped for the canonical instance.
+     */
+    void acquire(Message message) throws IOException {
+        if (!owns(message.getContentRef()) || !owns(message.getContentBlocksRef())) {
+            // Another node's blobs; this node stores the content as its own
+            resolve(message);
+            if (message.getContentRef() != null && !owns(message.getContentRef())) {
+                message.setContentRef(ref(hashOf(message.getContentRef())));
+            }
+            if (message.getContentBlocksRef() != null && !owns(message.getContentBlocksRef())) {
+                message.setContentBlocksRef(ref(hashOf(message.getContentBlocksRef())));
+            }
+        }
+
+        String content = message.getContent();
+        if (message.getContentRef() != null) {
+            retain(message.getContentRef(), () -> content.getBytes(StandardCharsets.UTF_8), content != null);
+        } else if (content != null && content.length() >= thresholdChars) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            String hash = hash(bytes);
+            message.setContent(canonicalize(hash, content));
+            retain(ref(hash), () -> bytes, true);
+            message.setContentRef(ref(hash));
+        }
+
+        JsonNode blocks = message.getContentBlocks();
+        if (message.getContentBlocksRef() != null) {
+            retain(message.getContentBlocksRef(), () -> Json.mapper().writeValueAsBytes(blocks), blocks != null);
+        } else if (blocks != null) {
+            byte[] bytes = Json.mapper().writeValueAsBytes(blocks);
+            if (bytes.length >= thresholdChars) {
+                String hash = hash(bytes);
+                // The caller's tree stays the caller's; the canonical one is never handed out
+                message.setContentBlocks(copyOf(live(hash) instanceof JsonNode n ? n : canonicalize(hash, blocks.deepCopy())));
+                retain(ref(hash), () -> bytes, true);
+                message.setContentBlocksRef(ref(hash));
+            }
+        }
+    }
+
+    /** Fills in content for a message read back from disk with only its references. */
+    void resolve(Message message) throws IOException {
+        if (message.getContentRef() != null && message.getContent() == null) {
+            String ref = message.getContentRef();
+            String hash = hashOf(ref);
+            Object live = live(hash);
+            message.setContent(live instanceof String s
+                    ? s
+                    : canonicalize(hash, new String(read(ref), StandardCharsets.UTF_8)));
+        }
+        if (message.getContentBlocksRef() != null && message.getContentBlocks() == null) {
+            String ref = message.getContentBlocksRef();
+            String hash = hashOf(ref);
+            Object live = live(hash);
+            message.setContentBlocks(copyOf(live instanceof JsonNode n
+                    ? n
+                    : canonicalize(hash, Json.mapper().readTree(read(ref)))));
+        }
+    }
+
+    /** Drops every reference to this node's blobs held by the persisted records in a JSONL segment. */
+    void releaseSegment(Path segment) throws IOException {
+        forEachRef(segment, ref -> adjust(ref, -1));
+    }
+
+    /** Drops every reference to this node's blobs held by a snapshot file. */
+    void releaseSnapshot(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        JsonNode messages = Json.mapper().readTree(snapshot.toFile()).path("messages");
+        for (JsonNode message : messages) {
+            adjust(refOf(message, "contentRef"), -1);
+            adjust(refOf(message, "contentBlocksRef"), -1);
+        }
+    }
+
+    /** Deletes blobs that are no longer referenced by any persisted record. */
+    synchronized int sweep() {
+        int deleted = 0;
+        var it = refCounts.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            if (entry.getValue() > 0) {
+                continue;
+            }
+            it.remove();
+            try {
+                if (Files.deleteIfExists(pathFor(entry.getKey()))) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to delete blob {}", entry.getKey(), e);
+            }
+        }
+        return deleted;
+    }
+
+    synchronized int refCount(String ref) {
+        return refCounts.getOrDefault(ref, 0);
+    }
+
+    private synchronized void adjust(String ref, int delta) {
+        if (ref != null && owns(ref)) {
+            refCounts.merge(ref, delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Increments a blob's count, (re)writing the file if it is missing. Done
+     * under the store lock so a concurrent {@link #sweep()} cannot delete the
+     * file between the existence check and the increment.
+     */
+    private synchronized void retain(String ref, BytesSupplier bytes, boolean haveBytes) throws IOException {
+        Path path = pathFor(ref);
+        if (!Files.exists(path)) {
+            if (!haveBytes) {
+                throw new IOException("Blob " + ref + " is missing and its content is not in memory");
+            }
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(hashOf(ref) + ".tmp");
+            Files.write(tmp, bytes.get());
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        refCounts.merge(ref, 1, Integer::sum);
+    }
+
+    private byte[] read(String ref) throws IOException {
+        if (!REF.matcher(ref).matches()) {
+            throw new IOException("Malformed blob reference " + ref);
+        }
+        return Files.readAllBytes(pathFor(ref));
+    }
+
+    /** {@code .blobs} for a gateway on its own, {@code .nodes/<node>/blobs} for a cluster node. */
+    private static Path blobDir(Path sessionsDir, String node) {
+        return node == null
+                ? sessionsDir.resolve(".blobs")
+                : sessionsDir.resolve(SessionStore.NODES_DIR).resolve(node).resolve("blobs");
+    }
+
+    private Path pathFor(String ref) {
+        int slash = ref.indexOf('/');
+        String hash = hashOf(ref);
+        return blobDir(sessionsDir, slash < 0 ? null : ref.substring(0, slash))
+                .resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /** How this node refers to the blob with {@code hash}. */
+    private String ref(String hash) {
+        return node == null ? hash : node + "/" + hash;
+    }
+
+    private static String hashOf(String ref) {
+        return ref.substring(ref.indexOf('/') + 1);
+    }
+
+    /** Whether {@code ref} is absent or names one of this node's blobs. */
+    private boolean owns(String ref) {
+        return ref == null || (node == null ? ref.indexOf('/') < 0 : ref.startsWith(node + "/"));
+    }
+
+    private Object live(String hash) {
+        CanonicalRef ref = canonical.get(hash);
+        return ref != null ? ref.get() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T canonicalize(String hash, T value) {
+        expungeCleared();
+        while (true) {
+            CanonicalRef existing = canonical.putIfAbsent(hash, new CanonicalRef(hash, value, cleared));
+            if (existing == null) {
+                return value;
+            }
+            Object current = existing.get();
+            if (current != null && current.getClass() == value.getClass()) {
+                return (T) current;
+            }
+            canonical.remove(hash, existing);
+        }
+    }
+
+    /**
+     * A message's own copy of canonical blocks. Trees are mutable, so no two
+     * messages share one; values are immutable, and the copy shares those
+     * (the text of the blocks, which is what makes them large) with the
+     * canonical tree, which it keeps alive for as long as it is in use.
+     */
+    private static JsonNode copyOf(JsonNode canonicalBlocks) {
+        return canonicalBlocks instanceof ArrayNode array ? new BlocksCopy(array) : canonicalBlocks.deepCopy();
+    }
+
+    private void expungeCleared() {
+        CanonicalRef ref;
+        while ((ref = (CanonicalRef) cleared.poll()) != null) {
+            canonical.remove(ref.hash, ref);
+        }
+    }
+
+    /**
+     * Counts the references to this node's blobs in every session log and
+     * snapshot, archived ones included, and registers the blobs nothing
+     * references with a count of zero.
+     */
+    private void recount() throws IOException {
+        if (!Files.isDirectory(sessionsDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(sessionsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (file.startsWith(sessionsDir.resolve(".blobs")) || file.startsWith(sessionsDir.resolve(".index"))
+                        || file.startsWith(sessionsDir.resolve(SessionStore.NODES_DIR))) {
+                    continue;
+                }
+                if (name.startsWith("segment-") && name.endsWith(".jsonl")) {
+                    forEachRef(file, this::recountRef);
+                } else if (name.equals(SessionLog.SNAPSHOT_FILE)) {
+                    for (JsonNode message : Json.mapper().readTree(file.toFile()).path("messages")) {
+                        recountRef(refOf(message, "contentRef"));
+                        recountRef(refOf(message, "contentBlocksRef"));
+                    }
+                }
+            }
+        }
+        try (Stream<Path> blobs = Files.walk(dir)) {
+            blobs.filter(Files::isRegularFile)
+                    .map(p -> p.getFileName().toString())
+                    .filter(n -> n.length() == 64)
+                    .forEach(hash -> refCounts.putIfAbsent(ref(hash), 0));
+        }
+        logger.info("Rebuilt blob reference counts ({} blobs)", refCounts.size());
+    }
+
+    private void recountRef(String ref) {
+        if (ref != null && owns(ref)) {
+            refCounts.merge(ref, 1, Integer::sum);
+        }
+    }
+
+    private static void forEachRef(Path segment, java.util.function.Consumer<String> action) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.contains("Ref\"")) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = Json.mapper().readTree(line);
+                } catch (IOException e) {
+                    continue;
+                }
+                String contentRef = refOf(node, "contentRef");
+                String blocksRef = refOf(node, "contentBlocksRef");
+                if (contentRef != null) {
+                    action.accept(contentRef);
+                }
+                if (blocksRef != null) {
+                    action.accept(blocksRef);
+                }
+            }
+        }
+    }
+
+    private static String refOf(JsonNode message, String field) {
+        JsonNode ref = message.get(field);
+        return ref != null && ref.isTextual() ? ref.asText() : null;
+    }
+
+    static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Persists reference counts so the next start can skip the recount; a
+     * cluster node recounts anyway, so it saves nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (node != null) {
+            return;
+        }
+        try {
+            Json.mapper().writeValue(dir.resolve(REFCOUNTS_FILE).toFile(), refCounts);
+        } catch (IOException e) {
+            logger.error("Failed to save blob reference counts", e);
+        }
+    }
+
+    @JsonFilter(FILTER_ID)
+    private abstract static class PersistedMessage {
+        @JsonIgnore(false)
+        abstract String getContentRef();
+
+        @JsonIgnore(false)
+        abstract String getContentBlocksRef();
+
+        @JsonIgnore(false)
+        abstract int getTokens();
+    }
+
+    /** Omits inline content that is already stored as a blob. */
+    private static class RefFilter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider,
+                PropertyWriter writer) throws Exception {
+            if (pojo instanceof Message message) {
+                if (message.getContentRef() != null && "content".equals(writer.getName())) {
+                    return;
+                }
+                if (message.getContentBlocksRef() != null && "contentBlocks".equals(writer.getName())) {
+                    return;
+                }
+            }
+            writer.serializeAsField(pojo, gen, provider);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BytesSupplier {
+        byte[] get() throws IOException;
+    }
+
+    /** See {@link #copyOf}; serializes, compares and copies as a plain array. */
+    private static final class BlocksCopy extends ArrayNode {
+        private final transient ArrayNode canonical;
+
+        BlocksCopy(ArrayNode canonical) {
+            super(JsonNodeFactory.instance, canonical.size());
+            for (JsonNode element : canonical) {
+                add(element.deepCopy());
+            }
+            this.canonical = canonical;
+        }
+    }
+
+    private static final class CanonicalRef extends WeakReference<Object> {
+        final String hash;
+
+        CanonicalRef(String hash, Object value, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ai.openclaw.session;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A page of session history. {@code nextOffset} and {@code prevOffset} are the
+ * offsets of the adjacent pages, or null at either end of the history.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HistoryPage {
+    private String sessionId;
+    private int offset;
+    private int total;
+    private Integer nextOffset;
+    private Integer prevOffset;
+    private List<Message> messages;
+
+    public HistoryPage() {
+    }
+
+    static HistoryPage of(String sessionId, int offset, int total, int limit, List<Message> messages) {
+        HistoryPage page = new HistoryPage();
+        page.sessionId = sessionId;
+        page.offset = offset;
+        page.total = total;
+        page.messages = messages;
+        int end = offset + messages.size();
+        page.nextOffset = end < total ? end : null;
+        page.prevOffset = offset > 0 ? Math.max(0, offset - limit) : null;
+        return page;
+    }
+
+    /** Cuts the requested page out of a fully loaded history without copying it. */
+    static HistoryPage slice(HistoryRequest request, List<Message> history) {
+        int limit = limit(request);
+        int start = start(request, history.size(), limit, i -> history.get(i).getTimestamp());
+        int end = Math.min(history.size(), start + limit);
+        return of(request.getSessionId(), start, history.size(), limit, history.subList(start, end));
+    }
+
+    static int limit(HistoryRequest request) {
+        return Math.max(1, Math.min(request.getLimit(), HistoryRequest.MAX_LIMIT));
+    }
+
+    /**
+     * Resolves the request's cursor to a message offset in {@code [0, total]}.
+     * A {@code since} cursor is found by binary search, relying on history being
+     * appended in timestamp order; {@code timestampAt} is called O(log n) times.
+     */
+    static int start(HistoryRequest request, int total, int limit, IntFunction<Instant> timestampAt) {
+        if (request.getOffset() != null) {
+            return Math.max(0, Math.min(request.getOffset(), total));
+        }
+        if (request.getSince() == null) {
+            return Math.max(0, total - limit);
+        }
+        int lo = 0;
+        int hi = total;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            Instant ts = timestampAt.apply(mid);
+            if (ts != null && !ts.isBefore(request.getSince())) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Integer nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public Integer getPrevOffset() {
+        return prevOffset;
+    }
+
+    public void setPrevOffset(Integer prevOffset) {
+        this.prevOffset = prevOffset;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+}
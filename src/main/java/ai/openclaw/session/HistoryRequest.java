@@ -0,0 +1,60 @@
+package ai.openclaw.session;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Instant;
+
+/**
+ * One page of a session's history. The page starts at {@code offset} (a
+ * message index into the session's current history) if given, otherwise at
+ * the first message at or after {@code since}; with neither it is the last
+ * {@code limit} messages, which is what a client opening a session wants.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HistoryRequest {
+    public static final int MAX_LIMIT = 1000;
+
+    private String sessionId;
+    private Integer offset;
+    private Instant since;
+    private int limit = 50;
+
+    public HistoryRequest() {
+    }
+
+    public HistoryRequest(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Instant getSince() {
+        return since;
+    }
+
+    public void setSince(Instant since) {
+        this.since = since;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,396 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * The default backend: one directory per session holding segmented JSONL logs
+ * and a snapshot (see {@link SessionLog}), with large content deduplicated
+ * through a shared {@link BlobStore}. History pages are read through a
+ * {@link LogIndex} so paging through a session that is not in memory never
+ * loads all of it.
+ * <p>
+ * Cluster nodes may share the directory. Each then stores blobs of its own
+ * (see {@link BlobStore}), and opens a session's log, or deletes a session,
+ * only under the session's owner lock, so two nodes never write one session
+ * at the same time.
+ */
+public class JsonlSessionBackend implements SessionBackend {
+    private static final Logger logger = LoggerFactory.getLogger(JsonlSessionBackend.class);
+    private static final int MAX_CACHED_INDEXES = 64;
+    static final String ARCHIVE_DIR = ".archive";
+    private final Map<String, SessionLog> logs = new ConcurrentHashMap<>();
+    private final Map<String, LogIndex> indexes = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LogIndex> eldest) {
+                    return size() > MAX_CACHED_INDEXES;
+                }
+            });
+    private final ObjectMapper mapper = BlobStore.persistenceMapper();
+    private final Path sessionsDir;
+    private final OpenClawConfig.SessionConfig config;
+    private final BlobStore blobs;
+    // Whether other cluster nodes share the directory
+    private final boolean shared;
+
+    public JsonlSessionBackend(Path sessionsDir, OpenClawConfig.SessionConfig config) {
+        this(sessionsDir, config, null);
+    }
+
+    /** A backend for cluster node {@code node}, or for a gateway on its own when it is null. */
+    public JsonlSessionBackend(Path sessionsDir, OpenClawConfig.SessionConfig config, String node) {
+        this.sessionsDir = sessionsDir;
+        this.config = config;
+        this.shared = node != null;
+        this.blobs = config.getBlobThresholdChars() > 0
+                ? new BlobStore(sessionsDir, node, config.getBlobThresholdChars())
+                : null;
+    }
+
+    @Override
+    public boolean append(Session session, Message message) throws IOException {
+        SessionLog log = logFor(session);
+        try {
+            if (blobs != null) {
+                blobs.acquire(message);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to store content blob for session {}, keeping it inline", session.getId(), e);
+        }
+        log.append(message);
+        return log.takeCompactionPending();
+    }
+
+    @Override
+    public Session load(String sessionId) throws IOException {
+        if (!isSafeId(sessionId)) {
+            return null;
+        }
+        Session session = SessionLog.load(sessionsDir.resolve(sessionId), mapper);
+        if (session != null) {
+            if (blobs != null) {
+                for (Message message : session.getMessages()) {
+                    blobs.resolve(message);
+                }
+            }
+            return session;
+        }
+        Path legacy = sessionsDir.resolve(sessionId + ".jsonl");
+        if (Files.exists(legacy)) {
+            return migrateLegacy(sessionId, legacy);
+        }
+        return null;
+    }
+
+    /**
+     * Rotates the current segment and snapshots {@code history} as of that
+     * point. Writing the snapshot, archiving or deleting the sealed segments and
+     * sweeping unreferenced blobs happen on {@code background}.
+     * <p>
+     * The snapshot is rewritten whole, so each compaction costs O(history), not
+     * O(sealed segments). Large content is only a blob reference in it, and
+     * compaction runs once every {@code compactAfterSegments} rotations, which
+     * keeps the total bounded by history size times the number of compactions.
+     * With {@code agent.compactContext} on, history the context budget leaves
+     * out is replaced by a summary (see {@link SessionStore#compactPrefix}), so
+     * the snapshot, and every reload, stays around the size of that budget.
+     */
+    @Override
+    public CompletableFuture<Void> compact(Session session, List<Message> history, Executor background)
+            throws IOException {
+        SessionLog log = logFor(session);
+        if (blobs != null) {
+            for (Message message : history) {
+                blobs.acquire(message);
+            }
+        }
+        int tail = log.rotate();
+        SessionSnapshot snapshot = SessionSnapshot.of(session, history, tail);
+        CompletableFuture<Void> compacted = CompletableFuture.runAsync(() -> {
+            try {
+                log.writeSnapshot(snapshot);
+                log.dropSegmentsBefore(snapshot.getTailSegment());
+                if (blobs != null) {
+                    blobs.sweep();
+                }
+                logger.debug("Compacted session {} at segment {}", session.getId(), tail);
+            } catch (IOException e) {
+                logger.error("Failed to compact session " + session.getId(), e);
+                throw new UncheckedIOException(e);
+            }
+        }, background);
+        log.track(compacted);
+        return compacted;
+    }
+
+    /** Replays the session from disk and filters by timestamp; JSONL logs have no time index. */
+    @Override
+    public List<Message> readRange(String sessionId, Instant from, Instant to) throws IOException {
+        Session session = load(sessionId);
+        List<Message> result = new ArrayList<>();
+        if (session == null) {
+            return result;
+        }
+        for (Message message : session.getMessages()) {
+            Instant ts = message.getTimestamp();
+            if (ts != null && (from == null || !ts.isBefore(from)) && (to == null || ts.isBefore(to))) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serves a page from the memory-mapped log through a cached {@link LogIndex},
+     * parsing only the messages on the page (plus O(log n) for a {@code since}
+     * cursor). Legacy single-file logs fall back to a full load.
+     */
+    @Override
+    public HistoryPage readPage(HistoryRequest request) throws IOException {
+        String sessionId = request.getSessionId();
+        if (!isSafeId(sessionId)) {
+            return null;
+        }
+        Path dir = sessionsDir.resolve(sessionId);
+        if (!Files.exists(dir.resolve(SessionLog.SNAPSHOT_FILE))) {
+            return SessionBackend.super.readPage(request);
+        }
+        LogIndex index = indexes.get(sessionId);
+        if (index == null || !index.isCurrent()) {
+            index = LogIndex.build(dir, mapper);
+            indexes.put(sessionId, index);
+        }
+
+        LogIndex log = index;
+        int total = log.size();
+        int limit = HistoryPage.limit(request);
+        int start = HistoryPage.start(request, total, limit, i -> log.timestampAt(i, mapper));
+        List<Message> messages = new ArrayList<>(Math.min(limit, total - start));
+        for (int i = start; i < total && i < start + limit; i++) {
+            Message message = log.read(i, mapper);
+            if (message != null) {
+                if (blobs != null) {
+                    blobs.resolve(message);
+                }
+                messages.add(message);
+            }
+        }
+        return HistoryPage.of(sessionId, start, total, limit, messages);
+    }
+
+    /** Session directories and legacy single-file logs; dot-entries (index, blobs, archive) are skipped. */
+    @Override
+    public List<String> list() throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(sessionsDir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                if (Files.isDirectory(entry)) {
+                    ids.add(name);
+                } else if (name.endsWith(".jsonl")) {
+                    ids.add(name.substring(0, name.length() - ".jsonl".length()));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the snapshot's metadata and takes the last activity from the newest
+     * segment's modification time, so no message is parsed.
+     */
+    @Override
+    public SessionSnapshot describe(String sessionId) throws IOException {
+        if (!isSafeId(sessionId)) {
+            return null;
+        }
+        Path dir = sessionsDir.resolve(sessionId);
+        Path snapshotPath = dir.resolve(SessionLog.SNAPSHOT_FILE);
+        if (Files.exists(snapshotPath)) {
+            SessionSnapshot metadata = SessionLog.readMetadata(snapshotPath, mapper);
+            var segments = SessionLog.listSegments(dir);
+            if (!segments.isEmpty()) {
+                Instant modified = Files.getLastModifiedTime(segments.lastEntry().getValue()).toInstant();
+                if (metadata.getLastActiveAt() == null || modified.isAfter(metadata.getLastActiveAt())) {
+                    metadata.setLastActiveAt(modified);
+                }
+            }
+            return metadata;
+        }
+        Path legacy = sessionsDir.resolve(sessionId + ".jsonl");
+        if (Files.exists(legacy)) {
+            SessionSnapshot metadata = new SessionSnapshot();
+            metadata.setId(sessionId);
+            metadata.setLastActiveAt(Files.getLastModifiedTime(legacy).toInstant());
+            return metadata;
+        }
+        return null;
+    }
+
+    /**
+     * Archiving moves the session's directory under {@code .archive/}, where its
+     * blob references stay counted. Deleting releases the references of every
+     * log file in the directory, removes it and sweeps blobs left unreferenced.
+     */
+    @Override
+    public void delete(String sessionId, boolean archive) throws IOException {
+        if (!isSafeId(sessionId)) {
+            return;
+        }
+        release(sessionId);
+        indexes.remove(sessionId);
+        Path dir = sessionsDir.resolve(sessionId);
+        // Another node may have the session open; it is only deleted under its owner lock
+        try (FileChannel owner = shared && Files.isDirectory(dir) ? SessionLog.lockOwner(dir) : null) {
+            deleteFiles(sessionId, dir, archive);
+        }
+    }
+
+    private void deleteFiles(String sessionId, Path dir, boolean archive) throws IOException {
+        Path legacy = sessionsDir.resolve(sessionId + ".jsonl");
+        if (archive) {
+            Path archiveDir = sessionsDir.resolve(ARCHIVE_DIR);
+            Files.createDirectories(archiveDir);
+            if (Files.exists(dir)) {
+                Files.move(dir, archiveDir.resolve(sessionId));
+            }
+            if (Files.exists(legacy)) {
+                Files.move(legacy, archiveDir.resolve(legacy.getFileName()));
+            }
+            return;
+        }
+
+        if (Files.exists(dir)) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    String name = file.getFileName().toString();
+                    if (blobs != null && name.equals(SessionLog.SNAPSHOT_FILE)) {
+                        blobs.releaseSnapshot(file);
+                    } else if (blobs != null && name.endsWith(".jsonl")) {
+                        blobs.releaseSegment(file);
+                    }
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.deleteIfExists(legacy);
+        if (blobs != null) {
+            blobs.sweep();
+        }
+    }
+
+    /** Closes the session's open segment. */
+    @Override
+    public void release(String sessionId) {
+        SessionLog log = logs.remove(sessionId);
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close session log {}", sessionId, e);
+            }
+        }
+    }
+
+    /** One open segment per session appended to since it was last released. */
+    @Override
+    public int openFiles() {
+        return logs.size();
+    }
+
+    private SessionLog logFor(Session session) throws IOException {
+        try {
+            return logs.computeIfAbsent(session.getId(), id -> {
+                try {
+                    return SessionLog.open(sessionsDir.resolve(id), session, config, mapper, blobs, shared);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Moves a single-file {@code <sessionId>.jsonl} log into the segmented layout as its first segment. */
+    private Session migrateLegacy(String sessionId, Path legacy) throws IOException {
+        Session session = new Session();
+        session.setId(sessionId);
+        session.setMessages(SessionLog.readLegacy(legacy, mapper));
+        Path dir = sessionsDir.resolve(sessionId);
+        Files.createDirectories(dir);
+        Files.move(legacy, dir.resolve(SessionLog.segmentName(1)));
+        List<Message> messages = session.getMessages();
+        if (!messages.isEmpty()) {
+            session.setCreatedAt(messages.get(0).getTimestamp());
+            session.setLastActiveAt(messages.get(messages.size() - 1).getTimestamp());
+        }
+        // Without a snapshot the directory would not load again unless something is appended first
+        mapper.writeValue(dir.resolve(SessionLog.SNAPSHOT_FILE).toFile(), SessionSnapshot.of(session, List.of(), 1));
+        logger.info("Migrated legacy session log {} ({} messages)", legacy, messages.size());
+        return session;
+    }
+
+    private static boolean isSafeId(String sessionId) {
+        return sessionId != null && !sessionId.isEmpty()
+                && !sessionId.contains("/") && !sessionId.contains("\\") && !sessionId.contains("..");
+    }
+
+    /** Closes all open segment files and saves blob reference counts. */
+    @Override
+    public void close() {
+        for (SessionLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close session log", e);
+            }
+        }
+        logs.clear();
+        indexes.clear();
+        if (blobs != null) {
+            blobs.close();
+        }
+    }
+
+    public static class Provider implements SessionBackendProvider {
+        @Override
+        public String name() {
+            return "jsonl";
+        }
+
+        @Override
+        public SessionBackend create(Path sessionsDir, OpenClawConfig.SessionConfig config) {
+            return new JsonlSessionBackend(sessionsDir, config);
+        }
+
+        @Override
+        public SessionBackend create(Path sessionsDir, OpenClawConfig.SessionConfig config, String node) {
+            return new JsonlSessionBackend(sessionsDir, config, node);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package ai.openclaw.session;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Byte-offset index over the messages persisted in one session directory: the
+ * snapshot's compacted messages followed by the lines of every live segment,
+ * numbered the same way {@link SessionLog#load} numbers them. Files are
+ * memory-mapped, so building the index is one streaming pass over the
+ * snapshot plus a newline scan of each segment, and reading a message parses
+ * only that message.
+ * <p>
+ * An index describes the files as they were when it was built; use
+ * {@link #isCurrent()} before reusing one. A line still being written (no
+ * trailing newline yet) is not indexed.
+ */
+final class LogIndex {
+    private static final Logger logger = LoggerFactory.getLogger(LogIndex.class);
+
+    private final Path dir;
+    private final List<Source> sources = new ArrayList<>();
+    private int tailSegment;
+    private int count;
+    private int[] sourceOf = new int[64];
+    private long[] start = new long[64];
+    private int[] length = new int[64];
+
+    private static class Source {
+        final Path path;
+        final BasicFileAttributes attrs;
+        final MappedByteBuffer buffer;
+
+        Source(Path path, BasicFileAttributes attrs, MappedByteBuffer buffer) {
+            this.path = path;
+            this.attrs = attrs;
+            this.buffer = buffer;
+        }
+    }
+
+    private LogIndex(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Indexes a session directory that has a snapshot. */
+    static LogIndex build(Path dir, ObjectMapper mapper) throws IOException {
+        LogIndex index = new LogIndex(dir);
+        index.indexSnapshot(index.map(dir.resolve(SessionLog.SNAPSHOT_FILE)), mapper);
+        for (Path segment : SessionLog.listSegments(dir).tailMap(index.tailSegment).values()) {
+            index.indexSegment(index.map(segment));
+        }
+        return index;
+    }
+
+    private int map(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attrs.size() > Integer.MAX_VALUE) {
+            throw new IOException("Session file too large to map: " + path);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            sources.add(new Source(path, attrs, channel.map(FileChannel.MapMode.READ_ONLY, 0, attrs.size())));
+        }
+        return sources.size() - 1;
+    }
+
+    /** Records the byte range of each element of the snapshot's messages array without binding it. */
+    private void indexSnapshot(int source, ObjectMapper mapper) throws IOException {
+        MappedByteBuffer buffer = sources.get(source).buffer;
+        try (JsonParser parser = mapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Malformed snapshot in " + dir);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("tailSegment".equals(field)) {
+                    tailSegment = parser.getIntValue();
+                } else if ("messages".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        long from = parser.getTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        add(source, from, parser.getCurrentLocation().getByteOffset());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void indexSegment(int source) {
+        MappedByteBuffer buffer = sources.get(source).buffer;
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (i > lineStart) {
+                    add(source, lineStart, i);
+                }
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    private void add(int source, long from, long to) {
+        if (count == start.length) {
+            sourceOf = Arrays.copyOf(sourceOf, count * 2);
+            start = Arrays.copyOf(start, count * 2);
+            length = Arrays.copyOf(length, count * 2);
+        }
+        sourceOf[count] = source;
+        start[count] = from;
+        length[count] = (int) (to - from);
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Parses message {@code i}, or returns null if its bytes are unreadable (e.g. a torn line). */
+    Message read(int i, ObjectMapper mapper) {
+        byte[] bytes = new byte[length[i]];
+        Source source = sources.get(sourceOf[i]);
+        source.buffer.get((int) start[i], bytes);
+        try {
+            return mapper.readValue(bytes, Message.class);
+        } catch (IOException e) {
+            logger.warn("Skipping unreadable message in {}: {}", source.path, e.getMessage());
+            return null;
+        }
+    }
+
+    Instant timestampAt(int i, ObjectMapper mapper) {
+        Message message = read(i, mapper);
+        return message != null ? message.getTimestamp() : null;
+    }
+
+    /** True if no indexed file has changed and no segment has been added or removed since the build. */
+    boolean isCurrent() throws IOException {
+        List<Path> segments = new ArrayList<>(SessionLog.listSegments(dir).tailMap(tailSegment).values());
+        if (segments.size() != sources.size() - 1) {
+            return false;
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            if (i > 0 && !segments.get(i - 1).equals(source.path)) {
+                return false;
+            }
+            BasicFileAttributes now;
+            try {
+                now = Files.readAttributes(source.path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            if (now.size() != source.attrs.size()
+                    || !now.lastModifiedTime().equals(source.attrs.lastModifiedTime())
+                    || !Objects.equals(now.fileKey(), source.attrs.fileKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
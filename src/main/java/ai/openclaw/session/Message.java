@@ -1,5 +1,6 @@
 package ai.openclaw.session;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -22,6 +23,16 @@ public class Message {
     private boolean toolError;
     private JsonNode contentBlocks; // For assistant messages that contain tool_use blocks
 
+    // Content-addressed references; when set, the session log stores the hash
+    // instead of the value (see BlobStore). Like tokens, storage-only: hidden
+    // from every mapper but BlobStore.persistenceMapper()
+    private String contentRef;
+    private String contentBlocksRef;
+
+    // Estimated token count (see TokenEstimator), computed on first use and
+    // persisted with the message; 0 means not yet computed
+    private int tokens;
+
     public Message() {
     }
 
@@ -102,4 +113,42 @@ public class Message {
     public void setContentBlocks(JsonNode contentBlocks) {
         this.contentBlocks = contentBlocks;
     }
+
+    @JsonIgnore
+    public String getContentRef() {
+        return contentRef;
+    }
+
+    public void setContentRef(String contentRef) {
+        this.contentRef = contentRef;
+    }
+
+    @JsonIgnore
+    public String getContentBlocksRef() {
+        return contentBlocksRef;
+    }
+
+    public void setContentBlocksRef(String contentBlocksRef) {
+        this.contentBlocksRef = contentBlocksRef;
+    }
+
+    /**
+     * Estimated tokens this message adds to a request. Computed once, at the
+     * latest when the message is first persisted, and read back from the log
+     * afterwards, so it is also known for messages whose content is stored as
+     * a blob reference.
+     */
+    @JsonIgnore
+    public int getTokens() {
+        int cached = tokens;
+        if (cached == 0) {
+            cached = TokenEstimator.estimate(this);
+            tokens = cached;
+        }
+        return cached;
+    }
+
+    public void setTokens(int tokens) {
+        this.tokens = tokens;
+    }
 }
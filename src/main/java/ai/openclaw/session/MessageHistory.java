@@ -0,0 +1,154 @@
+package ai.openclaw.session;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only message list with lock-free, allocation-cheap snapshots.
+ * <p>
+ * Messages live in fixed-size chunks that are never copied or moved once
+ * written, so appending never copies existing messages (only the small chunk
+ * directory grows). The writer fills the slot and then publishes it with a
+ * volatile write of {@code size}; a reader that observes {@code size == n} is
+ * guaranteed to see the first {@code n} messages, so {@link #snapshot()} needs
+ * no lock and costs one small object regardless of history length.
+ * <p>
+ * Alongside the messages it keeps a running sum of their token estimates, so
+ * the size of any range of the history is two array reads, and a running
+ * estimate of the heap they hold.
+ */
+final class MessageHistory {
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /** Object headers and fields of a message and its strings, other than the characters. */
+    private static final int MESSAGE_OVERHEAD_BYTES = 128;
+
+    private volatile Message[][] chunks = new Message[4][];
+    private volatile long[][] sums = new long[4][];
+    private volatile int size;
+    private volatile long estimatedBytes;
+
+    MessageHistory() {
+    }
+
+    MessageHistory(List<Message> messages) {
+        for (Message message : messages) {
+            add(message);
+        }
+    }
+
+    /** Appends a message. Writers are serialized; readers are never blocked. */
+    synchronized void add(Message message) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        Message[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new Message[CHUNK_SIZE];
+        }
+        current[chunk][index & CHUNK_MASK] = message;
+
+        long[][] currentSums = sums;
+        if (chunk == currentSums.length) {
+            currentSums = Arrays.copyOf(currentSums, currentSums.length * 2);
+            sums = currentSums;
+        }
+        if (currentSums[chunk] == null) {
+            currentSums[chunk] = new long[CHUNK_SIZE];
+        }
+        currentSums[chunk][index & CHUNK_MASK] = tokensBefore(index) + message.getTokens();
+        estimatedBytes += estimateBytes(message);
+        size = index + 1;
+    }
+
+    /**
+     * Rough heap footprint of a message: content at a byte per character
+     * (compact Latin-1 strings; more for other text), tool-use blocks at four
+     * characters per estimated token, plus a fixed overhead. Content stored
+     * as a blob is counted in full as well: its canonical instance may be
+     * shared with other sessions, but it is what evicting this one frees when
+     * no other session holds it, and sharing is not known here.
+     */
+    static long estimateBytes(Message message) {
+        long bytes = MESSAGE_OVERHEAD_BYTES;
+        if (message.getContent() != null) {
+            bytes += message.getContent().length();
+        }
+        if (message.getContentBlocks() != null) {
+            bytes += 4L * message.getTokens();
+        }
+        return bytes;
+    }
+
+    /** Sum of {@link #estimateBytes} over the messages appended so far. */
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /** Estimated tokens of messages {@code [0, index)}; {@code index} must not exceed the size. */
+    long tokensBefore(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        int last = index - 1;
+        return sums[last >>> CHUNK_BITS][last & CHUNK_MASK];
+    }
+
+    /**
+     * The smallest {@code from} such that messages {@code [from, to)} fit in
+     * {@code budget} tokens, found by binary search over the running sums.
+     */
+    int fit(int to, long budget) {
+        long end = tokensBefore(to);
+        int lo = 0;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (end - tokensBefore(mid) <= budget) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** An immutable view of the messages appended so far. */
+    List<Message> snapshot() {
+        int n = size;
+        return new Snapshot(chunks, n);
+    }
+
+    private static final class Snapshot extends AbstractList<Message> implements RandomAccess {
+        private final Message[][] chunks;
+        private final int size;
+
+        Snapshot(Message[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Embedded single-file backend on H2's MVStore, a copy-on-write B-tree store.
+ * Every session lives in {@code sessions.mv.db}, so the directory stays at one
+ * file no matter how many sessions exist.
+ *
+ * <pre>
+ * meta      sessionId                          -&gt; session metadata (JSON)
+ * base      sessionId                          -&gt; first live sequence number
+ * messages  sessionId \0 seq                   -&gt; message (JSON)
+ * byTime    sessionId \0 epochMillis \0 seq    -&gt; seq
+ * archive   sessionId                          -&gt; expired session with history (JSON)
+ * </pre>
+ *
+ * Numbers in keys are fixed-width hex so that key order is (session, seq) and
+ * (session, time) order, which makes loading a session and reading a time
+ * range single ordered range scans. Compaction writes the new history after
+ * the current tail, moves {@code base} past the old entries and deletes them
+ * in the background. Content is stored inline; blob deduplication is specific
+ * to the JSONL backend.
+ * <p>
+ * Writes are committed by MVStore's background auto-commit (about once per
+ * second) and on {@link #close()}.
+ */
+public class MvStoreSessionBackend implements SessionBackend {
+    private static final Logger logger = LoggerFactory.getLogger(MvStoreSessionBackend.class);
+    static final String FILE_NAME = "sessions.mv.db";
+    private static final char SEP = '\0';
+
+    private final ObjectMapper mapper = BlobStore.persistenceMapper();
+    private final MVStore store;
+    private final MVMap<String, String> meta;
+    private final MVMap<String, Long> base;
+    private final MVMap<String, String> messages;
+    private final MVMap<String, Long> byTime;
+    private final MVMap<String, String> archive;
+    private final Map<String, Long> nextSeq = new ConcurrentHashMap<>();
+
+    public MvStoreSessionBackend(Path sessionsDir) {
+        this.store = new MVStore.Builder()
+                .fileName(sessionsDir.resolve(FILE_NAME).toString())
+                .compress()
+                .open();
+        this.meta = store.openMap("meta");
+        this.base = store.openMap("base");
+        this.messages = store.openMap("messages");
+        this.byTime = store.openMap("byTime");
+        this.archive = store.openMap("archive");
+    }
+
+    @Override
+    public boolean append(Session session, Message message) throws IOException {
+        String id = session.getId();
+        if (!meta.containsKey(id)) {
+            meta.put(id, mapper.writeValueAsString(SessionSnapshot.of(session, List.of(), 0)));
+        }
+        long seq = next(id);
+        put(id, seq, message);
+        nextSeq.put(id, seq + 1);
+        return false;
+    }
+
+    @Override
+    public Session load(String sessionId) throws IOException {
+        String metadata = meta.get(sessionId);
+        if (metadata == null) {
+            return null;
+        }
+        SessionSnapshot snapshot = mapper.readValue(metadata, SessionSnapshot.class);
+        List<Message> history = new ArrayList<>();
+        String end = seqKey(sessionId, Long.MAX_VALUE);
+        Cursor<String, String> cursor = messages.cursor(seqKey(sessionId, base.getOrDefault(sessionId, 0L)));
+        while (cursor.hasNext()) {
+            if (cursor.next().compareTo(end) >= 0) {
+                break;
+            }
+            history.add(mapper.readValue(cursor.getValue(), Message.class));
+        }
+        return snapshot.restore(sessionId, history);
+    }
+
+    /**
+     * Appends {@code history} after the current tail and makes it the live
+     * range. The superseded entries are deleted on {@code background}.
+     */
+    @Override
+    public CompletableFuture<Void> compact(Session session, List<Message> history, Executor background)
+            throws IOException {
+        String id = session.getId();
+        long oldBase = base.getOrDefault(id, 0L);
+        long newBase = next(id);
+        long seq = newBase;
+        for (Message message : history) {
+            put(id, seq++, message);
+        }
+        nextSeq.put(id, seq);
+        meta.put(id, mapper.writeValueAsString(SessionSnapshot.of(session, List.of(), 0)));
+        base.put(id, newBase);
+
+        return CompletableFuture.runAsync(() -> {
+            String end = seqKey(id, newBase);
+            Cursor<String, String> cursor = messages.cursor(seqKey(id, oldBase));
+            List<String> dead = new ArrayList<>();
+            while (cursor.hasNext() && cursor.next().compareTo(end) < 0) {
+                dead.add(cursor.getKey());
+            }
+            dead.forEach(messages::remove);
+
+            String timeEnd = timePrefix(id) + '\uffff';
+            Cursor<String, Long> times = byTime.cursor(timePrefix(id));
+            List<String> deadTimes = new ArrayList<>();
+            while (times.hasNext() && times.next().compareTo(timeEnd) < 0) {
+                if (times.getValue() < newBase) {
+                    deadTimes.add(times.getKey());
+                }
+            }
+            deadTimes.forEach(byTime::remove);
+            logger.debug("Compacted session {}: dropped {} messages", id, dead.size());
+        }, background);
+    }
+
+    @Override
+    public List<Message> readRange(String sessionId, Instant from, Instant to) throws IOException {
+        long live = base.getOrDefault(sessionId, 0L);
+        String end = to != null ? timeKey(sessionId, to.toEpochMilli(), 0) : timePrefix(sessionId) + '\uffff';
+        Cursor<String, Long> cursor = byTime.cursor(
+                timeKey(sessionId, from != null ? from.toEpochMilli() : 0L, 0));
+        List<Message> result = new ArrayList<>();
+        while (cursor.hasNext()) {
+            if (cursor.next().compareTo(end) >= 0) {
+                break;
+            }
+            long seq = cursor.getValue();
+            String json = seq >= live ? messages.get(seqKey(sessionId, seq)) : null;
+            if (json != null) {
+                result.add(mapper.readValue(json, Message.class));
+            }
+        }
+        return result;
+    }
+
+    /** Seeks straight to the page in {@code messages}; a {@code since} cursor is one {@code byTime} lookup. */
+    @Override
+    public HistoryPage readPage(HistoryRequest request) throws IOException {
+        String id = request.getSessionId();
+        if (!meta.containsKey(id)) {
+            return null;
+        }
+        long live = base.getOrDefault(id, 0L);
+        int total = (int) (next(id) - live);
+        int limit = HistoryPage.limit(request);
+        int start;
+        if (request.getOffset() == null && request.getSince() != null) {
+            start = total;
+            Cursor<String, Long> times = byTime.cursor(timeKey(id, Math.max(0L, request.getSince().toEpochMilli()), 0));
+            String timeEnd = timePrefix(id) + '\uffff';
+            while (times.hasNext() && times.next().compareTo(timeEnd) < 0) {
+                if (times.getValue() >= live) {
+                    start = (int) (times.getValue() - live);
+                    break;
+                }
+            }
+        } else {
+            start = HistoryPage.start(request, total, limit, null);
+        }
+
+        List<Message> page = new ArrayList<>(Math.min(limit, total - start));
+        String end = seqKey(id, live + Math.min(total, start + limit));
+        Cursor<String, String> cursor = messages.cursor(seqKey(id, live + start));
+        while (cursor.hasNext() && cursor.next().compareTo(end) < 0) {
+            page.add(mapper.readValue(cursor.getValue(), Message.class));
+        }
+        return HistoryPage.of(id, start, total, limit, page);
+    }
+
+    @Override
+    public List<String> list() {
+        return new ArrayList<>(meta.keySet());
+    }
+
+    /** Metadata from {@code meta}; the last activity is the newest live message's timestamp. */
+    @Override
+    public SessionSnapshot describe(String sessionId) throws IOException {
+        String metadata = meta.get(sessionId);
+        if (metadata == null) {
+            return null;
+        }
+        SessionSnapshot snapshot = mapper.readValue(metadata, SessionSnapshot.class);
+        String last = messages.floorKey(seqKey(sessionId, Long.MAX_VALUE));
+        if (last != null && last.startsWith(sessionId + SEP)
+                && last.compareTo(seqKey(sessionId, base.getOrDefault(sessionId, 0L))) >= 0) {
+            Message message = mapper.readValue(messages.get(last), Message.class);
+            if (message.getTimestamp() != null) {
+                snapshot.setLastActiveAt(message.getTimestamp());
+            }
+        }
+        return snapshot;
+    }
+
+    /** Archiving stores the whole session, history included, as one entry of the {@code archive} map. */
+    @Override
+    public void delete(String sessionId, boolean archiveSession) throws IOException {
+        if (archiveSession) {
+            Session session = load(sessionId);
+            if (session != null) {
+                archive.put(sessionId, mapper.writeValueAsString(
+                        SessionSnapshot.of(session, session.getMessages(), 0)));
+            }
+        }
+        removeRange(messages, sessionId + SEP, sessionId + SEP + '\uffff');
+        removeRange(byTime, timePrefix(sessionId), timePrefix(sessionId) + '\uffff');
+        base.remove(sessionId);
+        meta.remove(sessionId);
+        nextSeq.remove(sessionId);
+    }
+
+    private static <V> void removeRange(MVMap<String, V> map, String from, String to) {
+        List<String> keys = new ArrayList<>();
+        Cursor<String, V> cursor = map.cursor(from);
+        while (cursor.hasNext() && cursor.next().compareTo(to) < 0) {
+            keys.add(cursor.getKey());
+        }
+        keys.forEach(map::remove);
+    }
+
+    @Override
+    public void release(String sessionId) {
+        nextSeq.remove(sessionId);
+    }
+
+    private void put(String id, long seq, Message message) throws IOException {
+        messages.put(seqKey(id, seq), mapper.writeValueAsString(message));
+        long millis = message.getTimestamp() != null ? Math.max(0L, message.getTimestamp().toEpochMilli()) : 0L;
+        byTime.put(timeKey(id, millis, seq), seq);
+    }
+
+    /** Next unused sequence number for a session, found with one floor lookup on first use. */
+    private long next(String id) {
+        return nextSeq.computeIfAbsent(id, k -> {
+            String last = messages.floorKey(seqKey(k, Long.MAX_VALUE));
+            if (last == null || !last.startsWith(k + SEP)) {
+                return 0L;
+            }
+            return Long.parseUnsignedLong(last.substring(k.length() + 1), 16) + 1;
+        });
+    }
+
+    private static String seqKey(String id, long seq) {
+        return id + SEP + hex(seq);
+    }
+
+    private static String timePrefix(String id) {
+        return id + SEP;
+    }
+
+    private static String timeKey(String id, long millis, long seq) {
+        return id + SEP + hex(millis) + SEP + hex(seq);
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    /** The single store file. */
+    @Override
+    public int openFiles() {
+        return store.isClosed() ? 0 : 1;
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    public static class Provider implements SessionBackendProvider {
+        @Override
+        public String name() {
+            return "mvstore";
+        }
+
+        @Override
+        public SessionBackend create(Path sessionsDir, OpenClawConfig.SessionConfig config) {
+            return new MvStoreSessionBackend(sessionsDir);
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package ai.openclaw.session;
 
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * A conversation with one user on one channel.
+ * <p>
+ * History is append-only: {@link #getMessages()} returns an immutable snapshot
+ * that stays consistent while other threads keep appending, so a turn or a
+ * history reader never needs to lock or copy the session.
+ */
 public class Session {
     private String id;
     private String channelType;
     private String userId;
-    private List<Message> messages;
+    private volatile MessageHistory messages = new MessageHistory();
     private Instant createdAt;
-    private Instant lastActiveAt;
+    private volatile Instant lastActiveAt;
 
     public Session() {
     }
@@ -20,7 +26,6 @@ public class Session {
         this.id = UUID.randomUUID().toString();
         this.channelType = channelType;
         this.userId = userId;
-        this.messages = new ArrayList<>();
         this.createdAt = Instant.now();
         this.lastActiveAt = Instant.now();
     }
@@ -49,12 +54,52 @@ public class Session {
         this.userId = userId;
     }
 
+    /** Returns an immutable snapshot of the history as of this call. */
     public List<Message> getMessages() {
-        return messages;
+        return messages.snapshot();
     }
 
+    public int getMessageCount() {
+        return messages.size();
+    }
+
+    /**
+     * Estimated tokens of messages {@code [from, to)}, in constant time. Indices
+     * refer to the current history, which only grows, so any range of an
+     * earlier {@link #getMessages()} snapshot stays valid until the history is
+     * replaced.
+     */
+    public long getTokenCount(int from, int to) {
+        MessageHistory history = messages;
+        return history.tokensBefore(to) - history.tokensBefore(from);
+    }
+
+    /** Estimated tokens of the whole history. */
+    public long getTokenCount() {
+        MessageHistory history = messages;
+        return history.tokensBefore(history.size());
+    }
+
+    /** Approximate heap held by the history, kept as messages are added. */
+    public long getEstimatedBytes() {
+        return messages.estimatedBytes();
+    }
+
+    /**
+     * Start of the longest run of messages ending at {@code to} (exclusive) that
+     * fits in {@code budget} tokens; {@code to} if not even the last message
+     * fits. O(log n).
+     */
+    public int fitTokens(int to, long budget) {
+        return messages.fit(to, budget);
+    }
+
+    /**
+     * Replaces the whole history. Snapshots taken earlier keep seeing the old
+     * history.
+     */
     public void setMessages(List<Message> messages) {
-        this.messages = messages;
+        this.messages = new MessageHistory(messages);
     }
 
     public Instant getCreatedAt() {
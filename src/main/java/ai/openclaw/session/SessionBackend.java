@@ -0,0 +1,88 @@
+package ai.openclaw.session;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Persistence for session history. {@link SessionStore} owns the in-memory
+ * sessions, locking and search index; a backend only decides how messages are
+ * laid out on disk. Implementations are discovered through
+ * {@link SessionBackendProvider}.
+ * <p>
+ * Calls for one session are serialized by the store (it holds the session's
+ * monitor around {@link #append} and the synchronous part of
+ * {@link #compact}); calls for different sessions may run concurrently.
+ */
+public interface SessionBackend extends AutoCloseable {
+
+    /**
+     * Persists a message before it is added to the in-memory session. The
+     * backend may rewrite the message in place (e.g. to swap in shared
+     * content).
+     *
+     * @return true if the backend would like the session compacted soon
+     */
+    boolean append(Session session, Message message) throws IOException;
+
+    /** Reads a session back, or returns null if the backend has no record of it. */
+    Session load(String sessionId) throws IOException;
+
+    /**
+     * Replaces everything persisted so far for the session with
+     * {@code history}. Work that must be ordered with appends happens before
+     * this method returns; the rest may be scheduled on {@code background}.
+     */
+    CompletableFuture<Void> compact(Session session, List<Message> history, Executor background)
+            throws IOException;
+
+    /**
+     * Returns the persisted messages with timestamps in {@code [from, to)}, in
+     * order. Either bound may be null.
+     */
+    List<Message> readRange(String sessionId, Instant from, Instant to) throws IOException;
+
+    /**
+     * Reads one page of a session's persisted history, or returns null if the
+     * session is unknown. The default loads the whole session; backends that
+     * can seek to a message should override it.
+     */
+    default HistoryPage readPage(HistoryRequest request) throws IOException {
+        Session session = load(request.getSessionId());
+        return session == null ? null : HistoryPage.slice(request, session.getMessages());
+    }
+
+    /** Ids of every session the backend holds, in no particular order. */
+    List<String> list() throws IOException;
+
+    /**
+     * Returns a session's metadata (no messages) with {@code lastActiveAt} as of
+     * its most recent persisted message, or null if the session is unknown.
+     * Must be much cheaper than {@link #load}.
+     */
+    SessionSnapshot describe(String sessionId) throws IOException;
+
+    /**
+     * Removes a session's history, keeping a copy out of the live data when
+     * {@code archive} is set. Never called for a session held in memory.
+     */
+    void delete(String sessionId, boolean archive) throws IOException;
+
+    /**
+     * Called when a session is dropped from memory, so per-session resources
+     * such as open files can be released. A later append reopens them.
+     */
+    default void release(String sessionId) {
+    }
+
+    /** Files the backend currently holds open, or -1 if it does not keep count. */
+    default int openFiles() {
+        return -1;
+    }
+
+    /** Flushes and releases all resources. */
+    @Override
+    void close();
+}
@@ -0,0 +1,44 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+
+import java.nio.file.Path;
+import java.util.ServiceLoader;
+
+/**
+ * Service-provider interface for session persistence backends. Providers are
+ * listed in {@code META-INF/services/ai.openclaw.session.SessionBackendProvider}
+ * and selected by {@link #name()} through the {@code sessions.backend} config
+ * setting.
+ */
+public interface SessionBackendProvider {
+
+    /** Name used to select this backend in config, e.g. {@code "jsonl"}. */
+    String name();
+
+    SessionBackend create(Path sessionsDir, OpenClawConfig.SessionConfig config);
+
+    /**
+     * Creates the backend of one cluster node sharing {@code sessionsDir}
+     * with others; {@code node} names the node's own directory under
+     * {@code .nodes}, and is null outside a cluster. Backends that cannot be
+     * opened by several processes at once keep this default, which refuses.
+     */
+    default SessionBackend create(Path sessionsDir, OpenClawConfig.SessionConfig config, String node) {
+        if (node != null) {
+            throw new IllegalStateException("sessions.backend \"" + name()
+                    + "\" cannot be shared by cluster nodes; use \"jsonl\"");
+        }
+        return create(sessionsDir, config);
+    }
+
+    /** Finds the provider with the given name on the class path. */
+    static SessionBackendProvider find(String name) {
+        for (SessionBackendProvider provider : ServiceLoader.load(SessionBackendProvider.class)) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalArgumentException("Unknown session backend: " + name);
+    }
+}
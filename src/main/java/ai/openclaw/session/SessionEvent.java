@@ -0,0 +1,68 @@
+package ai.openclaw.session;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Something that happened to a session: a message was appended, or an agent
+ * turn started or ended. Published by {@link SessionStore} to its
+ * {@link SessionListener}s.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionEvent {
+    public static final String MESSAGE = "message";
+    public static final String TURN_STARTED = "turn.started";
+    public static final String TURN_COMPLETED = "turn.completed";
+    public static final String TURN_FAILED = "turn.failed";
+
+    private final String type;
+    private final String sessionId;
+    private final Instant timestamp;
+    private Integer index;
+    private Message message;
+    private String error;
+
+    public SessionEvent(String type, String sessionId) {
+        this.type = type;
+        this.sessionId = sessionId;
+        this.timestamp = Instant.now();
+    }
+
+    static SessionEvent message(String sessionId, int index, Message message) {
+        SessionEvent event = new SessionEvent(MESSAGE, sessionId);
+        event.index = index;
+        event.message = message;
+        return event;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /** Position of the appended message in the session history; set for message events. */
+    public Integer getIndex() {
+        return index;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    /** Why the turn failed; set for turn.failed events. */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
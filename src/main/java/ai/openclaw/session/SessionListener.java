@@ -0,0 +1,12 @@
+package ai.openclaw.session;
+
+/**
+ * Receives {@link SessionEvent}s from a {@link SessionStore}. Events of one
+ * session arrive in order on the thread that caused them, message events
+ * while the session is locked, so implementations must return quickly and
+ * hand any slow work off.
+ */
+@FunctionalInterface
+public interface SessionListener {
+    void onEvent(SessionEvent event);
+}
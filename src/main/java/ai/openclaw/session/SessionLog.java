@@ -0,0 +1,363 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Segmented JSONL log for a single session.
+ *
+ * <pre>
+ * sessions/&lt;sessionId&gt;/
+ *   snapshot.json          metadata + compacted messages, see {@link SessionSnapshot}
+ *   segment-000001-&lt;millis&gt;.jsonl   one message per line; the suffix is when the segment was opened
+ *   segment-000002-&lt;millis&gt;.jsonl
+ *   archive/               compacted segments, when archiving is enabled
+ *   owner.lock             locked by the cluster node that has the log open
+ * </pre>
+ *
+ * Appends go to the highest-numbered segment, which is rotated once it exceeds
+ * the configured size or age. Appends and rotation synchronize on the log
+ * instance; snapshot writes and segment cleanup do not, so they can run on a
+ * background thread.
+ */
+class SessionLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionLog.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)(?:-(\\d+))?\\.jsonl");
+    static final String SNAPSHOT_FILE = "snapshot.json";
+    static final String OWNER_FILE = "owner.lock";
+
+    private final Path dir;
+    private final OpenClawConfig.SessionConfig config;
+    private final ObjectMapper mapper;
+    private final BlobStore blobs;
+
+    private OutputStream out;
+    private int currentSegment;
+    private long currentBytes;
+    private Instant currentOpenedAt;
+    private int firstSegment;
+    private boolean compactionPending;
+    private FileChannel owner;
+    private CompletableFuture<?> background = CompletableFuture.completedFuture(null);
+
+    private SessionLog(Path dir, OpenClawConfig.SessionConfig config, ObjectMapper mapper, BlobStore blobs) {
+        this.dir = dir;
+        this.config = config;
+        this.mapper = mapper;
+        this.blobs = blobs;
+    }
+
+    /**
+     * Opens (creating if needed) the log for a session and positions it at the
+     * last segment. {@code blobs} may be null when content deduplication is off.
+     * A {@code fenced} log, in a directory shared by cluster nodes, first takes
+     * the session's owner lock (see {@link #lockOwner}).
+     */
+    static SessionLog open(Path dir, Session session, OpenClawConfig.SessionConfig config, ObjectMapper mapper,
+            BlobStore blobs, boolean fenced) throws IOException {
+        SessionLog log = new SessionLog(dir, config, mapper, blobs);
+        Files.createDirectories(dir);
+        if (fenced) {
+            log.owner = lockOwner(dir);
+        }
+        try {
+            if (!Files.exists(dir.resolve(SNAPSHOT_FILE))) {
+                log.writeSnapshot(SessionSnapshot.of(session, List.of(), 1));
+            }
+            TreeMap<Integer, Path> segments = listSegments(dir);
+            if (segments.isEmpty()) {
+                log.firstSegment = 1;
+                log.openSegment(1);
+            } else {
+                log.firstSegment = segments.firstKey();
+                log.openSegment(segments.lastKey());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (log.owner != null) {
+                log.owner.close();
+            }
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Takes the owner lock of a session directory that cluster nodes share.
+     * A node holds it for as long as it has the session's log open, so only
+     * one node at a time appends to, rotates or compacts the session. The
+     * lock is the operating system's and goes with the process that held it.
+     *
+     * @throws SessionNotOwnedException when another node holds it, or
+     *         another store in this JVM
+     */
+    static FileChannel lockOwner(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(OWNER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean locked = false;
+        try {
+            locked = channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            // Held through another channel of this JVM
+        } finally {
+            if (!locked) {
+                channel.close();
+            }
+        }
+        if (!locked) {
+            throw new SessionNotOwnedException(dir.getFileName().toString());
+        }
+        return channel;
+    }
+
+    /**
+     * Reads a session back from disk: the snapshot's messages followed by every
+     * segment from its tail onward. Returns null if the directory holds no
+     * snapshot.
+     */
+    static Session load(Path dir, ObjectMapper mapper) throws IOException {
+        Path snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        SessionSnapshot snapshot = mapper.readValue(snapshotPath.toFile(), SessionSnapshot.class);
+        List<Message> messages = new ArrayList<>(snapshot.getMessages());
+        for (var entry : listSegments(dir).entrySet()) {
+            if (entry.getKey() >= snapshot.getTailSegment()) {
+                readSegment(entry.getValue(), mapper, messages);
+            }
+        }
+
+        return snapshot.restore(dir.getFileName().toString(), messages);
+    }
+
+    /**
+     * Reads a snapshot's metadata without binding its messages, which are
+     * skipped token by token.
+     */
+    static SessionSnapshot readMetadata(Path snapshotPath, ObjectMapper mapper) throws IOException {
+        ObjectNode fields = mapper.createObjectNode();
+        try (JsonParser parser = mapper.getFactory().createParser(snapshotPath.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Malformed snapshot " + snapshotPath);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("messages".equals(field)) {
+                    parser.skipChildren();
+                } else {
+                    fields.set(field, parser.readValueAsTree());
+                }
+            }
+        }
+        return mapper.treeToValue(fields, SessionSnapshot.class);
+    }
+
+    /** Reads a single-file (pre-segmentation) session log. */
+    static List<Message> readLegacy(Path file, ObjectMapper mapper) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        readSegment(file, mapper, messages);
+        return messages;
+    }
+
+    private static void readSegment(Path file, ObjectMapper mapper, List<Message> into) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    into.add(mapper.readValue(line, Message.class));
+                } catch (IOException e) {
+                    // A torn final line from a crash mid-write; everything before it is intact
+                    logger.warn("Skipping unreadable line in {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    static TreeMap<Integer, Path> listSegments(Path dir) throws IOException {
+        TreeMap<Integer, Path> segments = new TreeMap<>();
+        if (!Files.isDirectory(dir)) {
+            return segments;
+        }
+        try (var entries = Files.list(dir)) {
+            entries.forEach(p -> {
+                Matcher m = SEGMENT_NAME.matcher(p.getFileName().toString());
+                if (m.matches()) {
+                    segments.put(Integer.parseInt(m.group(1)), p);
+                }
+            });
+        }
+        return segments;
+    }
+
+    /** Name of a segment whose opening time is unknown, such as a migrated legacy log. */
+    static String segmentName(int segment) {
+        return String.format("segment-%06d.jsonl", segment);
+    }
+
+    static String segmentName(int segment, Instant openedAt) {
+        return String.format("segment-%06d-%d.jsonl", segment, openedAt.toEpochMilli());
+    }
+
+    /**
+     * When the segment was opened, from its name. File timestamps will not do:
+     * mtime moves with every append and Linux often reports mtime for the
+     * creation time. Undated segments count as opened now.
+     */
+    private static Instant openedAt(Path segment) {
+        Matcher m = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        return m.matches() && m.group(2) != null
+                ? Instant.ofEpochMilli(Long.parseLong(m.group(2)))
+                : Instant.now();
+    }
+
+    synchronized void append(Message message) throws IOException {
+        if (shouldRotate()) {
+            rotate();
+            if (config.getCompactAfterSegments() > 0 && sealedSegments() >= config.getCompactAfterSegments()) {
+                compactionPending = true;
+            }
+        }
+        byte[] line = mapper.writeValueAsBytes(message);
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        currentBytes += line.length + 1;
+    }
+
+    private boolean shouldRotate() {
+        if (currentBytes == 0) {
+            return false;
+        }
+        if (config.getSegmentMaxBytes() > 0 && currentBytes >= config.getSegmentMaxBytes()) {
+            return true;
+        }
+        return config.getSegmentMaxAgeMinutes() > 0
+                && Duration.between(currentOpenedAt, Instant.now()).toMinutes() >= config.getSegmentMaxAgeMinutes();
+    }
+
+    /**
+     * Seals the current segment and starts a new one.
+     *
+     * @return the number of the newly opened segment
+     */
+    synchronized int rotate() throws IOException {
+        out.close();
+        openSegment(currentSegment + 1);
+        return currentSegment;
+    }
+
+    private void openSegment(int segment) throws IOException {
+        Path path = listSegments(dir).get(segment);
+        if (path == null) {
+            currentOpenedAt = Instant.now();
+            path = dir.resolve(segmentName(segment, currentOpenedAt));
+        } else {
+            currentOpenedAt = openedAt(path);
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+        currentSegment = segment;
+        currentBytes = Files.size(path);
+    }
+
+    synchronized int sealedSegments() {
+        return currentSegment - firstSegment;
+    }
+
+    /** Returns and clears the flag set when rotation pushed the sealed count over the threshold. */
+    synchronized boolean takeCompactionPending() {
+        boolean pending = compactionPending;
+        compactionPending = false;
+        return pending;
+    }
+
+    /**
+     * Atomically replaces snapshot.json, releasing the blob references held by
+     * the previous snapshot. Safe to call without holding the log lock.
+     */
+    void writeSnapshot(SessionSnapshot snapshot) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        mapper.writeValue(tmp.toFile(), snapshot);
+        if (blobs != null) {
+            blobs.releaseSnapshot(dir.resolve(SNAPSHOT_FILE));
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Archives or deletes every segment numbered below {@code tailSegment}. Must
+     * only be called once a snapshot covering those segments is on disk.
+     */
+    void dropSegmentsBefore(int tailSegment) throws IOException {
+        Path archiveDir = dir.resolve("archive");
+        for (var entry : listSegments(dir).headMap(tailSegment).entrySet()) {
+            if (config.isArchiveSegments()) {
+                Files.createDirectories(archiveDir);
+                Files.move(entry.getValue(), archiveDir.resolve(entry.getValue().getFileName()),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                if (blobs != null) {
+                    blobs.releaseSegment(entry.getValue());
+                }
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+        synchronized (this) {
+            firstSegment = Math.max(firstSegment, tailSegment);
+        }
+    }
+
+    /** Keeps the owner lock past {@link #close()} until {@code work}, the rest of a compaction, is done. */
+    synchronized void track(CompletableFuture<?> work) {
+        background = CompletableFuture.allOf(background, work);
+    }
+
+    /**
+     * Closes the current segment. The owner lock, if held, is let go once
+     * any compaction still writing the snapshot or dropping segments ends.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+        if (owner != null) {
+            FileChannel lock = owner;
+            background.whenComplete((result, failure) -> {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to release owner lock of {}", dir, e);
+                }
+            });
+        }
+    }
+}
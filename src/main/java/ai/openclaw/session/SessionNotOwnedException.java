@@ -0,0 +1,12 @@
+package ai.openclaw.session;
+
+/**
+ * A write to a session whose log another cluster node holds open. Nothing
+ * was recorded; the write can be retried once the session has moved to
+ * this node, or sent to the node that holds it.
+ */
+public class SessionNotOwnedException extends RuntimeException {
+    public SessionNotOwnedException(String sessionId) {
+        super("Session " + sessionId + " is held by another node");
+    }
+}
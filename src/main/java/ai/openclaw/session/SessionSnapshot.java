@@ -0,0 +1,112 @@
+package ai.openclaw.session;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compacted state of a session log: session metadata plus the messages that
+ * replace every segment numbered below {@code tailSegment}. Reloading a session
+ * reads this record and then replays segments from {@code tailSegment} onward.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionSnapshot {
+    private String id;
+    private String channelType;
+    private String userId;
+    private Instant createdAt;
+    private Instant lastActiveAt;
+    private int tailSegment;
+    private List<Message> messages = new ArrayList<>();
+
+    public SessionSnapshot() {
+    }
+
+    static SessionSnapshot of(Session session, List<Message> messages, int tailSegment) {
+        SessionSnapshot snapshot = new SessionSnapshot();
+        snapshot.id = session.getId();
+        snapshot.channelType = session.getChannelType();
+        snapshot.userId = session.getUserId();
+        snapshot.createdAt = session.getCreatedAt();
+        snapshot.lastActiveAt = session.getLastActiveAt();
+        snapshot.tailSegment = tailSegment;
+        snapshot.messages = messages;
+        return snapshot;
+    }
+
+    /** Rebuilds the session this snapshot describes, with the given history. */
+    Session restore(String fallbackId, List<Message> history) {
+        Session session = new Session();
+        session.setId(id != null ? id : fallbackId);
+        session.setChannelType(channelType);
+        session.setUserId(userId);
+        session.setCreatedAt(createdAt);
+        session.setMessages(history);
+        Instant lastActive = lastActiveAt;
+        if (!history.isEmpty() && history.get(history.size() - 1).getTimestamp() != null) {
+            lastActive = history.get(history.size() - 1).getTimestamp();
+        }
+        session.setLastActiveAt(lastActive);
+        return session;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getChannelType() {
+        return channelType;
+    }
+
+    public void setChannelType(String channelType) {
+        this.channelType = channelType;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getLastActiveAt() {
+        return lastActiveAt;
+    }
+
+    public void setLastActiveAt(Instant lastActiveAt) {
+        this.lastActiveAt = lastActiveAt;
+    }
+
+    public int getTailSegment() {
+        return tailSegment;
+    }
+
+    public void setTailSegment(int tailSegment) {
+        this.tailSegment = tailSegment;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+}
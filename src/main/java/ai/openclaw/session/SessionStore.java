@@ -1,32 +1,124 @@
 package ai.openclaw.session;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.search.SearchHit;
+import ai.openclaw.session.search.SearchQuery;
+import ai.openclaw.session.search.SessionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-public class SessionStore {
+/**
+ * In-memory registry of sessions in front of a pluggable {@link SessionBackend}.
+ * Sessions are loaded from the backend on first access and every appended
+ * message is persisted and, when search is enabled, indexed. A background
+ * {@link SessionSweeper} evicts idle sessions and expires stored ones
+ * according to the configured TTL policies.
+ * <p>
+ * Cluster nodes share one sessions directory. Each keeps its search index
+ * and content blobs apart under {@code .nodes/<nodeId>/}, holds a session's
+ * log open only while that session is its own (see
+ * {@link SessionNotOwnedException}), and expires only the stored sessions
+ * {@link #setOwnership} selects.
+ */
+public class SessionStore implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+    static final String NODES_DIR = ".nodes";
     private final Map<String, Session> sessions = new ConcurrentHashMap<>();
-    private final ObjectMapper mapper = Json.mapper();
-    private final Path sessionsDir;
+    private final SessionBackend backend;
+    private final SessionIndex index;
+    private final SessionSweeper sweeper;
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sweeps = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "session-sweeper");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-maintenance");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
 
     public SessionStore() {
-        this.sessionsDir = Paths.get(System.getProperty("user.home"), ".openclaw-java", "sessions");
+        this(new OpenClawConfig.SessionConfig());
+    }
+
+    public SessionStore(OpenClawConfig.SessionConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * A store for cluster node {@code nodeId}, sharing the configured
+     * directory with the other nodes; null {@code nodeId} for a gateway on
+     * its own.
+     */
+    public SessionStore(OpenClawConfig.SessionConfig config, String nodeId) {
+        this(config.getDirectory() != null
+                ? Paths.get(config.getDirectory())
+                : Paths.get(System.getProperty("user.home"), ".openclaw-java", "sessions"), config, nodeId);
+    }
+
+    public SessionStore(Path sessionsDir, OpenClawConfig.SessionConfig config) {
+        this(sessionsDir, config, null);
+    }
+
+    public SessionStore(Path sessionsDir, OpenClawConfig.SessionConfig config, String nodeId) {
         try {
             Files.createDirectories(sessionsDir);
         } catch (IOException e) {
             logger.error("Failed to create sessions directory", e);
         }
+        String node = nodeId != null ? nodeName(nodeId) : null;
+        this.backend = SessionBackendProvider.find(config.getBackend()).create(sessionsDir, config, node);
+        Path indexDir = node != null
+                ? sessionsDir.resolve(NODES_DIR).resolve(node).resolve("index")
+                : sessionsDir.resolve(".index");
+        this.index = config.isSearchEnabled()
+                ? new SessionIndex(indexDir, config.getSearchFlushThreshold(), maintenance)
+                : null;
+        if (index != null && !index.wasShutDownCleanly()) {
+            reindexUnflushed();
+        }
+        this.sweeper = new SessionSweeper(sessions, backend, config);
+        if (config.getSweepIntervalSeconds() > 0) {
+            sweeps.scheduleWithFixedDelay(this::runSweep, config.getSweepIntervalSeconds(),
+                    config.getSweepIntervalSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /** A node id as a directory name: anything but letters, digits, '-' and '_' becomes '_'. */
+    static String nodeName(String nodeId) {
+        return nodeId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Limits TTL expiry of stored sessions to those {@code owned} selects, so
+     * a cluster node leaves the sessions other nodes serve alone. Sessions in
+     * memory are evicted as before.
+     */
+    public void setOwnership(Predicate<String> owned) {
+        sweeper.setOwnership(owned);
     }
 
     public Session createSession(String channelType, String userId) {
@@ -35,25 +127,348 @@ public class SessionStore {
         return session;
     }
 
+    /**
+     * Returns the session, reloading it from the backend if it is not already in
+     * memory. Returns null if the session is unknown.
+     */
     public Session getSession(String sessionId) {
-        return sessions.get(sessionId);
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            return session;
+        }
+        return sessions.computeIfAbsent(sessionId, this::loadSession);
     }
 
+    /**
+     * Persists and adds a message to a session; does nothing for an unknown
+     * session.
+     *
+     * @throws SessionNotOwnedException when another cluster node holds the
+     *         session, in which case the message is not added
+     */
     public void appendMessage(String sessionId, Message message) {
-        Session session = sessions.get(sessionId);
-        if (session != null) {
+        Session session = getSession(sessionId);
+        if (session == null) {
+            return;
+        }
+        boolean compact = false;
+        synchronized (session) {
+            try {
+                compact = backend.append(session, message);
+            } catch (IOException e) {
+                logger.error("Failed to persist message for session " + sessionId, e);
+            }
             session.addMessage(message);
-            persistTurn(session, message);
+            int ordinal = session.getMessageCount() - 1;
+            if (!listeners.isEmpty()) {
+                publish(SessionEvent.message(sessionId, ordinal, message));
+            }
+            // Under the session lock, so a compaction's reset cannot slip in between
+            if (index != null) {
+                index.add(session, ordinal, message);
+            }
+        }
+        if (compact) {
+            compact(sessionId);
+        }
+    }
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Delivers an event to every listener; a failing listener does not stop the others. */
+    public void publish(SessionEvent event) {
+        for (SessionListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                logger.warn("Session listener failed on {} event", event.getType(), e);
+            }
+        }
+    }
+
+    /**
+     * Runs a ranked keyword query over every indexed message. Snippets come
+     * from the in-memory history when the session is loaded and otherwise
+     * from a one-message page read from the backend, so a query never loads
+     * an evicted session back into memory.
+     */
+    public List<SearchHit> search(SearchQuery query) {
+        if (index == null) {
+            throw new IllegalStateException("Session search is disabled");
+        }
+        List<SearchHit> hits = index.search(query);
+        for (Iterator<SearchHit> it = hits.iterator(); it.hasNext(); ) {
+            SearchHit hit = it.next();
+            Message message;
+            Session session = sessions.get(hit.getSessionId());
+            if (session != null) {
+                List<Message> messages = session.getMessages();
+                message = hit.getMessageIndex() < messages.size() ? messages.get(hit.getMessageIndex()) : null;
+            } else {
+                HistoryRequest request = new HistoryRequest(hit.getSessionId());
+                request.setOffset(hit.getMessageIndex());
+                request.setLimit(1);
+                HistoryPage page;
+                try {
+                    page = backend.readPage(request);
+                } catch (IOException e) {
+                    logger.warn("Failed to read search hit from session {}", hit.getSessionId(), e);
+                    continue;
+                }
+                if (page == null) {
+                    // Expired since it was indexed
+                    it.remove();
+                    continue;
+                }
+                message = page.getMessages().isEmpty() ? null : page.getMessages().get(0);
+            }
+            if (message != null) {
+                hit.setSnippet(snippet(message));
+            }
+        }
+        return hits;
+    }
+
+    private static String snippet(Message message) {
+        String text = message.getContent();
+        if (text == null && message.getContentBlocks() != null) {
+            text = message.getContentBlocks().toString();
+        }
+        if (text == null) {
+            return null;
+        }
+        return text.length() > 200 ? text.substring(0, 200) + "…" : text;
+    }
+
+    /**
+     * Folds the session's current history into a snapshot so reload no longer
+     * replays the sealed segments. Equivalent to {@code compact(sessionId, null)}.
+     */
+    public CompletableFuture<Void> compact(String sessionId) {
+        return compact(sessionId, null);
+    }
+
+    /**
+     * Compacts a session. If {@code replacement} is non-null it becomes the
+     * session's history both in memory and on disk; otherwise the current
+     * history is persisted as-is. Context compaction goes through
+     * {@link #compactPrefix}, which keeps messages appended meanwhile.
+     * <p>
+     * Only the in-memory swap and the backend's ordering-sensitive step (a
+     * segment rotation for JSONL) happen on the caller's thread; the rest runs
+     * on the background maintenance thread, so concurrent appends are not held
+     * up by compaction I/O.
+     *
+     * @throws SessionNotOwnedException when another cluster node holds the session
+     */
+    public CompletableFuture<Void> compact(String sessionId, List<Message> replacement) {
+        Session session = getSession(sessionId);
+        if (session == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (session) {
+            return compact(session, replacement);
         }
     }
 
-    private void persistTurn(Session session, Message message) {
-        Path filePath = sessionsDir.resolve(session.getId() + ".jsonl");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile(), true))) {
-            writer.write(mapper.writeValueAsString(message));
-            writer.newLine();
+    /**
+     * Replaces the start of a session's history, {@code prefix} as the caller
+     * read it, with {@code summary} and compacts the session onto the result,
+     * so the snapshot and every reload hold the summary rather than what it
+     * stands for. Messages appended after {@code prefix} are kept. Does
+     * nothing when the history no longer starts with {@code prefix}, i.e.
+     * another compaction replaced it first.
+     *
+     * @throws SessionNotOwnedException when another cluster node holds the session
+     */
+    public CompletableFuture<Void> compactPrefix(String sessionId, List<Message> prefix, List<Message> summary) {
+        Session session = getSession(sessionId);
+        if (session == null || prefix.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (session) {
+            List<Message> history = session.getMessages();
+            int count = prefix.size();
+            // Messages are never copied, so identity tells whether the prefix is still in place
+            if (history.size() < count || history.get(count - 1) != prefix.get(count - 1)) {
+                logger.debug("History of session {} was replaced meanwhile, not compacting", sessionId);
+                return CompletableFuture.completedFuture(null);
+            }
+            List<Message> replacement = new ArrayList<>(summary.size() + history.size() - count);
+            replacement.addAll(summary);
+            replacement.addAll(history.subList(count, history.size()));
+            return compact(session, replacement);
+        }
+    }
+
+    private CompletableFuture<Void> compact(Session session, List<Message> replacement) {
+        List<Message> history = replacement != null ? List.copyOf(replacement) : session.getMessages();
+        CompletableFuture<Void> compacted;
+        try {
+            // First, so a session held by another node is left as it was
+            compacted = backend.compact(session, history, maintenance);
+        } catch (IOException e) {
+            logger.error("Failed to compact session " + session.getId(), e);
+            compacted = CompletableFuture.failedFuture(e);
+        }
+        if (replacement != null) {
+            session.setMessages(history);
+            // The old ordinals now point at other messages, or past the end
+            if (index != null) {
+                index.reset(session, session.getMessages());
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Reads persisted messages of a session with timestamps in
+     * {@code [from, to)}, using the backend's time index where it has one.
+     */
+    public List<Message> readRange(String sessionId, Instant from, Instant to) throws IOException {
+        return backend.readRange(sessionId, from, to);
+    }
+
+    /**
+     * Returns one page of a session's history, or null if the session is
+     * unknown. A session already in memory is paged from its history snapshot;
+     * otherwise the page is read from the backend without loading the session.
+     */
+    public HistoryPage history(HistoryRequest request) throws IOException {
+        Session session = sessions.get(request.getSessionId());
+        if (session != null) {
+            return HistoryPage.slice(request, session.getMessages());
+        }
+        return backend.readPage(request);
+    }
+
+    /**
+     * Drops the in-memory copies of the sessions {@code filter} selects, the
+     * way an idle sweep does; they are reloaded from the backend on next use.
+     * Sessions without messages have nothing persisted and are kept.
+     *
+     * @return the number of sessions dropped
+     */
+    public int evict(Predicate<String> filter) {
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (session.getMessageCount() == 0 || !filter.test(session.getId())) {
+                continue;
+            }
+            synchronized (session) {
+                backend.release(session.getId());
+                if (sessions.remove(session.getId(), session)) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /** In-memory sessions, largest estimated heap first. */
+    public List<SessionUsage> usage() {
+        List<SessionUsage> usage = new ArrayList<>(sessions.size());
+        for (Session session : sessions.values()) {
+            usage.add(new SessionUsage(session.getId(), session.getMessageCount(), session.getTokenCount(),
+                    session.getEstimatedBytes(), session.getLastActiveAt()));
+        }
+        usage.sort(Comparator.comparingLong(SessionUsage::estimatedBytes).reversed());
+        return usage;
+    }
+
+    /** Files the backend holds open, or -1 if it does not keep count. */
+    public int openFiles() {
+        return backend.openFiles();
+    }
+
+    /** Applies the TTL policies as of {@code now}; the background sweeper calls this periodically. */
+    SessionSweeper.Result sweep(Instant now) throws InterruptedException {
+        return sweeper.sweep(now);
+    }
+
+    private void runSweep() {
+        try {
+            sweep(Instant.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Session sweep failed", e);
+        }
+    }
+
+    /**
+     * Indexes the persisted messages the search index does not cover, which
+     * after a crash are those that were still in its in-memory tail. Runs
+     * before the store is in use, paging through each session rather than
+     * loading it.
+     */
+    private void reindexUnflushed() {
+        Map<String, Integer> indexedThrough = index.indexedThrough();
+        int sessionsIndexed = 0;
+        int messagesIndexed = 0;
+        try {
+            for (String sessionId : backend.list()) {
+                SessionSnapshot metadata = backend.describe(sessionId);
+                if (metadata == null) {
+                    continue;
+                }
+                Session session = metadata.restore(sessionId, List.of());
+                HistoryRequest request = new HistoryRequest(sessionId);
+                request.setOffset(indexedThrough.getOrDefault(sessionId, -1) + 1);
+                request.setLimit(HistoryRequest.MAX_LIMIT);
+                int before = messagesIndexed;
+                HistoryPage page;
+                while ((page = backend.readPage(request)) != null && !page.getMessages().isEmpty()) {
+                    for (int i = 0; i < page.getMessages().size(); i++) {
+                        index.add(session, page.getOffset() + i, page.getMessages().get(i));
+                    }
+                    messagesIndexed += page.getMessages().size();
+                    if (page.getNextOffset() == null) {
+                        break;
+                    }
+                    request.setOffset(page.getNextOffset());
+                }
+                if (messagesIndexed > before) {
+                    sessionsIndexed++;
+                }
+            }
         } catch (IOException e) {
-            logger.error("Failed to persist message for session " + session.getId(), e);
+            logger.error("Failed to re-index sessions after an unclean shutdown", e);
+        }
+        if (messagesIndexed > 0) {
+            logger.info("Re-indexed {} messages in {} sessions missing from the search index",
+                    messagesIndexed, sessionsIndexed);
+        }
+    }
+
+    private Session loadSession(String sessionId) {
+        try {
+            return backend.load(sessionId);
+        } catch (IOException e) {
+            logger.error("Failed to load session " + sessionId, e);
+            return null;
+        }
+    }
+
+    /** Stops the sweeper, waits for queued compactions, flushes the search index and closes the backend. */
+    @Override
+    public void close() {
+        sweeps.shutdownNow();
+        if (index != null) {
+            index.close();
+        }
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        backend.close();
     }
 }
@@ -0,0 +1,166 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Applies the per-channel TTL policies. A sweep first evicts idle sessions
+ * from memory, then walks the backend's stored sessions in batches and
+ * archives or deletes the expired ones. Work on stored sessions is paced to
+ * {@code sweepSessionsPerSecond} so a sweep over a large directory trickles
+ * along instead of competing with live turns for disk.
+ * <p>
+ * A stored session is only removed while it is absent from memory, inside a
+ * {@code compute} on the session map, so it cannot be loaded concurrently.
+ * On a cluster node only the stored sessions the node owns are expired, and
+ * one whose log another node holds open is skipped.
+ */
+class SessionSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(SessionSweeper.class);
+    private static final OpenClawConfig.TtlPolicy DEFAULT_POLICY = new OpenClawConfig.TtlPolicy();
+
+    private final Map<String, Session> sessions;
+    private final SessionBackend backend;
+    private final OpenClawConfig.SessionConfig config;
+    private volatile Predicate<String> owned = id -> true;
+
+    /** What one sweep did. */
+    static class Result {
+        int evicted;
+        int expired;
+    }
+
+    SessionSweeper(Map<String, Session> sessions, SessionBackend backend, OpenClawConfig.SessionConfig config) {
+        this.sessions = sessions;
+        this.backend = backend;
+        this.config = config;
+    }
+
+    void setOwnership(Predicate<String> owned) {
+        this.owned = owned;
+    }
+
+    Result sweep(Instant now) throws InterruptedException {
+        Result result = new Result();
+        evictIdle(now, result);
+        expireStored(now, result);
+        if (result.evicted > 0 || result.expired > 0) {
+            logger.info("Session sweep evicted {} and expired {} sessions", result.evicted, result.expired);
+        }
+        return result;
+    }
+
+    /**
+     * Drops in-memory sessions past their eviction age. Sessions without
+     * messages have nothing persisted, so they are only dropped once expired.
+     */
+    private void evictIdle(Instant now, Result result) {
+        for (Session session : sessions.values()) {
+            OpenClawConfig.TtlPolicy policy = policyFor(session.getChannelType());
+            Instant lastActive = session.getLastActiveAt() != null ? session.getLastActiveAt() : session.getCreatedAt();
+            boolean expired = isPast(lastActive, policy.getExpireAfterMinutes(), now);
+            boolean idle = session.getMessageCount() > 0 && isPast(lastActive, policy.getEvictAfterMinutes(), now);
+            if (!expired && !idle) {
+                continue;
+            }
+            // Under the session lock, so no append or compaction is mid-way through the backend
+            synchronized (session) {
+                backend.release(session.getId());
+                if (sessions.remove(session.getId(), session)) {
+                    result.evicted++;
+                }
+            }
+        }
+    }
+
+    private void expireStored(Instant now, Result result) throws InterruptedException {
+        List<String> ids;
+        try {
+            ids = backend.list();
+        } catch (IOException e) {
+            logger.warn("Failed to list stored sessions", e);
+            return;
+        }
+        int batchSize = Math.max(1, config.getSweepBatchSize());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            long batchStart = System.nanoTime();
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            for (String id : batch) {
+                if (!sessions.containsKey(id) && owned.test(id)) {
+                    expireIfDue(id, now, result);
+                }
+            }
+            pace(batch.size(), batchStart);
+        }
+    }
+
+    private void expireIfDue(String id, Instant now, Result result) {
+        SessionSnapshot metadata;
+        try {
+            metadata = backend.describe(id);
+        } catch (IOException e) {
+            logger.warn("Failed to read metadata of session {}", id, e);
+            return;
+        }
+        if (metadata == null) {
+            return;
+        }
+        OpenClawConfig.TtlPolicy policy = policyFor(metadata.getChannelType());
+        Instant lastActive = metadata.getLastActiveAt() != null ? metadata.getLastActiveAt() : metadata.getCreatedAt();
+        if (!isPast(lastActive, policy.getExpireAfterMinutes(), now)) {
+            return;
+        }
+        sessions.compute(id, (key, live) -> {
+            if (live != null) {
+                return live;
+            }
+            try {
+                backend.delete(key, policy.isArchive());
+                result.expired++;
+            } catch (IOException e) {
+                logger.warn("Failed to expire session {}", key, e);
+            } catch (SessionNotOwnedException e) {
+                logger.debug("Not expiring session {}: {}", key, e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /** Sleeps off whatever is left of the time budget for {@code sessionsDone} at the configured rate. */
+    private void pace(int sessionsDone, long startNanos) throws InterruptedException {
+        int rate = config.getSweepSessionsPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+        long budgetNanos = sessionsDone * 1_000_000_000L / rate;
+        long remaining = budgetNanos - (System.nanoTime() - startNanos);
+        if (remaining > 0) {
+            Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+        }
+    }
+
+    private OpenClawConfig.TtlPolicy policyFor(String channelType) {
+        Map<String, OpenClawConfig.TtlPolicy> ttl = config.getTtl();
+        if (ttl == null) {
+            return DEFAULT_POLICY;
+        }
+        OpenClawConfig.TtlPolicy policy = channelType != null ? ttl.get(channelType) : null;
+        if (policy == null) {
+            policy = ttl.get("default");
+        }
+        return policy != null ? policy : DEFAULT_POLICY;
+    }
+
+    private static boolean isPast(Instant lastActive, long minutes, Instant now) {
+        return minutes > 0 && lastActive != null
+                && Duration.between(lastActive, now).toMinutes() >= minutes;
+    }
+}
@@ -0,0 +1,11 @@
+package ai.openclaw.session;
+
+import java.time.Instant;
+
+/**
+ * What one in-memory session holds, for diagnostics; see
+ * {@link SessionStore#usage()}. {@code estimatedBytes} is
+ * {@link Session#getEstimatedBytes()}, not a heap measurement.
+ */
+public record SessionUsage(String sessionId, int messages, long tokens, long estimatedBytes, Instant lastActiveAt) {
+}
@@ -0,0 +1,93 @@
+package ai.openclaw.session;
+
+/**
+ * Fast local approximation of the model's token count, for context budgeting
+ * where an exact count would cost a network round trip. One pass over the
+ * characters with no allocation:
+ * <ul>
+ *   <li>a run of ASCII letters up to six long is one token (common words are
+ *       single tokens); a longer one is one token per five characters;</li>
+ *   <li>a run of digits is one token per three characters;</li>
+ *   <li>a single space is folded into the next token; any other run of
+ *       whitespace (newlines, indentation) is one token;</li>
+ *   <li>other ASCII characters (punctuation, symbols) are a token each;</li>
+ *   <li>CJK characters and characters outside the BMP are a token each, and
+ *       other non-ASCII letters one token per two characters.</li>
+ * </ul>
+ * The estimate is deliberately simple; {@code AgentExecutor} corrects for its
+ * systematic error against the {@code usage} the API reports, and the
+ * calibration harness next to the JMH benchmarks measures it offline.
+ */
+public final class TokenEstimator {
+    /** Framing per message: role markers and separators. */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int tokens = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            int start = i;
+            if (isAsciiLetter(c)) {
+                do {
+                    i++;
+                } while (i < n && isAsciiLetter(text.charAt(i)));
+                int length = i - start;
+                tokens += length <= 6 ? 1 : (length + 4) / 5;
+            } else if (c >= '0' && c <= '9') {
+                do {
+                    i++;
+                } while (i < n && text.charAt(i) >= '0' && text.charAt(i) <= '9');
+                tokens += (i - start + 2) / 3;
+            } else if (c == ' ' || c == '\n' || c == '\t' || c == '\r') {
+                do {
+                    i++;
+                } while (i < n && isWhitespace(text.charAt(i)));
+                if (i - start > 1 || c != ' ') {
+                    tokens++;
+                }
+            } else if (c < 0x80) {
+                tokens++;
+                i++;
+            } else if (Character.isHighSurrogate(c) || isCjk(c)) {
+                tokens++;
+                i += Character.isHighSurrogate(c) && i + 1 < n ? 2 : 1;
+            } else {
+                do {
+                    i++;
+                } while (i < n && text.charAt(i) >= 0x80 && !isCjk(text.charAt(i))
+                        && !Character.isHighSurrogate(text.charAt(i)));
+                tokens += (i - start + 1) >> 1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Tokens for a message's content, its content blocks as sent to the API, and framing. */
+    public static int estimate(Message message) {
+        int tokens = MESSAGE_OVERHEAD + estimate(message.getContent());
+        if (message.getContentBlocks() != null) {
+            tokens += estimate(message.getContentBlocks().toString());
+        }
+        return tokens;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x2E80 && c <= 0x9FFF) || (c >= 0xAC00 && c <= 0xD7AF) || (c >= 0xF900 && c <= 0xFAFF);
+    }
+}
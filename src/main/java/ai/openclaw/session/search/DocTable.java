@@ -0,0 +1,158 @@
+package ai.openclaw.session.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Column-oriented per-document metadata for an index segment. Document ids are
+ * dense and assigned in insertion order; repeated strings (session ids, users,
+ * channels, roles) are interned so a million messages from a few thousand
+ * sessions cost a few arrays, not a million objects.
+ */
+final class DocTable {
+    private final Map<String, String> interned = new HashMap<>();
+    String[] sessionIds;
+    String[] userIds;
+    String[] channelTypes;
+    String[] roles;
+    long[] timestamps;
+    int[] ordinals;
+    int[] lengths;
+    int size;
+    long totalLength;
+
+    DocTable(int capacity) {
+        capacity = Math.max(capacity, 16);
+        sessionIds = new String[capacity];
+        userIds = new String[capacity];
+        channelTypes = new String[capacity];
+        roles = new String[capacity];
+        timestamps = new long[capacity];
+        ordinals = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    private DocTable(DocTable other) {
+        sessionIds = other.sessionIds;
+        userIds = other.userIds;
+        channelTypes = other.channelTypes;
+        roles = other.roles;
+        timestamps = other.timestamps;
+        ordinals = other.ordinals;
+        lengths = other.lengths;
+        size = other.size;
+        totalLength = other.totalLength;
+    }
+
+    /**
+     * The documents added so far, sharing this table's arrays: later adds
+     * write past the view's size or into grown copies, so the view never
+     * changes. Must not be added to.
+     */
+    DocTable view() {
+        return new DocTable(this);
+    }
+
+    int add(String sessionId, String userId, String channelType, String role, long timestamp, int ordinal,
+            int length) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        int doc = size++;
+        sessionIds[doc] = intern(sessionId);
+        userIds[doc] = intern(userId);
+        channelTypes[doc] = intern(channelType);
+        roles[doc] = intern(role);
+        timestamps[doc] = timestamp;
+        ordinals[doc] = ordinal;
+        lengths[doc] = length;
+        totalLength += length;
+        return doc;
+    }
+
+    /**
+     * Appends the documents of {@code other} that {@code keep} accepts,
+     * returning each one's new id, or -1 for those left out.
+     */
+    int[] addAll(DocTable other, IntPredicate keep) {
+        int[] ids = new int[other.size];
+        for (int i = 0; i < other.size; i++) {
+            ids[i] = keep.test(i)
+                    ? add(other.sessionIds[i], other.userIds[i], other.channelTypes[i], other.roles[i],
+                            other.timestamps[i], other.ordinals[i], other.lengths[i])
+                    : -1;
+        }
+        return ids;
+    }
+
+    boolean matches(int doc, SearchQuery query) {
+        if (query.getUserId() != null && !query.getUserId().equals(userIds[doc])) {
+            return false;
+        }
+        if (query.getChannelType() != null && !query.getChannelType().equals(channelTypes[doc])) {
+            return false;
+        }
+        if (query.getSessionId() != null && !query.getSessionId().equals(sessionIds[doc])) {
+            return false;
+        }
+        if (query.getFrom() != null && timestamps[doc] < query.getFrom().toEpochMilli()) {
+            return false;
+        }
+        return query.getTo() == null || timestamps[doc] < query.getTo().toEpochMilli();
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        return interned.computeIfAbsent(value, v -> v);
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        sessionIds = Arrays.copyOf(sessionIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        channelTypes = Arrays.copyOf(channelTypes, capacity);
+        roles = Arrays.copyOf(roles, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        ordinals = Arrays.copyOf(ordinals, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            writeNullable(out, sessionIds[i]);
+            writeNullable(out, userIds[i]);
+            writeNullable(out, channelTypes[i]);
+            writeNullable(out, roles[i]);
+            out.writeLong(timestamps[i]);
+            out.writeInt(ordinals[i]);
+            out.writeInt(lengths[i]);
+        }
+    }
+
+    static DocTable read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        DocTable table = new DocTable(count);
+        for (int i = 0; i < count; i++) {
+            table.add(readNullable(in), readNullable(in), readNullable(in), readNullable(in),
+                    in.readLong(), in.readInt(), in.readInt());
+        }
+        return table;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeUTF(value != null ? value : "");
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,242 @@
+package ai.openclaw.session.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * One segment of the inverted index. A segment starts out mutable (the
+ * in-memory tail that receives new messages) and is frozen when flushed:
+ * frozen postings are delta + varint encoded byte arrays, roughly 2-3 bytes
+ * per posting instead of the 8 bytes of the mutable int pairs.
+ */
+final class IndexSegment {
+    private static final int MAGIC = 0x4f434958; // "OCIX"
+    private static final int VERSION = 1;
+
+    @FunctionalInterface
+    interface PostingVisitor {
+        void visit(int doc, int termFrequency);
+    }
+
+    final DocTable docs;
+    private final Map<String, IntPairs> mutablePostings;
+    private final Map<String, byte[]> frozenPostings;
+    private final Map<String, Integer> frozenDocFreq;
+
+    private IndexSegment(DocTable docs, Map<String, IntPairs> mutablePostings,
+            Map<String, byte[]> frozenPostings, Map<String, Integer> frozenDocFreq) {
+        this.docs = docs;
+        this.mutablePostings = mutablePostings;
+        this.frozenPostings = frozenPostings;
+        this.frozenDocFreq = frozenDocFreq;
+    }
+
+    static IndexSegment mutable() {
+        return new IndexSegment(new DocTable(1024), new HashMap<>(), null, null);
+    }
+
+    boolean isFrozen() {
+        return frozenPostings != null;
+    }
+
+    int docCount() {
+        return docs.size;
+    }
+
+    /** Adds a document to a mutable segment. {@code termCounts} maps each distinct term to its frequency. */
+    void add(String sessionId, String userId, String channelType, String role, long timestamp, int ordinal,
+            Map<String, Integer> termCounts, int length) {
+        int doc = docs.add(sessionId, userId, channelType, role, timestamp, ordinal, length);
+        for (var entry : termCounts.entrySet()) {
+            mutablePostings.computeIfAbsent(entry.getKey(), t -> new IntPairs()).add(doc, entry.getValue());
+        }
+    }
+
+    int docFreq(String term) {
+        if (isFrozen()) {
+            Integer df = frozenDocFreq.get(term);
+            return df != null ? df : 0;
+        }
+        IntPairs pairs = mutablePostings.get(term);
+        return pairs != null ? pairs.size : 0;
+    }
+
+    void forEachPosting(String term, PostingVisitor visitor) {
+        if (isFrozen()) {
+            byte[] data = frozenPostings.get(term);
+            if (data == null) {
+                return;
+            }
+            int[] pos = { 0 };
+            int doc = 0;
+            while (pos[0] < data.length) {
+                doc += readVarint(data, pos);
+                visitor.visit(doc, readVarint(data, pos));
+            }
+            return;
+        }
+        IntPairs pairs = mutablePostings.get(term);
+        if (pairs != null) {
+            for (int i = 0; i < pairs.size; i++) {
+                visitor.visit(pairs.data[2 * i], pairs.data[2 * i + 1]);
+            }
+        }
+    }
+
+    /** Encodes this segment's postings, producing an immutable copy. */
+    IndexSegment freeze() {
+        if (isFrozen()) {
+            return this;
+        }
+        Map<String, byte[]> encoded = new HashMap<>(mutablePostings.size() * 2);
+        Map<String, Integer> docFreq = new HashMap<>(mutablePostings.size() * 2);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        for (var entry : mutablePostings.entrySet()) {
+            buf.reset();
+            IntPairs pairs = entry.getValue();
+            int last = 0;
+            for (int i = 0; i < pairs.size; i++) {
+                writeVarint(buf, pairs.data[2 * i] - last);
+                writeVarint(buf, pairs.data[2 * i + 1]);
+                last = pairs.data[2 * i];
+            }
+            encoded.put(entry.getKey(), buf.toByteArray());
+            docFreq.put(entry.getKey(), pairs.size);
+        }
+        return new IndexSegment(docs, null, encoded, docFreq);
+    }
+
+    /**
+     * A frozen view of a mutable segment restricted to {@code terms}, which
+     * later adds do not change: the documents added so far and a copy of
+     * those terms' postings. Costs O(postings of the terms), not O(segment).
+     * Frozen segments are returned as they are.
+     */
+    IndexSegment snapshot(Collection<String> terms) {
+        if (isFrozen()) {
+            return this;
+        }
+        Map<String, IntPairs> postings = new HashMap<>();
+        for (String term : terms) {
+            IntPairs pairs = mutablePostings.get(term);
+            if (pairs != null) {
+                postings.put(term, pairs.copy());
+            }
+        }
+        return new IndexSegment(docs.view(), postings, null, null);
+    }
+
+    /**
+     * Concatenates frozen segments into one, renumbering documents and
+     * leaving out those {@code live} rejects; {@code live.get(i)} tests the
+     * doc ids of {@code segments.get(i)}.
+     */
+    static IndexSegment merge(List<IndexSegment> segments, List<IntPredicate> live) {
+        int total = segments.stream().mapToInt(IndexSegment::docCount).sum();
+        IndexSegment merged = new IndexSegment(new DocTable(total), new HashMap<>(), null, null);
+        for (int i = 0; i < segments.size(); i++) {
+            IndexSegment segment = segments.get(i);
+            int[] newIds = merged.docs.addAll(segment.docs, live.get(i));
+            for (String term : segment.frozenPostings.keySet()) {
+                segment.forEachPosting(term, (doc, tf) -> {
+                    if (newIds[doc] >= 0) {
+                        merged.mutablePostings.computeIfAbsent(term, t -> new IntPairs()).add(newIds[doc], tf);
+                    }
+                });
+            }
+        }
+        return merged.freeze();
+    }
+
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            docs.write(out);
+            out.writeInt(frozenPostings.size());
+            for (var entry : frozenPostings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(frozenDocFreq.get(entry.getKey()));
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static IndexSegment read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an index segment: " + file);
+            }
+            DocTable docs = DocTable.read(in);
+            int terms = in.readInt();
+            Map<String, byte[]> postings = new HashMap<>(terms * 2);
+            Map<String, Integer> docFreq = new HashMap<>(terms * 2);
+            for (int i = 0; i < terms; i++) {
+                String term = in.readUTF();
+                docFreq.put(term, in.readInt());
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                postings.put(term, data);
+            }
+            return new IndexSegment(docs, null, postings, docFreq);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /** Growable array of (doc, tf) pairs. */
+    private static final class IntPairs {
+        int[] data = new int[4];
+        int size;
+
+        void add(int doc, int tf) {
+            if (2 * size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[2 * size] = doc;
+            data[2 * size + 1] = tf;
+            size++;
+        }
+
+        IntPairs copy() {
+            IntPairs copy = new IntPairs();
+            copy.data = Arrays.copyOf(data, Math.max(2, 2 * size));
+            copy.size = size;
+            return copy;
+        }
+    }
+}
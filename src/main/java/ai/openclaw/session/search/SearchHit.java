@@ -0,0 +1,68 @@
+package ai.openclaw.session.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * A single search result: which message of which session matched, and how well.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchHit {
+    private final String sessionId;
+    private final int messageIndex;
+    private final String role;
+    private final String userId;
+    private final String channelType;
+    private final Instant timestamp;
+    private final double score;
+    private String snippet;
+
+    public SearchHit(String sessionId, int messageIndex, String role, String userId, String channelType,
+            Instant timestamp, double score) {
+        this.sessionId = sessionId;
+        this.messageIndex = messageIndex;
+        this.role = role;
+        this.userId = userId;
+        this.channelType = channelType;
+        this.timestamp = timestamp;
+        this.score = score;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /** Position of the message in the session's history. */
+    public int getMessageIndex() {
+        return messageIndex;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getChannelType() {
+        return channelType;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
@@ -0,0 +1,85 @@
+package ai.openclaw.session.search;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Instant;
+
+/**
+ * A ranked keyword query over session history. Every filter is optional;
+ * {@code from} is inclusive and {@code to} exclusive.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SearchQuery {
+    public static final int MAX_LIMIT = 100;
+
+    private String query;
+    private String userId;
+    private String channelType;
+    private String sessionId;
+    private Instant from;
+    private Instant to;
+    private int limit = 20;
+
+    public SearchQuery() {
+    }
+
+    public SearchQuery(String query) {
+        this.query = query;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getChannelType() {
+        return channelType;
+    }
+
+    public void setChannelType(String channelType) {
+        this.channelType = channelType;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
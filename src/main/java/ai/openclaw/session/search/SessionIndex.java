@@ -0,0 +1,536 @@
+package ai.openclaw.session.search;
+
+import ai.openclaw.session.Message;
+import ai.openclaw.session.Session;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incrementally maintained inverted index over session messages, ranked with
+ * BM25.
+ * <p>
+ * New messages go into a mutable in-memory tail. Once it holds
+ * {@code flushThreshold} documents it is sealed under a new segment number and
+ * handed to the {@code background} executor, which freezes it, writes it to
+ * {@code segment-NNNNNN.idx} and merges segments of the same size tier once
+ * {@value #MERGE_FACTOR} of them accumulate, so appends never pay for I/O or
+ * a merge. Queries take a read lock only long enough to pick up the segment
+ * list and a copy of the tail's postings for their terms, and score without
+ * it.
+ * <p>
+ * When a session's history is replaced, {@link #reset} marks every document
+ * it had so far as deleted: such documents are skipped by queries (though
+ * they still count towards the BM25 statistics) and dropped when their
+ * segment is next merged. The deletions are kept in {@code resets.bin}.
+ * Documents still in the tail when the process dies are lost; {@link #close()}
+ * leaves a marker behind, and without one {@link #wasShutDownCleanly()} tells
+ * the owner to re-index what {@link #indexedThrough()} does not cover.
+ */
+public class SessionIndex implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionIndex.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.idx");
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}_]{2,64}");
+    private static final String RESETS_FILE = "resets.bin";
+    private static final String CLEAN_FILE = "clean";
+    /** Segments of one size tier are merged once this many accumulate. */
+    static final int MERGE_FACTOR = 8;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Path dir;
+    private final int flushThreshold;
+    private final Executor background;
+    private final boolean cleanShutdown;
+    private final ReadWriteLock tailLock = new ReentrantReadWriteLock();
+    /** Serializes segment writes, merges and resets. */
+    private final Object flushLock = new Object();
+    private IndexSegment tail = IndexSegment.mutable();
+    private int nextNumber;
+    /**
+     * Sealed segments keyed by number, still mutable until written; replaced
+     * wholesale under the tail write lock, never mutated.
+     */
+    private volatile TreeMap<Integer, IndexSegment> sealed = new TreeMap<>();
+    /** For each reset session, the highest segment number whose documents of it are deleted. */
+    private volatile Map<String, Integer> resets = Map.of();
+
+    /** An index that flushes and merges on the thread that fills the tail. */
+    public SessionIndex(Path dir, int flushThreshold) {
+        this(dir, flushThreshold, Runnable::run);
+    }
+
+    public SessionIndex(Path dir, int flushThreshold, Executor background) {
+        this.dir = dir;
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.background = background;
+        TreeMap<Integer, IndexSegment> loaded = new TreeMap<>();
+        boolean clean = false;
+        try {
+            Files.createDirectories(dir);
+            clean = Files.deleteIfExists(dir.resolve(CLEAN_FILE));
+            try (var entries = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) entries::iterator) {
+                    Matcher m = SEGMENT_NAME.matcher(p.getFileName().toString());
+                    if (m.matches()) {
+                        loaded.put(Integer.parseInt(m.group(1)), IndexSegment.read(p));
+                    }
+                }
+            }
+            resets = readResets(dir.resolve(RESETS_FILE));
+        } catch (IOException e) {
+            logger.error("Failed to load search index from " + dir, e);
+        }
+        this.cleanShutdown = clean;
+        this.sealed = loaded;
+        this.nextNumber = loaded.isEmpty() ? 1 : loaded.lastKey() + 1;
+    }
+
+    /**
+     * False when the last process using the index did not {@link #close()} it,
+     * or the index is new, so documents may be missing.
+     */
+    public boolean wasShutDownCleanly() {
+        return cleanShutdown;
+    }
+
+    /** Indexes a message at position {@code ordinal} of the session's history. */
+    public void add(Session session, int ordinal, Message message) {
+        Map<String, Integer> termCounts = new HashMap<>();
+        int length = 0;
+        for (String term : tokenize(indexableText(message))) {
+            termCounts.merge(term, 1, Integer::sum);
+            length++;
+        }
+        if (length == 0) {
+            return;
+        }
+        long timestamp = message.getTimestamp() != null ? message.getTimestamp().toEpochMilli() : 0L;
+
+        boolean full;
+        tailLock.writeLock().lock();
+        try {
+            tail.add(session.getId(), session.getUserId(), session.getChannelType(), message.getRole(),
+                    timestamp, ordinal, termCounts, length);
+            full = tail.docCount() >= flushThreshold;
+            if (full) {
+                sealTail();
+            }
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+        if (full) {
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * Replaces the session's documents with {@code history}: everything
+     * indexed for it so far is deleted and {@code history} is indexed from
+     * ordinal 0. The caller must keep the session's appends out meanwhile.
+     */
+    public void reset(Session session, List<Message> history) {
+        synchronized (flushLock) {
+            Map<String, Integer> next = new HashMap<>(resets);
+            tailLock.writeLock().lock();
+            try {
+                // Documents indexed so far all end up in segments numbered up to here
+                sealTail();
+                next.put(session.getId(), nextNumber - 1);
+                resets = next;
+            } finally {
+                tailLock.writeLock().unlock();
+            }
+            try {
+                writeResets(next);
+            } catch (IOException e) {
+                logger.error("Failed to save search index deletions", e);
+            }
+        }
+        for (int i = 0; i < history.size(); i++) {
+            add(session, i, history.get(i));
+        }
+        scheduleWrite();
+    }
+
+    /** The highest ordinal indexed for each session, over live documents. */
+    public Map<String, Integer> indexedThrough() {
+        Map<String, Integer> through = new HashMap<>();
+        tailLock.readLock().lock();
+        try {
+            Map<String, Integer> resets = this.resets;
+            for (var entry : sealed.entrySet()) {
+                collectOrdinals(entry.getValue().docs, live(entry.getValue(), entry.getKey(), resets), through);
+            }
+            collectOrdinals(tail.docs, doc -> true, through);
+        } finally {
+            tailLock.readLock().unlock();
+        }
+        return through;
+    }
+
+    private static void collectOrdinals(DocTable docs, IntPredicate live, Map<String, Integer> through) {
+        for (int doc = 0; doc < docs.size; doc++) {
+            if (live.test(doc)) {
+                through.merge(docs.sessionIds[doc], docs.ordinals[doc], Math::max);
+            }
+        }
+    }
+
+    /** Returns the best-scoring messages for the query, highest score first. */
+    public List<SearchHit> search(SearchQuery query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query.getQuery()));
+        int limit = Math.max(1, Math.min(query.getLimit(), SearchQuery.MAX_LIMIT));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        List<IndexSegment> segments = new ArrayList<>();
+        List<IntPredicate> live = new ArrayList<>();
+        tailLock.readLock().lock();
+        try {
+            Map<String, Integer> resets = this.resets;
+            for (var entry : sealed.entrySet()) {
+                segments.add(entry.getValue());
+                live.add(live(entry.getValue(), entry.getKey(), resets));
+            }
+            segments.add(tail.snapshot(terms));
+            live.add(doc -> true);
+        } finally {
+            tailLock.readLock().unlock();
+        }
+
+        long totalDocs = 0;
+        long totalLength = 0;
+        Map<String, Integer> docFreq = new LinkedHashMap<>();
+        for (IndexSegment segment : segments) {
+            totalDocs += segment.docCount();
+            totalLength += segment.docs.totalLength;
+            for (String term : terms) {
+                docFreq.merge(term, segment.docFreq(term), Integer::sum);
+            }
+        }
+        if (totalDocs == 0) {
+            return List.of();
+        }
+        double avgLength = (double) totalLength / totalDocs;
+
+        PriorityQueue<SearchHit> top = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(SearchHit::getScore));
+        for (int i = 0; i < segments.size(); i++) {
+            scoreSegment(segments.get(i), live.get(i), terms, docFreq, totalDocs, avgLength, query, limit, top);
+        }
+        List<SearchHit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed());
+        return hits;
+    }
+
+    /** Whether a document of the segment numbered {@code number} survived the resets. */
+    private static IntPredicate live(IndexSegment segment, int number, Map<String, Integer> resets) {
+        if (resets.isEmpty()) {
+            return doc -> true;
+        }
+        String[] sessionIds = segment.docs.sessionIds;
+        return doc -> {
+            Integer deletedThrough = resets.get(sessionIds[doc]);
+            return deletedThrough == null || number > deletedThrough;
+        };
+    }
+
+    private void scoreSegment(IndexSegment segment, IntPredicate live, Set<String> terms,
+            Map<String, Integer> docFreq, long totalDocs, double avgLength, SearchQuery query, int limit,
+            PriorityQueue<SearchHit> top) {
+        DocTable docs = segment.docs;
+        Map<Integer, double[]> scores = new HashMap<>();
+        for (String term : terms) {
+            int df = docFreq.get(term);
+            if (df == 0 || segment.docFreq(term) == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (totalDocs - df + 0.5) / (df + 0.5));
+            segment.forEachPosting(term, (doc, tf) -> {
+                if (!live.test(doc) || !docs.matches(doc, query)) {
+                    return;
+                }
+                double norm = tf + K1 * (1 - B + B * docs.lengths[doc] / avgLength);
+                scores.computeIfAbsent(doc, d -> new double[1])[0] += idf * tf * (K1 + 1) / norm;
+            });
+        }
+        for (var entry : scores.entrySet()) {
+            double score = entry.getValue()[0];
+            if (top.size() == limit && top.peek().getScore() >= score) {
+                continue;
+            }
+            int doc = entry.getKey();
+            top.add(new SearchHit(docs.sessionIds[doc], docs.ordinals[doc], docs.roles[doc], docs.userIds[doc],
+                    docs.channelTypes[doc], Instant.ofEpochMilli(docs.timestamps[doc]), score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+    }
+
+    /** Seals the tail under the next segment number. Requires the tail write lock. */
+    private void sealTail() {
+        if (tail.docCount() == 0) {
+            return;
+        }
+        TreeMap<Integer, IndexSegment> next = new TreeMap<>(sealed);
+        next.put(nextNumber++, tail);
+        sealed = next;
+        tail = IndexSegment.mutable();
+    }
+
+    private void scheduleWrite() {
+        try {
+            background.execute(() -> writeSealed());
+        } catch (RejectedExecutionException e) {
+            writeSealed();
+        }
+    }
+
+    /**
+     * Seals the in-memory tail and writes every sealed segment not yet on disk.
+     *
+     * @return false if a segment could not be written
+     */
+    public boolean flush() {
+        tailLock.writeLock().lock();
+        try {
+            sealTail();
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+        return writeSealed();
+    }
+
+    /**
+     * Freezes and writes the sealed segments not yet on disk, then merges full
+     * tiers. Returns false if a segment could not be written.
+     */
+    private boolean writeSealed() {
+        synchronized (flushLock) {
+            for (var entry : sealed.entrySet()) {
+                if (entry.getValue().isFrozen()) {
+                    continue;
+                }
+                IndexSegment frozen = entry.getValue().freeze();
+                try {
+                    frozen.write(dir.resolve(segmentName(entry.getKey())));
+                } catch (IOException e) {
+                    // Stays searchable in memory; the next write retries it
+                    logger.error("Failed to write search index segment", e);
+                    return false;
+                }
+                publish(next -> next.put(entry.getKey(), frozen));
+            }
+            try {
+                mergeTiers();
+            } catch (IOException e) {
+                // The unmerged segments are all still in place
+                logger.error("Failed to merge search index segments", e);
+            }
+            return true;
+        }
+    }
+
+    private void publish(Consumer<TreeMap<Integer, IndexSegment>> change) {
+        tailLock.writeLock().lock();
+        try {
+            TreeMap<Integer, IndexSegment> next = new TreeMap<>(sealed);
+            change.accept(next);
+            sealed = next;
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges segments of the same size tier, {@value #MERGE_FACTOR} at a time,
+     * until no tier holds that many. A document is rewritten once per tier it
+     * climbs, so merging costs O(n log n) over the index's life instead of a
+     * full rewrite every few flushes.
+     */
+    private void mergeTiers() throws IOException {
+        while (true) {
+            Map<Integer, List<Integer>> tiers = new TreeMap<>();
+            for (var entry : sealed.entrySet()) {
+                if (entry.getValue().isFrozen()) {
+                    tiers.computeIfAbsent(tier(entry.getValue().docCount()), t -> new ArrayList<>())
+                            .add(entry.getKey());
+                }
+            }
+            List<Integer> full = null;
+            for (List<Integer> numbers : tiers.values()) {
+                if (numbers.size() >= MERGE_FACTOR) {
+                    full = numbers.subList(0, MERGE_FACTOR);
+                    break;
+                }
+            }
+            if (full == null) {
+                return;
+            }
+            merge(full);
+        }
+    }
+
+    /** 0 for up to {@code MERGE_FACTOR} flushes' worth of documents, 1 for up to that squared, and so on. */
+    private int tier(int docCount) {
+        int tier = 0;
+        for (long flushes = docCount / flushThreshold; flushes >= MERGE_FACTOR; flushes /= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /** Replaces the given segments with one, leaving out deleted documents. Requires the flush lock. */
+    private void merge(List<Integer> numbers) throws IOException {
+        TreeMap<Integer, IndexSegment> current = sealed;
+        Map<String, Integer> resets = this.resets;
+        List<IndexSegment> inputs = new ArrayList<>(numbers.size());
+        List<IntPredicate> live = new ArrayList<>(numbers.size());
+        for (int number : numbers) {
+            IndexSegment segment = current.get(number);
+            inputs.add(segment);
+            live.add(live(segment, number, resets));
+        }
+        IndexSegment merged = IndexSegment.merge(inputs, live);
+        int number;
+        tailLock.writeLock().lock();
+        try {
+            number = nextNumber++;
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+        if (merged.docCount() > 0) {
+            merged.write(dir.resolve(segmentName(number)));
+        }
+        publish(next -> {
+            numbers.forEach(next::remove);
+            if (merged.docCount() > 0) {
+                next.put(number, merged);
+            }
+        });
+        for (int old : numbers) {
+            Files.deleteIfExists(dir.resolve(segmentName(old)));
+        }
+        logger.info("Merged {} search index segments ({} documents)", numbers.size(), merged.docCount());
+    }
+
+    private static String segmentName(int number) {
+        return String.format("segment-%06d.idx", number);
+    }
+
+    private void writeResets(Map<String, Integer> resets) throws IOException {
+        Path file = dir.resolve(RESETS_FILE);
+        Path tmp = dir.resolve(RESETS_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(resets.size());
+            for (var entry : resets.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, Integer> readResets(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            Map<String, Integer> resets = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                resets.put(in.readUTF(), in.readInt());
+            }
+            return resets;
+        }
+    }
+
+    /** Writes out everything indexed and marks the shutdown as clean. */
+    @Override
+    public void close() {
+        if (!flush()) {
+            return;
+        }
+        try {
+            Files.write(dir.resolve(CLEAN_FILE), new byte[0]);
+        } catch (IOException e) {
+            logger.warn("Failed to mark search index as cleanly closed", e);
+        }
+    }
+
+    /** The text a message is searchable by: its content, text blocks, and tool names and inputs. */
+    static String indexableText(Message message) {
+        StringBuilder sb = new StringBuilder();
+        if (message.getContent() != null) {
+            sb.append(message.getContent());
+        }
+        JsonNode blocks = message.getContentBlocks();
+        if (blocks != null && blocks.isArray()) {
+            for (JsonNode block : blocks) {
+                if (block.has("text")) {
+                    sb.append(' ').append(block.get("text").asText());
+                }
+                if (block.has("name")) {
+                    sb.append(' ').append(block.get("name").asText());
+                }
+                if (block.has("input")) {
+                    appendValues(block.get("input"), sb);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendValues(JsonNode node, StringBuilder sb) {
+        if (node.isValueNode()) {
+            sb.append(' ').append(node.asText());
+        } else {
+            node.forEach(child -> appendValues(child, sb));
+        }
+    }
+
+    /** Lower-cases and splits text into word tokens of 2 to 64 letters, digits or underscores. */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher m = TOKEN.matcher(text);
+        while (m.find()) {
+            tokens.add(m.group().toLowerCase());
+        }
+        return tokens;
+    }
+}
@@ -13,15 +13,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
  * Tool that runs shell commands via ProcessBuilder.
- * Commands run as the current OS user with a configurable timeout.
+ * Commands run as the current OS user with a configurable timeout, either in
+ * a fresh shell each or, with {@code shellWorkers}, in a pool of persistent
+ * shells kept ready in the workspace (see {@link ShellWorkerPool}).
  * Includes a safety layer that blocks dangerous commands and warns on risky
  * ones.
  */
-public class CodeExecutionTool implements Tool {
+public class CodeExecutionTool implements Tool, AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(CodeExecutionTool.class);
     private static final int MAX_OUTPUT_CHARS = 8192;
 
@@ -76,9 +80,19 @@ public class CodeExecutionTool implements Tool {
     private final Path workingDirectory;
     private final List<Pattern> blockedPatterns;
     private final List<Pattern> warnedPatterns;
+    private final ShellWorkerPool workers;
 
     public CodeExecutionTool() {
-        this(30, Paths.get(System.getProperty("user.home"), "workspace"));
+        this(0);
+    }
+
+    /**
+     * @param shellWorkers persistent shells to keep ready in the workspace;
+     *        0 starts a fresh {@code /bin/sh} for every command
+     */
+    public CodeExecutionTool(int shellWorkers) {
+        this(30, Paths.get(System.getProperty("user.home"), "workspace"),
+                DEFAULT_BLOCKED_PATTERNS, DEFAULT_WARNED_PATTERNS, shellWorkers);
     }
 
     public CodeExecutionTool(long timeoutSeconds, Path workingDirectory) {
@@ -87,10 +101,16 @@ public class CodeExecutionTool implements Tool {
 
     public CodeExecutionTool(long timeoutSeconds, Path workingDirectory,
             List<Pattern> blockedPatterns, List<Pattern> warnedPatterns) {
+        this(timeoutSeconds, workingDirectory, blockedPatterns, warnedPatterns, 0);
+    }
+
+    public CodeExecutionTool(long timeoutSeconds, Path workingDirectory,
+            List<Pattern> blockedPatterns, List<Pattern> warnedPatterns, int shellWorkers) {
         this.timeoutSeconds = timeoutSeconds;
         this.workingDirectory = workingDirectory;
         this.blockedPatterns = blockedPatterns;
         this.warnedPatterns = warnedPatterns;
+        this.workers = shellWorkers > 0 ? new ShellWorkerPool(workingDirectory, shellWorkers) : null;
     }
 
     @Override
@@ -122,6 +142,12 @@ public class CodeExecutionTool implements Tool {
 
     @Override
     public ToolResult execute(JsonNode input) {
+        return execute(input, ToolProgress.NONE);
+    }
+
+    /** Reports the command's output line by line as it is printed. */
+    @Override
+    public ToolResult execute(JsonNode input, ToolProgress progress) {
         String command = input.get("command").asText();
         logger.info("Executing command: {}", command);
 
@@ -136,53 +162,19 @@ public class CodeExecutionTool implements Tool {
         // Safety check: warn on risky commands
         checkWarned(command);
 
-        try {
-            ProcessBuilder pb = new ProcessBuilder("/bin/sh", "-c", command);
-            pb.directory(workingDirectory.toFile());
-            pb.redirectErrorStream(true);
-
-            Process process = pb.start();
-
-            // Read output in a separate thread so we don't block on the stream
-            StringBuffer output = new StringBuffer();
-            Thread readerThread = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (output.length() < MAX_OUTPUT_CHARS) {
-                            output.append(line).append("\n");
-                        }
-                    }
-                } catch (IOException e) {
-                    // Process was destroyed, expected during timeout
-                }
-            });
-            readerThread.setDaemon(true);
-            readerThread.start();
-
-            long startNanos = System.nanoTime();
-            boolean completed = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            if (!completed) {
-                process.destroyForcibly();
-                readerThread.join(1000); // Give reader a moment to flush
-                return new ToolResult(
-                        output.toString().trim() + "\n[TIMEOUT: Command exceeded " + timeoutSeconds + "s limit]",
-                        true, -1);
-            }
-
-            // Wait for reader to finish, bounded by remaining timeout budget.
-            // If the command spawned background children that inherited stdout,
-            // the stream won't reach EOF until they exit — we must not block forever.
-            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
-            long remainingMs = Math.max(0, TimeUnit.SECONDS.toMillis(timeoutSeconds) - elapsedMs);
-            readerThread.join(remainingMs + 2000); // +2s grace for stream flush
-            if (readerThread.isAlive()) {
-                readerThread.interrupt();
-                logger.warn(
-                        "Reader thread still alive after timeout budget — background child may have inherited stdout");
+        // Read by the calling thread with a pooled worker, by a reader thread otherwise
+        StringBuffer output = new StringBuffer();
+        Consumer<String> collect = line -> {
+            progress.output(line + "\n");
+            if (output.length() < MAX_OUTPUT_CHARS) {
+                output.append(line).append("\n");
             }
-
-            int exitCode = process.exitValue();
+        };
+        ShellWorkerPool.Worker worker = workers != null ? workers.acquire() : null;
+        try {
+            int exitCode = worker != null
+                    ? worker.run(command, timeoutSeconds, collect)
+                    : spawn(command, collect);
             String result = output.toString().trim();
             if (result.length() > MAX_OUTPUT_CHARS) {
                 result = result.substring(0, MAX_OUTPUT_CHARS) + "\n[OUTPUT TRUNCATED]";
@@ -191,9 +183,70 @@ public class CodeExecutionTool implements Tool {
             logger.info("Command exited with code {}", exitCode);
             return new ToolResult(result, exitCode != 0, exitCode);
 
+        } catch (TimeoutException e) {
+            return new ToolResult(
+                    output.toString().trim() + "\n[TIMEOUT: Command exceeded " + timeoutSeconds + "s limit]",
+                    true, -1);
         } catch (Exception e) {
             logger.error("Failed to execute command: {}", command, e);
             return ToolResult.error("Failed to execute command: " + e.getMessage());
+        } finally {
+            if (worker != null) {
+                workers.release(worker);
+            }
+        }
+    }
+
+    /** Runs the command in a fresh {@code /bin/sh -c}, returning its exit code. */
+    private int spawn(String command, Consumer<String> lines)
+            throws IOException, InterruptedException, TimeoutException {
+        ProcessBuilder pb = new ProcessBuilder("/bin/sh", "-c", command);
+        pb.directory(workingDirectory.toFile());
+        pb.redirectErrorStream(true);
+
+        Process process = pb.start();
+
+        // Read output in a separate thread so we don't block on the stream
+        Thread readerThread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.accept(line);
+                }
+            } catch (IOException e) {
+                // Process was destroyed, expected during timeout
+            }
+        });
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        long startNanos = System.nanoTime();
+        boolean completed = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+        if (!completed) {
+            process.destroyForcibly();
+            readerThread.join(1000); // Give reader a moment to flush
+            throw new TimeoutException("Command exceeded " + timeoutSeconds + "s limit");
+        }
+
+        // Wait for reader to finish, bounded by remaining timeout budget.
+        // If the command spawned background children that inherited stdout,
+        // the stream won't reach EOF until they exit — we must not block forever.
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long remainingMs = Math.max(0, TimeUnit.SECONDS.toMillis(timeoutSeconds) - elapsedMs);
+        readerThread.join(remainingMs + 2000); // +2s grace for stream flush
+        if (readerThread.isAlive()) {
+            readerThread.interrupt();
+            logger.warn(
+                    "Reader thread still alive after timeout budget — background child may have inherited stdout");
+        }
+        return process.exitValue();
+    }
+
+    /** Stops the persistent shells, if any. */
+    @Override
+    public void close() {
+        if (workers != null) {
+            workers.close();
         }
     }
 
@@ -0,0 +1,218 @@
+package ai.openclaw.tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Persistent {@code /bin/sh} processes started ahead of time in one working
+ * directory, so a short command costs the shell a fork instead of the JVM
+ * a process spawn plus a reader thread. A worker reads commands on its
+ * stdin and runs each in a subshell with stdin from {@code /dev/null}, so a
+ * {@code cd} or variable one command sets does not leak into the next and
+ * nothing can read the commands that follow; the exit status comes back
+ * after the output behind a marker unique to the worker.
+ * <p>
+ * Each command writes to a pipe of its own, relayed by {@code cat}, rather
+ * than to the worker's stdout. A background job the command leaves behind,
+ * such as {@code server &}, keeps that pipe open, so the command is not
+ * over until the job exits or closes its output, as with a command given a
+ * process of its own; its output can never run into the next command's.
+ * Background processes are not descendants of the worker once their
+ * subshell exits, so they could not be found and killed afterwards. A
+ * command that overruns its timeout is killed along with its worker, and a
+ * replacement starts in the background. The pool never queues: when every
+ * worker is busy {@link #acquire()} returns null and the caller spawns a
+ * process of its own.
+ */
+final class ShellWorkerPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShellWorkerPool.class);
+
+    private final Path workingDirectory;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "shell-worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    ShellWorkerPool(Path workingDirectory, int size) {
+        this.workingDirectory = workingDirectory;
+        for (int i = 0; i < size; i++) {
+            startWorker();
+        }
+    }
+
+    /** An idle worker for one command, or null when all are busy; hand it back with {@link #release}. */
+    Worker acquire() {
+        return closed ? null : idle.poll();
+    }
+
+    /** Returns a worker to the pool, or replaces it if its shell did not survive the command. */
+    void release(Worker worker) {
+        if (!closed && worker.healthy()) {
+            idle.add(worker);
+            return;
+        }
+        worker.kill();
+        if (!closed) {
+            Thread.ofVirtual().name("shell-worker-start").start(this::startWorker);
+        }
+    }
+
+    /** Workers waiting for a command. */
+    int idleCount() {
+        return idle.size();
+    }
+
+    private void startWorker() {
+        try {
+            Worker worker = new Worker(workingDirectory);
+            if (closed) {
+                worker.kill();
+            } else {
+                idle.add(worker);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not start a shell worker in {}; commands will spawn their own: {}",
+                    workingDirectory, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.kill();
+        }
+        watchdog.shutdownNow();
+    }
+
+    /** One persistent shell. Runs one command at a time. */
+    final class Worker {
+        private final Process process;
+        private final Writer stdin;
+        private final BufferedReader stdout;
+        private final String marker = "__openclaw_done_" + UUID.randomUUID().toString().replace("-", "") + "__";
+        // Where a command's exit status waits until its output pipe has closed
+        private final Path statusFile;
+        private volatile boolean broken;
+        private volatile boolean timedOut;
+
+        private Worker(Path workingDirectory) throws IOException {
+            this.statusFile = Files.createTempFile("openclaw-shell-", ".status");
+            ProcessBuilder pb = new ProcessBuilder("/bin/sh");
+            pb.directory(workingDirectory.toFile());
+            pb.redirectErrorStream(true);
+            try {
+                this.process = pb.start();
+            } catch (IOException e) {
+                Files.deleteIfExists(statusFile);
+                throw e;
+            }
+            this.stdin = new OutputStreamWriter(process.getOutputStream());
+            this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        }
+
+        private static String quote(String word) {
+            return "'" + word.replace("'", "'\\''") + "'";
+        }
+
+        /**
+         * Runs {@code command}, handing each line of its output to
+         * {@code lines} as it arrives.
+         *
+         * @return the command's exit status
+         * @throws TimeoutException when it ran past {@code timeoutSeconds};
+         *         the worker has been killed
+         * @throws IOException when the shell went away mid-command
+         */
+        int run(String command, long timeoutSeconds, Consumer<String> lines) throws IOException, TimeoutException {
+            // Quoted for eval, so a syntax error fails this command instead of desynchronizing the shell.
+            // The marker follows once cat has relayed everything written to the command's pipe.
+            String status = quote(statusFile.toString());
+            ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+                timedOut = true;
+                kill();
+            }, timeoutSeconds, TimeUnit.SECONDS);
+            try {
+                stdin.write(": >" + status + "; { ( eval " + quote(command) + " ) </dev/null; echo $? >" + status
+                        + "; } 2>&1 | cat\n"
+                        + "read __openclaw_status <" + status + "; printf '%s %s\\n' " + marker
+                        + " \"$__openclaw_status\"; unset __openclaw_status\n");
+                stdin.flush();
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    int end = line.indexOf(marker);
+                    if (end < 0) {
+                        lines.accept(line);
+                        continue;
+                    }
+                    // Output without a trailing newline shares the marker's line
+                    if (end > 0) {
+                        lines.accept(line.substring(0, end));
+                    }
+                    // The shell may report the killed subshell before it is killed itself
+                    if (timedOut) {
+                        break;
+                    }
+                    return exitStatus(line.substring(end + marker.length()).trim());
+                }
+                throw new IOException("Shell worker exited");
+            } catch (IOException | RuntimeException e) {
+                broken = true;
+                if (timedOut) {
+                    throw new TimeoutException("Command exceeded " + timeoutSeconds + "s limit");
+                }
+                throw e;
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private int exitStatus(String reported) throws IOException {
+            try {
+                return Integer.parseInt(reported);
+            } catch (NumberFormatException e) {
+                throw new IOException("Shell worker reported no exit status: " + reported);
+            }
+        }
+
+        private boolean healthy() {
+            return !broken && process.isAlive();
+        }
+
+        /** Kills the shell and whatever the running command started. */
+        private void kill() {
+            broken = true;
+            // Listed first: once the shell is gone its children are no longer its descendants
+            List<ProcessHandle> children = process.descendants().toList();
+            process.destroyForcibly();
+            children.forEach(ProcessHandle::destroyForcibly);
+            try {
+                Files.deleteIfExists(statusFile);
+            } catch (IOException e) {
+                logger.debug("Could not delete {}: {}", statusFile, e.getMessage());
+            }
+        }
+    }
+}
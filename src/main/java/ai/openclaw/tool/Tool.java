@@ -17,4 +17,12 @@ public interface Tool {
 
     /** Execute the tool with the given input and return the result. */
     ToolResult execute(JsonNode input);
+
+    /**
+     * Executes the tool, reporting progress as it goes. Tools that have
+     * nothing to report while running need not override this.
+     */
+    default ToolResult execute(JsonNode input, ToolProgress progress) {
+        return execute(input);
+    }
 }
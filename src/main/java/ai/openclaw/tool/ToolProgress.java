@@ -0,0 +1,31 @@
+package ai.openclaw.tool;
+
+/**
+ * Sink for progress a tool reports while it runs, such as output as it is
+ * produced or bytes downloaded so far. Events are best effort: receivers
+ * may coalesce or drop them, and the {@link ToolResult} stays the
+ * authoritative outcome. May be called from any thread.
+ */
+public interface ToolProgress extends AutoCloseable {
+    /** Discards every event. */
+    ToolProgress NONE = new ToolProgress() {
+        @Override
+        public void output(String text) {
+        }
+
+        @Override
+        public void transferred(long bytes, long totalBytes) {
+        }
+    };
+
+    /** A chunk of the tool's output. */
+    void output(String text);
+
+    /** Bytes transferred so far; {@code totalBytes} is -1 when unknown. */
+    void transferred(long bytes, long totalBytes);
+
+    /** The tool has returned; no events follow. */
+    @Override
+    default void close() {
+    }
+}
@@ -3,15 +3,22 @@ package ai.openclaw.tool;
 import ai.openclaw.config.Json;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -61,6 +68,12 @@ public class WebSearchTool implements Tool {
 
     @Override
     public ToolResult execute(JsonNode input) {
+        return execute(input, ToolProgress.NONE);
+    }
+
+    /** Reports the bytes of the page downloaded so far. */
+    @Override
+    public ToolResult execute(JsonNode input, ToolProgress progress) {
         String url = input.get("url").asText();
         logger.info("Fetching URL: {}", url);
 
@@ -83,7 +96,7 @@ public class WebSearchTool implements Tool {
                     return ToolResult.error("HTTP " + response.code() + ": " + response.message());
                 }
 
-                String body = response.body() != null ? response.body().string() : "";
+                String body = response.body() != null ? read(response.body(), progress) : "";
 
                 // Strip HTML tags for readability
                 String text = stripHtml(body);
@@ -155,6 +168,23 @@ public class WebSearchTool implements Tool {
         return null; // URL is safe
     }
 
+    /** Reads the body in the charset it declares (UTF-8 otherwise), reporting each chunk. */
+    private static String read(ResponseBody body, ToolProgress progress) throws IOException {
+        long total = body.contentLength();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(total > 0 ? (int) Math.min(total, 1 << 20) : 8192);
+        try (InputStream in = body.byteStream()) {
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                bytes.write(chunk, 0, n);
+                progress.transferred(bytes.size(), total);
+            }
+        }
+        MediaType type = body.contentType();
+        Charset charset = type != null ? type.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+        return bytes.toString(charset);
+    }
+
     /** Simple HTML tag stripping — removes tags and collapses whitespace. */
     static String stripHtml(String html) {
         // Remove script and style blocks entirely
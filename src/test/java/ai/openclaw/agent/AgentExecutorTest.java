@@ -0,0 +1,105 @@
+package ai.openclaw.agent;
+
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.Message;
+import ai.openclaw.session.SessionStore;
+import ai.openclaw.tool.Tool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Context compaction: history the budget leaves out is summarized into the stored session. */
+public class AgentExecutorTest {
+    @TempDir
+    Path dir;
+
+    /** Replies with the number of messages it was sent; a summary names the last message it covers. */
+    private static class SummarizingLlmProvider implements LlmProvider {
+        final List<List<Message>> summaryRequests = new ArrayList<>();
+
+        @Override
+        public String complete(List<Message> messages, String model) {
+            if (AgentExecutor.SUMMARY_REQUEST.equals(messages.get(messages.size() - 1).getContent())) {
+                summaryRequests.add(List.copyOf(messages));
+                return "summary up to " + messages.get(messages.size() - 2).getContent();
+            }
+            return "reply to " + messages.size() + " messages";
+        }
+
+        @Override
+        public LlmResponse completeWithTools(List<Message> messages, String model, List<Tool> tools) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String providerName() {
+            return "summarizing";
+        }
+    }
+
+    private OpenClawConfig config(boolean compactContext) {
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.AgentConfig agent = new OpenClawConfig.AgentConfig();
+        agent.setProvider("mock");
+        agent.setModel("test-model");
+        agent.setSystemPrompt("Be brief.");
+        // Room for about two turns of the messages below
+        agent.setContextTokenBudget(120);
+        agent.setCompactContext(compactContext);
+        config.setAgent(agent);
+        return config;
+    }
+
+    private static String longMessage(int turn) {
+        return "turn " + turn + " " + "lorem ipsum dolor sit amet ".repeat(8);
+    }
+
+    @Test
+    void testOverflowingHistoryIsReplacedBySummary() {
+        OpenClawConfig.SessionConfig sessions = new OpenClawConfig.SessionConfig();
+        String sessionId;
+        List<Message> history;
+        try (SessionStore store = new SessionStore(dir, sessions)) {
+            SummarizingLlmProvider llm = new SummarizingLlmProvider();
+            AgentExecutor executor = new AgentExecutor(config(true), store, llm);
+            sessionId = store.createSession("test", "user1").getId();
+            for (int turn = 0; turn < 6; turn++) {
+                executor.execute(sessionId, longMessage(turn));
+            }
+
+            assertFalse(llm.summaryRequests.isEmpty());
+            history = store.getSession(sessionId).getMessages();
+            assertTrue(history.get(0).getContent().startsWith(AgentExecutor.SUMMARY_PREFIX));
+            assertTrue(history.size() < 12, "Summarized messages are dropped from the session");
+            // The first summary covered the start of the conversation
+            assertTrue(llm.summaryRequests.get(0).get(1).getContent().startsWith("turn 0 "));
+        }
+
+        // The snapshot holds the summary, not what it replaced
+        try (SessionStore reopened = new SessionStore(dir, sessions)) {
+            assertEquals(history.stream().map(Message::getContent).toList(),
+                    reopened.getSession(sessionId).getMessages().stream().map(Message::getContent).toList());
+        }
+    }
+
+    @Test
+    void testHistoryIsKeptWithoutCompactContext() {
+        try (SessionStore store = new SessionStore(dir, new OpenClawConfig.SessionConfig())) {
+            SummarizingLlmProvider llm = new SummarizingLlmProvider();
+            AgentExecutor executor = new AgentExecutor(config(false), store, llm);
+            String sessionId = store.createSession("test", "user1").getId();
+            for (int turn = 0; turn < 6; turn++) {
+                executor.execute(sessionId, longMessage(turn));
+            }
+
+            assertTrue(llm.summaryRequests.isEmpty());
+            assertEquals(12, store.getSession(sessionId).getMessageCount());
+            assertEquals("turn 0", store.getSession(sessionId).getMessages().get(0).getContent().substring(0, 6));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ai.openclaw.agent;
+
+import ai.openclaw.tool.ToolProgress;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgressThrottleTest {
+
+    @Test
+    void testCoalescesOutputWithinInterval() throws Exception {
+        List<ObjectNode> sent = new CopyOnWriteArrayList<>();
+        ToolProgress progress = new ProgressThrottle("s1", 200, sent::add).tool("tu1", "code_execution");
+
+        progress.output("a\n");
+        progress.output("b\n");
+        progress.output("c\n");
+        assertEquals(1, sent.size());
+        assertEquals("a\n", sent.get(0).get("output").asText());
+        assertEquals("s1", sent.get(0).get("sessionId").asText());
+        assertEquals("tu1", sent.get(0).get("toolUseId").asText());
+        assertEquals("code_execution", sent.get(0).get("tool").asText());
+
+        // The rest goes out together once the interval has passed, without another event
+        for (int i = 0; i < 100 && sent.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, sent.size());
+        assertEquals("b\nc\n", sent.get(1).get("output").asText());
+        progress.close();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void testCloseFlushesPendingAndStopsEvents() {
+        List<ObjectNode> sent = new CopyOnWriteArrayList<>();
+        ToolProgress progress = new ProgressThrottle("s1", 60_000, sent::add).tool("tu1", "web_fetch");
+
+        progress.transferred(100, 1000);
+        progress.transferred(600, 1000);
+        progress.transferred(900, 1000);
+        assertEquals(1, sent.size());
+        progress.close();
+        assertEquals(2, sent.size());
+        assertEquals(900, sent.get(1).get("bytes").asLong());
+        assertEquals(1000, sent.get(1).get("totalBytes").asLong());
+        assertFalse(sent.get(1).has("output"));
+
+        progress.output("late");
+        progress.close();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void testCapsOutputPerNotification() {
+        List<ObjectNode> sent = new CopyOnWriteArrayList<>();
+        ToolProgress progress = new ProgressThrottle("s1", 60_000, sent::add).tool("tu1", "code_execution");
+
+        progress.output("start\n");
+        progress.output("x".repeat(ProgressThrottle.MAX_OUTPUT_CHARS + 10));
+        progress.close();
+        assertEquals(2, sent.size());
+        assertEquals(ProgressThrottle.MAX_OUTPUT_CHARS, sent.get(1).get("output").asText().length());
+        assertEquals(10, sent.get(1).get("skippedChars").asLong());
+    }
+
+    @Test
+    void testZeroIntervalSendsEveryEvent() {
+        List<ObjectNode> sent = new CopyOnWriteArrayList<>();
+        ToolProgress progress = new ProgressThrottle("s1", 0, sent::add).tool("tu1", "code_execution");
+        progress.output("a");
+        progress.output("b");
+        progress.close();
+        assertEquals(2, sent.size());
+    }
+}
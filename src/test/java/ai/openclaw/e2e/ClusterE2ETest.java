@@ -0,0 +1,164 @@
+package ai.openclaw.e2e;
+
+import ai.openclaw.agent.AgentExecutor;
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.GatewayServer;
+import ai.openclaw.gateway.RpcEncoding;
+import ai.openclaw.gateway.RpcRouter;
+import ai.openclaw.gateway.UnixSocketClient;
+import ai.openclaw.gateway.cluster.Cluster;
+import ai.openclaw.session.SessionStore;
+import ai.openclaw.test.MockLlmProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two gateway nodes sharing one sessions directory: a client of node a
+ * reaches the sessions node b owns through {@code forward()}.
+ */
+public class ClusterE2ETest {
+    @TempDir
+    Path dir;
+
+    private Node a;
+    private Node b;
+
+    /** One node: its gateway and the session store it shares {@code dir} through. */
+    private record Node(GatewayServer server, SessionStore sessionStore, Path socket) {
+        Cluster cluster() {
+            return server.getCluster();
+        }
+    }
+
+    private static int findFreePort() throws Exception {
+        try (var socket = new java.net.ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private Node start(String nodeId, int port, int peerPort) {
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(port);
+        gateway.setAuthToken("test-token");
+        gateway.setTransport("virtual");
+        Path socket = dir.resolve(nodeId + ".sock");
+        gateway.setUnixSocket(socket.toString());
+        OpenClawConfig.ClusterConfig cluster = gateway.getCluster();
+        cluster.setEnabled(true);
+        cluster.setNodeId(nodeId);
+        cluster.setAdvertiseUrl("ws://127.0.0.1:" + port);
+        cluster.setSeeds(List.of("ws://127.0.0.1:" + peerPort));
+        cluster.setSecret("peer-secret");
+        cluster.setHeartbeatMillis(100);
+        config.setGateway(gateway);
+        OpenClawConfig.AgentConfig agent = new OpenClawConfig.AgentConfig();
+        agent.setProvider("mock");
+        agent.setModel("test-model");
+        config.setAgent(agent);
+
+        SessionStore sessionStore = new SessionStore(dir.resolve("sessions"), new OpenClawConfig.SessionConfig(),
+                nodeId);
+        AgentExecutor agentExecutor = new AgentExecutor(config, sessionStore, new MockLlmProvider());
+        RpcRouter router = new RpcRouter();
+        router.register("agent.send", params -> {
+            String response = agentExecutor.execute(params.get("sessionId").asText(), params.get("message").asText());
+            return Json.mapper().createObjectNode().put("response", response).put("node", nodeId);
+        });
+        GatewayServer server = new GatewayServer(config, router, sessionStore);
+        server.start();
+        return new Node(server, sessionStore, socket);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int portA = findFreePort();
+        int portB = findFreePort();
+        a = start("a", portA, portB);
+        b = start("b", portB, portA);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (a.cluster().members().size() < 2 || b.cluster().members().size() < 2) {
+            assertTrue(System.nanoTime() < deadline, "Nodes did not find each other");
+            Thread.sleep(50);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Node node : new Node[] { a, b }) {
+            if (node != null) {
+                node.server().stop();
+                node.sessionStore().close();
+            }
+        }
+    }
+
+    /** Creates a session on {@code node} that the ring places on {@code owner}. */
+    private static String sessionOwnedBy(Node node, Node owner) {
+        while (true) {
+            String sessionId = node.sessionStore().createSession("test", "user1").getId();
+            if (owner.cluster().self().equals(node.cluster().ownerOf(sessionId))) {
+                return sessionId;
+            }
+        }
+    }
+
+    private static JsonNode send(UnixSocketClient client, String id, String sessionId) throws Exception {
+        client.send(("{\"id\":\"" + id + "\",\"method\":\"agent.send\",\"params\":{\"sessionId\":\"" + sessionId
+                + "\",\"message\":\"Hello\"}}").getBytes(StandardCharsets.UTF_8));
+        return Json.mapper().readTree(client.receive());
+    }
+
+    @Test
+    void testRequestIsForwardedToTheOwner() throws Exception {
+        String remote = sessionOwnedBy(b, b);
+        String local = sessionOwnedBy(a, a);
+        try (UnixSocketClient client = UnixSocketClient.connect(a.socket(), "test-token", RpcEncoding.JSON)) {
+            JsonNode forwarded = send(client, "1", remote);
+            // Relayed under the client's own id
+            assertEquals("1", forwarded.get("id").asText());
+            assertEquals("Mock response from OpenClaw", forwarded.get("result").get("response").asText());
+            assertEquals("b", forwarded.get("result").get("node").asText());
+
+            JsonNode handled = send(client, "2", local);
+            assertEquals("a", handled.get("result").get("node").asText());
+        }
+
+        // The turn ran on b, which wrote the session; a never held it
+        assertEquals(2, b.sessionStore().getSession(remote).getMessageCount());
+        assertTrue(a.sessionStore().usage().stream().noneMatch(usage -> usage.sessionId().equals(remote)));
+    }
+
+    @Test
+    void testSessionMovesWhenItsOwnerLeaves() throws Exception {
+        String sessionId = sessionOwnedBy(b, b);
+        try (UnixSocketClient client = UnixSocketClient.connect(a.socket(), "test-token", RpcEncoding.JSON)) {
+            assertEquals("b", send(client, "1", sessionId).get("result").get("node").asText());
+
+            // Stopping b announces its departure and lets go of the sessions it had open
+            b.server().stop();
+            b.sessionStore().close();
+            b = null;
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (a.cluster().members().size() > 1) {
+                assertTrue(System.nanoTime() < deadline, "Node b did not leave");
+                Thread.sleep(50);
+            }
+
+            // a reloads what b wrote from the shared directory and carries on
+            JsonNode moved = send(client, "2", sessionId);
+            assertEquals("a", moved.get("result").get("node").asText());
+        }
+        assertEquals(4, a.sessionStore().getSession(sessionId).getMessageCount());
+    }
+}
@@ -1,22 +1,37 @@
 package ai.openclaw.e2e;
 
 import ai.openclaw.agent.AgentExecutor;
+import ai.openclaw.agent.LlmProvider;
+import ai.openclaw.config.Json;
 import ai.openclaw.config.OpenClawConfig;
 import ai.openclaw.gateway.GatewayServer;
+import ai.openclaw.gateway.RpcEncoding;
 import ai.openclaw.gateway.RpcProtocol;
 import ai.openclaw.gateway.RpcRouter;
+import ai.openclaw.gateway.WebSocketDrafts;
 import ai.openclaw.session.Session;
 import ai.openclaw.session.SessionStore;
+import ai.openclaw.test.BlockingLlmProvider;
 import ai.openclaw.test.MockLlmProvider;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.protocols.Protocol;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -138,4 +153,309 @@ public class GatewayE2ETest {
 
         client.close();
     }
+
+    @Test
+    void testBatch() throws Exception {
+        Session session = sessionStore.createSession("test", "user1");
+
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + port)) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                messages.offer(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                ex.printStackTrace();
+            }
+        };
+        client.addHeader("Authorization", "Bearer test-token");
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode batch = mapper.createArrayNode();
+        batch.addObject().put("id", "1").put("method", "gateway.health");
+        ObjectNode send = batch.addObject().put("id", "2").put("method", "agent.send");
+        send.putObject("params").put("sessionId", session.getId()).put("message", "Hello");
+        batch.addObject().put("method", "gateway.health");
+        batch.addObject().put("id", "3");
+        client.send(mapper.writeValueAsString(batch));
+
+        String responseJson = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(responseJson, "Response should not be null");
+        JsonNode responses = mapper.readTree(responseJson);
+        assertTrue(responses.isArray());
+        assertEquals(3, responses.size());
+        assertEquals("ok", responses.get(0).get("result").get("status").asText());
+        assertEquals("Mock response from OpenClaw", responses.get(1).get("result").get("response").asText());
+        assertEquals(-32600, responses.get(2).get("error").get("code").asInt());
+
+        client.close();
+    }
+
+    @Test
+    void testSmileEncoding() throws Exception {
+        BlockingQueue<ByteBuffer> messages = new LinkedBlockingQueue<>();
+        Draft draft = new Draft_6455(List.of(), List.of(new Protocol(RpcEncoding.SMILE.subprotocol())));
+        WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + port), draft) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                fail("Expected a binary frame");
+            }
+
+            @Override
+            public void onMessage(ByteBuffer message) {
+                messages.offer(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                ex.printStackTrace();
+            }
+        };
+        client.addHeader("Authorization", "Bearer test-token");
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+
+        ObjectMapper mapper = RpcEncoding.SMILE.mapper();
+        RpcProtocol.RpcMessage request = new RpcProtocol.RpcMessage();
+        request.setId("1");
+        request.setMethod("gateway.health");
+        client.send(mapper.writeValueAsBytes(request));
+
+        ByteBuffer responseBytes = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(responseBytes, "Response should not be null");
+        RpcProtocol.RpcMessage response = mapper.readValue(
+                new ByteBufferBackedInputStream(responseBytes), RpcProtocol.RpcMessage.class);
+        assertEquals("1", response.getId());
+        assertEquals("ok", response.getResult().get("status").asText());
+
+        client.close();
+    }
+
+    @Test
+    void testCompressedFragmentedResponse() throws Exception {
+        int compressedPort = findFreePort();
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gatewayConfig = new OpenClawConfig.GatewayConfig();
+        gatewayConfig.setPort(compressedPort);
+        gatewayConfig.setAuthToken("test-token");
+        gatewayConfig.setFrameFragmentBytes(64 * 1024);
+        OpenClawConfig.CompressionConfig compression = new OpenClawConfig.CompressionConfig();
+        compression.setEnabled(true);
+        compression.setThresholdBytes(1024);
+        gatewayConfig.setCompression(compression);
+        config.setGateway(gatewayConfig);
+
+        // One full 64KB fragment, then a last one of a few hundred bytes: under the threshold
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(42);
+        while (text.length() < 64 * 1024 + 200) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        RpcRouter router = new RpcRouter();
+        router.register("test.text", params -> new ObjectMapper().createObjectNode().put("text", text.toString()));
+        GatewayServer compressed = new GatewayServer(config, router);
+        compressed.start();
+        Thread.sleep(1000);
+        try {
+            BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+            WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + compressedPort),
+                    WebSocketDrafts.client(gatewayConfig, RpcEncoding.JSON)) {
+                @Override
+                public void onOpen(ServerHandshake handshakedata) {
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    messages.offer(message);
+                }
+
+                @Override
+                public void onClose(int code, String reason, boolean remote) {
+                }
+
+                @Override
+                public void onError(Exception ex) {
+                    ex.printStackTrace();
+                }
+            };
+            client.addHeader("Authorization", "Bearer test-token");
+            assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+
+            client.send("{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"test.text\"}");
+
+            String responseJson = messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(responseJson, "Response should not be null");
+            int remainder = responseJson.length() % (64 * 1024);
+            assertTrue(remainder > 0 && remainder < 1024, "Last fragment should fall under the threshold");
+            JsonNode response = new ObjectMapper().readTree(responseJson);
+            assertEquals(text.toString(), response.get("result").get("text").asText());
+
+            client.close();
+        } finally {
+            compressed.stop();
+        }
+    }
+
+    @Test
+    void testDebugNeedsADebugToken() throws Exception {
+        int debugPort = findFreePort();
+        GatewayServer debugServer = startDebugGateway(debugPort, new SessionStore(), new MockLlmProvider());
+        try {
+            String request = "{\"id\":\"d\",\"method\":\"" + GatewayServer.DEBUG + "\"}";
+            ObjectMapper mapper = new ObjectMapper();
+            // Neither a named token without debug nor the shared token may call it
+            for (String token : List.of("app-token", "test-token")) {
+                BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+                WebSocketClient client = connect(debugPort, token, messages);
+                client.send(request);
+                String refused = messages.poll(5, TimeUnit.SECONDS);
+                assertNotNull(refused, "Response should not be null");
+                assertEquals(RpcProtocol.FORBIDDEN, mapper.readTree(refused).get("error").get("code").asInt());
+                client.close();
+            }
+
+            BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+            WebSocketClient client = connect(debugPort, "ops-token", messages);
+            client.send(request);
+            String responseJson = messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(responseJson, "Response should not be null");
+            JsonNode debug = mapper.readTree(responseJson).get("result");
+            assertNotNull(debug.get("executor"));
+            boolean listed = false;
+            for (JsonNode connection : debug.get("connections")) {
+                listed |= "ops".equals(connection.get("token").asText());
+            }
+            assertTrue(listed);
+            assertEquals(0, debug.get("turns").size());
+            assertTrue(debug.get("jvm").get("threads").get("live").asInt() > 0);
+            assertTrue(debug.get("jvm").get("heap").get("used").asLong() > 0);
+            client.close();
+        } finally {
+            debugServer.stop();
+        }
+    }
+
+    @Test
+    void testDebugListsTurnsInFlight() throws Exception {
+        int debugPort = findFreePort();
+        SessionStore store = new SessionStore();
+        Session session = store.createSession("test", "user1");
+        BlockingLlmProvider llm = new BlockingLlmProvider();
+        GatewayServer debugServer = startDebugGateway(debugPort, store, llm);
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            BlockingQueue<String> appMessages = new LinkedBlockingQueue<>();
+            WebSocketClient app = connect(debugPort, "app-token", appMessages);
+            ObjectNode send = mapper.createObjectNode().put("id", "t").put("method", "agent.send");
+            send.putObject("params").put("sessionId", session.getId()).put("message", "Hello");
+            app.send(mapper.writeValueAsString(send));
+            assertTrue(llm.awaitEntered(5, TimeUnit.SECONDS));
+
+            // The turn is held in the model call while another connection looks at it
+            BlockingQueue<String> opsMessages = new LinkedBlockingQueue<>();
+            WebSocketClient ops = connect(debugPort, "ops-token", opsMessages);
+            ops.send("{\"id\":\"d\",\"method\":\"" + GatewayServer.DEBUG + "\"}");
+            String responseJson = opsMessages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(responseJson, "Response should not be null");
+            JsonNode debug = mapper.readTree(responseJson).get("result");
+            assertEquals(1, debug.get("turns").size());
+            JsonNode turn = debug.get("turns").get(0);
+            assertEquals(session.getId(), turn.get("sessionId").asText());
+            assertEquals("llm", turn.get("phase").asText());
+            assertFalse(debug.get("executor").get("draining").asBoolean());
+
+            llm.release();
+            String turnJson = appMessages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(turnJson, "Response should not be null");
+            assertEquals("Mock response from OpenClaw", mapper.readTree(turnJson).get("result").get("response").asText());
+            app.close();
+            ops.close();
+        } finally {
+            llm.release();
+            debugServer.stop();
+        }
+    }
+
+    /**
+     * A gateway on its own port with an "ops" token that may call
+     * gateway.debug and an "app" token that may not, with agent.send and
+     * gateway.debug registered as GatewayCommand registers them.
+     */
+    private static GatewayServer startDebugGateway(int gatewayPort, SessionStore store, LlmProvider llm) throws Exception {
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gatewayConfig = new OpenClawConfig.GatewayConfig();
+        gatewayConfig.setPort(gatewayPort);
+        gatewayConfig.setAuthToken("test-token");
+        OpenClawConfig.ClientToken ops = new OpenClawConfig.ClientToken();
+        ops.setToken("ops-token");
+        ops.setDebug(true);
+        OpenClawConfig.ClientToken app = new OpenClawConfig.ClientToken();
+        app.setToken("app-token");
+        gatewayConfig.setTokens(Map.of("ops", ops, "app", app));
+        config.setGateway(gatewayConfig);
+        OpenClawConfig.AgentConfig agentConfig = new OpenClawConfig.AgentConfig();
+        agentConfig.setProvider("mock");
+        agentConfig.setModel("test-model");
+        config.setAgent(agentConfig);
+
+        AgentExecutor agentExecutor = new AgentExecutor(config, store, llm);
+        RpcRouter router = new RpcRouter();
+        router.register("agent.send", params -> {
+            String response = agentExecutor.execute(params.get("sessionId").asText(), params.get("message").asText());
+            return new ObjectMapper().createObjectNode().put("response", response);
+        });
+        GatewayServer gateway = new GatewayServer(config, router);
+        router.register(GatewayServer.DEBUG, () -> {
+            ObjectNode debug = gateway.debug();
+            debug.set("turns", Json.mapper().valueToTree(agentExecutor.activeTurns()));
+            return debug;
+        });
+        gateway.start();
+        Thread.sleep(1000); // Wait for server to start
+        return gateway;
+    }
+
+    /** A JSON client of the gateway on {@code gatewayPort}, queueing the messages it receives. */
+    private static WebSocketClient connect(int gatewayPort, String token, BlockingQueue<String> messages) throws Exception {
+        WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + gatewayPort)) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                messages.offer(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                ex.printStackTrace();
+            }
+        };
+        client.addHeader("Authorization", "Bearer " + token);
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        return client;
+    }
 }
@@ -0,0 +1,212 @@
+package ai.openclaw.e2e;
+
+import ai.openclaw.agent.AgentExecutor;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.GatewayServer;
+import ai.openclaw.gateway.RpcEncoding;
+import ai.openclaw.gateway.RpcRouter;
+import ai.openclaw.gateway.WebSocketDrafts;
+import ai.openclaw.session.Session;
+import ai.openclaw.session.SessionStore;
+import ai.openclaw.test.MockLlmProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The scenarios of {@link GatewayE2ETest} over {@code transport = "virtual"},
+ * with the Java-WebSocket client and permessage-deflate on.
+ */
+public class VirtualTransportE2ETest {
+    private GatewayServer server;
+    private int port;
+    private SessionStore sessionStore;
+    private OpenClawConfig.GatewayConfig gatewayConfig;
+    private String largeText;
+
+    private static int findFreePort() throws Exception {
+        try (var socket = new java.net.ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        port = findFreePort();
+
+        OpenClawConfig config = new OpenClawConfig();
+        gatewayConfig = new OpenClawConfig.GatewayConfig();
+        gatewayConfig.setPort(port);
+        gatewayConfig.setAuthToken("test-token");
+        gatewayConfig.setTransport("virtual");
+        gatewayConfig.setFrameFragmentBytes(64 * 1024);
+        OpenClawConfig.CompressionConfig compression = new OpenClawConfig.CompressionConfig();
+        compression.setEnabled(true);
+        compression.setThresholdBytes(1024);
+        gatewayConfig.setCompression(compression);
+        config.setGateway(gatewayConfig);
+
+        OpenClawConfig.AgentConfig agentConfig = new OpenClawConfig.AgentConfig();
+        agentConfig.setProvider("mock");
+        agentConfig.setModel("test-model");
+        config.setAgent(agentConfig);
+
+        sessionStore = new SessionStore();
+        AgentExecutor agentExecutor = new AgentExecutor(config, sessionStore, new MockLlmProvider());
+
+        // One full 64KB fragment, then a last one of a few hundred bytes: under the threshold
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(42);
+        while (text.length() < 64 * 1024 + 200) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        largeText = text.toString();
+
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", params -> new ObjectMapper().createObjectNode().put("status", "ok"));
+        router.register("agent.send", params -> {
+            String response = agentExecutor.execute(params.get("sessionId").asText(), params.get("message").asText());
+            return new ObjectMapper().createObjectNode().put("response", response);
+        });
+        router.register("test.text", params -> new ObjectMapper().createObjectNode().put("text", largeText));
+
+        server = new GatewayServer(config, router);
+        server.start();
+        Thread.sleep(1000); // Wait for server to start
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /** Connects with {@code encoding} and permessage-deflate offered, queueing whole messages. */
+    private WebSocketClient connect(RpcEncoding encoding, BlockingQueue<Object> messages) throws Exception {
+        Draft draft = WebSocketDrafts.client(gatewayConfig, encoding);
+        WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + port), draft) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                messages.offer(message);
+            }
+
+            @Override
+            public void onMessage(ByteBuffer message) {
+                messages.offer(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                ex.printStackTrace();
+            }
+        };
+        client.addHeader("Authorization", "Bearer test-token");
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        return client;
+    }
+
+    @Test
+    void testAgentSend() throws Exception {
+        Session session = sessionStore.createSession("test", "user1");
+        BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = connect(RpcEncoding.JSON, messages);
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode request = mapper.createObjectNode().put("id", "1").put("method", "agent.send");
+        request.putObject("params").put("sessionId", session.getId()).put("message", "Hello");
+        client.send(mapper.writeValueAsString(request));
+
+        Object responseJson = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(responseJson, "Response should not be null");
+        JsonNode response = mapper.readTree((String) responseJson);
+        assertEquals("1", response.get("id").asText());
+        assertEquals("Mock response from OpenClaw", response.get("result").get("response").asText());
+
+        client.close();
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        Session session = sessionStore.createSession("test", "user1");
+        BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = connect(RpcEncoding.JSON, messages);
+
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode batch = mapper.createArrayNode();
+        batch.addObject().put("id", "1").put("method", "gateway.health");
+        ObjectNode send = batch.addObject().put("id", "2").put("method", "agent.send");
+        send.putObject("params").put("sessionId", session.getId()).put("message", "Hello");
+        batch.addObject().put("method", "gateway.health");
+        batch.addObject().put("id", "3");
+        client.send(mapper.writeValueAsString(batch));
+
+        Object responseJson = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(responseJson, "Response should not be null");
+        JsonNode responses = mapper.readTree((String) responseJson);
+        assertEquals(3, responses.size());
+        assertEquals("ok", responses.get(0).get("result").get("status").asText());
+        assertEquals("Mock response from OpenClaw", responses.get(1).get("result").get("response").asText());
+        assertEquals(-32600, responses.get(2).get("error").get("code").asInt());
+
+        client.close();
+    }
+
+    @Test
+    void testSmileEncoding() throws Exception {
+        BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = connect(RpcEncoding.SMILE, messages);
+
+        ObjectMapper mapper = RpcEncoding.SMILE.mapper();
+        client.send(mapper.writeValueAsBytes(mapper.createObjectNode().put("id", "1").put("method", "gateway.health")));
+
+        Object responseBytes = messages.poll(5, TimeUnit.SECONDS);
+        assertTrue(responseBytes instanceof ByteBuffer, "Expected a binary frame");
+        JsonNode response = mapper.readTree(new ByteBufferBackedInputStream((ByteBuffer) responseBytes));
+        assertEquals("1", response.get("id").asText());
+        assertEquals("ok", response.get("result").get("status").asText());
+
+        client.close();
+    }
+
+    @Test
+    void testCompressedFragmentedResponse() throws Exception {
+        BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = connect(RpcEncoding.JSON, messages);
+
+        client.send("{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"test.text\"}");
+
+        Object responseJson = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(responseJson, "Response should not be null");
+        int remainder = ((String) responseJson).length() % (64 * 1024);
+        assertTrue(remainder > 0 && remainder < 1024, "Last fragment should fall under the threshold");
+        assertEquals(largeText, new ObjectMapper().readTree((String) responseJson).get("result").get("text").asText());
+
+        client.close();
+    }
+}
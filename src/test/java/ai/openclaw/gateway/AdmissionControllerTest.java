@@ -0,0 +1,123 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+
+    @Test
+    void testRejectsPerConnectionAndGlobally() throws Exception {
+        OpenClawConfig.GatewayConfig config = new OpenClawConfig.GatewayConfig();
+        config.setMaxInFlight(1);
+        config.setMaxPending(2);
+        config.setMaxInFlightPerConnection(2);
+        config.setRetryAfterMs(100);
+        AdmissionController admission = new AdmissionController(config);
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            GatewayConnection a = new GatewayConnection(null, pool, RpcEncoding.JSON);
+            GatewayConnection b = new GatewayConnection(null, pool, RpcEncoding.JSON);
+
+            assertNull(admission.admit(a));
+            assertNull(admission.admit(a));
+            assertEquals(AdmissionController.REASON_CONNECTION, admission.admit(a));
+            assertNull(admission.admit(b));
+            assertEquals(AdmissionController.REASON_GLOBAL, admission.admit(b));
+
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            admission.run(a, a.dispatcher(), () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return CompletableFuture.completedFuture(null);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            GatewayMetrics metrics = admission.metrics(2);
+            assertEquals(1, metrics.getRunning());
+            assertEquals(2, metrics.getQueued());
+            assertEquals(1, metrics.getRejectedPerConnection());
+            assertEquals(1, metrics.getRejectedGlobal());
+            assertEquals(300, admission.retryAfterMs());
+
+            release.countDown();
+            CountDownLatch drained = new CountDownLatch(2);
+            admission.run(a, a.dispatcher(), () -> completed(drained));
+            admission.run(b, b.dispatcher(), () -> completed(drained));
+            assertTrue(drained.await(5, TimeUnit.SECONDS));
+            // The completion counters settle just after the request body returns
+            while (admission.metrics(2).getCompleted() < 3) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, admission.metrics(2).getQueued());
+            assertNull(admission.admit(a));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWaitingRequestHoldsNoThread() throws Exception {
+        OpenClawConfig.GatewayConfig config = new OpenClawConfig.GatewayConfig();
+        config.setMaxInFlight(1);
+        config.setMaxPending(2);
+        AdmissionController admission = new AdmissionController(config);
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            GatewayConnection a = new GatewayConnection(null, pool, RpcEncoding.JSON);
+            CompletableFuture<String> first = new CompletableFuture<>();
+            assertNull(admission.admit(a));
+            CompletableFuture<String> running = admission.run(a, a.dispatcher(), () -> first);
+
+            // No slot: returns at once, and the connection's dispatcher stays free for other work
+            assertNull(admission.admit(a));
+            CompletableFuture<String> waiting = admission.run(a, a.dispatcher(),
+                    () -> CompletableFuture.completedFuture("second"));
+            CountDownLatch dispatched = new CountDownLatch(1);
+            a.dispatcher().execute(dispatched::countDown);
+            assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+            assertFalse(waiting.isDone());
+            assertEquals(1, admission.metrics(1).getQueued());
+
+            // The finishing request hands its slot over
+            first.complete("first");
+            assertEquals("first", running.get(5, TimeUnit.SECONDS));
+            assertEquals("second", waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(2, admission.metrics(1).getCompleted());
+            assertEquals(0, admission.metrics(1).getRunning());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConnectionLimit() {
+        OpenClawConfig.GatewayConfig config = new OpenClawConfig.GatewayConfig();
+        config.setMaxConnections(2);
+        AdmissionController admission = new AdmissionController(config);
+        assertTrue(admission.admitConnection(1));
+        assertFalse(admission.admitConnection(2));
+        assertEquals(1, admission.metrics(2).getRejectedConnections());
+    }
+
+    private static CompletableFuture<Void> completed(CountDownLatch latch) {
+        latch.countDown();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
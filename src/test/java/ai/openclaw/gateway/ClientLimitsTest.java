@@ -0,0 +1,51 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientLimitsTest {
+
+    private static OpenClawConfig.ClientToken token(double rate, int burst, int turns) {
+        OpenClawConfig.ClientToken token = new OpenClawConfig.ClientToken();
+        token.setToken("secret");
+        token.setRpcPerSecond(rate);
+        token.setRpcBurst(burst);
+        token.setMaxConcurrentTurns(turns);
+        return token;
+    }
+
+    @Test
+    void testBucketAllowsBurstThenRefills() {
+        ClientLimits limits = new ClientLimits("batch", token(10, 3, 0));
+        long now = 1_000_000_000L;
+        assertEquals(0, limits.acquireRpc(now));
+        assertEquals(0, limits.acquireRpc(now));
+        assertEquals(0, limits.acquireRpc(now));
+        long wait = limits.acquireRpc(now);
+        assertEquals(100_000_000L, wait);
+
+        // One interval later exactly one more call fits
+        assertEquals(0, limits.acquireRpc(now + 100_000_000L));
+        assertTrue(limits.acquireRpc(now + 100_000_000L) > 0);
+        // After a quiet second the full burst is back
+        long later = now + 2_000_000_000L;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limits.acquireRpc(later));
+        }
+        assertTrue(limits.acquireRpc(later) > 0);
+        assertEquals(3, limits.rejected());
+    }
+
+    @Test
+    void testTurnLimit() {
+        ClientLimits limits = new ClientLimits("batch", token(0, 0, 2));
+        assertEquals(0, limits.acquireRpc(0));
+        assertTrue(limits.startTurn());
+        assertTrue(limits.startTurn());
+        assertFalse(limits.startTurn());
+        limits.endTurn();
+        assertTrue(limits.startTurn());
+    }
+}
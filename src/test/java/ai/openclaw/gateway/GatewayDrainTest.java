@@ -0,0 +1,182 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.agent.AgentExecutor;
+import ai.openclaw.agent.TurnRefusedException;
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.SessionStore;
+import ai.openclaw.test.BlockingLlmProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** {@link GatewayServer#drain} with agent turns held in flight by a {@link BlockingLlmProvider}. */
+public class GatewayDrainTest {
+    @TempDir
+    Path dir;
+
+    private GatewayServer server;
+    private AgentExecutor agentExecutor;
+    private BlockingLlmProvider llm;
+    private String sessionId;
+    private Path socket;
+
+    @BeforeEach
+    void setUp() {
+        socket = dir.resolve("gateway.sock");
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(0);
+        gateway.setAuthToken("test-token");
+        gateway.setTransport("virtual");
+        gateway.setUnixSocket(socket.toString());
+        config.setGateway(gateway);
+        OpenClawConfig.AgentConfig agent = new OpenClawConfig.AgentConfig();
+        agent.setProvider("mock");
+        agent.setModel("test-model");
+        config.setAgent(agent);
+
+        SessionStore sessionStore = new SessionStore();
+        sessionId = sessionStore.createSession("test", "user1").getId();
+        llm = new BlockingLlmProvider();
+        agentExecutor = new AgentExecutor(config, sessionStore, llm);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        // As GatewayCommand registers it
+        router.register("agent.send", params -> {
+            try {
+                String response = agentExecutor.execute(params.get("sessionId").asText(), params.get("message").asText());
+                return Json.mapper().createObjectNode().put("response", response);
+            } catch (TurnRefusedException e) {
+                throw GatewayServer.drainingError(gateway.getRetryAfterMs());
+            }
+        });
+        server = new GatewayServer(config, router);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        llm.release();
+        server.stop(1000, "done");
+    }
+
+    private byte[] send(String id) {
+        return ("{\"id\":\"" + id + "\",\"method\":\"agent.send\",\"params\":{\"sessionId\":\"" + sessionId
+                + "\",\"message\":\"Hello\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private CompletableFuture<Boolean> drainAsync(Duration timeout) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return server.drain(timeout, agentExecutor);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void testRunningTurnFinishesWhileNewWorkIsRefused() throws Exception {
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON);
+             UnixSocketClient other = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+            client.send(send("running"));
+            assertTrue(llm.awaitEntered(5, TimeUnit.SECONDS));
+
+            CompletableFuture<Boolean> drained = drainAsync(Duration.ofSeconds(10));
+            assertEquals(GatewayServer.DRAINING, Json.mapper().readTree(client.receive()).get("method").asText());
+            assertEquals(GatewayServer.DRAINING, Json.mapper().readTree(other.receive()).get("method").asText());
+
+            // New turns are refused with a retry hint; other calls are still served
+            other.send(send("late"));
+            JsonNode refused = Json.mapper().readTree(other.receive());
+            assertEquals("late", refused.get("id").asText());
+            assertEquals(RpcProtocol.SERVER_OVERLOADED, refused.get("error").get("code").asInt());
+            assertEquals("draining", refused.get("error").get("data").get("reason").asText());
+            other.send("{\"id\":\"h\",\"method\":\"gateway.health\"}".getBytes(StandardCharsets.UTF_8));
+            assertEquals("ok", Json.mapper().readTree(other.receive()).get("result").get("status").asText());
+
+            // So are new connections
+            try (UnixSocketClient late = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+                IOException closed = assertThrows(IOException.class, late::receive);
+                assertTrue(closed.getMessage().contains("1012"));
+            }
+
+            assertFalse(drained.isDone());
+            llm.release();
+            JsonNode finished = Json.mapper().readTree(client.receive());
+            assertEquals("running", finished.get("id").asText());
+            assertEquals("Mock response from OpenClaw", finished.get("result").get("response").asText());
+            assertTrue(drained.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testDrainTimesOut() throws Exception {
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+            client.send(send("stuck"));
+            assertTrue(llm.awaitEntered(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            assertFalse(server.drain(Duration.ofMillis(300), agentExecutor));
+            // Gives up on the turn instead of waiting for it
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+            assertEquals(1, agentExecutor.activeTurns().size());
+        }
+    }
+
+    @Test
+    void testWaitsForTurnsStartedOutsideTheGateway() throws Exception {
+        // A console turn, which never passes through the gateway's dispatch
+        CompletableFuture<String> console = CompletableFuture.supplyAsync(() -> agentExecutor.execute(sessionId, "Hi"));
+        assertTrue(llm.awaitEntered(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> drained = drainAsync(Duration.ofSeconds(10));
+        Thread.sleep(200);
+        assertFalse(drained.isDone());
+        assertThrows(TurnRefusedException.class, () -> agentExecutor.execute(sessionId, "Too late"));
+
+        llm.release();
+        assertEquals("Mock response from OpenClaw", console.get(5, TimeUnit.SECONDS));
+        assertTrue(drained.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testReplacementBindsTheSamePortWithReusePort() throws Exception {
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(0);
+        gateway.setAuthToken("test-token");
+        gateway.setTransport("virtual");
+        gateway.setReusePort(true);
+        config.setGateway(gateway);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        GatewayServer old = new GatewayServer(config, router);
+        old.start();
+        gateway.setPort(old.getPort());
+        GatewayServer replacement = new GatewayServer(config, router);
+        try {
+            // Binds while the old gateway still listens, then takes over as it drains
+            replacement.start();
+            assertTrue(old.drain(Duration.ofSeconds(1), agentExecutor));
+            try (Socket probe = new Socket("127.0.0.1", gateway.getPort())) {
+                assertTrue(probe.isConnected());
+            }
+        } finally {
+            replacement.stop(1000, "done");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyMiddlewareTest {
+
+    private static ObjectNode send(String key, String message) {
+        ObjectNode params = Json.mapper().createObjectNode().put("sessionId", "s1").put("message", message);
+        if (key != null) {
+            params.put(IdempotencyMiddleware.KEY_FIELD, key);
+        }
+        return params;
+    }
+
+    @Test
+    void testRetriesAttachToRunningCallAndReplayAfter() {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<JsonNode> turn = new CompletableFuture<>();
+        RpcRouter router = new RpcRouter();
+        router.registerAsync("agent.send", params -> {
+            runs.incrementAndGet();
+            return turn;
+        });
+        router.use(new IdempotencyMiddleware(new OpenClawConfig.GatewayConfig(), Set.of("agent.send")));
+
+        CompletableFuture<JsonNode> first = router.call("agent.send", send("k1", "hello"));
+        CompletableFuture<JsonNode> retry = router.call("agent.send", send("k1", "hello"));
+        assertFalse(retry.isDone());
+        turn.complete(Json.mapper().createObjectNode().put("response", "hi"));
+        assertEquals("hi", first.join().get("response").asText());
+        assertEquals("hi", retry.join().get("response").asText());
+        assertEquals("hi", router.call("agent.send", send("k1", "hello")).join().get("response").asText());
+        assertEquals(1, runs.get());
+
+        CompletionException reused = assertThrows(CompletionException.class,
+                () -> router.call("agent.send", send("k1", "something else")).join());
+        assertEquals(RpcException.INVALID_PARAMS, ((RpcException) reused.getCause()).getCode());
+
+        router.call("agent.send", send(null, "hello")).join();
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testFailedCallIsForgottenAndSizeIsBounded() {
+        OpenClawConfig.GatewayConfig config = new OpenClawConfig.GatewayConfig();
+        config.setIdempotencyMaxEntries(2);
+        IdempotencyMiddleware idempotency = new IdempotencyMiddleware(config, Set.of("agent.send"));
+        AtomicInteger runs = new AtomicInteger();
+        RpcRouter router = new RpcRouter();
+        router.register("agent.send", params -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IllegalStateException("provider down");
+            }
+            return Json.mapper().createObjectNode().put("response", "ok");
+        });
+        router.use(idempotency);
+
+        assertThrows(CompletionException.class, () -> router.call("agent.send", send("k1", "hello")).join());
+        assertEquals("ok", router.call("agent.send", send("k1", "hello")).join().get("response").asText());
+        assertEquals(2, runs.get());
+
+        router.call("agent.send", send("k2", "hello")).join();
+        router.call("agent.send", send("k3", "hello")).join();
+        assertEquals(2, idempotency.size());
+    }
+
+    private static RpcContext caller(String token) {
+        return new RpcContext() {
+            @Override
+            public void notify(String method, JsonNode params) {
+            }
+
+            @Override
+            public String client() {
+                return token;
+            }
+        };
+    }
+
+    @Test
+    void testKeysAreScopedToTheTokenAndIgnoreDeliveryParams() {
+        AtomicInteger runs = new AtomicInteger();
+        RpcRouter router = new RpcRouter();
+        router.register("agent.send", params ->
+                Json.mapper().createObjectNode().put("response", "run " + runs.incrementAndGet()));
+        router.use(new IdempotencyMiddleware(new OpenClawConfig.GatewayConfig(), Set.of("agent.send"),
+                Set.of("progress")));
+
+        assertEquals("run 1", router.call("agent.send", send("k1", "hello"), caller("alice"))
+                .join().get("response").asText());
+        // Same key from another token is another call, and does not see alice's reply
+        assertEquals("run 2", router.call("agent.send", send("k1", "hello"), caller("bob"))
+                .join().get("response").asText());
+        // A retry that now asks for progress is still the same call
+        assertEquals("run 1", router.call("agent.send", send("k1", "hello").put("progress", true), caller("alice"))
+                .join().get("response").asText());
+        assertEquals(2, runs.get());
+    }
+}
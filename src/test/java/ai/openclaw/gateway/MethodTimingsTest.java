@@ -0,0 +1,35 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodTimingsTest {
+
+    @Test
+    void testRecordsCallsOfRegisteredMethods() {
+        MethodTimings timings = new MethodTimings();
+        RpcRouter router = new RpcRouter(timings);
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        router.register("agent.fail", params -> {
+            throw new RpcException(RpcException.INVALID_PARAMS, "bad params");
+        });
+
+        router.call("gateway.health", null).join();
+        router.call("gateway.health", null).join();
+        assertThrows(CompletionException.class, () -> router.call("agent.fail", null).join());
+        assertThrows(CompletionException.class, () -> router.call("no.such.method", null).join());
+
+        Map<String, MethodTimings.MethodTiming> snapshot = timings.snapshot();
+        assertEquals(Set.of("agent.fail", "gateway.health"), snapshot.keySet());
+        assertEquals(2, snapshot.get("gateway.health").calls());
+        assertEquals(0, snapshot.get("gateway.health").failures());
+        assertEquals(1, snapshot.get("agent.fail").failures());
+        assertTrue(snapshot.get("gateway.health").maxMicros() >= snapshot.get("gateway.health").meanMicros());
+    }
+}
@@ -0,0 +1,75 @@
+package ai.openclaw.gateway;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RpcCodecTest {
+    private final RpcCodec codec = new RpcCodec(RpcEncoding.JSON, method -> !Set.of("gateway.health").contains(method));
+
+    private RpcProtocol.RpcMessage read(String frame) throws Exception {
+        try (JsonParser parser = codec.parser(frame)) {
+            parser.nextToken();
+            return codec.readRequest(parser);
+        }
+    }
+
+    @Test
+    void testReadsRequestAndSkipsParamsOfParameterlessMethods() throws Exception {
+        RpcProtocol.RpcMessage send = read(
+                "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"agent.send\",\"params\":{\"sessionId\":\"s1\",\"tags\":[1,2]}}");
+        assertEquals("7", send.getId());
+        assertEquals("agent.send", send.getMethod());
+        assertEquals("s1", send.getParams().get("sessionId").asText());
+        assertEquals(2, send.getParams().get("tags").size());
+
+        RpcProtocol.RpcMessage health = read(
+                "{\"id\":\"h\",\"method\":\"gateway.health\",\"params\":{\"deep\":{\"nested\":[{}]}},\"extra\":[1]}");
+        assertEquals("h", health.getId());
+        assertEquals("gateway.health", health.getMethod());
+        assertNull(health.getParams());
+
+        // Params ahead of the method cannot be skipped, so they are read
+        RpcProtocol.RpcMessage reordered = read("{\"params\":{\"a\":1},\"method\":\"gateway.health\",\"id\":\"r\"}");
+        assertEquals(1, reordered.getParams().get("a").asInt());
+        assertEquals("r", reordered.getId());
+
+        RpcProtocol.RpcMessage invalid = read("{\"id\":\"x\",\"method\":{\"not\":\"a name\"}}");
+        assertEquals("x", invalid.getId());
+        assertNull(invalid.getMethod());
+    }
+
+    @Test
+    void testReadsBatchFromBytesAndWritesResponses() throws Exception {
+        byte[] frame = "[{\"id\":\"1\",\"method\":\"a\"},5,{\"id\":\"2\",\"method\":\"b\",\"params\":[1]}]"
+                .getBytes(StandardCharsets.UTF_8);
+        List<RpcProtocol.RpcMessage> batch;
+        try (JsonParser parser = codec.parser(ByteBuffer.wrap(frame))) {
+            parser.nextToken();
+            batch = codec.readBatch(parser);
+        }
+        assertEquals(3, batch.size());
+        assertEquals("a", batch.get(0).getMethod());
+        assertNull(batch.get(1).getMethod());
+        assertEquals("b", batch.get(2).getMethod());
+
+        RpcProtocol.RpcMessage response = new RpcProtocol.RpcMessage();
+        response.setId("1");
+        ObjectNode result = RpcEncoding.JSON.mapper().createObjectNode().put("status", "ok");
+        response.setResult(result);
+        assertEquals("{\"id\":\"1\",\"result\":{\"status\":\"ok\"}}",
+                new String(codec.encode(response), StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(List.of(response, response), out);
+        assertEquals("[{\"id\":\"1\",\"result\":{\"status\":\"ok\"}},{\"id\":\"1\",\"result\":{\"status\":\"ok\"}}]",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
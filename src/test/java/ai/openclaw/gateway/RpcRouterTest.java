@@ -0,0 +1,95 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RpcRouterTest {
+
+    private static RpcMiddleware recording(String name, List<String> calls, String onlyPrefix) {
+        return new RpcMiddleware() {
+            @Override
+            public boolean appliesTo(String method) {
+                return method.startsWith(onlyPrefix);
+            }
+
+            @Override
+            public CompletableFuture<JsonNode> invoke(String method, JsonNode params, RpcContext context, Next next) {
+                calls.add(name + ":" + method);
+                return next.invoke(params);
+            }
+        };
+    }
+
+    @Test
+    void testMiddlewareRunsInOrderOnMatchingMethods() {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RpcRouter router = new RpcRouter();
+        router.register("session.get", params -> params);
+        router.use(recording("first", calls, "session."));
+        router.use(recording("second", calls, ""));
+        router.register("gateway.health", params -> Json.mapper().createObjectNode().put("status", "ok"));
+
+        ObjectNode params = Json.mapper().createObjectNode().put("sessionId", "s1");
+        assertEquals(params, router.call("session.get", params).join());
+        assertEquals("ok", router.call("gateway.health", null).join().get("status").asText());
+        assertEquals(List.of("first:session.get", "second:session.get", "second:gateway.health"), calls);
+    }
+
+    @Test
+    void testAsyncHandlerAndTimer() {
+        List<String> timings = new CopyOnWriteArrayList<>();
+        RpcRouter router = new RpcRouter((method, nanos, failure) ->
+                timings.add(method + (failure == null ? ":ok" : ":failed")));
+        CompletableFuture<JsonNode> pending = new CompletableFuture<>();
+        router.registerAsync("agent.wait", params -> pending);
+        router.register("agent.fail", params -> {
+            throw new RpcException(RpcException.INVALID_PARAMS, "bad params");
+        });
+
+        CompletableFuture<JsonNode> result = router.call("agent.wait", null);
+        assertFalse(result.isDone());
+        assertTrue(timings.isEmpty());
+        pending.complete(Json.mapper().createObjectNode().put("done", true));
+        assertTrue(result.join().get("done").asBoolean());
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> router.call("agent.fail", null).join());
+        assertEquals(RpcException.INVALID_PARAMS, ((RpcException) failure.getCause()).getCode());
+        assertEquals(List.of("agent.wait:ok", "agent.fail:failed"), timings);
+    }
+
+    @Test
+    void testUnknownMethodFailsWithMethodNotFound() {
+        RpcRouter router = new RpcRouter();
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> router.call("nope", null).join());
+        assertEquals(RpcException.METHOD_NOT_FOUND, ((RpcException) failure.getCause()).getCode());
+    }
+
+    @Test
+    void testContextReachesContextualHandlers() {
+        List<String> notified = new CopyOnWriteArrayList<>();
+        RpcRouter router = new RpcRouter();
+        router.use(recording("middleware", new CopyOnWriteArrayList<>(), ""));
+        router.register("agent.work", (params, context) -> {
+            context.notify("agent.progress", params);
+            return Json.mapper().createObjectNode().put("done", true);
+        });
+
+        ObjectNode params = Json.mapper().createObjectNode().put("step", 1);
+        assertTrue(router.call("agent.work", params, (method, p) -> notified.add(method + ":" + p.get("step")))
+                .join().get("done").asBoolean());
+        assertEquals(List.of("agent.progress:1"), notified);
+        // Without a caller, notifications go nowhere
+        assertTrue(router.call("agent.work", params).join().get("done").asBoolean());
+    }
+}
@@ -0,0 +1,62 @@
+package ai.openclaw.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerialExecutorTest {
+
+    @Test
+    void testTasksRunInSubmissionOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            SerialExecutor serial = new SerialExecutor(pool);
+            List<Integer> seen = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                int n = i;
+                serial.execute(() -> {
+                    seen.add(n);
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(IntStream.range(0, 1000).boxed().toList(), seen);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBlockedQueueDoesNotStallOthers() throws Exception {
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            SerialExecutor slow = new SerialExecutor(pool);
+            SerialExecutor fast = new SerialExecutor(pool);
+            slow.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CountDownLatch ran = new CountDownLatch(1);
+            fast.execute(ran::countDown);
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertEquals(0, slow.pending());
+            release.countDown();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
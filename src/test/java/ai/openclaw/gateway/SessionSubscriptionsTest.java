@@ -0,0 +1,102 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.Message;
+import ai.openclaw.session.SessionEvent;
+import ai.openclaw.session.SessionStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionSubscriptionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<GatewayConnection, List<byte[]>> sent = new ConcurrentHashMap<>();
+
+    private void record(GatewayConnection connection, byte[] message) {
+        sent.computeIfAbsent(connection, k -> new ArrayList<>()).add(message);
+    }
+
+    private static GatewayConnection connection(int backlog) {
+        return new GatewayConnection(null, Runnable::run, RpcEncoding.JSON) {
+            @Override
+            int backlog() {
+                return backlog;
+            }
+        };
+    }
+
+    @Test
+    void testAppendedMessagesFanOutEncodedOnce() throws Exception {
+        SessionSubscriptions subscriptions = new SessionSubscriptions(new OpenClawConfig.GatewayConfig(), this::record);
+        GatewayConnection a = connection(0);
+        GatewayConnection b = connection(0);
+        GatewayConnection other = connection(0);
+        try (SessionStore store = new SessionStore(tempDir, new OpenClawConfig.SessionConfig())) {
+            store.addListener(subscriptions);
+            String sessionId = store.createSession("console", "user1").getId();
+            String otherId = store.createSession("console", "user2").getId();
+            subscriptions.subscribe(a, sessionId);
+            subscriptions.subscribe(b, sessionId);
+            subscriptions.subscribe(other, otherId);
+
+            store.appendMessage(sessionId, new Message("user", "hello"));
+            store.publish(new SessionEvent(SessionEvent.TURN_STARTED, sessionId));
+            subscriptions.unsubscribe(b, sessionId);
+            store.appendMessage(sessionId, new Message("assistant", "hi"));
+        }
+
+        assertEquals(3, sent.get(a).size());
+        assertEquals(2, sent.get(b).size());
+        assertNull(sent.get(other));
+        assertSame(sent.get(a).get(0), sent.get(b).get(0));
+
+        JsonNode event = Json.mapper().readTree(sent.get(a).get(0));
+        assertEquals(SessionSubscriptions.EVENT, event.get("method").asText());
+        assertEquals("message", event.get("params").get("type").asText());
+        assertEquals(0, event.get("params").get("index").asInt());
+        assertEquals("hello", event.get("params").get("message").get("content").asText());
+        assertEquals("turn.started", Json.mapper().readTree(sent.get(a).get(1)).get("params").get("type").asText());
+        assertEquals(2, subscriptions.count());
+    }
+
+    @Test
+    void testSlowSubscriberIsToldWhatItMissed() throws Exception {
+        OpenClawConfig.GatewayConfig config = new OpenClawConfig.GatewayConfig();
+        config.setSubscriberBufferFrames(10);
+        SessionSubscriptions subscriptions = new SessionSubscriptions(config, this::record);
+        int[] backlog = {50};
+        GatewayConnection slow = new GatewayConnection(null, Runnable::run, RpcEncoding.JSON) {
+            @Override
+            int backlog() {
+                return backlog[0];
+            }
+        };
+        subscriptions.subscribe(slow, "s1");
+
+        subscriptions.onEvent(new SessionEvent(SessionEvent.TURN_STARTED, "s1"));
+        subscriptions.onEvent(new SessionEvent(SessionEvent.TURN_COMPLETED, "s1"));
+        assertNull(sent.get(slow));
+        assertEquals(2, subscriptions.droppedEvents());
+
+        backlog[0] = 0;
+        subscriptions.onEvent(new SessionEvent(SessionEvent.TURN_STARTED, "s1"));
+        List<byte[]> received = sent.get(slow);
+        assertEquals(2, received.size());
+        JsonNode overflow = Json.mapper().readTree(received.get(0));
+        assertEquals(SessionSubscriptions.OVERFLOW, overflow.get("method").asText());
+        assertEquals(2, overflow.get("params").get("dropped").asInt());
+        assertEquals(SessionSubscriptions.EVENT, Json.mapper().readTree(received.get(1)).get("method").asText());
+    }
+}
@@ -0,0 +1,117 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The gateway's Unix domain socket, driven by {@link UnixSocketClient}. */
+public class UnixSocketTransportTest {
+    @TempDir
+    Path dir;
+
+    private GatewayServer server;
+
+    private Path start(String transport) {
+        Path socket = dir.resolve("gateway.sock");
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(0);
+        gateway.setAuthToken("test-token");
+        gateway.setTransport(transport);
+        gateway.setUnixSocket(socket.toString());
+        gateway.setFrameFragmentBytes(1024);
+        config.setGateway(gateway);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        router.register("echo", params -> params);
+        router.register("work", (params, context) -> {
+            context.notify("work.progress", params);
+            return Json.mapper().createObjectNode().put("done", true);
+        });
+        server = new GatewayServer(config, router);
+        server.start();
+        return socket;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.stop(1000, "done");
+        }
+    }
+
+    @Test
+    void testRequestsOverUnixSocket() throws Exception {
+        Path socket = start("virtual");
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+            client.send("{\"id\":\"1\",\"method\":\"gateway.health\"}".getBytes(StandardCharsets.UTF_8));
+            JsonNode health = Json.mapper().readTree(client.receive());
+            assertEquals("ok", health.get("result").get("status").asText());
+
+            // Answered in several 1 KB fragments
+            String big = "y".repeat(5000);
+            client.send(("{\"id\":\"2\",\"method\":\"echo\",\"params\":{\"text\":\"" + big + "\"}}")
+                    .getBytes(StandardCharsets.UTF_8));
+            assertEquals(big, Json.mapper().readTree(client.receive()).get("result").get("text").asText());
+        }
+    }
+
+    @Test
+    void testBinaryEncodingWithJavaWebSocketTransport() throws Exception {
+        Path socket = start("java-websocket");
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.SMILE)) {
+            client.send(RpcEncoding.SMILE.mapper().writeValueAsBytes(
+                    Json.mapper().createObjectNode().put("id", "s").put("method", "gateway.health")));
+            JsonNode health = RpcEncoding.SMILE.mapper().readTree(client.receive());
+            assertEquals("ok", health.get("result").get("status").asText());
+        }
+    }
+
+    @Test
+    void testRejectsWrongToken() throws Exception {
+        Path socket = start("virtual");
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "wrong", RpcEncoding.JSON)) {
+            IOException closed = assertThrows(IOException.class, client::receive);
+            assertTrue(closed.getMessage().contains("1008"));
+        }
+    }
+
+    @Test
+    void testReplacesStaleSocketFileAndRemovesItOnStop() throws Exception {
+        Files.createFile(dir.resolve("gateway.sock"));
+        Path socket = start("virtual");
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+            client.send("{\"id\":\"1\",\"method\":\"gateway.health\"}".getBytes(StandardCharsets.UTF_8));
+            assertNotNull(client.receive());
+        }
+        server.stop(1000, "done");
+        server = null;
+        assertFalse(Files.exists(socket));
+        assertThrows(IOException.class, () -> UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON));
+    }
+
+    @Test
+    void testNotificationsPrecedeResponse() throws Exception {
+        Path socket = start("virtual");
+        try (UnixSocketClient client = UnixSocketClient.connect(socket, "test-token", RpcEncoding.JSON)) {
+            client.send("{\"id\":\"w\",\"method\":\"work\",\"params\":{\"step\":1}}".getBytes(StandardCharsets.UTF_8));
+            JsonNode notification = Json.mapper().readTree(client.receive());
+            assertFalse(notification.has("id"));
+            assertEquals("work.progress", notification.get("method").asText());
+            assertEquals(1, notification.get("params").get("step").asInt());
+            JsonNode response = Json.mapper().readTree(client.receive());
+            assertEquals("w", response.get("id").asText());
+            assertTrue(response.get("result").get("done").asBoolean());
+        }
+    }
+}
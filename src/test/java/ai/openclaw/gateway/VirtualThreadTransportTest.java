@@ -0,0 +1,325 @@
+package ai.openclaw.gateway;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.gateway.cluster.Cluster;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Drives the virtual-thread transport with the JDK's own WebSocket client. */
+public class VirtualThreadTransportTest {
+    private GatewayServer server;
+    private HttpClient http;
+
+    /** Collects whole messages, text or binary, and the close code. */
+    private static final class Collector implements WebSocket.Listener {
+        final BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        final CompletableFuture<Integer> closed = new CompletableFuture<>();
+        private final StringBuilder text = new StringBuilder();
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        int textParts;
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            text.append(data);
+            textParts++;
+            if (last) {
+                messages.add(text.toString());
+                text.setLength(0);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            binary.write(bytes, 0, bytes.length);
+            if (last) {
+                messages.add(binary.toByteArray());
+                binary.reset();
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            closed.complete(statusCode);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            closed.completeExceptionally(error);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        OpenClawConfig config = new OpenClawConfig();
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setPort(0);
+        gateway.setAuthToken("test-token");
+        gateway.setTransport("virtual");
+        gateway.setFrameFragmentBytes(1024);
+        config.setGateway(gateway);
+        RpcRouter router = new RpcRouter();
+        router.register("gateway.health", () -> Json.mapper().createObjectNode().put("status", "ok"));
+        router.register("echo", params -> params);
+        server = new GatewayServer(config, router);
+        server.start();
+        http = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(1000, "done");
+        http.close();
+    }
+
+    private WebSocket connect(Collector collector, String token, String... subprotocols) {
+        WebSocket.Builder builder = http.newWebSocketBuilder().header("Authorization", "Bearer " + token);
+        if (subprotocols.length > 0) {
+            builder.subprotocols(subprotocols[0]);
+        }
+        return builder.buildAsync(URI.create("ws://127.0.0.1:" + server.getPort()), collector).join();
+    }
+
+    @Test
+    void testRequestsAndFragmentedResponses() throws Exception {
+        Collector collector = new Collector();
+        WebSocket ws = connect(collector, "test-token");
+
+        ws.sendText("{\"id\":\"1\",\"method\":\"gateway.health\"}", true).join();
+        JsonNode health = Json.mapper().readTree((String) collector.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals("1", health.get("id").asText());
+        assertEquals("ok", health.get("result").get("status").asText());
+
+        // A request sent in two frames, answered in several 1 KB fragments
+        String big = "x".repeat(5000) + "é";
+        ws.sendText("{\"id\":\"2\",\"method\":\"echo\",", false).join();
+        ws.sendText("\"params\":{\"text\":\"" + big + "\"}}", true).join();
+        collector.textParts = 0;
+        JsonNode echo = Json.mapper().readTree((String) collector.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals(big, echo.get("result").get("text").asText());
+        assertTrue(collector.textParts > 1);
+
+        ws.sendClose(WebSocket.NORMAL_CLOSURE, "bye").join();
+        assertEquals(WebSocket.NORMAL_CLOSURE, collector.closed.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    void testBinarySubprotocol() throws Exception {
+        Collector collector = new Collector();
+        WebSocket ws = connect(collector, "test-token", RpcEncoding.SMILE.subprotocol());
+        assertEquals(RpcEncoding.SMILE.subprotocol(), ws.getSubprotocol());
+
+        byte[] request = RpcEncoding.SMILE.mapper().writeValueAsBytes(
+                Json.mapper().createObjectNode().put("id", "s").put("method", "gateway.health"));
+        ws.sendBinary(ByteBuffer.wrap(request), true).join();
+        byte[] response = (byte[]) collector.messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(response);
+        assertEquals("ok", RpcEncoding.SMILE.mapper().readTree(response).get("result").get("status").asText());
+        ws.abort();
+    }
+
+    @Test
+    void testRejectsWrongToken() throws Exception {
+        Collector collector = new Collector();
+        connect(collector, "wrong");
+        assertEquals(1008, collector.closed.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    void testNodeHeaderWithoutClusteringIsAnOrdinaryClient() throws Exception {
+        Collector collector = new Collector();
+        http.newWebSocketBuilder()
+                .header("Authorization", "Bearer wrong")
+                .header(Cluster.NODE_HEADER, "intruder")
+                .buildAsync(URI.create("ws://127.0.0.1:" + server.getPort()), collector).join();
+        assertEquals(1008, collector.closed.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    /**
+     * A bare RFC 6455 client over a plain socket, for what the JDK client
+     * cannot do: offer permessage-deflate, or send malformed frames.
+     */
+    private static final class RawClient implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final OutputStream out;
+        final String extensions;
+
+        RawClient(int port, String offer) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            socket.setSoTimeout(5000);
+            in = new DataInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+            String request = "GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n"
+                    + "Authorization: Bearer test-token\r\n"
+                    + (offer != null ? "Sec-WebSocket-Extensions: " + offer + "\r\n" : "") + "\r\n";
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            String status = readLine(in);
+            assertTrue(status.startsWith("HTTP/1.1 101"), status);
+            String accepted = null;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                if (line.toLowerCase().startsWith("sec-websocket-extensions:")) {
+                    accepted = line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+            extensions = accepted;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c == -1) {
+                    throw new IOException("Closed during handshake");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        /** Writes a masked frame; {@code b0} carries FIN, the reserved bits and the opcode. */
+        void writeFrame(int b0, byte[] payload) throws IOException {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            frame.write(b0);
+            if (payload.length < 126) {
+                frame.write(0x80 | payload.length);
+            } else {
+                frame.write(0x80 | 126);
+                frame.write(payload.length >> 8);
+                frame.write(payload.length);
+            }
+            byte[] mask = { 1, 2, 3, 4 };
+            frame.write(mask);
+            for (int i = 0; i < payload.length; i++) {
+                frame.write(payload[i] ^ mask[i & 3]);
+            }
+            out.write(frame.toByteArray());
+        }
+
+        /** Reads one frame: its first header byte, then its payload. */
+        Object[] readFrame() throws IOException {
+            int b0 = in.readUnsignedByte();
+            long length = in.readUnsignedByte() & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            return new Object[] { b0, payload };
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /** Deflates a whole message as RFC 7692 sends it: sync-flushed, without the trailing 00 00 FF FF. */
+    private static byte[] deflate(byte[] message) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(message);
+        byte[] out = new byte[message.length + 64];
+        int length = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+        deflater.end();
+        return Arrays.copyOf(out, length - 4);
+    }
+
+    @Test
+    void testPerMessageDeflate() throws Exception {
+        try (RawClient client = new RawClient(server.getPort(), "permessage-deflate; client_max_window_bits")) {
+            assertEquals("permessage-deflate", client.extensions);
+
+            // A compressed request, answered in compressed 1 KB fragments: RSV1 on the first only
+            String big = "z".repeat(5000);
+            byte[] request = ("{\"id\":\"1\",\"method\":\"echo\",\"params\":{\"text\":\"" + big + "\"}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            client.writeFrame(0x80 | 0x40 | 0x1, deflate(request));
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            int frames = 0;
+            while (true) {
+                Object[] frame = client.readFrame();
+                int b0 = (int) frame[0];
+                assertEquals(frames == 0 ? 0x40 : 0, b0 & 0x70);
+                compressed.write((byte[]) frame[1]);
+                frames++;
+                if ((b0 & 0x80) != 0) {
+                    break;
+                }
+            }
+            assertTrue(frames > 1);
+            compressed.write(new byte[] { 0, 0, (byte) 0xFF, (byte) 0xFF });
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(compressed.toByteArray());
+            byte[] inflated = new byte[request.length * 2];
+            int length = inflater.inflate(inflated);
+            inflater.end();
+            JsonNode echo = Json.mapper().readTree(Arrays.copyOf(inflated, length));
+            assertEquals(big, echo.get("result").get("text").asText());
+
+            // A small response goes out uncompressed
+            client.writeFrame(0x81, "{\"id\":\"2\",\"method\":\"gateway.health\"}".getBytes(StandardCharsets.UTF_8));
+            Object[] frame = client.readFrame();
+            assertEquals(0x81, (int) frame[0]);
+            assertEquals("ok", Json.mapper().readTree((byte[]) frame[1]).get("result").get("status").asText());
+        }
+    }
+
+    @Test
+    void testDeclinesUnsupportedDeflateOffer() throws Exception {
+        try (RawClient client = new RawClient(server.getPort(), "permessage-deflate; server_max_window_bits=10")) {
+            assertNull(client.extensions);
+            // Without the extension, RSV1 is a protocol error
+            client.writeFrame(0x80 | 0x40 | 0x1, deflate("{}".getBytes(StandardCharsets.UTF_8)));
+            Object[] close = client.readFrame();
+            assertEquals(0x88, (int) close[0]);
+            assertEquals(1002, ((((byte[]) close[1])[0] & 0xFF) << 8) | (((byte[]) close[1])[1] & 0xFF));
+        }
+    }
+
+    @Test
+    void testNegativeFrameLengthClosesWithProtocolError() throws Exception {
+        try (RawClient client = new RawClient(server.getPort(), null)) {
+            // A 64-bit length with its top bit set
+            client.out.write(new byte[] { (byte) 0x82, (byte) (0x80 | 127),
+                    (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+            Object[] close = client.readFrame();
+            assertEquals(0x88, (int) close[0]);
+            assertEquals(1002, ((((byte[]) close[1])[0] & 0xFF) << 8) | (((byte[]) close[1])[1] & 0xFF));
+        }
+    }
+}
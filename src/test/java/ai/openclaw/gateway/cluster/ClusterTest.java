@@ -0,0 +1,28 @@
+package ai.openclaw.gateway.cluster;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterTest {
+
+    private static OpenClawConfig.GatewayConfig gateway(String secret) {
+        OpenClawConfig.GatewayConfig gateway = new OpenClawConfig.GatewayConfig();
+        gateway.setAuthToken("client-token");
+        gateway.getCluster().setEnabled(true);
+        gateway.getCluster().setAdvertiseUrl("ws://127.0.0.1:18789");
+        gateway.getCluster().setSecret(secret);
+        return gateway;
+    }
+
+    @Test
+    void testRefusesToClusterWithoutASecret() {
+        // The client token is not a fallback: a client holding it could otherwise join as a peer
+        assertThrows(IllegalStateException.class, () -> new Cluster(gateway(null)));
+        assertThrows(IllegalStateException.class, () -> new Cluster(gateway("")));
+        try (Cluster cluster = new Cluster(gateway("peer-secret"))) {
+            assertEquals("peer-secret", cluster.secret());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ai.openclaw.gateway.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+
+    private static List<ClusterNode> nodes(int count) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new ClusterNode("node-" + i, "ws://localhost:" + (18789 + i)));
+        }
+        return nodes;
+    }
+
+    @Test
+    void testKeysSpreadEvenly() {
+        HashRing ring = new HashRing(nodes(4), 128);
+        Map<ClusterNode, Integer> counts = new HashMap<>();
+        int keys = 40_000;
+        for (int i = 0; i < keys; i++) {
+            counts.merge(ring.owner("session-" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > keys / 4 * 0.8 && count < keys / 4 * 1.2, "unbalanced: " + counts);
+        }
+    }
+
+    @Test
+    void testJoinMovesOnlyKeysToTheNewNode() {
+        List<ClusterNode> before = nodes(3);
+        List<ClusterNode> after = nodes(4);
+        HashRing small = new HashRing(before, 128);
+        HashRing large = new HashRing(after, 128);
+        ClusterNode joined = after.get(3);
+        int keys = 40_000;
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String key = "session-" + i;
+            ClusterNode oldOwner = small.owner(key);
+            ClusterNode newOwner = large.owner(key);
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals(joined, newOwner);
+                moved++;
+            }
+        }
+        // About a quarter of the keys move, all of them to the new node
+        assertTrue(moved > keys / 4 * 0.8 && moved < keys / 4 * 1.2, "moved " + moved);
+    }
+
+    @Test
+    void testEmptyRingHasNoOwner() {
+        assertNull(new HashRing(List.of(), 128).owner("session-1"));
+    }
+}
@@ -0,0 +1,53 @@
+package ai.openclaw.gateway.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MembershipTest {
+    private static final long TIMEOUT = 5_000_000_000L;
+    private final ClusterNode self = new ClusterNode("a", "ws://localhost:18789");
+    private final ClusterNode b = new ClusterNode("b", "ws://localhost:18790");
+    private final ClusterNode c = new ClusterNode("c", "ws://localhost:18791");
+
+    @Test
+    void testGossipAddsMembersAndSilenceExpiresThem() {
+        Membership membership = new Membership(self, 16, TIMEOUT);
+        assertEquals(List.of(self), membership.nodes());
+        assertEquals(self, membership.owner("anything"));
+
+        long now = 0;
+        assertTrue(membership.seen(b, now));
+        assertFalse(membership.seen(b, now + 1), "hearing from a known node is not a change");
+        assertTrue(membership.merge(List.of(self, b, c), now));
+        assertEquals(3, membership.nodes().size());
+        assertFalse(membership.merge(List.of(b, c), now + 1));
+
+        // b keeps answering pings; c is only ever mentioned once
+        membership.seen(b, now + TIMEOUT - 1);
+        assertTrue(membership.expire(now + TIMEOUT));
+        assertEquals(List.of(b), membership.peers());
+        assertFalse(membership.seen(self, now), "never a member of itself twice");
+    }
+
+    @Test
+    void testLeaveIsNotUndoneByStaleGossip() {
+        Membership membership = new Membership(self, 16, TIMEOUT);
+        long now = 0;
+        membership.merge(List.of(b, c), now);
+        assertTrue(membership.remove("c", now + 10));
+        assertFalse(membership.remove("c", now + 11));
+
+        // b has not heard yet and still lists c
+        assertFalse(membership.merge(List.of(b, c), now + 20));
+        assertEquals(List.of(b), membership.peers());
+
+        // After the timeout c may rejoin, e.g. after a restart
+        membership.seen(b, now + TIMEOUT + 20);
+        membership.expire(now + TIMEOUT + 20);
+        assertTrue(membership.seen(c, now + TIMEOUT + 20));
+        assertEquals(3, membership.nodes().size());
+    }
+}
@@ -0,0 +1,70 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.OpenClawConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MvStoreSessionBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OpenClawConfig.SessionConfig config() {
+        OpenClawConfig.SessionConfig config = new OpenClawConfig.SessionConfig();
+        config.setBackend("mvstore");
+        config.setSearchEnabled(false);
+        return config;
+    }
+
+    @Test
+    void testReloadAfterCompaction() throws Exception {
+        String sessionId;
+        try (SessionStore store = new SessionStore(tempDir, config())) {
+            sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 4; i++) {
+                store.appendMessage(sessionId, new Message("user", "message number " + i));
+            }
+            store.compact(sessionId, List.of(new Message("user", "summary of 4 messages"))).get();
+            store.appendMessage(sessionId, new Message("user", "after compaction"));
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config())) {
+            Session session = reopened.getSession(sessionId);
+            assertEquals("user1", session.getUserId());
+            List<Message> messages = session.getMessages();
+            assertEquals(2, messages.size());
+            assertEquals("summary of 4 messages", messages.get(0).getContent());
+            assertEquals("after compaction", messages.get(1).getContent());
+        }
+    }
+
+    @Test
+    void testReadRangeUsesTimeIndex() throws Exception {
+        try (SessionStore store = new SessionStore(tempDir, config())) {
+            String sessionId = store.createSession("test", "user1").getId();
+            Instant start = Instant.parse("2024-01-01T00:00:00Z");
+            for (int i = 0; i < 10; i++) {
+                Message message = new Message("user", "message " + i);
+                message.setTimestamp(start.plusSeconds(i * 60L));
+                store.appendMessage(sessionId, message);
+            }
+
+            List<Message> range = store.readRange(sessionId, start.plusSeconds(120), start.plusSeconds(300));
+            assertEquals(3, range.size());
+            assertEquals("message 2", range.get(0).getContent());
+            assertEquals("message 4", range.get(2).getContent());
+        }
+    }
+
+    @Test
+    void testRefusedOnClusterNodes() {
+        // One MVStore file cannot be opened by two processes
+        assertThrows(IllegalStateException.class, () -> new SessionStore(tempDir, config(), "node-a"));
+    }
+}
@@ -0,0 +1,504 @@
+package ai.openclaw.session;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.config.OpenClawConfig;
+import ai.openclaw.session.search.SearchHit;
+import ai.openclaw.session.search.SearchQuery;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OpenClawConfig.SessionConfig config(long segmentMaxBytes, int compactAfterSegments) {
+        OpenClawConfig.SessionConfig config = new OpenClawConfig.SessionConfig();
+        config.setSegmentMaxBytes(segmentMaxBytes);
+        config.setCompactAfterSegments(compactAfterSegments);
+        return config;
+    }
+
+    @Test
+    void testReloadFromDisk() {
+        OpenClawConfig.SessionConfig config = config(4096, 0);
+        String sessionId;
+        try (SessionStore store = new SessionStore(tempDir, config)) {
+            Session session = store.createSession("test", "user1");
+            sessionId = session.getId();
+            store.appendMessage(sessionId, new Message("user", "hello"));
+            store.appendMessage(sessionId, new Message("assistant", "hi there"));
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config)) {
+            Session session = reopened.getSession(sessionId);
+            assertNotNull(session);
+            assertEquals("test", session.getChannelType());
+            assertEquals("user1", session.getUserId());
+            assertEquals(2, session.getMessages().size());
+            assertEquals("hi there", session.getMessages().get(1).getContent());
+        }
+    }
+
+    @Test
+    void testUsageListsLargestSessionFirst() {
+        try (SessionStore store = new SessionStore(tempDir, config(4096, 0))) {
+            String small = store.createSession("test", "user1").getId();
+            String large = store.createSession("test", "user2").getId();
+            store.appendMessage(small, new Message("user", "hi"));
+            store.appendMessage(large, new Message("user", "x".repeat(10_000)));
+            store.appendMessage(large, new Message("assistant", "ok"));
+
+            List<SessionUsage> usage = store.usage();
+            assertEquals(2, usage.size());
+            assertEquals(large, usage.get(0).sessionId());
+            assertEquals(2, usage.get(0).messages());
+            assertTrue(usage.get(0).estimatedBytes() > 10_000);
+            assertEquals(store.getSession(large).getEstimatedBytes(), usage.get(0).estimatedBytes());
+            assertEquals(small, usage.get(1).sessionId());
+            assertTrue(store.openFiles() >= 0);
+        }
+    }
+
+    @Test
+    void testSearchSnippetDoesNotReloadEvictedSession() {
+        try (SessionStore store = new SessionStore(tempDir, config(4096, 0))) {
+            String sessionId = store.createSession("test", "user1").getId();
+            store.appendMessage(sessionId, new Message("user", "where is the deployment runbook"));
+            store.evict(id -> true);
+
+            List<SearchHit> hits = store.search(new SearchQuery("runbook"));
+            assertEquals(1, hits.size());
+            assertEquals("where is the deployment runbook", hits.get(0).getSnippet());
+            assertTrue(store.usage().isEmpty());
+        }
+    }
+
+    @Test
+    void testCompactionWithReplacementReindexesSession() {
+        try (SessionStore store = new SessionStore(tempDir, config(4096, 0))) {
+            String sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 3; i++) {
+                store.appendMessage(sessionId, new Message("user", "alpha " + i));
+            }
+            store.compact(sessionId, List.of(new Message("assistant", "beta summary"))).join();
+            store.appendMessage(sessionId, new Message("user", "gamma follow-up"));
+
+            assertTrue(store.search(new SearchQuery("alpha")).isEmpty());
+            assertEquals(0, store.search(new SearchQuery("beta")).get(0).getMessageIndex());
+            SearchHit followUp = store.search(new SearchQuery("gamma")).get(0);
+            assertEquals(1, followUp.getMessageIndex());
+            assertEquals("gamma follow-up", followUp.getSnippet());
+        }
+    }
+
+    @Test
+    void testReindexesMessagesLostWithUnflushedIndex() {
+        OpenClawConfig.SessionConfig config = config(4096, 0);
+        SessionStore crashed = new SessionStore(tempDir, config);
+        String sessionId = crashed.createSession("test", "user1").getId();
+        crashed.appendMessage(sessionId, new Message("user", "first needle"));
+        crashed.appendMessage(sessionId, new Message("assistant", "second needle"));
+
+        // The first store never closed, so its index tail never reached disk
+        try (SessionStore reopened = new SessionStore(tempDir, config)) {
+            List<SearchHit> hits = reopened.search(new SearchQuery("needle"));
+            assertEquals(2, hits.size());
+            assertTrue(reopened.usage().isEmpty());
+        }
+    }
+
+    @Test
+    void testSegmentsRotateOnSize() throws Exception {
+        try (SessionStore store = new SessionStore(tempDir, config(64, 0))) {
+            String sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 5; i++) {
+                store.appendMessage(sessionId, new Message("user", "message number " + i));
+            }
+            assertEquals(5, SessionLog.listSegments(tempDir.resolve(sessionId)).size());
+        }
+    }
+
+    @Test
+    void testSegmentAgeCountsFromWhenItWasOpened() throws Exception {
+        OpenClawConfig.SessionConfig config = config(1 << 20, 0);
+        config.setSegmentMaxAgeMinutes(60);
+        String sessionId;
+        try (SessionStore store = new SessionStore(tempDir, config)) {
+            sessionId = store.createSession("test", "user1").getId();
+            store.appendMessage(sessionId, new Message("user", "first"));
+        }
+        // Opened two hours ago, though the file itself is brand new
+        Path dir = tempDir.resolve(sessionId);
+        Path segment = SessionLog.listSegments(dir).get(1);
+        Files.move(segment, dir.resolve(SessionLog.segmentName(1, Instant.now().minusSeconds(7200))));
+
+        try (SessionStore reopened = new SessionStore(tempDir, config)) {
+            reopened.appendMessage(sessionId, new Message("user", "second"));
+            assertEquals(2, SessionLog.listSegments(dir).size());
+            reopened.appendMessage(sessionId, new Message("user", "third"));
+            assertEquals(2, SessionLog.listSegments(dir).size());
+        }
+    }
+
+    @Test
+    void testCompactionReplacesHistoryAndDropsSegments() throws Exception {
+        String sessionId;
+        try (SessionStore store = new SessionStore(tempDir, config(64, 0))) {
+            sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 4; i++) {
+                store.appendMessage(sessionId, new Message("user", "message number " + i));
+            }
+            store.compact(sessionId, List.of(new Message("user", "summary of 4 messages"))).get();
+            store.appendMessage(sessionId, new Message("user", "after compaction"));
+
+            Path dir = tempDir.resolve(sessionId);
+            assertEquals(1, SessionLog.listSegments(dir).size());
+            assertTrue(Files.exists(dir.resolve(SessionLog.SNAPSHOT_FILE)));
+            assertEquals(2, store.getSession(sessionId).getMessages().size());
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config(64, 0))) {
+            List<Message> messages = reopened.getSession(sessionId).getMessages();
+            assertEquals(2, messages.size());
+            assertEquals("summary of 4 messages", messages.get(0).getContent());
+            assertEquals("after compaction", messages.get(1).getContent());
+        }
+    }
+
+    @Test
+    void testPrefixCompactionKeepsLaterMessages() throws Exception {
+        String sessionId;
+        try (SessionStore store = new SessionStore(tempDir, config(64, 0))) {
+            sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 4; i++) {
+                store.appendMessage(sessionId, new Message("user", "message number " + i));
+            }
+            List<Message> prefix = store.getSession(sessionId).getMessages().subList(0, 3);
+            // Appended after the summarizer read the history
+            store.appendMessage(sessionId, new Message("user", "while summarizing"));
+            store.compactPrefix(sessionId, prefix, List.of(new Message("user", "summary of 3 messages"))).get();
+
+            // Read before the replacement: no longer the start of the history
+            store.compactPrefix(sessionId, prefix, List.of(new Message("user", "stale summary"))).get();
+            assertEquals(List.of("summary of 3 messages", "message number 3", "while summarizing"),
+                    store.getSession(sessionId).getMessages().stream().map(Message::getContent).toList());
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config(64, 0))) {
+            List<Message> messages = reopened.getSession(sessionId).getMessages();
+            assertEquals(List.of("summary of 3 messages", "message number 3", "while summarizing"),
+                    messages.stream().map(Message::getContent).toList());
+        }
+    }
+
+    @Test
+    void testArchiveKeepsCompactedSegments() throws Exception {
+        OpenClawConfig.SessionConfig config = config(64, 0);
+        config.setArchiveSegments(true);
+        try (SessionStore store = new SessionStore(tempDir, config)) {
+            String sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 3; i++) {
+                store.appendMessage(sessionId, new Message("user", "message number " + i));
+            }
+            store.compact(sessionId).get();
+
+            assertEquals(3, SessionLog.listSegments(tempDir.resolve(sessionId).resolve("archive")).size());
+            assertEquals(3, store.getSession(sessionId).getMessages().size());
+        }
+    }
+
+    @Test
+    void testLegacyLogIsMigrated() throws Exception {
+        Files.writeString(tempDir.resolve("legacy.jsonl"),
+                "{\"role\":\"user\",\"content\":\"old\"}\n{\"role\":\"assistant\",\"content\":\"reply\"}\n");
+        try (SessionStore store = new SessionStore(tempDir, config(4096, 0))) {
+            Session session = store.getSession("legacy");
+            assertNotNull(session);
+            assertEquals(2, session.getMessages().size());
+
+            store.appendMessage("legacy", new Message("user", "new"));
+            assertFalse(Files.exists(tempDir.resolve("legacy.jsonl")));
+        }
+        try (SessionStore reopened = new SessionStore(tempDir, config(4096, 0))) {
+            assertEquals(3, reopened.getSession("legacy").getMessages().size());
+        }
+    }
+
+    @Test
+    void testUnknownSessionIsNull() {
+        try (SessionStore store = new SessionStore(tempDir, config(4096, 0))) {
+            assertNull(store.getSession("missing"));
+            assertNull(store.getSession("../etc"));
+        }
+    }
+
+    @Test
+    void testLargeContentIsStoredOnce() throws Exception {
+        String big = "x".repeat(5000);
+        String first;
+        String second;
+        try (SessionStore store = new SessionStore(tempDir, config(1 << 20, 0))) {
+            first = store.createSession("test", "user1").getId();
+            second = store.createSession("test", "user2").getId();
+            store.appendMessage(first, Message.toolResult("t1", new String(big), false));
+            store.appendMessage(second, Message.toolResult("t2", new String(big), false));
+
+            Message a = store.getSession(first).getMessages().get(0);
+            Message b = store.getSession(second).getMessages().get(0);
+            assertNotNull(a.getContentRef());
+            assertSame(a.getContent(), b.getContent());
+
+            String line = Files.readString(SessionLog.listSegments(tempDir.resolve(first)).get(1));
+            assertFalse(line.contains(big));
+            try (var blobs = Files.walk(tempDir.resolve(".blobs"))) {
+                assertEquals(1, blobs.filter(p -> p.getFileName().toString().equals(a.getContentRef())).count());
+            }
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config(1 << 20, 0))) {
+            assertEquals(big, reopened.getSession(first).getMessages().get(0).getContent());
+            assertSame(reopened.getSession(first).getMessages().get(0).getContent(),
+                    reopened.getSession(second).getMessages().get(0).getContent());
+        }
+    }
+
+    @Test
+    void testLargeBlocksShareTextButNotTrees() throws Exception {
+        ArrayNode blocks = Json.mapper().createArrayNode();
+        blocks.addObject().put("type", "tool_use").put("id", "t1").put("name", "write")
+                .putObject("input").put("text", "y".repeat(5000));
+        try (SessionStore store = new SessionStore(tempDir, config(1 << 20, 0))) {
+            String first = store.createSession("test", "user1").getId();
+            String second = store.createSession("test", "user2").getId();
+            store.appendMessage(first, Message.assistantToolUse(blocks));
+            store.appendMessage(second, Message.assistantToolUse(blocks.deepCopy()));
+
+            JsonNode a = store.getSession(first).getMessages().get(0).getContentBlocks();
+            JsonNode b = store.getSession(second).getMessages().get(0).getContentBlocks();
+            assertSame(a.at("/0/input/text"), b.at("/0/input/text"));
+
+            // Changing one message's tree, or the tree it was appended with, leaves the other alone
+            ((ObjectNode) a.get(0)).put("name", "changed");
+            ((ObjectNode) blocks.get(0)).put("id", "changed");
+            assertEquals("write", b.at("/0/name").asText());
+            assertEquals("t1", b.at("/0/id").asText());
+            assertEquals(Json.mapper().readTree(Json.mapper().writeValueAsString(b)), b);
+        }
+    }
+
+    @Test
+    void testHistoryPageHidesStorageFields() throws Exception {
+        try (SessionStore store = new SessionStore(tempDir, config(1 << 20, 0))) {
+            String sessionId = store.createSession("test", "user1").getId();
+            store.appendMessage(sessionId, Message.toolResult("t1", "z".repeat(5000), false));
+
+            JsonNode message = Json.mapper().valueToTree(store.history(new HistoryRequest(sessionId)))
+                    .path("messages").get(0);
+            assertEquals("z".repeat(5000), message.path("content").asText());
+            assertFalse(message.has("contentRef"));
+            assertFalse(message.has("contentBlocksRef"));
+            assertFalse(message.has("tokens"));
+        }
+    }
+
+    @Test
+    void testUnreferencedBlobsAreDeletedAfterCompaction() throws Exception {
+        try (SessionStore store = new SessionStore(tempDir, config(1 << 20, 0))) {
+            String sessionId = store.createSession("test", "user1").getId();
+            store.appendMessage(sessionId, Message.toolResult("t1", "y".repeat(5000), false));
+            String hash = store.getSession(sessionId).getMessages().get(0).getContentRef();
+            Path blob = tempDir.resolve(".blobs").resolve(hash.substring(0, 2)).resolve(hash);
+            assertTrue(Files.exists(blob));
+
+            // Snapshot still references it
+            store.compact(sessionId).get();
+            assertTrue(Files.exists(blob));
+
+            store.compact(sessionId, List.of(new Message("user", "summary"))).get();
+            assertFalse(Files.exists(blob));
+        }
+    }
+
+    @Test
+    void testSnapshotIsStableWhileAppending() {
+        Session session = new Session("test", "user1");
+        for (int i = 0; i < 300; i++) {
+            session.addMessage(new Message("user", "m" + i));
+        }
+        List<Message> snapshot = session.getMessages();
+        for (int i = 0; i < 300; i++) {
+            session.addMessage(new Message("user", "n" + i));
+        }
+
+        assertEquals(300, snapshot.size());
+        assertEquals("m299", snapshot.get(299).getContent());
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(300));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Message("user", "x")));
+        assertEquals(600, session.getMessages().size());
+        assertEquals("n299", session.getMessages().get(599).getContent());
+    }
+
+    @Test
+    void testHistoryPagesFromDiskWithoutLoadingSession() throws Exception {
+        String sessionId;
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        try (SessionStore store = new SessionStore(tempDir, config(256, 0))) {
+            sessionId = store.createSession("test", "user1").getId();
+            for (int i = 0; i < 6; i++) {
+                store.appendMessage(sessionId, message("message " + i, start.plusSeconds(i)));
+            }
+            store.compact(sessionId).get();
+            for (int i = 6; i < 10; i++) {
+                store.appendMessage(sessionId, message("message " + i, start.plusSeconds(i)));
+            }
+        }
+
+        try (SessionStore reopened = new SessionStore(tempDir, config(256, 0))) {
+            HistoryRequest request = new HistoryRequest(sessionId);
+            request.setLimit(3);
+            HistoryPage latest = reopened.history(request);
+            assertEquals(10, latest.getTotal());
+            assertEquals(7, latest.getOffset());
+            assertEquals("message 7", latest.getMessages().get(0).getContent());
+            assertNull(latest.getNextOffset());
+            assertEquals(Integer.valueOf(4), latest.getPrevOffset());
+
+            request.setOffset(4);
+            HistoryPage spanning = reopened.history(request);
+            assertEquals(List.of("message 4", "message 5", "message 6"),
+                    spanning.getMessages().stream().map(Message::getContent).toList());
+            assertEquals(Integer.valueOf(7), spanning.getNextOffset());
+
+            request.setOffset(null);
+            request.setSince(start.plusSeconds(8));
+            assertEquals(8, reopened.history(request).getOffset());
+
+            assertNull(reopened.history(new HistoryRequest("missing")));
+
+            // Once the session is in memory, pages come from its history
+            reopened.getSession(sessionId);
+            request.setSince(null);
+            request.setOffset(0);
+            assertEquals("message 0", reopened.history(request).getMessages().get(0).getContent());
+        }
+    }
+
+    @Test
+    void testSweepEvictsIdleAndExpiresPerChannel() throws Exception {
+        OpenClawConfig.SessionConfig config = config(4096, 0);
+        config.setSweepSessionsPerSecond(0);
+        OpenClawConfig.TtlPolicy shortLived = new OpenClawConfig.TtlPolicy();
+        shortLived.setEvictAfterMinutes(10);
+        shortLived.setExpireAfterMinutes(60);
+        OpenClawConfig.TtlPolicy archived = new OpenClawConfig.TtlPolicy();
+        archived.setExpireAfterMinutes(60);
+        archived.setArchive(true);
+        config.getTtl().put("webhook", shortLived);
+        config.getTtl().put("default", archived);
+
+        try (SessionStore store = new SessionStore(tempDir, config)) {
+            String webhook = store.createSession("webhook", "user1").getId();
+            String console = store.createSession("console", "user2").getId();
+            String empty = store.createSession("webhook", "user3").getId();
+            store.appendMessage(webhook, new Message("user", "ping"));
+            store.appendMessage(console, new Message("user", "hello"));
+            Instant now = Instant.now();
+
+            SessionSweeper.Result idle = store.sweep(now.plusSeconds(15 * 60));
+            assertEquals(1, idle.evicted);
+            assertEquals(0, idle.expired);
+            assertNotNull(store.getSession(empty));
+            // Evicted sessions reload from disk
+            assertEquals(1, store.getSession(webhook).getMessages().size());
+
+            SessionSweeper.Result expired = store.sweep(now.plusSeconds(2 * 60 * 60));
+            assertEquals(3, expired.evicted);
+            assertEquals(2, expired.expired);
+            assertNull(store.getSession(webhook));
+            assertNull(store.getSession(console));
+            assertFalse(Files.exists(tempDir.resolve(webhook)));
+            assertTrue(Files.exists(tempDir.resolve(JsonlSessionBackend.ARCHIVE_DIR).resolve(console)));
+        }
+    }
+
+    @Test
+    void testClusterNodesWriteASessionOneAtATime() throws Exception {
+        OpenClawConfig.SessionConfig config = config(1 << 20, 0);
+        try (SessionStore a = new SessionStore(tempDir, config, "node-a:1");
+             SessionStore b = new SessionStore(tempDir, config, "node-b:2")) {
+            String sessionId = a.createSession("test", "user1").getId();
+            a.appendMessage(sessionId, Message.toolResult("t1", "x".repeat(5000), false));
+            Path nodeA = tempDir.resolve(SessionStore.NODES_DIR).resolve("node-a_1");
+            String ref = a.getSession(sessionId).getMessages().get(0).getContentRef();
+            assertTrue(ref.startsWith("node-a_1/"));
+            String hash = ref.substring("node-a_1/".length());
+            Path blobA = nodeA.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash);
+            assertTrue(Files.exists(blobA));
+            assertTrue(Files.isDirectory(nodeA.resolve("index")));
+
+            // b reads the session, but may not write it while a has it open
+            assertEquals(1, b.getSession(sessionId).getMessageCount());
+            assertThrows(SessionNotOwnedException.class,
+                    () -> b.appendMessage(sessionId, new Message("user", "too soon")));
+            assertThrows(SessionNotOwnedException.class, () -> b.compact(sessionId));
+            assertEquals(1, b.getSession(sessionId).getMessageCount());
+
+            // Once a lets go, b takes over and keeps the content in blobs of its own
+            a.evict(id -> true);
+            b.appendMessage(sessionId, new Message("user", "hello"));
+            b.compact(sessionId).get();
+            assertEquals("node-b_2/" + hash, b.getSession(sessionId).getMessages().get(0).getContentRef());
+            assertTrue(Files.exists(tempDir.resolve(SessionStore.NODES_DIR).resolve("node-b_2").resolve("blobs")
+                    .resolve(hash.substring(0, 2)).resolve(hash)));
+            assertTrue(Files.exists(blobA));
+            assertThrows(SessionNotOwnedException.class,
+                    () -> a.appendMessage(sessionId, new Message("user", "stale owner")));
+        }
+    }
+
+    @Test
+    void testSweepLeavesSessionsOfOtherNodesAlone() throws Exception {
+        OpenClawConfig.SessionConfig config = config(4096, 0);
+        config.setSweepSessionsPerSecond(0);
+        OpenClawConfig.TtlPolicy policy = new OpenClawConfig.TtlPolicy();
+        policy.setExpireAfterMinutes(60);
+        config.getTtl().put("default", policy);
+
+        try (SessionStore a = new SessionStore(tempDir, config, "a");
+             SessionStore b = new SessionStore(tempDir, config, "b")) {
+            String sessionId = a.createSession("test", "user1").getId();
+            a.appendMessage(sessionId, new Message("user", "hello"));
+            Instant later = Instant.now().plusSeconds(2 * 60 * 60);
+
+            b.setOwnership(id -> !id.equals(sessionId));
+            assertEquals(0, b.sweep(later).expired);
+            assertTrue(Files.exists(tempDir.resolve(sessionId)));
+
+            // A node that believes it owns the session still waits for a to let go of it
+            b.setOwnership(id -> true);
+            assertEquals(0, b.sweep(later).expired);
+            assertTrue(Files.exists(tempDir.resolve(sessionId)));
+
+            a.evict(id -> true);
+            assertEquals(1, b.sweep(later).expired);
+            assertFalse(Files.exists(tempDir.resolve(sessionId)));
+        }
+    }
+
+    private static Message message(String content, Instant timestamp) {
+        Message message = new Message("user", content);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
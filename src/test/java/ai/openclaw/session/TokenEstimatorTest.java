@@ -0,0 +1,45 @@
+package ai.openclaw.session;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenEstimatorTest {
+
+    @Test
+    void testEstimateTracksTextShape() {
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(4, TokenEstimator.estimate("the cat sat down"));
+        assertEquals(4, TokenEstimator.estimate("internationalization"));
+        assertEquals(7, TokenEstimator.estimate("f(x) = 42;"));
+        assertEquals(4, TokenEstimator.estimate("你好世界"));
+        assertTrue(TokenEstimator.estimate("line one\n\n    line two") > TokenEstimator.estimate("line one line two"));
+    }
+
+    @Test
+    void testMessageCachesEstimate() throws Exception {
+        Message message = new Message("user", "hello there");
+        assertEquals(TokenEstimator.MESSAGE_OVERHEAD + 2, message.getTokens());
+
+        message.setTokens(99);
+        String json = BlobStore.persistenceMapper().writeValueAsString(message);
+        assertEquals(99, BlobStore.persistenceMapper().readValue(json, Message.class).getTokens());
+    }
+
+    @Test
+    void testSessionPrefixSums() {
+        Session session = new Session("test", "user1");
+        for (int i = 0; i < 600; i++) {
+            Message message = new Message("user", "m");
+            message.setTokens(10);
+            session.addMessage(message);
+        }
+
+        assertEquals(6000, session.getTokenCount());
+        assertEquals(1000, session.getTokenCount(250, 350));
+        assertEquals(590, session.fitTokens(600, 100));
+        assertEquals(591, session.fitTokens(600, 99));
+        assertEquals(0, session.fitTokens(600, 10_000));
+        assertEquals(600, session.fitTokens(600, 5));
+    }
+}
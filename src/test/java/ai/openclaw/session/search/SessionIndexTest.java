@@ -0,0 +1,170 @@
+package ai.openclaw.session.search;
+
+import ai.openclaw.config.Json;
+import ai.openclaw.session.Message;
+import ai.openclaw.session.Session;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRankedSearch() {
+        SessionIndex index = new SessionIndex(tempDir, 1000);
+        Session a = new Session("console", "alice");
+        Session b = new Session("rpc", "bob");
+        index.add(a, 0, new Message("user", "please run the database migration"));
+        index.add(a, 1, new Message("assistant", "the migration finished, migration log attached"));
+        index.add(b, 0, new Message("user", "what is the weather today"));
+
+        List<SearchHit> hits = index.search(new SearchQuery("migration"));
+        assertEquals(2, hits.size());
+        assertEquals(a.getId(), hits.get(0).getSessionId());
+        assertEquals(1, hits.get(0).getMessageIndex());
+        assertTrue(hits.get(0).getScore() >= hits.get(1).getScore());
+        assertTrue(index.search(new SearchQuery("nothing-matches-this")).isEmpty());
+    }
+
+    @Test
+    void testToolInputsAreIndexed() {
+        SessionIndex index = new SessionIndex(tempDir, 1000);
+        Session session = new Session("console", "alice");
+        ArrayNode blocks = Json.mapper().createArrayNode();
+        ObjectNode toolUse = blocks.addObject();
+        toolUse.put("type", "tool_use");
+        toolUse.put("name", "code_execution");
+        toolUse.putObject("input").put("command", "./gradlew flywayMigrate");
+        index.add(session, 0, Message.assistantToolUse(blocks));
+
+        assertEquals(1, index.search(new SearchQuery("flywaymigrate")).size());
+        assertEquals(1, index.search(new SearchQuery("code_execution")).size());
+    }
+
+    @Test
+    void testFilters() {
+        SessionIndex index = new SessionIndex(tempDir, 1000);
+        Session a = new Session("console", "alice");
+        Session b = new Session("rpc", "bob");
+        index.add(a, 0, new Message("user", "deploy staging", Instant.parse("2026-01-01T00:00:00Z")));
+        index.add(b, 0, new Message("user", "deploy production", Instant.parse("2026-02-01T00:00:00Z")));
+
+        SearchQuery byUser = new SearchQuery("deploy");
+        byUser.setUserId("bob");
+        assertEquals(b.getId(), index.search(byUser).get(0).getSessionId());
+        assertEquals(1, index.search(byUser).size());
+
+        SearchQuery byChannel = new SearchQuery("deploy");
+        byChannel.setChannelType("console");
+        assertEquals(1, index.search(byChannel).size());
+
+        SearchQuery byTime = new SearchQuery("deploy");
+        byTime.setFrom(Instant.parse("2026-01-15T00:00:00Z"));
+        assertEquals(b.getId(), index.search(byTime).get(0).getSessionId());
+        assertEquals(1, index.search(byTime).size());
+    }
+
+    @Test
+    void testSegmentsPersistAndMerge() {
+        Session session = new Session("console", "alice");
+        SessionIndex index = new SessionIndex(tempDir, 2);
+        for (int i = 0; i < 40; i++) {
+            index.add(session, i, new Message("user", "message " + i + (i % 10 == 0 ? " needle" : "")));
+        }
+        index.close();
+
+        SessionIndex reopened = new SessionIndex(tempDir, 2);
+        SearchQuery query = new SearchQuery("needle");
+        List<SearchHit> hits = reopened.search(query);
+        assertEquals(4, hits.size());
+        assertEquals(40, reopened.search(withLimit("message", 100)).size());
+    }
+
+    @Test
+    void testMergesSegmentsOfTheSameTier() throws Exception {
+        Session session = new Session("console", "alice");
+        SessionIndex index = new SessionIndex(tempDir, 2);
+        // 20 flushes: two merges of 8 into tier 1, 4 tier-0 segments left over
+        for (int i = 0; i < 40; i++) {
+            index.add(session, i, new Message("user", "message " + i));
+        }
+        try (var files = Files.list(tempDir)) {
+            assertEquals(6, files.filter(p -> p.getFileName().toString().endsWith(".idx")).count());
+        }
+        assertEquals(40, index.search(withLimit("message", 100)).size());
+    }
+
+    @Test
+    void testFlushesOnTheBackgroundExecutor() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        SessionIndex index = new SessionIndex(tempDir, 2, tasks::add);
+        Session session = new Session("console", "alice");
+        index.add(session, 0, new Message("user", "first needle"));
+        index.add(session, 1, new Message("user", "second needle"));
+
+        assertEquals(1, tasks.size());
+        assertEquals(2, index.search(new SearchQuery("needle")).size());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+        tasks.forEach(Runnable::run);
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(2, index.search(new SearchQuery("needle")).size());
+    }
+
+    @Test
+    void testResetReplacesSessionDocuments() {
+        Session a = new Session("console", "alice");
+        Session b = new Session("console", "bob");
+        SessionIndex index = new SessionIndex(tempDir, 2);
+        for (int i = 0; i < 5; i++) {
+            index.add(a, i, new Message("user", "original message " + i));
+        }
+        index.add(b, 0, new Message("user", "original from bob"));
+
+        index.reset(a, List.of(new Message("assistant", "summary of the original conversation")));
+        List<SearchHit> hits = index.search(withLimit("original", 100));
+        assertEquals(2, hits.size());
+        SearchHit summary = hits.stream().filter(h -> h.getSessionId().equals(a.getId())).findFirst().orElseThrow();
+        assertEquals(0, summary.getMessageIndex());
+        assertEquals(Map.of(a.getId(), 0, b.getId(), 0), index.indexedThrough());
+        index.close();
+
+        SessionIndex reopened = new SessionIndex(tempDir, 2);
+        assertEquals(2, reopened.search(withLimit("original", 100)).size());
+        assertEquals(0, reopened.search(new SearchQuery("message")).size());
+    }
+
+    @Test
+    void testCleanShutdownIsRemembered() {
+        SessionIndex index = new SessionIndex(tempDir, 1000);
+        assertFalse(index.wasShutDownCleanly());
+        index.add(new Session("console", "alice"), 0, new Message("user", "hello there"));
+        index.close();
+
+        assertTrue(new SessionIndex(tempDir, 1000).wasShutDownCleanly());
+        // Not closed this time
+        assertFalse(new SessionIndex(tempDir, 1000).wasShutDownCleanly());
+    }
+
+    private static SearchQuery withLimit(String text, int limit) {
+        SearchQuery query = new SearchQuery(text);
+        query.setLimit(limit);
+        return query;
+    }
+}
@@ -0,0 +1,46 @@
+package ai.openclaw.test;
+
+import ai.openclaw.agent.LlmResponse;
+import ai.openclaw.session.Message;
+import ai.openclaw.tool.Tool;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** A {@link MockLlmProvider} whose completions wait for {@link #release()}, to hold turns in flight. */
+public class BlockingLlmProvider extends MockLlmProvider {
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    /** Lets every waiting and future completion return. */
+    public void release() {
+        released.countDown();
+    }
+
+    /** Waits until a completion has started, that is, a turn is in flight. */
+    public boolean awaitEntered(long timeout, TimeUnit unit) throws InterruptedException {
+        return entered.await(timeout, unit);
+    }
+
+    @Override
+    public String complete(List<Message> messages, String model) {
+        block();
+        return super.complete(messages, model);
+    }
+
+    @Override
+    public LlmResponse completeWithTools(List<Message> messages, String model, List<Tool> tools) {
+        block();
+        return super.completeWithTools(messages, model, tools);
+    }
+
+    private void block() {
+        entered.countDown();
+        try {
+            released.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
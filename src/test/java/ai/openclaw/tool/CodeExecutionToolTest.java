@@ -2,15 +2,39 @@ package ai.openclaw.tool;
 
 import ai.openclaw.config.Json;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CodeExecutionToolTest {
 
     private final CodeExecutionTool tool = new CodeExecutionTool(30, Paths.get(System.getProperty("java.io.tmpdir")));
+    private CodeExecutionTool pooled;
+
+    @AfterEach
+    void tearDown() {
+        if (pooled != null) {
+            pooled.close();
+        }
+    }
+
+    private CodeExecutionTool pooled(long timeoutSeconds) {
+        pooled = new CodeExecutionTool(timeoutSeconds, Paths.get(System.getProperty("java.io.tmpdir")),
+                List.of(Pattern.compile("\\bmkfs\\b")), List.of(), 1);
+        return pooled;
+    }
+
+    private static ToolResult run(CodeExecutionTool tool, String command) {
+        ObjectNode input = Json.mapper().createObjectNode();
+        input.put("command", command);
+        return tool.execute(input);
+    }
 
     @Test
     void testEchoCommand() {
@@ -154,4 +178,107 @@ public class CodeExecutionToolTest {
         assertNotNull(tool.checkBlocked("ln -s /etc /home/openclaw/workspace/etc"));
         assertNotNull(tool.checkBlocked("ln -sf /root/.ssh workspace/ssh"));
     }
+
+    @Test
+    void testReportsOutputAsProgress() {
+        ObjectNode input = Json.mapper().createObjectNode();
+        input.put("command", "echo one; echo two");
+        StringBuffer reported = new StringBuffer();
+
+        ToolResult result = tool.execute(input, new ToolProgress() {
+            @Override
+            public void output(String text) {
+                reported.append(text);
+            }
+
+            @Override
+            public void transferred(long bytes, long totalBytes) {
+            }
+        });
+
+        assertEquals("one\ntwo", result.getOutput());
+        assertEquals("one\ntwo\n", reported.toString());
+    }
+
+    // --- Persistent shell workers ---
+
+    @Test
+    void testPooledWorkerRunsCommands() {
+        CodeExecutionTool tool = pooled(30);
+
+        assertEquals("hello world", run(tool, "echo hello world").getOutput());
+        ToolResult failed = run(tool, "echo out; echo err >&2; exit 42");
+        assertEquals(42, failed.getExitCode());
+        assertTrue(failed.isError());
+        assertEquals("out\nerr", failed.getOutput());
+        assertEquals("no newline", run(tool, "printf 'no newline'").getOutput());
+        assertEquals("it's", run(tool, "echo 'it'\"'\"'s'").getOutput());
+        assertNotEquals(0, run(tool, "echo (").getExitCode());
+        assertTrue(run(tool, "mkfs /dev/null").getOutput().contains("blocked"));
+    }
+
+    @Test
+    void testPooledCommandsShareTheShellButNotItsState() {
+        CodeExecutionTool tool = pooled(30);
+
+        String shell = run(tool, "echo $$").getOutput();
+        String home = run(tool, "pwd").getOutput();
+        run(tool, "cd / && export LEAK=1");
+        assertEquals(home + " []", run(tool, "echo \"$(pwd) [$LEAK]\"").getOutput());
+        assertEquals(shell, run(tool, "echo $$").getOutput());
+        // A command reading stdin sees end of input, not the commands after it
+        assertEquals("read: 1", run(tool, "read line; echo \"read: $?\"").getOutput());
+    }
+
+    @Test
+    void testPooledTimeoutReplacesWorker() throws Exception {
+        CodeExecutionTool tool = pooled(1);
+        String shell = run(tool, "echo $$").getOutput();
+
+        ToolResult timedOut = run(tool, "echo started && sleep 30");
+        assertEquals(-1, timedOut.getExitCode());
+        assertTrue(timedOut.getOutput().startsWith("started"));
+
+        assertEquals("again", run(tool, "echo again").getOutput());
+        String replacement = null;
+        for (int i = 0; i < 50 && (replacement == null || replacement.equals(shell)); i++) {
+            Thread.sleep(20);
+            replacement = run(tool, "echo $$").getOutput();
+        }
+        assertNotEquals(shell, replacement);
+        assertEquals(replacement, run(tool, "echo $$").getOutput());
+    }
+
+    @Test
+    void testPooledBackgroundJobOutputStaysWithItsCommand() {
+        CodeExecutionTool tool = pooled(30);
+
+        // The command lasts as long as the job holding its output, even one its subshell no longer owns
+        ToolResult started = run(tool, "(sleep 1; echo late) & ( (sleep 1; echo orphan) & ); echo started");
+        assertEquals(0, started.getExitCode());
+        assertTrue(started.getOutput().startsWith("started"));
+        assertTrue(started.getOutput().contains("late"));
+        assertTrue(started.getOutput().contains("orphan"));
+        assertEquals("next", run(tool, "echo next").getOutput());
+
+        // A job that lets go of its output does not hold the command up
+        long start = System.nanoTime();
+        assertEquals("detached", run(tool, "sleep 5 >/dev/null 2>&1 & echo detached").getOutput());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        assertEquals("next", run(tool, "echo next").getOutput());
+    }
+
+    @Test
+    void testPooledBackgroundJobPastTheTimeoutCannotReachTheNextCommand() throws Exception {
+        CodeExecutionTool tool = pooled(1);
+
+        ToolResult timedOut = run(tool, "(sleep 2; echo leaked) & echo started");
+        assertEquals(-1, timedOut.getExitCode());
+        assertTrue(timedOut.getOutput().startsWith("started"));
+
+        Thread.sleep(1500);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("clean " + i, run(tool, "echo clean " + i).getOutput());
+        }
+    }
 }